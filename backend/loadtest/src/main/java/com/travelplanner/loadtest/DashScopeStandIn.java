@@ -0,0 +1,299 @@
+package com.travelplanner.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地 DashScope 文本生成接口替身
+ *
+ * 启动后将后端的 aliyun.ai.endpoint 指向
+ * http://localhost:{port}/api/v1/services/aigc/text-generation/generation
+ *
+ * 参数：
+ * --port=18080                 监听端口
+ * --latency=lognormal:8000:0.6 非流式响应的耗时分布（见 LatencyDistribution）
+ * --model-latency=qwen-turbo=fixed:800,qwen-plus=lognormal:8000:0.6  按请求中的 model 单独指定耗时分布
+ * --first-token-ms=500         流式响应首个分片的延迟
+ * --token-delay-ms=30          流式响应每个分片之间的延迟
+ * --error-rate=0.05            返回错误的比例
+ * --error-status=500           错误状态码（500 / 429 等）
+ * --responses=dir              固定回复目录，可包含 itinerary.txt / parse.json / voice-plan.json
+ */
+public class DashScopeStandIn {
+
+    static final String GENERATION_PATH = "/api/v1/services/aigc/text-generation/generation";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LatencyDistribution latency;
+    private final Map<String, LatencyDistribution> modelLatency;
+    private final long firstTokenMs;
+    private final long tokenDelayMs;
+    private final double errorRate;
+    private final int errorStatus;
+    private final CannedResponses responses;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong streamRequests = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+
+    private HttpServer server;
+
+    public DashScopeStandIn(LatencyDistribution latency, Map<String, LatencyDistribution> modelLatency,
+                            long firstTokenMs, long tokenDelayMs,
+                            double errorRate, int errorStatus, CannedResponses responses) {
+        this.latency = latency;
+        this.modelLatency = modelLatency;
+        this.firstTokenMs = firstTokenMs;
+        this.tokenDelayMs = tokenDelayMs;
+        this.errorRate = errorRate;
+        this.errorStatus = errorStatus;
+        this.responses = responses;
+    }
+
+    public static void main(String[] argv) throws Exception {
+        Args args = new Args(argv);
+        DashScopeStandIn standIn = new DashScopeStandIn(
+                LatencyDistribution.parse(args.get("latency", "lognormal:8000:0.6")),
+                parseModelLatency(args.get("model-latency", "")),
+                args.getInt("first-token-ms", 500),
+                args.getInt("token-delay-ms", 30),
+                args.getDouble("error-rate", 0.0),
+                args.getInt("error-status", 500),
+                CannedResponses.load(args.get("responses", null)));
+        int port = args.getInt("port", 18080);
+        standIn.start(port);
+        System.out.printf("DashScope 替身已启动: http://localhost:%d%s, latency=%s, errorRate=%.2f%n",
+                port, GENERATION_PATH, standIn.latency, standIn.errorRate);
+    }
+
+    public void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 256);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext(GENERATION_PATH, this::handleGeneration);
+        server.createContext("/stats", this::handleStats);
+        server.start();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    private void handleGeneration(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendJson(exchange, 405, error("MethodNotAllowed", "only POST is supported"));
+                return;
+            }
+            requests.incrementAndGet();
+
+            JsonNode request = objectMapper.readTree(readBody(exchange.getRequestBody()));
+            String prompt = request.path("input").path("prompt").asText("");
+            boolean stream = "enable".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("X-DashScope-SSE"))
+                    || String.valueOf(exchange.getRequestHeaders().getFirst("Accept")).contains("text/event-stream");
+            boolean incremental = request.path("parameters").path("incremental_output").asBoolean(false);
+            LatencyDistribution latency = modelLatency.getOrDefault(request.path("model").asText(""), this.latency);
+
+            if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+                injectedErrors.incrementAndGet();
+                sleep(latency.sampleMs() / 4);
+                sendJson(exchange, errorStatus, error(errorStatus == 429 ? "Throttling" : "InternalError",
+                        "injected error from stand-in"));
+                return;
+            }
+
+            String text = responses.forPrompt(prompt);
+            if (stream) {
+                streamRequests.incrementAndGet();
+                sendStream(exchange, prompt, text, incremental);
+            } else {
+                sleep(latency.sampleMs());
+                sendJson(exchange, 200, result(prompt, text, "stop"));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static Map<String, LatencyDistribution> parseModelLatency(String spec) {
+        Map<String, LatencyDistribution> result = new HashMap<>();
+        for (String part : spec.split(",")) {
+            int eq = part.indexOf('=');
+            if (eq > 0) {
+                result.put(part.substring(0, eq).trim(), LatencyDistribution.parse(part.substring(eq + 1).trim()));
+            }
+        }
+        return result;
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        ObjectNode stats = objectMapper.createObjectNode();
+        stats.put("requests", requests.get());
+        stats.put("streamRequests", streamRequests.get());
+        stats.put("injectedErrors", injectedErrors.get());
+        sendJson(exchange, 200, stats);
+        exchange.close();
+    }
+
+    /**
+     * 按 DashScope SSE 格式逐个分片输出；incremental_output=false 时每个分片包含完整的累计文本
+     */
+    private void sendStream(HttpExchange exchange, String prompt, String text, boolean incremental) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream;charset=UTF-8");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+
+        sleep(firstTokenMs);
+        int id = 1;
+        int position = 0;
+        while (position < text.length()) {
+            int next = Math.min(text.length(), position + 1 + ThreadLocalRandom.current().nextInt(3));
+            if (next < text.length() && Character.isHighSurrogate(text.charAt(next - 1))) {
+                // 不拆分 emoji 等代理对
+                next++;
+            }
+            String chunk = incremental ? text.substring(position, next) : text.substring(0, next);
+            boolean last = next == text.length();
+            String event = "id:" + id++ + "\nevent:result\n:HTTP_STATUS/200\ndata:"
+                    + objectMapper.writeValueAsString(result(prompt, chunk, last ? "stop" : "null")) + "\n\n";
+            out.write(event.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            position = next;
+            if (!last) {
+                sleep(tokenDelayMs);
+            }
+        }
+        out.close();
+    }
+
+    private ObjectNode result(String prompt, String text, String finishReason) {
+        ObjectNode node = objectMapper.createObjectNode();
+        ObjectNode output = node.putObject("output");
+        output.put("text", text);
+        output.put("finish_reason", finishReason);
+        ObjectNode usage = node.putObject("usage");
+        usage.put("input_tokens", prompt.length());
+        usage.put("output_tokens", text.length());
+        usage.put("total_tokens", prompt.length() + text.length());
+        node.put("request_id", UUID.randomUUID().toString());
+        return node;
+    }
+
+    private ObjectNode error(String code, String message) {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("code", code);
+        node.put("message", message);
+        node.put("request_id", UUID.randomUUID().toString());
+        return node;
+    }
+
+    private void sendJson(HttpExchange exchange, int status, JsonNode body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static String readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            bytes.write(buffer, 0, n);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void sleep(long ms) {
+        if (ms <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 固定回复：根据提示词内容区分行程生成、需求解析和语音合并调用
+     */
+    static class CannedResponses {
+        private final String itinerary;
+        private final String parse;
+        private final String voicePlan;
+
+        CannedResponses(String itinerary, String parse, String voicePlan) {
+            this.itinerary = itinerary;
+            this.parse = parse;
+            this.voicePlan = voicePlan;
+        }
+
+        static CannedResponses load(String directory) throws IOException {
+            String itinerary = defaultItinerary();
+            String parse = "{\"destination\":\"上海\",\"startDate\":\"2026-11-01\",\"endDate\":\"2026-11-05\","
+                    + "\"budget\":8000,\"travelerCount\":2,\"preferences\":[\"美食\",\"文化\"],"
+                    + "\"travelType\":\"情侣游\",\"specialRequirements\":\"无特殊需求\"}";
+            String voicePlan = null;
+
+            if (directory != null) {
+                Path dir = Paths.get(directory);
+                itinerary = readIfExists(dir.resolve("itinerary.txt"), itinerary);
+                parse = readIfExists(dir.resolve("parse.json"), parse);
+                voicePlan = readIfExists(dir.resolve("voice-plan.json"), null);
+            }
+            if (voicePlan == null) {
+                voicePlan = parse.substring(0, parse.lastIndexOf('}'))
+                        + ",\"itinerary\":" + new ObjectMapper().writeValueAsString(itinerary) + "}";
+            }
+            return new CannedResponses(itinerary, parse, voicePlan);
+        }
+
+        String forPrompt(String prompt) {
+            if (prompt.contains("\"itinerary\"")) {
+                return voicePlan;
+            }
+            if (prompt.contains("JSON格式")) {
+                return parse;
+            }
+            return itinerary;
+        }
+
+        private static String readIfExists(Path path, String defaultValue) throws IOException {
+            return Files.exists(path) ? new String(Files.readAllBytes(path), StandardCharsets.UTF_8) : defaultValue;
+        }
+
+        private static String defaultItinerary() {
+            StringBuilder text = new StringBuilder("🌍 旅行概览\n• 目的地特色介绍：替身服务生成的示例行程\n\n🗓️ 每日详细行程安排\n");
+            for (int day = 1; day <= 5; day++) {
+                text.append("第").append(day).append("天\n")
+                        .append("🏨 住宿：市中心酒店\n🚗 交通：地铁+步行\n")
+                        .append("🏛️ 景点：上午游览主要景点，下午自由活动\n")
+                        .append("🍽️ 餐饮：早餐酒店，午餐当地小吃，晚餐特色餐厅\n\n");
+            }
+            text.append("💰 详细预算分配\n• 交通 30%\n• 住宿 35%\n• 餐饮 20%\n• 门票 10%\n• 购物 5%\n\n")
+                    .append("📝 实用贴士\n• 提前预订酒店\n• 注意天气变化\n");
+            return text.toString();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.travelplanner.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 模拟上游耗时分布
+ *
+ * fixed:2000            固定 2000ms
+ * uniform:1000:5000     1000~5000ms 均匀分布
+ * lognormal:8000:0.6    中位数 8000ms、sigma 0.6 的对数正态分布（长尾）
+ */
+class LatencyDistribution {
+
+    private final String type;
+    private final double a;
+    private final double b;
+
+    private LatencyDistribution(String type, double a, double b) {
+        this.type = type;
+        this.a = a;
+        this.b = b;
+    }
+
+    static LatencyDistribution parse(String spec) {
+        String[] parts = spec.split(":");
+        switch (parts[0]) {
+            case "fixed":
+                return new LatencyDistribution("fixed", Double.parseDouble(parts[1]), 0);
+            case "uniform":
+                return new LatencyDistribution("uniform", Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+            case "lognormal":
+                return new LatencyDistribution("lognormal", Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+            default:
+                throw new IllegalArgumentException("未知的耗时分布: " + spec);
+        }
+    }
+
+    long sampleMs() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (type) {
+            case "uniform":
+                return (long) (a + random.nextDouble() * (b - a));
+            case "lognormal":
+                return (long) (a * Math.exp(b * random.nextGaussian()));
+            default:
+                return (long) a;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return type + "(" + a + (b != 0 ? ", " + b : "") + ")";
+    }
+}
@@ -0,0 +1,50 @@
+package com.travelplanner.loadtest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 按接口记录耗时、状态码和响应体大小
+ */
+class LatencyRecorder {
+
+    private final List<Long> latencies = new ArrayList<>();
+    private final Map<Integer, Integer> statusCounts = new TreeMap<>();
+    private int errors;
+    private long responseBytes;
+
+    synchronized void record(long latencyMs, int status, int bytes) {
+        latencies.add(latencyMs);
+        responseBytes += Math.max(bytes, 0);
+        statusCounts.merge(status, 1, Integer::sum);
+        if (status < 200 || status >= 400) {
+            errors++;
+        }
+    }
+
+    synchronized String report(String name, double durationSeconds) {
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        return String.format("%-28s %7d %7d %9.2f %8d %8d %8d %8d %10d  %s",
+                name, sorted.size(), errors, sorted.size() / durationSeconds,
+                percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                sorted.isEmpty() ? 0 : sorted.get(sorted.size() - 1),
+                sorted.isEmpty() ? 0 : responseBytes / sorted.size(), statusCounts);
+    }
+
+    static String header() {
+        return String.format("%-28s %7s %7s %9s %8s %8s %8s %8s %10s  %s",
+                "endpoint", "count", "errors", "req/s", "p50(ms)", "p95(ms)", "p99(ms)", "max(ms)", "avg bytes", "status");
+    }
+
+    private static long percentile(List<Long> sorted, double quantile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(quantile * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(rank, sorted.size() - 1)));
+    }
+}
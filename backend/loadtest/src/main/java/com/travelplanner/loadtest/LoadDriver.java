@@ -0,0 +1,290 @@
+package com.travelplanner.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 端到端压测驱动
+ *
+ * 登录后按目标 RPS 混合发起：创建旅行计划、语音规划、费用增删改查，
+ * 结束时按接口输出吞吐量和 p50/p95/p99，并打印后端 /api/monitor 的状态。
+ *
+ * 参数：
+ * --base-url=http://localhost:8080/api
+ * --rps=5                  目标每秒场景数
+ * --duration=60            持续秒数
+ * --threads=64             并发发送线程数（需大于 rps * 单次场景耗时）
+ * --mix=plan:2,voice:1,expense:7   场景权重
+ * --async-plans=false      创建计划时是否使用 async=true
+ * --timeout-ms=120000      单个请求超时
+ */
+public class LoadDriver {
+
+    private static final String[] DESTINATIONS = {"上海", "北京", "四川成都", "海南三亚", "日本东京", "杭州", "西安"};
+    private static final String[] PREFERENCES = {"美食", "文化", "购物", "美食,文化", "海滩", "动漫,购物"};
+    private static final String[] VOICE_TEXTS = {
+            "我想去日本东京玩五天，预算一万元，喜欢美食和动漫，带孩子",
+            "下周末和女朋友去三亚，预算五千，想去海边",
+            "一家四口国庆去成都，预算两万块，主要是吃",
+            "我们两个人想去上海看看，喜欢文化和购物"
+    };
+    private static final String[] CATEGORIES = {"交通", "住宿", "餐饮", "景点"};
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String baseUrl;
+    private final int timeoutMs;
+    private final boolean asyncPlans;
+    private final Map<String, LatencyRecorder> recorders = new ConcurrentSkipListMap<>();
+    private final AtomicLong scenariosStarted = new AtomicLong();
+    private final AtomicLong scenariosDropped = new AtomicLong();
+
+    private String token;
+    private long expensePlanId;
+
+    public LoadDriver(String baseUrl, int timeoutMs, boolean asyncPlans) {
+        this.baseUrl = baseUrl;
+        this.timeoutMs = timeoutMs;
+        this.asyncPlans = asyncPlans;
+    }
+
+    public static void main(String[] argv) throws Exception {
+        Args args = new Args(argv);
+        LoadDriver driver = new LoadDriver(
+                args.get("base-url", "http://localhost:8080/api"),
+                args.getInt("timeout-ms", 120000),
+                args.getBoolean("async-plans", false));
+
+        driver.login();
+        driver.run(args.getDouble("rps", 5), args.getInt("duration", 60), args.getInt("threads", 64),
+                parseMix(args.get("mix", "plan:2,voice:1,expense:7")));
+    }
+
+    /**
+     * 注册一个随机用户并登录
+     */
+    void login() throws IOException {
+        String username = "load-" + UUID.randomUUID().toString().substring(0, 8);
+        ObjectNode register = objectMapper.createObjectNode();
+        register.put("username", username);
+        register.put("password", "load-test");
+        register.put("email", username + "@loadtest.local");
+        call("auth.register", "POST", "/auth/register", register);
+
+        ObjectNode login = objectMapper.createObjectNode();
+        login.put("username", username);
+        login.put("password", "load-test");
+        Response response = call("auth.login", "POST", "/auth/login", login);
+        if (response.json == null || !response.json.has("token")) {
+            throw new IllegalStateException("登录失败: " + response.status + " " + response.body);
+        }
+        token = response.json.get("token").asText();
+
+        // 费用场景共用一个同步创建的计划
+        Response plan = call("travel-plans.create(setup)", "POST", "/travel-plans", planRequest());
+        expensePlanId = plan.json != null && plan.json.has("id") ? plan.json.get("id").asLong() : -1;
+        System.out.printf("登录用户 %s，费用场景使用计划 %d%n", username, expensePlanId);
+    }
+
+    void run(double rps, int durationSeconds, int threads, List<String> mix) throws Exception {
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        ScheduledExecutorService pacer = Executors.newSingleThreadScheduledExecutor();
+        AtomicLong inFlight = new AtomicLong();
+        long periodMicros = (long) (1_000_000 / rps);
+
+        System.out.printf("开始压测: rps=%.1f, duration=%ds, threads=%d, mix=%s%n", rps, durationSeconds, threads, mix);
+        long start = System.nanoTime();
+        pacer.scheduleAtFixedRate(() -> {
+            // 发送线程全部占满时丢弃本次场景并计数，避免压测端自身排队掩盖服务端延迟
+            if (inFlight.get() >= threads) {
+                scenariosDropped.incrementAndGet();
+                return;
+            }
+            inFlight.incrementAndGet();
+            scenariosStarted.incrementAndGet();
+            String scenario = mix.get(ThreadLocalRandom.current().nextInt(mix.size()));
+            workers.execute(() -> {
+                try {
+                    runScenario(scenario);
+                } catch (Exception e) {
+                    record("scenario." + scenario + ".exception", 0, -1, 0);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            });
+        }, 0, periodMicros, TimeUnit.MICROSECONDS);
+
+        pacer.awaitTermination(durationSeconds, TimeUnit.SECONDS);
+        pacer.shutdownNow();
+        workers.shutdown();
+        workers.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        printReport(elapsedSeconds);
+    }
+
+    private void runScenario(String scenario) throws IOException {
+        switch (scenario) {
+            case "plan":
+                Response created = call(asyncPlans ? "travel-plans.create(async)" : "travel-plans.create",
+                        "POST", asyncPlans ? "/travel-plans?async=true" : "/travel-plans", planRequest());
+                call("travel-plans.list", "GET", "/travel-plans", null);
+                if (asyncPlans && created.json != null && created.json.has("jobId")) {
+                    call("plan-jobs.status", "GET", "/plan-jobs/" + created.json.get("jobId").asLong(), null);
+                }
+                break;
+            case "voice":
+                ObjectNode voice = objectMapper.createObjectNode();
+                voice.put("voiceText", VOICE_TEXTS[ThreadLocalRandom.current().nextInt(VOICE_TEXTS.length)]);
+                call("voice-plan.generate", "POST", "/voice-plan/generate", voice);
+                break;
+            case "expense":
+                Response expense = call("expenses.create", "POST", "/expenses", expenseRequest());
+                call("expenses.list", "GET", "/expenses/plan/" + expensePlanId, null);
+                call("expenses.summary", "GET", "/expenses/plan/" + expensePlanId + "/summary", null);
+                if (expense.json != null && expense.json.has("id")) {
+                    long id = expense.json.get("id").asLong();
+                    call("expenses.update", "PUT", "/expenses/" + id, expenseRequest());
+                    call("expenses.delete", "DELETE", "/expenses/" + id, null);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("未知场景: " + scenario);
+        }
+    }
+
+    private ObjectNode planRequest() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDate start = LocalDate.now().plusDays(7 + random.nextInt(30));
+        ObjectNode plan = objectMapper.createObjectNode();
+        plan.put("destination", DESTINATIONS[random.nextInt(DESTINATIONS.length)]);
+        plan.put("startDate", start.toString());
+        plan.put("endDate", start.plusDays(2 + random.nextInt(6)).toString());
+        plan.put("budget", 2000 + random.nextInt(20) * 1000);
+        plan.put("travelerCount", 1 + random.nextInt(4));
+        plan.put("preferences", PREFERENCES[random.nextInt(PREFERENCES.length)]);
+        return plan;
+    }
+
+    private ObjectNode expenseRequest() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        ObjectNode expense = objectMapper.createObjectNode();
+        expense.put("category", CATEGORIES[random.nextInt(CATEGORIES.length)]);
+        expense.put("description", "压测费用");
+        expense.put("amount", 10 + random.nextInt(990));
+        expense.putObject("travelPlan").put("id", expensePlanId);
+        return expense;
+    }
+
+    private Response call(String name, String method, String path, JsonNode body) throws IOException {
+        long start = System.nanoTime();
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(5000);
+        connection.setReadTimeout(timeoutMs);
+        connection.setRequestProperty("Accept", "application/json");
+        if (token != null) {
+            connection.setRequestProperty("Authorization", "Bearer " + token);
+        }
+
+        Response response = new Response();
+        try {
+            if (body != null) {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(objectMapper.writeValueAsBytes(body));
+                }
+            }
+            response.status = connection.getResponseCode();
+            InputStream in = response.status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+            byte[] bytes = in == null ? new byte[0] : readAll(in);
+            response.bytes = bytes.length;
+            response.body = new String(bytes, StandardCharsets.UTF_8);
+            if (response.body.startsWith("{")) {
+                response.json = objectMapper.readTree(response.body);
+            }
+        } catch (IOException e) {
+            response.status = -1;
+            response.body = e.getMessage();
+        } finally {
+            connection.disconnect();
+        }
+
+        record(name, (System.nanoTime() - start) / 1_000_000, response.status, response.bytes);
+        return response;
+    }
+
+    private void record(String name, long latencyMs, int status, int bytes) {
+        recorders.computeIfAbsent(name, k -> new LatencyRecorder()).record(latencyMs, status, bytes);
+    }
+
+    private void printReport(double elapsedSeconds) {
+        System.out.println();
+        System.out.printf("耗时 %.1fs，发起场景 %d 个，因发送线程占满丢弃 %d 个%n",
+                elapsedSeconds, scenariosStarted.get(), scenariosDropped.get());
+        System.out.println(LatencyRecorder.header());
+        recorders.forEach((name, recorder) -> System.out.println(recorder.report(name, elapsedSeconds)));
+
+        System.out.println();
+        System.out.println("后端监控状态:");
+        for (String monitor : new String[]{"ai-pool", "ai-calls", "ai-resilience", "itinerary-cache", "plan-jobs", "rate-limit", "ai-routing", "plan-deadline", "plan-batch", "prewarm", "itinerary-store", "sql", "plan-search", "sqlite", "expense-rollups", "expense-import"}) {
+            try {
+                Response response = call("monitor." + monitor, "GET", "/monitor/" + monitor, null);
+                System.out.printf("  %-16s %s%n", monitor, response.body);
+            } catch (IOException e) {
+                System.out.printf("  %-16s 获取失败: %s%n", monitor, e.getMessage());
+            }
+        }
+    }
+
+    private static List<String> parseMix(String spec) {
+        List<String> weighted = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            String[] kv = part.split(":");
+            int weight = kv.length > 1 ? Integer.parseInt(kv[1]) : 1;
+            for (int i = 0; i < weight; i++) {
+                weighted.add(kv[0].trim());
+            }
+        }
+        return weighted;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            bytes.write(buffer, 0, n);
+        }
+        in.close();
+        return bytes.toByteArray();
+    }
+
+    private static class Response {
+        int status;
+        int bytes;
+        String body;
+        JsonNode json;
+    }
+}
@@ -0,0 +1,96 @@
+package com.travelplanner.config;
+
+import org.apache.http.HeaderElement;
+import org.apache.http.HeaderElementIterator;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.protocol.HTTP;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 阿里云大模型HTTP客户端配置
+ *
+ * 使用连接池替代 HttpClients.createDefault()，避免每个路由只有2个连接、
+ * 且没有任何超时导致的线程长时间挂起。
+ */
+@Configuration
+public class AIHttpClientConfig {
+
+    @Value("${aliyun.ai.pool.max-total:50}")
+    private int maxTotal;
+
+    @Value("${aliyun.ai.pool.max-per-route:20}")
+    private int maxPerRoute;
+
+    @Value("${aliyun.ai.pool.validate-after-inactivity-ms:2000}")
+    private int validateAfterInactivityMs;
+
+    @Value("${aliyun.ai.pool.idle-evict-ms:30000}")
+    private long idleEvictMs;
+
+    @Value("${aliyun.ai.pool.keep-alive-ms:30000}")
+    private long keepAliveMs;
+
+    @Value("${aliyun.ai.connect-timeout-ms:3000}")
+    private int connectTimeoutMs;
+
+    @Value("${aliyun.ai.read-timeout-ms:60000}")
+    private int readTimeoutMs;
+
+    @Value("${aliyun.ai.lease-timeout-ms:2000}")
+    private int leaseTimeoutMs;
+
+    @Bean
+    public PoolingHttpClientConnectionManager aiConnectionManager() {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxTotal);
+        connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+        connectionManager.setValidateAfterInactivity(validateAfterInactivityMs);
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient aiHttpClient(PoolingHttpClientConnectionManager aiConnectionManager) {
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMs)
+                .setSocketTimeout(readTimeoutMs)
+                .setConnectionRequestTimeout(leaseTimeoutMs)
+                .build();
+
+        return HttpClients.custom()
+                .setConnectionManager(aiConnectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy())
+                .evictExpiredConnections()
+                .evictIdleConnections(idleEvictMs, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * 优先使用服务端返回的 Keep-Alive: timeout=N，否则使用配置的默认值
+     */
+    private ConnectionKeepAliveStrategy keepAliveStrategy() {
+        return (response, context) -> {
+            HeaderElementIterator it = new BasicHeaderElementIterator(response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+            while (it.hasNext()) {
+                HeaderElement element = it.nextElement();
+                if ("timeout".equalsIgnoreCase(element.getName()) && element.getValue() != null) {
+                    try {
+                        return Math.min(Long.parseLong(element.getValue()) * 1000, keepAliveMs);
+                    } catch (NumberFormatException ignored) {
+                        // 使用默认值
+                    }
+                }
+            }
+            return keepAliveMs;
+        };
+    }
+}
@@ -0,0 +1,132 @@
+package com.travelplanner.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * 异步任务线程池配置
+ */
+@Configuration
+@EnableScheduling
+public class AsyncConfig {
+
+    @Value("${app.ai.call.pool-size:16}")
+    private int callPoolSize;
+
+    @Value("${app.ai.call.queue-capacity:200}")
+    private int callQueueCapacity;
+
+    @Value("${app.ai.call.attempt-pool-size:32}")
+    private int attemptPoolSize;
+
+    @Value("${app.ai.stream.pool-size:8}")
+    private int streamPoolSize;
+
+    @Value("${app.ai.stream.queue-capacity:50}")
+    private int streamQueueCapacity;
+
+    @Value("${app.plan-deadline.pool-size:8}")
+    private int planGenerationPoolSize;
+
+    @Value("${app.plan-deadline.queue-capacity:100}")
+    private int planGenerationQueueCapacity;
+
+    @Value("${app.plan-batch.pool-size:8}")
+    private int planBatchPoolSize;
+
+    @Value("${app.plan-batch.queue-capacity:50}")
+    private int planBatchQueueCapacity;
+
+    @Value("${app.voice-session.pool-size:4}")
+    private int voiceSpeculationPoolSize;
+
+    @Value("${app.voice-session.queue-capacity:20}")
+    private int voiceSpeculationQueueCapacity;
+
+    /**
+     * 大模型上游调用线程池，同时限制了对DashScope的最大并发数
+     */
+    @Bean
+    public ThreadPoolTaskExecutor aiCallExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(callPoolSize);
+        executor.setMaxPoolSize(callPoolSize);
+        executor.setQueueCapacity(callQueueCapacity);
+        executor.setThreadNamePrefix("ai-call-");
+        return executor;
+    }
+
+    /**
+     * 单次HTTP尝试（包括对冲请求）使用的线程池，与 aiCallExecutor 分开以避免嵌套提交导致死锁
+     */
+    @Bean
+    public ThreadPoolTaskExecutor aiAttemptExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(attemptPoolSize);
+        executor.setMaxPoolSize(attemptPoolSize);
+        executor.setQueueCapacity(attemptPoolSize);
+        executor.setThreadNamePrefix("ai-attempt-");
+        return executor;
+    }
+
+    /**
+     * 流式行程生成使用的线程池，避免长连接占用Tomcat请求线程
+     */
+    @Bean
+    public ThreadPoolTaskExecutor aiStreamExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(streamPoolSize);
+        executor.setMaxPoolSize(streamPoolSize);
+        executor.setQueueCapacity(streamQueueCapacity);
+        executor.setThreadNamePrefix("ai-stream-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * 限时创建计划时执行行程生成的线程池，超过截止时间后在这里继续生成并回填
+     */
+    @Bean
+    public ThreadPoolTaskExecutor planGenerationExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(planGenerationPoolSize);
+        executor.setMaxPoolSize(planGenerationPoolSize);
+        executor.setQueueCapacity(planGenerationQueueCapacity);
+        executor.setThreadNamePrefix("plan-gen-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * 批量创建计划的工作线程池，每个批次最多占用 app.plan-batch.parallelism 个线程
+     */
+    @Bean
+    public ThreadPoolTaskExecutor planBatchExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(planBatchPoolSize);
+        executor.setMaxPoolSize(planBatchPoolSize);
+        executor.setQueueCapacity(planBatchQueueCapacity);
+        executor.setThreadNamePrefix("plan-batch-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * 增量语音输入时预生成行程的线程池，队列满时直接放弃预生成
+     */
+    @Bean
+    public ThreadPoolTaskExecutor voiceSpeculationExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(voiceSpeculationPoolSize);
+        executor.setMaxPoolSize(voiceSpeculationPoolSize);
+        executor.setQueueCapacity(voiceSpeculationQueueCapacity);
+        executor.setThreadNamePrefix("voice-spec-");
+        return executor;
+    }
+}
@@ -0,0 +1,74 @@
+package com.travelplanner.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 大模型路由配置（app.ai.routing）
+ */
+@Component
+@ConfigurationProperties(prefix = "app.ai.routing")
+public class ModelRoutingProperties {
+
+    private double sloPercentile = 0.95;
+    private int minSamples = 10;
+    private double probeRatio = 0.1;
+    private int windowSize = 100;
+    private long maxSampleAgeMs = 300000;
+    private Map<String, TaskRoute> tasks = new HashMap<>();
+
+    /**
+     * 单个任务的路由规则：主模型的观测耗时超过 slo-ms 时改用 fallback-model
+     */
+    public static class TaskRoute {
+        private String model = "qwen-plus";
+        private String fallbackModel;
+        private Double temperature = 0.7;
+        private Double topP = 0.8;
+        private Integer maxTokens;
+        private long sloMs = 20000;
+
+        public String getModel() { return model; }
+        public void setModel(String model) { this.model = model; }
+
+        public String getFallbackModel() { return fallbackModel; }
+        public void setFallbackModel(String fallbackModel) { this.fallbackModel = fallbackModel; }
+
+        public Double getTemperature() { return temperature; }
+        public void setTemperature(Double temperature) { this.temperature = temperature; }
+
+        public Double getTopP() { return topP; }
+        public void setTopP(Double topP) { this.topP = topP; }
+
+        public Integer getMaxTokens() { return maxTokens; }
+        public void setMaxTokens(Integer maxTokens) { this.maxTokens = maxTokens; }
+
+        public long getSloMs() { return sloMs; }
+        public void setSloMs(long sloMs) { this.sloMs = sloMs; }
+    }
+
+    public TaskRoute getTask(String key) {
+        return tasks.computeIfAbsent(key, k -> new TaskRoute());
+    }
+
+    public double getSloPercentile() { return sloPercentile; }
+    public void setSloPercentile(double sloPercentile) { this.sloPercentile = sloPercentile; }
+
+    public long getMaxSampleAgeMs() { return maxSampleAgeMs; }
+    public void setMaxSampleAgeMs(long maxSampleAgeMs) { this.maxSampleAgeMs = maxSampleAgeMs; }
+
+    public int getMinSamples() { return minSamples; }
+    public void setMinSamples(int minSamples) { this.minSamples = minSamples; }
+
+    public double getProbeRatio() { return probeRatio; }
+    public void setProbeRatio(double probeRatio) { this.probeRatio = probeRatio; }
+
+    public int getWindowSize() { return windowSize; }
+    public void setWindowSize(int windowSize) { this.windowSize = windowSize; }
+
+    public Map<String, TaskRoute> getTasks() { return tasks; }
+    public void setTasks(Map<String, TaskRoute> tasks) { this.tasks = tasks; }
+}
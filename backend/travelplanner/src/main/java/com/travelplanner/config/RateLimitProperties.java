@@ -0,0 +1,54 @@
+package com.travelplanner.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * AI接口限流配置（app.rate-limit）
+ */
+@Component
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+    private List<Endpoint> endpoints = new ArrayList<>();
+
+    /**
+     * 单个接口的限流规则，令牌桶按用户区分；maxConcurrent 限制该接口同时处理中的请求数（所有用户合计，0 表示不限）
+     */
+    public static class Endpoint {
+        private String name;
+        private String method = "POST";
+        private String path;
+        private int capacity = 5;
+        private double refillPerMinute = 10;
+        private int maxConcurrent;
+
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+
+        public String getMethod() { return method; }
+        public void setMethod(String method) { this.method = method; }
+
+        public String getPath() { return path; }
+        public void setPath(String path) { this.path = path; }
+
+        public int getCapacity() { return capacity; }
+        public void setCapacity(int capacity) { this.capacity = capacity; }
+
+        public double getRefillPerMinute() { return refillPerMinute; }
+        public void setRefillPerMinute(double refillPerMinute) { this.refillPerMinute = refillPerMinute; }
+
+        public int getMaxConcurrent() { return maxConcurrent; }
+        public void setMaxConcurrent(int maxConcurrent) { this.maxConcurrent = maxConcurrent; }
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public List<Endpoint> getEndpoints() { return endpoints; }
+    public void setEndpoints(List<Endpoint> endpoints) { this.endpoints = endpoints; }
+}
@@ -0,0 +1,24 @@
+package com.travelplanner.config;
+
+import org.sqlite.hibernate.dialect.SQLiteDialect;
+
+import java.sql.Types;
+
+/**
+ * 启动时校验表结构（ddl-auto: validate）使用的方言
+ *
+ * SQLite 按类型亲和性存储，自增主键必须声明为 integer 才是 rowid 的别名，而实体的 Long 对应 bigint。
+ * 这里把同属整数亲和性的类型视为相同，其余比较沿用默认规则。
+ */
+public class SQLiteSchemaDialect extends SQLiteDialect {
+
+    @Override
+    public boolean equivalentTypes(int typeCode1, int typeCode2) {
+        return super.equivalentTypes(typeCode1, typeCode2) || (isInteger(typeCode1) && isInteger(typeCode2));
+    }
+
+    private static boolean isInteger(int typeCode) {
+        return typeCode == Types.BIT || typeCode == Types.TINYINT || typeCode == Types.SMALLINT
+                || typeCode == Types.INTEGER || typeCode == Types.BIGINT || typeCode == Types.BOOLEAN;
+    }
+}
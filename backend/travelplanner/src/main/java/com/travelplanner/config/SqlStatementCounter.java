@@ -0,0 +1,35 @@
+package com.travelplanner.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * 统计当前线程执行的 SQL 语句数，由 Hibernate 在每条语句执行前调用
+ *
+ * 只在 {@link #begin()} 与 {@link #end()} 之间计数，配合 SqlStatsInterceptor 得到每个接口每次请求的查询数。
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<int[]> COUNTER = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        int[] counter = COUNTER.get();
+        if (counter != null) {
+            counter[0]++;
+        }
+        return sql;
+    }
+
+    public static void begin() {
+        COUNTER.set(new int[1]);
+    }
+
+    /**
+     * @return 自 begin 以来的语句数，未调用 begin 时返回 -1
+     */
+    public static int end() {
+        int[] counter = COUNTER.get();
+        COUNTER.remove();
+        return counter == null ? -1 : counter[0];
+    }
+}
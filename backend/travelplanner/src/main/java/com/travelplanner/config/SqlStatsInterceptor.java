@@ -0,0 +1,77 @@
+package com.travelplanner.config;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按接口（方法 + 路径模板）统计每次请求执行的 SQL 语句数
+ *
+ * 开启 open-in-view 时，序列化响应触发的懒加载也发生在请求线程内，会一并计入。
+ * 异步接口（SSE、NDJSON）在其他线程中执行的语句不计入。
+ */
+@Component
+public class SqlStatsInterceptor implements AsyncHandlerInterceptor {
+
+    private final Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        SqlStatementCounter.begin();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        int statements = SqlStatementCounter.end();
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (statements < 0 || pattern == null) {
+            return;
+        }
+        stats.computeIfAbsent(request.getMethod() + " " + pattern, k -> new EndpointStats()).record(statements);
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        // 请求转为异步处理，不会再回调 afterCompletion，清除本线程的计数
+        SqlStatementCounter.end();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new HashMap<>();
+        stats.forEach((endpoint, endpointStats) -> result.put(endpoint, endpointStats.snapshot()));
+        return result;
+    }
+
+    private static class EndpointStats {
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong statements = new AtomicLong();
+        volatile int max;
+
+        void record(int count) {
+            requests.incrementAndGet();
+            statements.addAndGet(count);
+            if (count > max) {
+                max = count;
+            }
+        }
+
+        Map<String, Object> snapshot() {
+            long n = requests.get();
+            Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("requests", n);
+            snapshot.put("statementsPerRequest", n == 0 ? 0 : (double) statements.get() / n);
+            snapshot.put("maxStatements", max);
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.travelplanner.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.sqlite.SQLiteConfig;
+
+/**
+ * SQLite 连接配置
+ *
+ * 使用 WAL 日志：读不阻塞写、写不阻塞读。读连接池供请求线程并发查询；
+ * 写入统一经 {@link com.travelplanner.service.WriteQueue} 排队，由唯一的写连接成组提交。
+ */
+@Configuration
+public class SqliteDataSourceConfig {
+
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    @Value("${spring.datasource.driver-class-name:org.sqlite.JDBC}")
+    private String driverClassName;
+
+    @Value("${app.sqlite.journal-mode:WAL}")
+    private SQLiteConfig.JournalMode journalMode;
+
+    // WAL 下 NORMAL 只在检查点时同步磁盘，断电可能丢失最近提交的事务但不会损坏数据库；FULL 每次提交都同步
+    @Value("${app.sqlite.synchronous:NORMAL}")
+    private SQLiteConfig.SynchronousMode synchronous;
+
+    @Value("${app.sqlite.busy-timeout-ms:5000}")
+    private int busyTimeoutMs;
+
+    @Value("${app.sqlite.read-pool-size:8}")
+    private int readPoolSize;
+
+    // WAL 超过该页数时提交后自动检查点，0 表示只靠定时检查点（见 WriteQueue）
+    @Value("${app.sqlite.checkpoint.auto-pages:1000}")
+    private int autoCheckpointPages;
+
+    @Bean(destroyMethod = "close")
+    public SqliteRoutingDataSource dataSource() {
+        return new SqliteRoutingDataSource(
+                pool("sqlite-reader", readPoolSize, SQLiteConfig.TransactionMode.DEFERRED),
+                pool("sqlite-writer", 1, SQLiteConfig.TransactionMode.IMMEDIATE));
+    }
+
+    private HikariDataSource pool(String name, int size, SQLiteConfig.TransactionMode transactionMode) {
+        SQLiteConfig sqlite = new SQLiteConfig();
+        sqlite.setJournalMode(journalMode);
+        sqlite.setSynchronous(synchronous);
+        sqlite.setBusyTimeout(busyTimeoutMs);
+        sqlite.setTransactionMode(transactionMode);
+
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(name);
+        config.setJdbcUrl(url);
+        config.setDriverClassName(driverClassName);
+        config.setMaximumPoolSize(size);
+        config.setMinimumIdle(1);
+        config.setDataSourceProperties(sqlite.toProperties());
+        config.setConnectionInitSql("pragma wal_autocheckpoint = " + autoCheckpointPages);
+        return new HikariDataSource(config);
+    }
+}
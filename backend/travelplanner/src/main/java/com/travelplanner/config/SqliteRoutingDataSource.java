@@ -0,0 +1,72 @@
+package com.travelplanner.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * SQLite 读写分离的数据源：写线程（{@link com.travelplanner.service.WriteQueue}）使用唯一的写连接，
+ * 其他线程使用读连接池
+ *
+ * 写连接的事务以 BEGIN IMMEDIATE 开始，一开始就持有写锁，不会在读完之后升级写锁时失败。
+ */
+public class SqliteRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+    private static final String READER = "reader";
+    private static final String WRITER = "writer";
+
+    private static final ThreadLocal<Boolean> WRITER_THREAD = ThreadLocal.withInitial(() -> false);
+
+    private final HikariDataSource readerPool;
+    private final HikariDataSource writerPool;
+
+    public SqliteRoutingDataSource(HikariDataSource readerPool, HikariDataSource writerPool) {
+        this.readerPool = readerPool;
+        this.writerPool = writerPool;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(READER, readerPool);
+        targets.put(WRITER, writerPool);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(readerPool);
+    }
+
+    /**
+     * 当前线程之后获取的连接都来自写连接，由写线程启动时调用一次
+     */
+    public static void useWriterConnection() {
+        WRITER_THREAD.set(true);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return WRITER_THREAD.get() ? WRITER : READER;
+    }
+
+    public Map<String, Object> getPoolStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put(READER, toMap(readerPool));
+        stats.put(WRITER, toMap(writerPool));
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        readerPool.close();
+        writerPool.close();
+    }
+
+    private static Map<String, Object> toMap(HikariDataSource pool) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("maxSize", pool.getMaximumPoolSize());
+        HikariPoolMXBean bean = pool.getHikariPoolMXBean();
+        if (bean != null) {
+            result.put("active", bean.getActiveConnections());
+            result.put("idle", bean.getIdleConnections());
+            result.put("waiting", bean.getThreadsAwaitingConnection());
+        }
+        return result;
+    }
+}
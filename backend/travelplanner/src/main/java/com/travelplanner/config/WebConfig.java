@@ -1,10 +1,13 @@
 package com.travelplanner.config;
 
+import com.travelplanner.security.RateLimitInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import java.util.Arrays;
@@ -18,6 +21,11 @@ import java.util.Arrays;
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    @Autowired
+    private RateLimitInterceptor rateLimitInterceptor;
+
+    @Autowired
+    private SqlStatsInterceptor sqlStatsInterceptor;
 
     /**
      * 配置CORS
@@ -32,7 +40,15 @@ public class WebConfig implements WebMvcConfigurer {
                 .maxAge(3600);
     }
 
-
+    /**
+     * AI接口限流，具体规则见 app.rate-limit
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(rateLimitInterceptor).addPathPatterns("/api/**");
+        // 每次请求的 SQL 语句数，见 /api/monitor/sql
+        registry.addInterceptor(sqlStatsInterceptor).addPathPatterns("/api/**").excludePathPatterns("/api/monitor/**");
+    }
 }
 
 
@@ -1,18 +1,32 @@
 package com.travelplanner.controller;
 
+import com.travelplanner.config.PaginationProperties;
+import com.travelplanner.dto.CursorPage;
+import com.travelplanner.dto.ExpenseView;
 import com.travelplanner.entity.Expense;
 import com.travelplanner.entity.TravelPlan;
 import com.travelplanner.entity.User;
 import com.travelplanner.repository.ExpenseRepository;
+import com.travelplanner.service.ExpenseImportService;
+import com.travelplanner.service.ExpenseService;
 import com.travelplanner.service.TravelPlanService;
 import com.travelplanner.service.UserService;
+import com.travelplanner.utils.PageCursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.HashMap;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -30,43 +44,112 @@ public class ExpenseController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private PaginationProperties paginationProperties;
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private ExpenseImportService expenseImportService;
+
+    /**
+     * 按费用日期分页查询计划的费用记录
+     * 返回 {"items": [...], "nextCursor": 继续标记, "hasMore": 是否有下一页}，下一页带上 cursor 和相同的 order
+     */
     @GetMapping("/plan/{planId}")
-    public ResponseEntity<List<Expense>> getExpensesByPlan(@PathVariable Long planId) {
+    public ResponseEntity<?> getExpensesByPlan(@PathVariable Long planId,
+                                               @RequestParam(required = false) String cursor,
+                                               @RequestParam(required = false) Integer limit,
+                                               @RequestParam(defaultValue = "desc") String order) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         User user = userService.findByUsername(auth.getName())
                 .orElseThrow(() -> new RuntimeException("用户不存在"));
 
-        TravelPlan plan = travelPlanService.getTravelPlan(planId);
+        PageCursor pageCursor;
+        try {
+            pageCursor = PageCursor.resolve(cursor, order);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
 
         // 检查计划是否属于当前用户
-        if (!plan.getUser().getId().equals(user.getId())) {
+        if (!travelPlanService.isOwnedBy(planId, user.getId())) {
             return ResponseEntity.badRequest().build();
         }
 
-        List<Expense> expenses = expenseRepository.findByTravelPlanId(planId);
-        return ResponseEntity.ok(expenses);
+        boolean ascending = PageCursor.isAscending(order);
+        int pageSize = paginationProperties.resolvePageSize(limit);
+        // 多查一行判断是否还有下一页
+        Pageable rows = PageRequest.of(0, pageSize + 1);
+        List<ExpenseView> expenses;
+        if (ascending) {
+            expenses = pageCursor == null
+                    ? expenseRepository.findViewPageAsc(planId, rows)
+                    : expenseRepository.findViewPageAscAfter(planId, pageCursor.getTime(), pageCursor.getId(), rows);
+        } else {
+            expenses = pageCursor == null
+                    ? expenseRepository.findViewPageDesc(planId, rows)
+                    : expenseRepository.findViewPageDescAfter(planId, pageCursor.getTime(), pageCursor.getId(), rows);
+        }
+        return ResponseEntity.ok(CursorPage.of(expenses, pageSize,
+                last -> new PageCursor(ascending, last.getExpenseDate(), last.getId()).encode()));
     }
 
     @PostMapping
-    public ResponseEntity<Expense> createExpense(@RequestBody Expense expense) {
+    public ResponseEntity<ExpenseView> createExpense(@RequestBody Expense expense) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         User user = userService.findByUsername(auth.getName())
                 .orElseThrow(() -> new RuntimeException("用户不存在"));
 
         // 验证旅行计划属于当前用户
         if (expense.getTravelPlan() != null && expense.getTravelPlan().getId() != null) {
-            TravelPlan plan = travelPlanService.getTravelPlan(expense.getTravelPlan().getId());
-            if (!plan.getUser().getId().equals(user.getId())) {
+            if (!travelPlanService.isOwnedBy(expense.getTravelPlan().getId(), user.getId())) {
                 return ResponseEntity.badRequest().build();
             }
         }
 
-        Expense savedExpense = expenseRepository.save(expense);
-        return ResponseEntity.ok(savedExpense);
+        // 费用列表按日期分页，日期不能为空
+        if (expense.getExpenseDate() == null) {
+            expense.setExpenseDate(LocalDateTime.now());
+        }
+
+        Expense savedExpense = expenseService.create(expense);
+        return ResponseEntity.ok(ExpenseView.of(savedExpense));
+    }
+
+    /**
+     * 批量导入费用，请求体边读边写入
+     * CSV（text/csv）首行为表头；NDJSON（application/x-ndjson）每行一个对象。
+     * 字段 category、amount 必填，description、expenseDate（默认当前时间）、planId（默认取参数 planId）可省略。
+     * 返回 {"imported": 导入条数, "failed": 出错条数, "errors": [{"line", "message"}], "truncated", "elapsedMs"}
+     */
+    @PostMapping("/import")
+    public ResponseEntity<?> importExpenses(@RequestParam(required = false) Long planId,
+                                            HttpServletRequest request) throws IOException {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        User user = userService.findByUsername(auth.getName())
+                .orElseThrow(() -> new RuntimeException("用户不存在"));
+
+        ExpenseImportService.Format format = ExpenseImportService.Format.of(request.getContentType());
+        if (format == null) {
+            return ResponseEntity.badRequest().body("只支持 text/csv 或 application/x-ndjson 格式");
+        }
+        if (planId != null && !travelPlanService.isOwnedBy(planId, user.getId())) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        Charset charset = request.getCharacterEncoding() == null
+                ? StandardCharsets.UTF_8 : Charset.forName(request.getCharacterEncoding());
+        try (Reader reader = new InputStreamReader(request.getInputStream(), charset)) {
+            return ResponseEntity.ok(expenseImportService.importExpenses(user.getId(), planId, format, reader));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<Expense> updateExpense(@PathVariable Long id, @RequestBody Expense expenseDetails) {
+    public ResponseEntity<ExpenseView> updateExpense(@PathVariable Long id, @RequestBody Expense expenseDetails) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         User user = userService.findByUsername(auth.getName())
                 .orElseThrow(() -> new RuntimeException("用户不存在"));
@@ -74,17 +157,14 @@ public class ExpenseController {
         Expense expense = expenseRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("费用记录不存在"));
 
-        // 验证费用记录属于当前用户
-        if (!expense.getTravelPlan().getUser().getId().equals(user.getId())) {
+        // 验证费用记录属于当前用户（取计划ID不会加载计划）
+        if (!travelPlanService.isOwnedBy(expense.getTravelPlan().getId(), user.getId())) {
             return ResponseEntity.badRequest().build();
         }
 
-        expense.setCategory(expenseDetails.getCategory());
-        expense.setDescription(expenseDetails.getDescription());
-        expense.setAmount(expenseDetails.getAmount());
-
-        Expense updatedExpense = expenseRepository.save(expense);
-        return ResponseEntity.ok(updatedExpense);
+        Expense updatedExpense = expenseService.update(id, expenseDetails.getCategory(),
+                expenseDetails.getDescription(), expenseDetails.getAmount());
+        return ResponseEntity.ok(ExpenseView.of(updatedExpense));
     }
 
     @DeleteMapping("/{id}")
@@ -96,12 +176,12 @@ public class ExpenseController {
         Expense expense = expenseRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("费用记录不存在"));
 
-        // 验证费用记录属于当前用户
-        if (!expense.getTravelPlan().getUser().getId().equals(user.getId())) {
+        // 验证费用记录属于当前用户（取计划ID不会加载计划）
+        if (!travelPlanService.isOwnedBy(expense.getTravelPlan().getId(), user.getId())) {
             return ResponseEntity.badRequest().build();
         }
 
-        expenseRepository.deleteById(id);
+        expenseService.delete(id);
         return ResponseEntity.ok().build();
     }
 
@@ -113,29 +193,16 @@ public class ExpenseController {
 
         TravelPlan plan = travelPlanService.getTravelPlan(planId);
 
-        // 检查计划是否属于当前用户
+        // 检查计划是否属于当前用户（取用户ID不会加载用户）
         if (!plan.getUser().getId().equals(user.getId())) {
             return ResponseEntity.badRequest().build();
         }
 
-        List<Expense> expenses = expenseRepository.findByTravelPlanId(planId);
-
-        double totalExpenses = expenses.stream().mapToDouble(Expense::getAmount).sum();
-        double budgetRemaining = plan.getBudget() - totalExpenses;
-        double budgetUsage = (totalExpenses / plan.getBudget()) * 100;
-
-        Map<String, Object> summary = new HashMap<String, Object>(){{
-            put("totalExpenses", totalExpenses);
-            put("budgetRemaining", budgetRemaining);
-            put("budgetUsage", budgetUsage);
-            put("expenseCount", expenses.size());
-        }};
-//        Map.of(
-//                "totalExpenses", totalExpenses,
-//                "budgetRemaining", budgetRemaining,
-//                "budgetUsage", budgetUsage,
-//                "expenseCount", expenses.size()
-//        );
+        // 只读汇总表中该计划的汇总行，不加载费用记录；categories 为按分类的明细，daily 为按日期的明细
+        Map<String, Object> summary = expenseService.summarize(planId);
+        double totalExpenses = (Double) summary.get("totalExpenses");
+        summary.put("budgetRemaining", plan.getBudget() - totalExpenses);
+        summary.put("budgetUsage", (totalExpenses / plan.getBudget()) * 100);
 
         return ResponseEntity.ok(summary);
     }
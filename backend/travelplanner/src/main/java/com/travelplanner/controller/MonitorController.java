@@ -0,0 +1,226 @@
+package com.travelplanner.controller;
+
+import com.travelplanner.config.SqlStatsInterceptor;
+import com.travelplanner.config.SqliteRoutingDataSource;
+import com.travelplanner.service.AIGateway;
+import com.travelplanner.service.AIService;
+import com.travelplanner.service.ExpenseImportService;
+import com.travelplanner.service.ExpenseService;
+import com.travelplanner.service.ItineraryCache;
+import com.travelplanner.service.ItineraryPrewarmer;
+import com.travelplanner.service.ItineraryStore;
+import com.travelplanner.service.ModelRouter;
+import com.travelplanner.service.PlanBatchService;
+import com.travelplanner.service.PlanJobService;
+import com.travelplanner.service.PlanSearchIndex;
+import com.travelplanner.service.QueryPlanChecker;
+import com.travelplanner.service.RateLimiter;
+import com.travelplanner.service.TravelPlanService;
+import com.travelplanner.service.VoiceSessionService;
+import com.travelplanner.service.WriteQueue;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 运行状态监控接口
+ */
+@RestController
+@RequestMapping("/api/monitor")
+@CrossOrigin(origins = "http://localhost:3000", allowCredentials = "true")
+public class MonitorController {
+
+    @Autowired
+    private PoolingHttpClientConnectionManager aiConnectionManager;
+
+    @Autowired
+    private PlanJobService planJobService;
+
+    @Autowired
+    private ItineraryCache itineraryCache;
+
+    @Autowired
+    private ItineraryStore itineraryStore;
+
+    @Autowired
+    private SqlStatsInterceptor sqlStatsInterceptor;
+
+    @Autowired
+    private SqliteRoutingDataSource dataSource;
+
+    @Autowired
+    private WriteQueue writeQueue;
+
+    @Autowired
+    private QueryPlanChecker queryPlanChecker;
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private ExpenseImportService expenseImportService;
+
+    @Autowired
+    private PlanSearchIndex planSearchIndex;
+
+    @Autowired
+    private AIService aiService;
+
+    @Autowired
+    private AIGateway aiGateway;
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Autowired
+    private ModelRouter modelRouter;
+
+    @Autowired
+    private TravelPlanService travelPlanService;
+
+    @Autowired
+    private PlanBatchService planBatchService;
+
+    @Autowired
+    private ItineraryPrewarmer itineraryPrewarmer;
+
+    @Autowired
+    private VoiceSessionService voiceSessionService;
+
+    @GetMapping("/ai-pool")
+    public ResponseEntity<Map<String, Object>> getAIConnectionPoolStats() {
+        Map<String, Object> result = toMap(aiConnectionManager.getTotalStats());
+
+        List<Map<String, Object>> routes = new ArrayList<>();
+        for (HttpRoute route : aiConnectionManager.getRoutes()) {
+            Map<String, Object> routeStats = toMap(aiConnectionManager.getStats(route));
+            routeStats.put("route", route.getTargetHost().toURI());
+            routes.add(routeStats);
+        }
+        result.put("routes", routes);
+
+        return ResponseEntity.ok(result);
+    }
+
+    @GetMapping("/ai-calls")
+    public ResponseEntity<Map<String, Object>> getAICallStats() {
+        return ResponseEntity.ok(aiService.getCallStats());
+    }
+
+    /**
+     * 熔断器状态、耗时分位数、当前截止时间、对冲与重试次数
+     */
+    @GetMapping("/ai-resilience")
+    public ResponseEntity<Map<String, Object>> getAIResilienceStatus() {
+        return ResponseEntity.ok(aiGateway.getStatus());
+    }
+
+    /**
+     * 各任务的模型路由、降级状态，以及每个模型的耗时分位数和分布
+     */
+    @GetMapping("/ai-routing")
+    public ResponseEntity<Map<String, Object>> getAIRoutingStats() {
+        return ResponseEntity.ok(modelRouter.getStats());
+    }
+
+    @GetMapping("/plan-deadline")
+    public ResponseEntity<Map<String, Object>> getPlanDeadlineStats() {
+        return ResponseEntity.ok(travelPlanService.getDeadlineStats());
+    }
+
+    @GetMapping("/plan-batch")
+    public ResponseEntity<Map<String, Object>> getPlanBatchStats() {
+        return ResponseEntity.ok(planBatchService.getStats());
+    }
+
+    @GetMapping("/prewarm")
+    public ResponseEntity<Map<String, Object>> getPrewarmStats() {
+        return ResponseEntity.ok(itineraryPrewarmer.getStats());
+    }
+
+    @GetMapping("/voice-sessions")
+    public ResponseEntity<Map<String, Object>> getVoiceSessionStats() {
+        return ResponseEntity.ok(voiceSessionService.getStats());
+    }
+
+    @GetMapping("/plan-jobs")
+    public ResponseEntity<Map<String, Object>> getPlanJobStats() {
+        return ResponseEntity.ok(planJobService.getStats());
+    }
+
+    @GetMapping("/itinerary-cache")
+    public ResponseEntity<Map<String, Object>> getItineraryCacheStats() {
+        return ResponseEntity.ok(itineraryCache.getStats());
+    }
+
+    @GetMapping("/itinerary-store")
+    public ResponseEntity<Map<String, Object>> getItineraryStoreStats() {
+        return ResponseEntity.ok(itineraryStore.getStats());
+    }
+
+    @GetMapping("/plan-search")
+    public ResponseEntity<Map<String, Object>> getPlanSearchStats() {
+        return ResponseEntity.ok(planSearchIndex.getStats());
+    }
+
+    /**
+     * 各接口每次请求执行的 SQL 语句数
+     */
+    @GetMapping("/sql")
+    public ResponseEntity<Map<String, Object>> getSqlStats() {
+        return ResponseEntity.ok(sqlStatsInterceptor.getStats());
+    }
+
+    /**
+     * SQLite 写入队列（队列深度、成组提交大小和耗时、检查点）及读写连接池
+     */
+    @GetMapping("/sqlite")
+    public ResponseEntity<Map<String, Object>> getSqliteStats() {
+        Map<String, Object> result = writeQueue.getStats();
+        result.put("pools", dataSource.getPoolStats());
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * 常用查询的执行计划（EXPLAIN QUERY PLAN），scan 为 true 表示没有用上索引
+     */
+    @GetMapping("/query-plans")
+    public ResponseEntity<Map<String, Map<String, Object>>> getQueryPlans() {
+        return ResponseEntity.ok(queryPlanChecker.check());
+    }
+
+    /**
+     * 费用汇总表：极值重算次数和最近一次全量重算的结果
+     */
+    @GetMapping("/expense-rollups")
+    public ResponseEntity<Map<String, Object>> getExpenseRollupStats() {
+        return ResponseEntity.ok(expenseService.getStats());
+    }
+
+    @GetMapping("/expense-import")
+    public ResponseEntity<Map<String, Object>> getExpenseImportStats() {
+        return ResponseEntity.ok(expenseImportService.getStats());
+    }
+
+    @GetMapping("/rate-limit")
+    public ResponseEntity<Map<String, Object>> getRateLimitStats() {
+        return ResponseEntity.ok(rateLimiter.getStats());
+    }
+
+    private Map<String, Object> toMap(PoolStats stats) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("leased", stats.getLeased());
+        map.put("pending", stats.getPending());
+        map.put("available", stats.getAvailable());
+        map.put("max", stats.getMax());
+        return map;
+    }
+}
@@ -0,0 +1,84 @@
+package com.travelplanner.controller;
+
+import com.travelplanner.entity.PlanGenerationJob;
+import com.travelplanner.entity.User;
+import com.travelplanner.service.PlanEventPublisher;
+import com.travelplanner.service.PlanJobService;
+import com.travelplanner.service.UserService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/plan-jobs")
+@CrossOrigin(origins = "http://localhost:3000", allowCredentials = "true")
+public class PlanJobController {
+
+    @Autowired
+    private PlanJobService planJobService;
+
+    @Autowired
+    private PlanEventPublisher planEventPublisher;
+
+    @Autowired
+    private UserService userService;
+
+    @GetMapping("/{id}")
+    public ResponseEntity<Map<String, Object>> getJobStatus(@PathVariable Long id) {
+        PlanGenerationJob job = getOwnedJob(id);
+        if (job == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(planJobService.toStatusView(job));
+    }
+
+    /**
+     * 订阅任务状态变化（SSE），任务结束后连接自动关闭
+     */
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeJobStatus(@PathVariable Long id) throws IOException {
+        PlanGenerationJob job = getOwnedJob(id);
+        if (job == null) {
+            throw new RuntimeException("任务不存在");
+        }
+
+        if (job.isFinished()) {
+            // 已结束的任务不再订阅，直接推送最终状态
+            SseEmitter emitter = new SseEmitter();
+            emitter.send(SseEmitter.event().name("status")
+                    .data(planJobService.toStatusView(job), MediaType.APPLICATION_JSON));
+            emitter.complete();
+            return emitter;
+        }
+
+        SseEmitter emitter = planEventPublisher.subscribe(job.getPlanId());
+        // 订阅前状态可能已经变化，先推送一次当前状态
+        PlanGenerationJob current = planJobService.getJob(id);
+        try {
+            emitter.send(SseEmitter.event().name("status")
+                    .data(planJobService.toStatusView(current), MediaType.APPLICATION_JSON));
+            if (current.isFinished()) {
+                emitter.complete();
+            }
+        } catch (IllegalStateException e) {
+            // 任务在订阅后结束，最终状态已推送并关闭了连接
+        }
+        return emitter;
+    }
+
+    private PlanGenerationJob getOwnedJob(Long jobId) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        User user = userService.findByUsername(auth.getName())
+                .orElseThrow(() -> new RuntimeException("用户不存在"));
+
+        PlanGenerationJob job = planJobService.getJob(jobId);
+        return job.getUserId().equals(user.getId()) ? job : null;
+    }
+}
@@ -1,21 +1,50 @@
 package com.travelplanner.controller;
 
+import com.travelplanner.config.PaginationProperties;
+import com.travelplanner.dto.CursorPage;
+import com.travelplanner.dto.PlanSearchHit;
+import com.travelplanner.dto.TravelPlanSummary;
+import com.travelplanner.entity.PlanGenerationJob;
 import com.travelplanner.entity.TravelPlan;
 import com.travelplanner.entity.User;
+import com.travelplanner.service.AIBusyException;
+import com.travelplanner.service.AIGateway;
+import com.travelplanner.service.PlanBatchService;
+import com.travelplanner.service.PlanEventPublisher;
+import com.travelplanner.service.PlanJobService;
+import com.travelplanner.service.PlanSearchIndex;
 import com.travelplanner.service.TravelPlanService;
 import com.travelplanner.service.UserService;
+import com.travelplanner.utils.PageCursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @RestController
 @RequestMapping("/api/travel-plans")
 @CrossOrigin(origins = "http://localhost:3000", allowCredentials = "true")
 public class TravelPlanController {
+    private static final Logger logger = LoggerFactory.getLogger(TravelPlanController.class);
 
     @Autowired
     private TravelPlanService travelPlanService;
@@ -23,24 +52,225 @@ public class TravelPlanController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private PlanJobService planJobService;
+
+    @Autowired
+    private PlanEventPublisher planEventPublisher;
+
+    @Autowired
+    private PlanBatchService planBatchService;
+
+    @Autowired
+    private ThreadPoolTaskExecutor aiStreamExecutor;
+
+    @Autowired
+    private PaginationProperties paginationProperties;
+
+    @Autowired
+    private PlanSearchIndex planSearchIndex;
+
+    @Autowired
+    private AIGateway aiGateway;
+
+    @Value("${app.ai.stream.timeout-ms:180000}")
+    private long streamTimeoutMs;
+
+    /**
+     * 分页查询当前用户的计划（按创建时间排序，不含行程正文，详情通过 GET /{id} 获取）
+     * 返回 {"items": [...], "nextCursor": 继续标记, "hasMore": 是否有下一页}，下一页带上 cursor 和相同的 order
+     */
     @GetMapping
-    public ResponseEntity<List<TravelPlan>> getUserTravelPlans() {
+    public ResponseEntity<?> getUserTravelPlans(@RequestParam(required = false) String cursor,
+                                                @RequestParam(required = false) Integer limit,
+                                                @RequestParam(defaultValue = "desc") String order) {
+        return listPlans(null, cursor, limit, order);
+    }
+
+    /**
+     * 创建旅行计划；async=true 时立即返回 202 和任务ID，行程在后台生成，priority 越大越先执行（服务端限制在 0~max-priority）
+     * 同步创建超过截止时间时返回 provisional=true 的临时行程，可订阅 /{id}/events 获取正式行程
+     * 大模型请求排队已满时返回 429 + Retry-After，不保存计划
+     */
+    @PostMapping
+    public ResponseEntity<?> createTravelPlan(@RequestBody TravelPlan travelPlan,
+                                              @RequestParam(defaultValue = "false") boolean async,
+                                              @RequestParam(defaultValue = "0") int priority) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         User user = userService.findByUsername(auth.getName())
                 .orElseThrow(() -> new RuntimeException("用户不存在"));
 
-        List<TravelPlan> plans = travelPlanService.getUserTravelPlans(user.getId());
-        return ResponseEntity.ok(plans);
+        if (async) {
+            try {
+                PlanGenerationJob job = planJobService.submit(travelPlan, user, priority);
+                Map<String, Object> response = planJobService.toStatusView(job);
+                response.put("statusUrl", "/api/plan-jobs/" + job.getId());
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+            } catch (RejectedExecutionException e) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+            }
+        }
+
+        try {
+            TravelPlan createdPlan = travelPlanService.createTravelPlan(travelPlan, user); // qu
+            return ResponseEntity.ok(createdPlan);
+        } catch (AIBusyException e) {
+            return tooManyRequests(e);
+        }
     }
 
-    @PostMapping
-    public ResponseEntity<TravelPlan> createTravelPlan(@RequestBody TravelPlan travelPlan) {
+    /**
+     * 流式创建旅行计划（SSE）
+     * 事件: chunk -> {"text": 增量内容}，reset -> {"message": 原因}（之前的分片作废，后续分片为降级行程），
+     * done -> 保存后的旅行计划，error -> {"message": 错误信息}
+     * 流式线程池已满时返回 503 和 busy -> {"message": 提示}；大模型请求排队已满时返回 429 + Retry-After，
+     * 开始推送后才被拒绝的推送 busy -> {"message", "retryAfterSeconds"}，都不保存计划
+     */
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> createTravelPlanStream(@RequestBody TravelPlan travelPlan) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        User user = userService.findByUsername(auth.getName())
+                .orElseThrow(() -> new RuntimeException("用户不存在"));
+
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        AtomicBoolean clientGone = new AtomicBoolean(false);
+        emitter.onCompletion(() -> clientGone.set(true));
+        emitter.onTimeout(() -> clientGone.set(true));
+
+        if (aiGateway.isSaturated()) {
+            sendEvent(emitter, clientGone, "busy", busyView(aiGateway.retryAfterSeconds()));
+            emitter.complete();
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(aiGateway.retryAfterSeconds())).body(emitter);
+        }
+
+        try {
+            aiStreamExecutor.execute(() -> {
+                try {
+                    // 客户端断开后仍继续生成并保存，只是不再推送
+                    TravelPlan createdPlan = travelPlanService.createTravelPlanStreaming(travelPlan, user,
+                            chunk -> sendEvent(emitter, clientGone, "chunk", Collections.singletonMap("text", chunk)),
+                            () -> sendEvent(emitter, clientGone, "reset",
+                                    Collections.singletonMap("message", "AI行程生成中断，改用备用行程")));
+                    sendEvent(emitter, clientGone, "done", createdPlan);
+                    emitter.complete();
+                } catch (AIBusyException e) {
+                    sendEvent(emitter, clientGone, "busy", busyView(e.getRetryAfterSeconds()));
+                    emitter.complete();
+                } catch (Exception e) {
+                    logger.error("流式创建旅行计划失败", e);
+                    sendEvent(emitter, clientGone, "error", Collections.singletonMap("message", e.getMessage()));
+                    emitter.complete();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            sendEvent(emitter, clientGone, "busy", Collections.singletonMap("message", "服务繁忙，请稍后再试"));
+            emitter.complete();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(emitter);
+        }
+
+        return ResponseEntity.ok(emitter);
+    }
+
+    /**
+     * 批量创建旅行计划，结果以 NDJSON 逐行返回
+     * 每个请求保存后返回一行 {"index", "status": "saved", "planId", "itinerary", "duplicates", ...}，
+     * 重复请求的行带 "duplicateOf"（不含行程正文），生成或保存失败的行为 {"index", "status": "failed", "message"}，
+     * 被舱壁拒绝的行另带 "retryAfterSeconds"；最后返回汇总行 {"status": "completed", "planIds": [...]}，与请求一一对应
+     * 开始时大模型请求排队已满则整批返回 429 + Retry-After
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<ResponseBodyEmitter> createTravelPlanBatch(@RequestBody List<TravelPlan> travelPlans) throws IOException {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         User user = userService.findByUsername(auth.getName())
                 .orElseThrow(() -> new RuntimeException("用户不存在"));
 
-        TravelPlan createdPlan = travelPlanService.createTravelPlan(travelPlan, user); // qu
-        return ResponseEntity.ok(createdPlan);
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(streamTimeoutMs);
+        List<String> errors = planBatchService.validate(travelPlans);
+        if (!errors.isEmpty()) {
+            emitter.send(String.join("\n", errors), MediaType.TEXT_PLAIN);
+            emitter.complete();
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(emitter);
+        }
+
+        if (aiGateway.isSaturated()) {
+            emitter.send("服务繁忙，请稍后再试", MediaType.TEXT_PLAIN);
+            emitter.complete();
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(aiGateway.retryAfterSeconds()))
+                    .contentType(MediaType.TEXT_PLAIN).body(emitter);
+        }
+
+        AtomicBoolean clientGone = new AtomicBoolean(false);
+        emitter.onCompletion(() -> clientGone.set(true));
+        emitter.onTimeout(() -> clientGone.set(true));
+
+        long start = System.currentTimeMillis();
+        try {
+            // 客户端断开后仍继续生成并保存
+            planBatchService.generate(travelPlans, user, item -> sendLine(emitter, clientGone, item))
+                    .whenComplete((plans, error) -> {
+                        Map<String, Object> summary = new HashMap<>();
+                        if (error != null) {
+                            logger.error("批量创建旅行计划失败", error);
+                            summary.put("status", "failed");
+                            summary.put("message", error.getMessage());
+                        } else {
+                            List<Long> planIds = new ArrayList<>();
+                            plans.forEach(plan -> planIds.add(plan != null ? plan.getId() : null));
+                            summary.put("status", "completed");
+                            summary.put("planIds", planIds);
+                        }
+                        summary.put("elapsedMs", System.currentTimeMillis() - start);
+                        sendLine(emitter, clientGone, summary);
+                        emitter.complete();
+                    });
+        } catch (RejectedExecutionException e) {
+            emitter.send(e.getMessage(), MediaType.TEXT_PLAIN);
+            emitter.complete();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).contentType(MediaType.TEXT_PLAIN).body(emitter);
+        }
+
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(emitter);
+    }
+
+    private ResponseEntity<?> tooManyRequests(AIBusyException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(e.getMessage());
+    }
+
+    private static Map<String, Object> busyView(long retryAfterSeconds) {
+        Map<String, Object> view = new HashMap<>();
+        view.put("message", "服务繁忙，请稍后再试");
+        view.put("retryAfterSeconds", retryAfterSeconds);
+        return view;
+    }
+
+    private void sendLine(ResponseBodyEmitter emitter, AtomicBoolean clientGone, Object data) {
+        if (clientGone.get()) {
+            return;
+        }
+        // 多个工作线程并发回调，一行JSON和换行符必须连续写出
+        synchronized (emitter) {
+            try {
+                emitter.send(data, MediaType.APPLICATION_JSON);
+                emitter.send("\n", MediaType.TEXT_PLAIN);
+            } catch (IOException | IllegalStateException e) {
+                clientGone.set(true);
+            }
+        }
+    }
+
+    private void sendEvent(SseEmitter emitter, AtomicBoolean clientGone, String name, Object data) {
+        if (clientGone.get()) {
+            return;
+        }
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            clientGone.set(true);
+        }
     }
 
     @GetMapping("/{id}")
@@ -49,19 +279,81 @@ public class TravelPlanController {
         return ResponseEntity.ok(plan);
     }
 
+    /**
+     * 订阅计划的行程更新（SSE）：临时行程被替换后推送 itinerary 事件并关闭连接；
+     * 后台生成失败时推送 failed 事件并关闭连接，临时行程保留
+     */
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribePlanEvents(@PathVariable Long id) throws IOException {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        User user = userService.findByUsername(auth.getName())
+                .orElseThrow(() -> new RuntimeException("用户不存在"));
+
+        if (!travelPlanService.isOwnedBy(id, user.getId())) {
+            throw new RuntimeException("旅行计划不存在");
+        }
+
+        SseEmitter emitter = planEventPublisher.subscribe(id);
+        // 订阅前可能已经回填完成，直接推送当前行程
+        TravelPlan current = travelPlanService.getTravelPlan(id);
+        if (!Boolean.TRUE.equals(current.getProvisional())) {
+            try {
+                emitter.send(SseEmitter.event().name("itinerary")
+                        .data(travelPlanService.toItineraryView(current), MediaType.APPLICATION_JSON));
+                emitter.complete();
+            } catch (IllegalStateException e) {
+                // 回填事件已推送并关闭了连接
+            }
+        }
+        return emitter;
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteTravelPlan(@PathVariable Long id) {
         travelPlanService.deleteTravelPlan(id);
         return ResponseEntity.ok().build();
     }
 
+    /**
+     * 搜索当前用户的计划
+     * q: 在目的地、偏好和行程正文中全文检索，按相关度返回前 limit 条 {"plan", "score", "snippet"}，不分页；
+     * destination: 只按目的地过滤，分页参数和返回结构同列表
+     */
     @GetMapping("/search")
-    public ResponseEntity<List<TravelPlan>> searchTravelPlans(@RequestParam(required = false) String destination) {
+    public ResponseEntity<?> searchTravelPlans(@RequestParam(required = false) String q,
+                                               @RequestParam(required = false) String destination,
+                                               @RequestParam(required = false) String cursor,
+                                               @RequestParam(required = false) Integer limit,
+                                               @RequestParam(defaultValue = "desc") String order) {
+        if (q == null || q.trim().isEmpty()) {
+            return listPlans(destination, cursor, limit, order);
+        }
+
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         User user = userService.findByUsername(auth.getName())
                 .orElseThrow(() -> new RuntimeException("用户不存在"));
 
-        List<TravelPlan> plans = travelPlanService.searchTravelPlans(user.getId(), destination);
-        return ResponseEntity.ok(plans);
+        List<PlanSearchHit> hits = planSearchIndex.search(user.getId(), q.trim(),
+                paginationProperties.resolvePageSize(limit));
+        Map<String, Object> response = new HashMap<>();
+        response.put("items", hits);
+        return ResponseEntity.ok(response);
+    }
+
+    private ResponseEntity<?> listPlans(String destination, String cursor, Integer limit, String order) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        User user = userService.findByUsername(auth.getName())
+                .orElseThrow(() -> new RuntimeException("用户不存在"));
+
+        PageCursor pageCursor;
+        try {
+            pageCursor = PageCursor.resolve(cursor, order);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+
+        CursorPage<TravelPlanSummary> page = travelPlanService.getUserTravelPlans(user.getId(), destination,
+                pageCursor, PageCursor.isAscending(order), paginationProperties.resolvePageSize(limit));
+        return ResponseEntity.ok(page);
     }
 }
\ No newline at end of file
@@ -1,34 +1,42 @@
 package com.travelplanner.controller;
 
+import com.travelplanner.dto.VoicePartialRequest;
 import com.travelplanner.dto.VoicePlanRequest;
-import com.travelplanner.entity.TravelPlan;
 import com.travelplanner.entity.User;
-import com.travelplanner.service.AIService;
-import com.travelplanner.service.TravelPlanService;
+import com.travelplanner.service.AIBusyException;
 import com.travelplanner.service.UserService;
+import com.travelplanner.service.VoicePlanPipeline;
+import com.travelplanner.service.VoiceSessionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.HashMap;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/api/voice-plan")
 @CrossOrigin(origins = "http://localhost:3000", allowCredentials = "true")
 public class VoicePlanController {
+    private static final Logger logger = LoggerFactory.getLogger(VoicePlanController.class);
 
     @Autowired
-    private AIService aiService;
+    private VoicePlanPipeline voicePlanPipeline;
 
     @Autowired
-    private TravelPlanService travelPlanService;
+    private VoiceSessionService voiceSessionService;
 
     @Autowired
     private UserService userService;
 
+    /**
+     * 大模型请求排队已满时返回 429 + Retry-After，不保存计划
+     */
     @PostMapping("/generate")
     public ResponseEntity<?> generatePlanFromVoice(@RequestBody VoicePlanRequest request) {
         try {
@@ -36,53 +44,65 @@ public class VoicePlanController {
             User user = userService.findByUsername(auth.getName())
                     .orElseThrow(() -> new RuntimeException("用户不存在"));
 
-            // 调用AI服务解析语音并生成行程
-            Map<String, Object> aiResult = aiService.parseVoiceAndGeneratePlan(request.getVoiceText());
-
-            // 创建旅行计划
-            TravelPlan travelPlan = createTravelPlanFromAIData(aiResult, user);
-            TravelPlan savedPlan = travelPlanService.createTravelPlan(travelPlan, user);
-
-            // 返回结果
-            Map<String, Object> response =  new HashMap<String, Object>(){{
-                put("plan", savedPlan);
-                put("aiAnalysis", aiResult);
-            }};
-//                    Map.of(
-//                    "plan", savedPlan,
-//                    "aiAnalysis", aiResult
-//            );
-
+            // 解析语音、生成行程并保存计划（plan / aiAnalysis / timings）
+            Map<String, Object> response = voicePlanPipeline.run(request.getVoiceText(), user);
             return ResponseEntity.ok(response);
 
+        } catch (AIBusyException e) {
+            return tooManyRequests(e);
         } catch (Exception e) {
-            e.printStackTrace();
+            logger.error("语音生成旅行计划失败", e);
             return ResponseEntity.badRequest().body("生成旅行计划失败: " + e.getMessage());
         }
     }
 
-    private TravelPlan createTravelPlanFromAIData(Map<String, Object> aiResult, User user) {
-        Map<String, Object> parsedInfo = (Map<String, Object>) aiResult.get("parsedInfo");
-        String itinerary = (String) aiResult.get("itinerary");
-
-        TravelPlan plan = new TravelPlan();
-        plan.setDestination((String) parsedInfo.get("destination"));
-        plan.setStartDate(java.time.LocalDate.parse((String) parsedInfo.get("startDate")));
-        plan.setEndDate(java.time.LocalDate.parse((String) parsedInfo.get("endDate")));
-        plan.setBudget(((Number) parsedInfo.get("budget")).doubleValue());
-        plan.setTravelerCount(((Number) parsedInfo.get("travelerCount")).intValue());
-
-        // 将偏好数组转换为字符串
-        Object preferences = parsedInfo.get("preferences");
-        if (preferences instanceof java.util.List) {
-            plan.setPreferences(String.join(",", (java.util.List<String>) preferences));
-        } else {
-            plan.setPreferences(preferences.toString());
+    /**
+     * 增量语音输入：上传识别中的文本，返回本地解析结果；目的地和天数稳定后后台预生成行程
+     */
+    @PostMapping("/sessions/{sessionId}/partial")
+    public ResponseEntity<?> updateVoiceSession(@PathVariable String sessionId,
+                                                @RequestBody VoicePartialRequest request) {
+        try {
+            if (request.getSeq() == null) {
+                return ResponseEntity.badRequest().body("序号不能为空");
+            }
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            User user = userService.findByUsername(auth.getName())
+                    .orElseThrow(() -> new RuntimeException("用户不存在"));
+
+            return ResponseEntity.ok(voiceSessionService.update(sessionId, user, request.getText(), request.getSeq()));
+
+        } catch (Exception e) {
+            logger.error("更新语音输入失败: 会话 {}", sessionId, e);
+            return ResponseEntity.badRequest().body("更新语音输入失败: " + e.getMessage());
         }
+    }
 
-        plan.setItinerary(itinerary);
-        plan.setUser(user);
+    /**
+     * 增量语音输入结束：提交最终文本生成计划，返回内容与 /generate 相同，另带 speculation（hit / miss）
+     * 大模型请求排队已满时同样返回 429 + Retry-After
+     */
+    @PostMapping("/sessions/{sessionId}/finish")
+    public ResponseEntity<?> finishVoiceSession(@PathVariable String sessionId,
+                                                @RequestBody VoicePlanRequest request) {
+        try {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            User user = userService.findByUsername(auth.getName())
+                    .orElseThrow(() -> new RuntimeException("用户不存在"));
+
+            return ResponseEntity.ok(voiceSessionService.finish(sessionId, user, request.getVoiceText()));
+
+        } catch (AIBusyException e) {
+            return tooManyRequests(e);
+        } catch (Exception e) {
+            logger.error("结束语音输入失败: 会话 {}", sessionId, e);
+            return ResponseEntity.badRequest().body("生成旅行计划失败: " + e.getMessage());
+        }
+    }
 
-        return plan;
+    private ResponseEntity<?> tooManyRequests(AIBusyException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(e.getMessage());
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,7 @@
 package com.travelplanner.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.Map;
 
 public class AliyunAIRequest {
@@ -25,6 +27,14 @@ public class AliyunAIRequest {
         private Double top_p = 0.8;
         private Double temperature = 0.7;
 
+        // 最大输出长度，为空时使用模型默认值
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private Integer max_tokens;
+
+        // 流式输出时每个分片只返回增量内容
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private Boolean incremental_output;
+
         public String getResult_format() { return result_format; }
         public void setResult_format(String result_format) { this.result_format = result_format; }
 
@@ -33,13 +43,23 @@ public class AliyunAIRequest {
 
         public Double getTemperature() { return temperature; }
         public void setTemperature(Double temperature) { this.temperature = temperature; }
+
+        public Integer getMax_tokens() { return max_tokens; }
+        public void setMax_tokens(Integer max_tokens) { this.max_tokens = max_tokens; }
+
+        public Boolean getIncremental_output() { return incremental_output; }
+        public void setIncremental_output(Boolean incremental_output) { this.incremental_output = incremental_output; }
     }
 
     // 构造方法
     public AliyunAIRequest() {}
 
     public AliyunAIRequest(String prompt) {
-        this.model = "qwen-plus";
+        this(prompt, "qwen-plus");
+    }
+
+    public AliyunAIRequest(String prompt, String model) {
+        this.model = model;
         this.input = new Input(prompt);
         this.parameters = new Parameters();
     }
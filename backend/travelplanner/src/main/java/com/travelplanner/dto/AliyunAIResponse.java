@@ -19,21 +19,18 @@ public class AliyunAIResponse {
     }
 
     public static class Usage {
-        private InputOutputTokens input_tokens;
-        private InputOutputTokens output_tokens;
+        private Integer input_tokens;
+        private Integer output_tokens;
+        private Integer total_tokens;
 
-        public static class InputOutputTokens {
-            private Integer tokens;
+        public Integer getInput_tokens() { return input_tokens; }
+        public void setInput_tokens(Integer input_tokens) { this.input_tokens = input_tokens; }
 
-            public Integer getTokens() { return tokens; }
-            public void setTokens(Integer tokens) { this.tokens = tokens; }
-        }
+        public Integer getOutput_tokens() { return output_tokens; }
+        public void setOutput_tokens(Integer output_tokens) { this.output_tokens = output_tokens; }
 
-        public InputOutputTokens getInput_tokens() { return input_tokens; }
-        public void setInput_tokens(InputOutputTokens input_tokens) { this.input_tokens = input_tokens; }
-
-        public InputOutputTokens getOutput_tokens() { return output_tokens; }
-        public void setOutput_tokens(InputOutputTokens output_tokens) { this.output_tokens = output_tokens; }
+        public Integer getTotal_tokens() { return total_tokens; }
+        public void setTotal_tokens(Integer total_tokens) { this.total_tokens = total_tokens; }
     }
 
     // getters and setters
@@ -0,0 +1,34 @@
+package com.travelplanner.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 键集分页的一页结果，nextCursor 为 null 表示没有下一页
+ */
+public class CursorPage<T> {
+    private final List<T> items;
+    private final String nextCursor;
+
+    private CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * @param rows     按 pageSize + 1 查出的行，多出的一行只用来判断是否还有下一页
+     * @param cursorOf 由本页最后一行生成继续标记
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int pageSize, Function<T, String> cursorOf) {
+        if (rows.size() <= pageSize) {
+            return new CursorPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, pageSize);
+        return new CursorPage<>(items, cursorOf.apply(items.get(pageSize - 1)));
+    }
+
+    // getters
+    public List<T> getItems() { return items; }
+    public String getNextCursor() { return nextCursor; }
+    public boolean isHasMore() { return nextCursor != null; }
+}
@@ -0,0 +1,43 @@
+package com.travelplanner.dto;
+
+import com.travelplanner.entity.Expense;
+
+import java.time.LocalDateTime;
+
+/**
+ * 费用记录的返回结构，所属计划只给出ID
+ */
+public class ExpenseView {
+    private final Long id;
+    private final String category;
+    private final String description;
+    private final Double amount;
+    private final LocalDateTime expenseDate;
+    private final Long planId;
+
+    public ExpenseView(Long id, String category, String description, Double amount, LocalDateTime expenseDate,
+                       Long planId) {
+        this.id = id;
+        this.category = category;
+        this.description = description;
+        this.amount = amount;
+        this.expenseDate = expenseDate;
+        this.planId = planId;
+    }
+
+    /**
+     * 取计划ID不会触发计划的加载
+     */
+    public static ExpenseView of(Expense expense) {
+        return new ExpenseView(expense.getId(), expense.getCategory(), expense.getDescription(), expense.getAmount(),
+                expense.getExpenseDate(), expense.getTravelPlan() != null ? expense.getTravelPlan().getId() : null);
+    }
+
+    // getters
+    public Long getId() { return id; }
+    public String getCategory() { return category; }
+    public String getDescription() { return description; }
+    public Double getAmount() { return amount; }
+    public LocalDateTime getExpenseDate() { return expenseDate; }
+    public Long getPlanId() { return planId; }
+}
@@ -0,0 +1,52 @@
+package com.travelplanner.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 从语音文本解析出的旅行需求
+ */
+public class ParsedTravelRequest {
+    private String destination;
+    private String startDate;
+    private String endDate;
+    private Double budget;
+    private Integer travelerCount;
+    private List<String> preferences = new ArrayList<>();
+    private String travelType;
+    private String specialRequirements;
+
+    // 合并调用时模型随解析结果一起返回的行程，不返回给前端
+    @JsonIgnore
+    private String itinerary;
+
+    // getters and setters
+    public String getDestination() { return destination; }
+    public void setDestination(String destination) { this.destination = destination; }
+
+    public String getStartDate() { return startDate; }
+    public void setStartDate(String startDate) { this.startDate = startDate; }
+
+    public String getEndDate() { return endDate; }
+    public void setEndDate(String endDate) { this.endDate = endDate; }
+
+    public Double getBudget() { return budget; }
+    public void setBudget(Double budget) { this.budget = budget; }
+
+    public Integer getTravelerCount() { return travelerCount; }
+    public void setTravelerCount(Integer travelerCount) { this.travelerCount = travelerCount; }
+
+    public List<String> getPreferences() { return preferences; }
+    public void setPreferences(List<String> preferences) { this.preferences = preferences; }
+
+    public String getTravelType() { return travelType; }
+    public void setTravelType(String travelType) { this.travelType = travelType; }
+
+    public String getSpecialRequirements() { return specialRequirements; }
+    public void setSpecialRequirements(String specialRequirements) { this.specialRequirements = specialRequirements; }
+
+    public String getItinerary() { return itinerary; }
+    public void setItinerary(String itinerary) { this.itinerary = itinerary; }
+}
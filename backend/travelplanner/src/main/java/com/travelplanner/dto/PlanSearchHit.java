@@ -0,0 +1,21 @@
+package com.travelplanner.dto;
+
+/**
+ * 全文检索的一条结果：计划摘要、相关度（越大越相关）和命中处的文字片段（命中词用【】标出）
+ */
+public class PlanSearchHit {
+    private final TravelPlanSummary plan;
+    private final double score;
+    private final String snippet;
+
+    public PlanSearchHit(TravelPlanSummary plan, double score, String snippet) {
+        this.plan = plan;
+        this.score = score;
+        this.snippet = snippet;
+    }
+
+    // getters
+    public TravelPlanSummary getPlan() { return plan; }
+    public double getScore() { return score; }
+    public String getSnippet() { return snippet; }
+}
@@ -0,0 +1,58 @@
+package com.travelplanner.dto;
+
+import com.travelplanner.entity.TravelPlan;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 旅行计划列表项：不含行程正文和用户信息，由 JPQL 构造器表达式直接查出
+ */
+public class TravelPlanSummary {
+    private final Long id;
+    private final String destination;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final Double budget;
+    private final Integer travelerCount;
+    private final String preferences;
+    private final LocalDateTime createdAt;
+    private final TravelPlan.Status status;
+    private final Boolean provisional;
+    private final Integer itineraryVersion;
+
+    public TravelPlanSummary(Long id, String destination, LocalDate startDate, LocalDate endDate, Double budget,
+                             Integer travelerCount, String preferences, LocalDateTime createdAt,
+                             TravelPlan.Status status, Boolean provisional, Integer itineraryVersion) {
+        this.id = id;
+        this.destination = destination;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.budget = budget;
+        this.travelerCount = travelerCount;
+        this.preferences = preferences;
+        this.createdAt = createdAt;
+        this.status = status;
+        this.provisional = provisional;
+        this.itineraryVersion = itineraryVersion;
+    }
+
+    public static TravelPlanSummary of(TravelPlan plan) {
+        return new TravelPlanSummary(plan.getId(), plan.getDestination(), plan.getStartDate(), plan.getEndDate(),
+                plan.getBudget(), plan.getTravelerCount(), plan.getPreferences(), plan.getCreatedAt(),
+                plan.getStatus(), plan.getProvisional(), plan.getItineraryVersion());
+    }
+
+    // getters
+    public Long getId() { return id; }
+    public String getDestination() { return destination; }
+    public LocalDate getStartDate() { return startDate; }
+    public LocalDate getEndDate() { return endDate; }
+    public Double getBudget() { return budget; }
+    public Integer getTravelerCount() { return travelerCount; }
+    public String getPreferences() { return preferences; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public TravelPlan.Status getStatus() { return status; }
+    public Boolean getProvisional() { return provisional; }
+    public Integer getItineraryVersion() { return itineraryVersion; }
+}
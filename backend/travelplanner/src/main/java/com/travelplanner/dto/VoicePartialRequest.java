@@ -0,0 +1,16 @@
+package com.travelplanner.dto;
+
+/**
+ * 增量语音输入：识别中的整句文本及其序号
+ */
+public class VoicePartialRequest {
+    private String text;
+    private Integer seq;
+
+    // getters and setters
+    public String getText() { return text; }
+    public void setText(String text) { this.text = text; }
+
+    public Integer getSeq() { return seq; }
+    public void setSeq(Integer seq) { this.seq = seq; }
+}
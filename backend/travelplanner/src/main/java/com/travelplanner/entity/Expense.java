@@ -1,5 +1,7 @@
 package com.travelplanner.entity;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import javax.persistence.*;
 import java.time.LocalDateTime;
 
@@ -22,7 +24,9 @@ public class Expense {
     @Column(name = "expense_date")
     private LocalDateTime expenseDate;
 
-    @ManyToOne
+    // 请求体中以 {"travelPlan": {"id": ...}} 指定所属计划，返回时只给出 planId（见 ExpenseView）
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "plan_id")
     private TravelPlan travelPlan;
 
@@ -0,0 +1,53 @@
+package com.travelplanner.entity;
+
+import com.travelplanner.utils.ItineraryCodec;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 行程正文：按内容哈希去重、Deflate 压缩，ref_count 为引用它的旅行计划数，降为0时删除
+ */
+@Entity
+@Table(name = "itinerary_blobs")
+public class ItineraryBlob {
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    @Column(nullable = false, columnDefinition = "blob")
+    private byte[] body;
+
+    // 压缩前的 UTF-8 字节数
+    @Column(name = "original_length", nullable = false)
+    private Integer originalLength;
+
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    // 构造方法
+    public ItineraryBlob() {}
+
+    // getters and setters
+    public String getHash() { return hash; }
+    public void setHash(String hash) { this.hash = hash; }
+
+    public byte[] getBody() { return body; }
+    public void setBody(byte[] body) { this.body = body; }
+
+    public Integer getOriginalLength() { return originalLength; }
+    public void setOriginalLength(Integer originalLength) { this.originalLength = originalLength; }
+
+    public Integer getRefCount() { return refCount; }
+    public void setRefCount(Integer refCount) { this.refCount = refCount; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public String getText() {
+        return ItineraryCodec.decompress(body, originalLength);
+    }
+}
@@ -0,0 +1,55 @@
+package com.travelplanner.entity;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 行程缓存的磁盘层，服务重启后仍可命中
+ */
+@Entity
+@Table(name = "itinerary_cache")
+public class ItineraryCacheEntry {
+    @Id
+    @Column(name = "cache_key", length = 500)
+    private String cacheKey;
+
+    @Column(nullable = false, length = 20000)
+    private String itinerary;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+
+    // 由预热任务生成，而不是用户请求时生成
+    private Boolean prewarmed;
+
+    // 构造方法
+    public ItineraryCacheEntry() {}
+
+    public ItineraryCacheEntry(String cacheKey, String itinerary, LocalDateTime createdAt, LocalDateTime expiresAt,
+                               boolean prewarmed) {
+        this.cacheKey = cacheKey;
+        this.itinerary = itinerary;
+        this.createdAt = createdAt;
+        this.expiresAt = expiresAt;
+        this.prewarmed = prewarmed;
+    }
+
+    // getters and setters
+    public String getCacheKey() { return cacheKey; }
+    public void setCacheKey(String cacheKey) { this.cacheKey = cacheKey; }
+
+    public String getItinerary() { return itinerary; }
+    public void setItinerary(String itinerary) { this.itinerary = itinerary; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
+
+    public Boolean getPrewarmed() { return prewarmed; }
+    public void setPrewarmed(Boolean prewarmed) { this.prewarmed = prewarmed; }
+}
@@ -1,5 +1,8 @@
 package com.travelplanner.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import javax.persistence.*;
 import java.time.LocalDate;
 import java.util.List;
@@ -7,6 +10,11 @@ import java.util.List;
 @Entity
 @Table(name = "travel_plans")
 public class TravelPlan {
+    /**
+     * 行程生成状态，同步创建的计划直接为 COMPLETED
+     */
+    public enum Status { PENDING, GENERATING, COMPLETED, FAILED }
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -28,22 +36,52 @@ public class TravelPlan {
     @Column(length = 1000)
     private String preferences; // JSON格式存储旅行偏好
 
-    @Column(length = 5000)
-    private String itinerary; // AI生成的行程规划
+    // AI生成的行程规划：正文按内容哈希去重压缩后存放在 itinerary_blobs，这里只保存哈希
+    @JsonIgnore
+    @Column(name = "itinerary_hash", length = 64)
+    private String itineraryHash;
+
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "itinerary_hash", insertable = false, updatable = false)
+    private ItineraryBlob itineraryBlob;
+
+    // 已解压或新设置的行程正文；itineraryChanged 为 true 时还未写入 itinerary_blobs
+    @Transient
+    private String itinerary;
+
+    @Transient
+    private boolean itineraryChanged;
 
     @Column(name = "created_at")
     private java.time.LocalDateTime createdAt;
 
-    @ManyToOne
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private Status status;
+
+    // 截止时间内大模型未返回时先保存模板行程，后台生成完成后再替换；由服务端维护，请求体中的值忽略
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Boolean provisional = false;
+
+    // 行程每替换一次加1，客户端据此判断是否需要刷新；由服务端维护，请求体中的值忽略
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "itinerary_version")
+    private Integer itineraryVersion = 1;
+
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
 
+    @JsonIgnore
     @OneToMany(mappedBy = "travelPlan", cascade = CascadeType.ALL)
     private List<Expense> expenses;
 
     // 构造方法
     public TravelPlan() {
         this.createdAt = java.time.LocalDateTime.now();
+        this.status = Status.COMPLETED;
     }
 
     // getters and setters
@@ -68,12 +106,51 @@ public class TravelPlan {
     public String getPreferences() { return preferences; }
     public void setPreferences(String preferences) { this.preferences = preferences; }
 
-    public String getItinerary() { return itinerary; }
-    public void setItinerary(String itinerary) { this.itinerary = itinerary; }
+    /**
+     * 第一次读取时才加载并解压行程正文
+     */
+    public String getItinerary() {
+        if (itinerary == null && !itineraryChanged && itineraryBlob != null) {
+            itinerary = itineraryBlob.getText();
+        }
+        return itinerary;
+    }
+
+    /**
+     * 修改行程正文，需经 ItineraryStore 保存才会写入 itinerary_blobs 并更新引用计数
+     */
+    public void setItinerary(String itinerary) {
+        this.itinerary = itinerary;
+        this.itineraryChanged = true;
+    }
+
+    public String getItineraryHash() { return itineraryHash; }
+
+    public boolean hasUnsavedItinerary() { return itineraryChanged; }
+
+    /**
+     * 行程正文已写入 itinerary_blobs 后由 ItineraryStore 调用
+     */
+    public void markItineraryStored(String hash, String itinerary) {
+        this.itineraryHash = hash;
+        this.itinerary = itinerary;
+        this.itineraryChanged = false;
+        // 正文已缓存在 itinerary 中，旧的关联不再使用
+        this.itineraryBlob = null;
+    }
 
     public java.time.LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(java.time.LocalDateTime createdAt) { this.createdAt = createdAt; }
 
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public Boolean getProvisional() { return provisional; }
+    public void setProvisional(Boolean provisional) { this.provisional = provisional; }
+
+    public Integer getItineraryVersion() { return itineraryVersion; }
+    public void setItineraryVersion(Integer itineraryVersion) { this.itineraryVersion = itineraryVersion; }
+
     public User getUser() { return user; }
     public void setUser(User user) { this.user = user; }
 
@@ -1,13 +1,38 @@
 package com.travelplanner.repository;
 
+import com.travelplanner.dto.ExpenseView;
 import com.travelplanner.entity.Expense;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface ExpenseRepository extends JpaRepository<Expense, Long> {
     List<Expense> findByTravelPlanId(Long planId);
     List<Expense> findByTravelPlanIdAndCategory(Long planId, String category);
+
+    // 只取外键上的计划ID，不连接 travel_plans
+    String VIEW = "select new com.travelplanner.dto.ExpenseView(e.id, e.category, e.description, e.amount, "
+            + "e.expenseDate, e.travelPlan.id) from Expense e where e.travelPlan.id = :planId ";
+
+    /*
+     * 按 (expense_date, id) 键集分页，走 (plan_id, expense_date, id) 索引；写法同 TravelPlanRepository 的分页查询
+     */
+    @Query(VIEW + "order by e.expenseDate desc, e.id desc")
+    List<ExpenseView> findViewPageDesc(Long planId, Pageable pageable);
+
+    @Query(VIEW + "and e.expenseDate <= :expenseDate and (e.expenseDate < :expenseDate or e.id < :id) "
+            + "order by e.expenseDate desc, e.id desc")
+    List<ExpenseView> findViewPageDescAfter(Long planId, LocalDateTime expenseDate, Long id, Pageable pageable);
+
+    @Query(VIEW + "order by e.expenseDate asc, e.id asc")
+    List<ExpenseView> findViewPageAsc(Long planId, Pageable pageable);
+
+    @Query(VIEW + "and e.expenseDate >= :expenseDate and (e.expenseDate > :expenseDate or e.id > :id) "
+            + "order by e.expenseDate asc, e.id asc")
+    List<ExpenseView> findViewPageAscAfter(Long planId, LocalDateTime expenseDate, Long id, Pageable pageable);
 }
\ No newline at end of file
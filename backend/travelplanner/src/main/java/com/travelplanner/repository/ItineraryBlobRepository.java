@@ -0,0 +1,47 @@
+package com.travelplanner.repository;
+
+import com.travelplanner.entity.ItineraryBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ItineraryBlobRepository extends JpaRepository<ItineraryBlob, String> {
+
+    @Modifying
+    @Transactional
+    @Query("update ItineraryBlob b set b.refCount = b.refCount + 1 where b.hash = :hash")
+    int incrementRefCount(String hash);
+
+    /**
+     * 不存在时插入（引用数为1），并发插入同一内容时改为引用数加1
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "insert into itinerary_blobs (hash, body, original_length, ref_count, created_at) "
+            + "values (:hash, :body, :originalLength, 1, :createdAt) "
+            + "on conflict(hash) do update set ref_count = ref_count + 1", nativeQuery = true)
+    int insertOrIncrement(String hash, byte[] body, Integer originalLength, LocalDateTime createdAt);
+
+    @Modifying
+    @Transactional
+    @Query("update ItineraryBlob b set b.refCount = b.refCount - 1 where b.hash = :hash")
+    int decrementRefCount(String hash);
+
+    @Modifying
+    @Transactional
+    @Query("delete from ItineraryBlob b where b.hash = :hash and b.refCount <= 0")
+    int deleteIfUnreferenced(String hash);
+
+    /**
+     * 条目数、引用总数、压缩前字节数、压缩后字节数（只有一行）
+     */
+    @Query(value = "select count(*), coalesce(sum(ref_count), 0), coalesce(sum(original_length), 0), "
+            + "coalesce(sum(length(body)), 0) from itinerary_blobs", nativeQuery = true)
+    List<Object[]> summarize();
+}
@@ -0,0 +1,18 @@
+package com.travelplanner.repository;
+
+import com.travelplanner.entity.ItineraryCacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface ItineraryCacheRepository extends JpaRepository<ItineraryCacheEntry, String> {
+    @Modifying
+    @Transactional
+    @Query("delete from ItineraryCacheEntry e where e.expiresAt < :now")
+    int deleteExpired(LocalDateTime now);
+}
@@ -0,0 +1,17 @@
+package com.travelplanner.repository;
+
+import com.travelplanner.entity.PlanGenerationJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PlanGenerationJobRepository extends JpaRepository<PlanGenerationJob, Long> {
+    // 未完成的任务 finished_at 为空，条件里带上它才会用到部分索引 idx_plan_jobs_unfinished
+    List<PlanGenerationJob> findByFinishedAtIsNullAndStatusInOrderByPriorityDescCreatedAtAsc(
+            Collection<PlanGenerationJob.Status> statuses);
+
+    long countByFinishedAtIsNullAndStatus(PlanGenerationJob.Status status);
+}
@@ -1,13 +1,89 @@
 package com.travelplanner.repository;
 
+import com.travelplanner.dto.TravelPlanSummary;
 import com.travelplanner.entity.TravelPlan;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface TravelPlanRepository extends JpaRepository<TravelPlan, Long> {
-    List<TravelPlan> findByUserId(Long userId);
-    List<TravelPlan> findByDestinationContainingIgnoreCase(String destination);
-}
\ No newline at end of file
+    String SUMMARY = "select new com.travelplanner.dto.TravelPlanSummary(p.id, p.destination, p.startDate, "
+            + "p.endDate, p.budget, p.travelerCount, p.preferences, p.createdAt, p.status, p.provisional, "
+            + "p.itineraryVersion) from TravelPlan p ";
+
+    // destination 为 null 时不按目的地过滤
+    String USER_PLANS = "where p.user.id = :userId and (:destination is null "
+            + "or lower(p.destination) like lower(concat('%', :destination, '%'))) ";
+
+    /*
+     * 列表只查摘要字段，不加载行程正文和用户；按 (created_at, id) 键集分页，
+     * 后续页从上一页最后一行之后开始，走 (user_id, created_at, id) 索引，不随历史数据增多而变慢。
+     * 单独的 created_at <= :createdAt 让 SQLite 直接定位到索引区间，只写 or 条件时会从头扫描再过滤
+     */
+    @Query(SUMMARY + USER_PLANS + "order by p.createdAt desc, p.id desc")
+    List<TravelPlanSummary> findSummaryPageDesc(Long userId, String destination, Pageable pageable);
+
+    @Query(SUMMARY + USER_PLANS + "and p.createdAt <= :createdAt and (p.createdAt < :createdAt or p.id < :id) "
+            + "order by p.createdAt desc, p.id desc")
+    List<TravelPlanSummary> findSummaryPageDescAfter(Long userId, String destination, LocalDateTime createdAt,
+                                                     Long id, Pageable pageable);
+
+    @Query(SUMMARY + USER_PLANS + "order by p.createdAt asc, p.id asc")
+    List<TravelPlanSummary> findSummaryPageAsc(Long userId, String destination, Pageable pageable);
+
+    @Query(SUMMARY + USER_PLANS + "and p.createdAt >= :createdAt and (p.createdAt > :createdAt or p.id > :id) "
+            + "order by p.createdAt asc, p.id asc")
+    List<TravelPlanSummary> findSummaryPageAscAfter(Long userId, String destination, LocalDateTime createdAt,
+                                                    Long id, Pageable pageable);
+
+    boolean existsByIdAndUserId(Long id, Long userId);
+
+    /**
+     * 连同行程正文一起加载，用于在请求线程之外读取行程
+     */
+    @EntityGraph(attributePaths = "itineraryBlob")
+    Optional<TravelPlan> findWithItineraryBlobById(Long id);
+
+    @EntityGraph(attributePaths = "itineraryBlob")
+    List<TravelPlan> findWithItineraryBlobByIdIn(List<Long> ids);
+
+    @Query("select p.itineraryHash from TravelPlan p where p.id = :id")
+    String findItineraryHashById(Long id);
+
+    @Query("select p.user.id from TravelPlan p where p.id = :id")
+    Long findUserIdById(Long id);
+
+    /**
+     * 只查询决定行程内容的字段，用于统计热门组合
+     */
+    List<PlanShape> findByCreatedAtAfterOrderByCreatedAtAsc(LocalDateTime since);
+
+    /**
+     * 用正式行程替换临时行程，版本号不匹配（已被替换过）时不更新；引用计数由 ItineraryStore 维护
+     */
+    @Modifying
+    @Transactional
+    @Query("update TravelPlan p set p.itineraryHash = :itineraryHash, p.provisional = false, "
+            + "p.itineraryVersion = p.itineraryVersion + 1 "
+            + "where p.id = :id and p.provisional = true and p.itineraryVersion = :version")
+    int replaceProvisionalItinerary(Long id, Integer version, String itineraryHash);
+
+    interface PlanShape {
+        String getDestination();
+        LocalDate getStartDate();
+        LocalDate getEndDate();
+        Double getBudget();
+        Integer getTravelerCount();
+        String getPreferences();
+    }
+}
@@ -0,0 +1,88 @@
+package com.travelplanner.security;
+
+import com.travelplanner.config.RateLimitProperties;
+import com.travelplanner.service.RateLimiter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AI接口限流拦截器：扣减用户令牌，再占用接口的并发名额，失败返回 429 + Retry-After
+ * 名额在请求真正结束时归还（SSE 等异步请求为异步处理完成后的再次分发结束时）；不在这里排队等待
+ * 全局并发由 AIGateway 的舱壁在实际调用上游时控制，不在这里占用 Web 容器线程等待
+ */
+@Component
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private static final String PERMIT_ATTRIBUTE = RateLimitInterceptor.class.getName() + ".PERMIT";
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws Exception {
+        // SSE 等异步请求完成后的再次分发不重复计数
+        if (!rateLimiter.isEnabled() || request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        RateLimitProperties.Endpoint endpoint = rateLimiter.match(request.getMethod(), path);
+        if (endpoint == null) {
+            return true;
+        }
+
+        long waitMs = rateLimiter.tryConsume(endpoint, userKey(request));
+        if (waitMs > 0) {
+            reject(response, Math.max(1, TimeUnit.MILLISECONDS.toSeconds(waitMs + 999)), "请求过于频繁，请稍后再试");
+            return false;
+        }
+
+        if (!rateLimiter.tryAcquire(endpoint)) {
+            reject(response, rateLimiter.busyRetryAfterSeconds(), "服务繁忙，请稍后再试");
+            return false;
+        }
+        request.setAttribute(PERMIT_ATTRIBUTE, endpoint);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        // 异步请求的首次分发不会调用 afterCompletion，名额一直保留到再次分发结束
+        RateLimitProperties.Endpoint endpoint = (RateLimitProperties.Endpoint) request.getAttribute(PERMIT_ATTRIBUTE);
+        if (endpoint != null) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            rateLimiter.release(endpoint);
+        }
+    }
+
+    /**
+     * 已登录用户按身份限流，匿名请求按来源地址限流
+     */
+    private String userKey(HttpServletRequest request) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.isAuthenticated() && !"anonymousUser".equals(auth.getName())) {
+            return "user:" + auth.getName();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private void reject(HttpServletResponse response, long retryAfterSeconds, String message) throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write(message);
+    }
+}
@@ -0,0 +1,19 @@
+package com.travelplanner.service;
+
+/**
+ * 大模型调用被舱壁拒绝（等待队列已满或等待超时）
+ * 调用方不能把它当作普通失败改用模拟行程，接口返回 429 + Retry-After
+ */
+public class AIBusyException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public AIBusyException(long retryAfterSeconds) {
+        super("服务繁忙，请稍后再试");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,472 @@
+package com.travelplanner.service;
+
+import com.travelplanner.utils.CircuitBreaker;
+import com.travelplanner.utils.LatencyTracker;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 大模型调用的容错层
+ *
+ * 舱壁：限制同时进行的上游请求数，拿不到许可的调用在公平队列中等待（只阻塞AI线程），排满或超时抛出 AIBusyException
+ * 熔断：窗口内失败率过高时直接返回null，由调用方走降级逻辑
+ * 自适应超时：根据观测到的 p99 耗时计算每次调用的截止时间
+ * 对冲请求：超过 p95 仍未返回时再发一次相同请求，取先成功的结果
+ * 重试：仅对幂等的解析调用做带抖动的指数退避重试
+ */
+@Component
+public class AIGateway {
+    private static final Logger logger = LoggerFactory.getLogger(AIGateway.class);
+
+    @Autowired
+    private ThreadPoolTaskExecutor aiAttemptExecutor;
+
+    @Value("${app.ai.resilience.bulkhead.max-concurrent:16}")
+    private int bulkheadMaxConcurrent;
+
+    @Value("${app.ai.resilience.bulkhead.max-queue:32}")
+    private int bulkheadMaxQueue;
+
+    @Value("${app.ai.resilience.bulkhead.max-wait-ms:5000}")
+    private long bulkheadMaxWaitMs;
+
+    @Value("${app.ai.resilience.breaker.window-size:20}")
+    private int windowSize;
+
+    @Value("${app.ai.resilience.breaker.minimum-calls:10}")
+    private int minimumCalls;
+
+    @Value("${app.ai.resilience.breaker.failure-rate-threshold:0.5}")
+    private double failureRateThreshold;
+
+    @Value("${app.ai.resilience.breaker.open-duration-ms:30000}")
+    private long openDurationMs;
+
+    @Value("${app.ai.resilience.breaker.half-open-calls:3}")
+    private int halfOpenCalls;
+
+    @Value("${app.ai.resilience.deadline.min-ms:5000}")
+    private long minDeadlineMs;
+
+    @Value("${app.ai.resilience.deadline.max-ms:60000}")
+    private long maxDeadlineMs;
+
+    @Value("${app.ai.resilience.deadline.multiplier:1.5}")
+    private double deadlineMultiplier;
+
+    @Value("${app.ai.resilience.deadline.min-samples:20}")
+    private int minSamples;
+
+    @Value("${app.ai.resilience.hedge.enabled:false}")
+    private boolean hedgeEnabled;
+
+    @Value("${app.ai.resilience.hedge.min-delay-ms:3000}")
+    private long minHedgeDelayMs;
+
+    @Value("${app.ai.resilience.retry.max-retries:2}")
+    private int maxRetries;
+
+    @Value("${app.ai.resilience.retry.base-backoff-ms:200}")
+    private long baseBackoffMs;
+
+    @Value("${app.ai.resilience.retry.max-backoff-ms:2000}")
+    private long maxBackoffMs;
+
+    private CircuitBreaker circuitBreaker;
+    private Semaphore bulkhead;
+    private final AtomicInteger bulkheadWaiting = new AtomicInteger();
+    private final AtomicLong bulkheadQueueFull = new AtomicLong();
+    private final AtomicLong bulkheadWaitTimeouts = new AtomicLong();
+    private final LatencyTracker latencyTracker = new LatencyTracker(200);
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong hedgesSent = new AtomicLong();
+    private final AtomicLong hedgesWon = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        circuitBreaker = new CircuitBreaker(windowSize, minimumCalls, failureRateThreshold, openDurationMs, halfOpenCalls);
+        bulkhead = new Semaphore(bulkheadMaxConcurrent, true);
+    }
+
+    /**
+     * 执行一次大模型调用，call 返回 null 视为失败
+     *
+     * call 需通过 {@link Attempt#bind} 登记发出的 HTTP 请求，超时、对冲落败或调用方取消时由网关中止连接。
+     * 调用线程被中断时不再重试，直接返回 null。
+     *
+     * @param idempotent 是否允许重试（只有解析类调用允许）
+     * @return 调用结果，熔断、超时或失败时返回 null
+     * @throws AIBusyException 舱壁等待队列已满或等待超时
+     */
+    public String execute(boolean idempotent, Function<Attempt, String> call) {
+        int maxAttempts = idempotent ? maxRetries + 1 : 1;
+
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+            if (Thread.currentThread().isInterrupted()) {
+                return null;
+            }
+            if (!acquireBulkhead(true)) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return null;
+                }
+                logger.warn("AI请求舱壁已满，拒绝本次调用");
+                throw new AIBusyException(retryAfterSeconds());
+            }
+            Attempt primary = launch(call);
+            if (primary == null) {
+                logger.warn("AI服务熔断中，直接降级");
+                return null;
+            }
+
+            String result = executeWithDeadline(primary, call, currentDeadlineMs());
+            if (result != null) {
+                return result;
+            }
+
+            if (attempt + 1 < maxAttempts && !Thread.currentThread().isInterrupted()) {
+                retries.incrementAndGet();
+                sleepBackoff(attempt);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 供流式调用使用：获取舱壁许可并做熔断判断，返回 true 时必须通过 recordResult 回报结果并归还许可
+     *
+     * @return 熔断中或线程被中断时返回 false
+     * @throws AIBusyException 舱壁等待队列已满或等待超时
+     */
+    public boolean tryAcquirePermission() {
+        if (!acquireBulkhead(true)) {
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            logger.warn("AI请求舱壁已满，拒绝本次调用");
+            throw new AIBusyException(retryAfterSeconds());
+        }
+        if (!circuitBreaker.tryAcquirePermission()) {
+            bulkhead.release();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 舱壁没有空闲许可且等待队列已满，此时发起的调用会立即被拒绝；供接口在开始推送响应前提前返回 429
+     */
+    public boolean isSaturated() {
+        return bulkhead.availablePermits() == 0 && bulkheadWaiting.get() >= bulkheadMaxQueue;
+    }
+
+    /**
+     * 舱壁拒绝时建议的重试秒数：按最长等待时间估算
+     */
+    public long retryAfterSeconds() {
+        return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(bulkheadMaxWaitMs + 999));
+    }
+
+    public void recordResult(boolean success, long latencyMs) {
+        try {
+            if (success) {
+                latencyTracker.record(latencyMs);
+                circuitBreaker.onSuccess();
+            } else {
+                circuitBreaker.onFailure();
+            }
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    /**
+     * 截止时间 = p99 * multiplier，限制在 [min, max] 之间；样本不足时使用最大值
+     */
+    public long currentDeadlineMs() {
+        if (latencyTracker.getSampleCount() < minSamples) {
+            return maxDeadlineMs;
+        }
+        long deadline = (long) (latencyTracker.percentile(0.99) * deadlineMultiplier);
+        return Math.max(minDeadlineMs, Math.min(deadline, maxDeadlineMs));
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("circuitBreaker", circuitBreaker.snapshot());
+        status.put("degraded", circuitBreaker.getState() != CircuitBreaker.State.CLOSED);
+        status.put("latency", latencyTracker.snapshot());
+        status.put("currentDeadlineMs", currentDeadlineMs());
+        status.put("timeouts", timeouts.get());
+        status.put("retries", retries.get());
+        status.put("hedgeEnabled", hedgeEnabled);
+        status.put("hedgeDelayMs", hedgeDelayMs());
+        status.put("hedgesSent", hedgesSent.get());
+        status.put("hedgesWon", hedgesWon.get());
+
+        Map<String, Object> bulkheadStatus = new HashMap<>();
+        bulkheadStatus.put("maxConcurrent", bulkheadMaxConcurrent);
+        bulkheadStatus.put("inUse", bulkheadMaxConcurrent - bulkhead.availablePermits());
+        bulkheadStatus.put("waiting", bulkheadWaiting.get());
+        bulkheadStatus.put("maxQueue", bulkheadMaxQueue);
+        bulkheadStatus.put("queueFull", bulkheadQueueFull.get());
+        bulkheadStatus.put("waitTimeouts", bulkheadWaitTimeouts.get());
+        status.put("bulkhead", bulkheadStatus);
+        return status;
+    }
+
+    /**
+     * 经熔断器许可后在 aiAttemptExecutor 上发出一次请求，熔断中返回 null
+     * 调用前须已持有一个舱壁许可，许可在请求真正结束（含被中止）时归还，熔断拒绝时立即归还。
+     * 请求自然结束时记录成功或失败；被网关提前结束的请求由 expire / abandon 记录
+     */
+    private Attempt launch(Function<Attempt, String> call) {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            bulkhead.release();
+            return null;
+        }
+        Attempt attempt = new Attempt();
+        try {
+            attempt.result = CompletableFuture.supplyAsync(() -> {
+                String value = null;
+                try {
+                    value = call.apply(attempt);
+                    return value;
+                } finally {
+                    bulkhead.release();
+                    if (attempt.settle()) {
+                        if (value != null) {
+                            latencyTracker.record(System.currentTimeMillis() - attempt.start);
+                            circuitBreaker.onSuccess();
+                        } else {
+                            circuitBreaker.onFailure();
+                        }
+                    }
+                }
+            }, aiAttemptExecutor);
+        } catch (RejectedExecutionException e) {
+            // 本地线程池已满，不是上游的问题
+            logger.warn("AI请求线程池已满，放弃本次请求");
+            attempt.settle();
+            bulkhead.release();
+            circuitBreaker.releasePermission();
+            attempt.result = CompletableFuture.completedFuture(null);
+        }
+        return attempt;
+    }
+
+    private String executeWithDeadline(Attempt primary, Function<Attempt, String> call, long deadlineMs) {
+        List<Attempt> attempts = new ArrayList<>();
+        attempts.add(primary);
+        try {
+            long hedgeDelay = hedgeDelayMs();
+
+            if (hedgeEnabled && hedgeDelay < deadlineMs) {
+                try {
+                    // 主请求已经失败时返回 null，交给重试逻辑处理
+                    return primary.result.get(hedgeDelay, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    // 对冲请求同样要经过舱壁和熔断器；舱壁没有空闲许可时不对冲
+                    Attempt hedge = acquireBulkhead(false) ? launch(call) : null;
+                    if (hedge == null) {
+                        return primary.result.get(deadlineMs - hedgeDelay, TimeUnit.MILLISECONDS);
+                    }
+                    hedgesSent.incrementAndGet();
+                    attempts.add(hedge);
+                    return firstSuccessful(primary, hedge, deadlineMs - hedgeDelay);
+                }
+            }
+
+            return primary.result.get(deadlineMs, TimeUnit.MILLISECONDS);
+
+        } catch (TimeoutException e) {
+            timeouts.incrementAndGet();
+            logger.warn("AI调用超过截止时间 {}ms", deadlineMs);
+            attempts.forEach(this::expire);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            logger.error("AI调用失败", e.getCause());
+            return null;
+        } finally {
+            // 对冲落败或调用方放弃的请求立即中止，释放线程和连接
+            attempts.forEach(this::abandon);
+        }
+    }
+
+    /**
+     * 等待任一请求成功返回；全部失败返回 null，都未返回时抛出 TimeoutException
+     */
+    private String firstSuccessful(Attempt primary, Attempt hedge, long remainingMs)
+            throws InterruptedException, TimeoutException {
+        CompletableFuture<String> winner = new CompletableFuture<>();
+        AtomicInteger failed = new AtomicInteger();
+        for (Attempt attempt : Arrays.asList(primary, hedge)) {
+            attempt.result.whenComplete((value, error) -> {
+                if (value != null) {
+                    if (winner.complete(value) && attempt == hedge) {
+                        hedgesWon.incrementAndGet();
+                    }
+                } else if (failed.incrementAndGet() == 2) {
+                    winner.complete(null);
+                }
+            });
+        }
+        try {
+            return winner.get(Math.max(remainingMs, 1), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 超过截止时间：记为失败，耗时按截止时间记一个截断样本，使自适应截止时间在持续超时后能够变长
+     */
+    private void expire(Attempt attempt) {
+        if (attempt.settle()) {
+            latencyTracker.record(Math.min(System.currentTimeMillis() - attempt.start, maxDeadlineMs));
+            circuitBreaker.onFailure();
+        }
+        attempt.abort(true);
+    }
+
+    /**
+     * 不再需要的请求：不计成功或失败，归还熔断器许可并中止连接
+     */
+    private void abandon(Attempt attempt) {
+        if (attempt.settle()) {
+            circuitBreaker.releasePermission();
+            attempt.abort(false);
+        }
+    }
+
+    /**
+     * 获取舱壁许可；先按公平顺序尝试立即获取，wait 为 true 时再在队列中最多等待 max-wait-ms
+     * 只在AI线程上调用，等待不会占用 Web 容器线程
+     */
+    private boolean acquireBulkhead(boolean wait) {
+        try {
+            // 带超时的 tryAcquire 遵守公平顺序，不会插队到正在等待的调用之前
+            if (bulkhead.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+            if (!wait) {
+                return false;
+            }
+            if (bulkheadWaiting.incrementAndGet() > bulkheadMaxQueue) {
+                bulkheadWaiting.decrementAndGet();
+                bulkheadQueueFull.incrementAndGet();
+                return false;
+            }
+            try {
+                boolean acquired = bulkhead.tryAcquire(bulkheadMaxWaitMs, TimeUnit.MILLISECONDS);
+                if (!acquired) {
+                    bulkheadWaitTimeouts.incrementAndGet();
+                }
+                return acquired;
+            } finally {
+                bulkheadWaiting.decrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private long hedgeDelayMs() {
+        if (latencyTracker.getSampleCount() < minSamples) {
+            return Math.max(minHedgeDelayMs, maxDeadlineMs / 2);
+        }
+        return Math.max(minHedgeDelayMs, latencyTracker.percentile(0.95));
+    }
+
+    /**
+     * 全抖动指数退避：[0, min(max, base * 2^attempt)) 之间随机
+     */
+    private void sleepBackoff(int attempt) {
+        long cap = Math.min(maxBackoffMs, baseBackoffMs << attempt);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(cap + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 一次上游请求的句柄
+     * 调用方用 bind 登记实际发出的 HTTP 请求；网关放弃这次请求时中止连接，正在阻塞读取的线程随即返回
+     */
+    public static class Attempt {
+        private final long start = System.currentTimeMillis();
+        // 成功、失败、超时、放弃只记录其中一个
+        private final AtomicBoolean settled = new AtomicBoolean();
+        private volatile CompletableFuture<String> result;
+        private HttpUriRequest request;
+        private boolean aborted;
+        private boolean expired;
+
+        /**
+         * 登记本次发出的请求；已被放弃时立即中止
+         */
+        public synchronized void bind(HttpUriRequest request) {
+            this.request = request;
+            if (aborted) {
+                request.abort();
+            }
+        }
+
+        /**
+         * 是否已被网关中止（超时、对冲落败或调用方取消）
+         */
+        public synchronized boolean isAborted() {
+            return aborted;
+        }
+
+        /**
+         * 是否因对冲落败或调用方取消而被放弃（超时不算），被放弃的请求不应计入路由健康统计
+         */
+        public synchronized boolean isAbandoned() {
+            return aborted && !expired;
+        }
+
+        synchronized void abort(boolean expired) {
+            if (aborted) {
+                return;
+            }
+            aborted = true;
+            this.expired = expired;
+            if (request != null) {
+                request.abort();
+            }
+        }
+
+        boolean settle() {
+            return settled.compareAndSet(false, true);
+        }
+    }
+}
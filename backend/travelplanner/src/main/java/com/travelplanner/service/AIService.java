@@ -1,19 +1,42 @@
 package com.travelplanner.service;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.travelplanner.dto.AliyunAIRequest;
 import com.travelplanner.dto.AliyunAIResponse;
+import com.travelplanner.dto.ParsedTravelRequest;
+import com.travelplanner.utils.JsonObjectScanner;
+import com.travelplanner.utils.SingleFlight;
+import com.travelplanner.utils.TravelSlotExtractor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.apache.http.HttpEntity;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.StringEntity;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 import org.apache.http.util.EntityUtils;
 
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * AI服务类 - 集成阿里云通义千问大模型
@@ -28,25 +51,67 @@ public class AIService {
     @Value("${aliyun.ai.endpoint:https://dashscope.aliyuncs.com/api/v1/services/aigc/text-generation/generation}")
     private String aliYunEndpoint;
 
-    private final ObjectMapper objectMapper;
-    private final CloseableHttpClient httpClient;
+    // 词典解析置信度达到该值时不再调用大模型解析
+    @Value("${app.gazetteer.skip-llm-confidence:0.8}")
+    private double skipLlmConfidence;
 
-    public AIService() {
-        this.objectMapper = new ObjectMapper();
-        this.httpClient = HttpClients.createDefault();
+    // 预先构建、线程安全，每次调用不再重新查找序列化器
+    private final ObjectReader aiResponseReader;
+    private final ObjectWriter aiRequestWriter;
+    // 解析模型生成的JSON：容忍注释、尾逗号、单引号和字符串里未转义的换行
+    private final JsonFactory llmJsonFactory;
+    private final CloseableHttpClient httpClient;
+    private final ItineraryCache itineraryCache;
+    private final ThreadPoolTaskExecutor aiCallExecutor;
+    private final AIGateway aiGateway;
+    private final TravelGazetteer travelGazetteer;
+    private final ModelRouter modelRouter;
+
+    // 相同提示词的并发请求只调用一次上游
+    private final SingleFlight<String, String> inFlightCalls = new SingleFlight<>();
+    private final AtomicLong localParses = new AtomicLong();
+
+    public AIService(CloseableHttpClient aiHttpClient, ItineraryCache itineraryCache,
+                     ThreadPoolTaskExecutor aiCallExecutor, AIGateway aiGateway,
+                     TravelGazetteer travelGazetteer, ModelRouter modelRouter) {
+        // DashScope 响应会随版本增加字段，忽略未知字段
+        ObjectMapper objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.aiResponseReader = objectMapper.readerFor(AliyunAIResponse.class);
+        this.aiRequestWriter = objectMapper.writerFor(AliyunAIRequest.class);
+        this.llmJsonFactory = JsonFactory.builder()
+                .enable(JsonReadFeature.ALLOW_JAVA_COMMENTS)
+                .enable(JsonReadFeature.ALLOW_TRAILING_COMMA)
+                .enable(JsonReadFeature.ALLOW_SINGLE_QUOTES)
+                .enable(JsonReadFeature.ALLOW_UNESCAPED_CONTROL_CHARS)
+                .build();
+        this.httpClient = aiHttpClient;
+        this.itineraryCache = itineraryCache;
+        this.aiCallExecutor = aiCallExecutor;
+        this.aiGateway = aiGateway;
+        this.travelGazetteer = travelGazetteer;
+        this.modelRouter = modelRouter;
     }
 
     /**
      * 生成智能行程规划 - 主要方法
+     * 大模型调用失败时返回模拟数据；被舱壁拒绝时抛出 AIBusyException，不返回模拟数据
      */
     public String generateItinerary(String destination, String startDate, String endDate,
                                     Double budget, Integer travelerCount, String preferences) {
         try {
+            // 相同需求（归一化后）直接命中缓存
+            ItineraryCacheKey cacheKey = itineraryCache.keyOf(destination, startDate, endDate, budget, travelerCount, preferences);
+            Optional<String> cached = itineraryCache.get(cacheKey);
+            if (cached.isPresent()) {
+                logger.info("行程缓存命中: {}", cacheKey);
+                return cached.get();
+            }
+
             // 构建详细的提示词
             String prompt = buildDetailedItineraryPrompt(destination, startDate, endDate, budget, travelerCount, preferences);
 
-            // 调用阿里云大模型
-            String aiResponse = callAliYunQwenModel(prompt);
+            // 调用阿里云大模型（生成类调用不重试）
+            String aiResponse = callAliYunQwenModel(AITask.ITINERARY, prompt, false);
 
             // 如果AI调用失败，返回模拟数据
             if (aiResponse == null || aiResponse.trim().isEmpty()) {
@@ -54,39 +119,168 @@ public class AIService {
                 return generateMockItinerary(destination, startDate, endDate, budget, travelerCount, preferences);
             }
 
+            itineraryCache.put(cacheKey, aiResponse);
             return aiResponse;
 
+        } catch (AIBusyException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("生成行程规划时发生错误", e);
             return generateMockItinerary(destination, startDate, endDate, budget, travelerCount, preferences);
         }
     }
 
+    /**
+     * 预热行程缓存：跳过缓存查找直接生成并写入缓存（标记为预热），失败时不写入模拟数据
+     *
+     * @return 生成的行程，失败时返回 null
+     * @throws AIBusyException 被舱壁拒绝
+     */
+    public String prewarmItinerary(String destination, String startDate, String endDate,
+                                   Double budget, Integer travelerCount, String preferences) {
+        String prompt = buildDetailedItineraryPrompt(destination, startDate, endDate, budget, travelerCount, preferences);
+        String itinerary = callAliYunQwenModel(AITask.ITINERARY, prompt, false);
+        if (itinerary == null || itinerary.trim().isEmpty()) {
+            return null;
+        }
+        itineraryCache.put(itineraryCache.keyOf(destination, startDate, endDate, budget, travelerCount, preferences),
+                itinerary, true);
+        return itinerary;
+    }
+
+    /**
+     * 生成行程，供可重试或可放弃的调用方（异步任务、语音预生成）使用：命中缓存直接返回，否则调用大模型并写入缓存
+     * 失败或线程被中断时返回 null，不生成模拟数据；中断会中止没有其他调用方等待的上游请求
+     *
+     * @throws AIBusyException 被舱壁拒绝
+     */
+    public String tryGenerateItinerary(String destination, String startDate, String endDate,
+                                       Double budget, Integer travelerCount, String preferences) {
+        ItineraryCacheKey cacheKey = itineraryCache.keyOf(destination, startDate, endDate, budget, travelerCount, preferences);
+        Optional<String> cached = itineraryCache.get(cacheKey);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        String prompt = buildDetailedItineraryPrompt(destination, startDate, endDate, budget, travelerCount, preferences);
+        String itinerary = callAliYunQwenModel(AITask.ITINERARY, prompt, false);
+        if (itinerary == null || itinerary.trim().isEmpty()) {
+            return null;
+        }
+        itineraryCache.put(cacheKey, itinerary);
+        return itinerary;
+    }
+
+    /**
+     * 流式生成行程规划，每收到一个增量分片就回调 onChunk，返回完整行程
+     * 上游流中途失败（未收到结束标记）时不缓存，已推送过分片则先回调 onReset，再推送模拟数据
+     * 被舱壁拒绝时（还未推送任何分片）抛出 AIBusyException
+     */
+    public String streamItinerary(String destination, String startDate, String endDate,
+                                  Double budget, Integer travelerCount, String preferences,
+                                  Consumer<String> onChunk, Runnable onReset) {
+        AtomicBoolean chunkSent = new AtomicBoolean(false);
+        try {
+            ItineraryCacheKey cacheKey = itineraryCache.keyOf(destination, startDate, endDate, budget, travelerCount, preferences);
+            Optional<String> cached = itineraryCache.get(cacheKey);
+            if (cached.isPresent()) {
+                logger.info("行程缓存命中: {}", cacheKey);
+                onChunk.accept(cached.get());
+                return cached.get();
+            }
+
+            String prompt = buildDetailedItineraryPrompt(destination, startDate, endDate, budget, travelerCount, preferences);
+            String aiResponse = null;
+            if (aiGateway.tryAcquirePermission()) {
+                long start = System.currentTimeMillis();
+                try {
+                    aiResponse = callAliYunQwenModelStream(AITask.ITINERARY, prompt, chunk -> {
+                        chunkSent.set(true);
+                        onChunk.accept(chunk);
+                    });
+                } finally {
+                    // 归还舱壁许可，流结束前一直占用
+                    aiGateway.recordResult(aiResponse != null && !aiResponse.trim().isEmpty(),
+                            System.currentTimeMillis() - start);
+                }
+            }
+
+            if (aiResponse != null && !aiResponse.trim().isEmpty()) {
+                itineraryCache.put(cacheKey, aiResponse);
+                return aiResponse;
+            }
+            logger.warn("AI流式服务调用失败，返回模拟数据");
+        } catch (AIBusyException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("流式生成行程规划时发生错误", e);
+        }
+
+        if (chunkSent.get()) {
+            onReset.run();
+        }
+        String mockItinerary = generateMockItinerary(destination, startDate, endDate, budget, travelerCount, preferences);
+        onChunk.accept(mockItinerary);
+        return mockItinerary;
+    }
+
     /**
      * 从语音文本解析旅行需求并生成行程规划
+     * 一次大模型调用同时返回结构化需求和行程；结果无法解析时才退回分步解析
+     * 被舱壁拒绝时抛出 AIBusyException
      */
     public Map<String, Object> parseVoiceAndGeneratePlan(String voiceText) {
         Map<String, Object> result = new HashMap<>();
 
         try {
-            // 1. 解析语音文本获取结构化信息
-            Map<String, Object> parsedInfo = parseTravelRequirements(voiceText);
-
-            // 2. 生成详细行程
-            String itinerary = generateItinerary(
-                    (String) parsedInfo.get("destination"),
-                    (String) parsedInfo.get("startDate"),
-                    (String) parsedInfo.get("endDate"),
-                    ((Number) parsedInfo.get("budget")).doubleValue(),
-                    ((Number) parsedInfo.get("travelerCount")).intValue(),
-                    String.join(",", (List<String>) parsedInfo.get("preferences"))
-            );
+            // 1. 词典能确定需求时本地解析，行程单独生成（可命中行程缓存）；否则合并调用：解析需求 + 生成行程
+            ParsedTravelRequest parsedInfo = parseLocallyIfConfident(voiceText);
+            String itinerary = null;
+            String response = parsedInfo == null ? callAliYunQwenModel(AITask.VOICE_PLAN, buildVoicePlanPrompt(voiceText), false) : null;
+
+            if (parsedInfo != null) {
+                logger.debug("词典解析置信度足够，跳过合并调用");
+            } else if (response != null) {
+                ParsedTravelRequest combined = extractParsedRequest(response);
+                if (combined != null) {
+                    itinerary = combined.getItinerary();
+                    combined.setItinerary(null);
+                    parsedInfo = normalizeParsedInfo(combined, voiceText);
+                } else {
+                    logger.warn("合并调用结果不是有效JSON，改为分步解析");
+                    parsedInfo = parseTravelRequirements(voiceText);
+                }
+            } else {
+                // 上游不可用时不再重复调用解析接口
+                parsedInfo = parseWithRuleBased(voiceText);
+            }
+
+            // 2. 合并调用没有返回行程时单独生成
+            if (itinerary == null) {
+                itinerary = generateItinerary(
+                        parsedInfo.getDestination(),
+                        parsedInfo.getStartDate(),
+                        parsedInfo.getEndDate(),
+                        parsedInfo.getBudget(),
+                        parsedInfo.getTravelerCount(),
+                        String.join(",", parsedInfo.getPreferences())
+                );
+            } else {
+                itineraryCache.put(itineraryCache.keyOf(
+                        parsedInfo.getDestination(),
+                        parsedInfo.getStartDate(),
+                        parsedInfo.getEndDate(),
+                        parsedInfo.getBudget(),
+                        parsedInfo.getTravelerCount(),
+                        String.join(",", parsedInfo.getPreferences())), itinerary);
+            }
 
             // 3. 构建返回结果
             result.put("parsedInfo", parsedInfo);
             result.put("itinerary", itinerary);
             result.put("summary", generateBudgetSummary(parsedInfo));
 
+        } catch (AIBusyException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("解析语音生成计划时发生错误", e);
             // 返回默认结果
@@ -97,46 +291,199 @@ public class AIService {
     }
 
     /**
-     * 调用阿里云通义千问模型
+     * 上游调用统计
+     */
+    public Map<String, Object> getCallStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("inFlight", inFlightCalls.getInFlightCount());
+        stats.put("upstreamCalls", inFlightCalls.getExecutionCount());
+        stats.put("coalescedCalls", inFlightCalls.getCoalescedCount());
+        stats.put("abandonedCalls", inFlightCalls.getAbandonedCount());
+        stats.put("localParses", localParses.get());
+        stats.put("activeThreads", aiCallExecutor.getActiveCount());
+        stats.put("queued", aiCallExecutor.getThreadPoolExecutor().getQueue().size());
+        return stats;
+    }
+
+    /**
+     * 调用阿里云通义千问模型，按提示词哈希合并相同的并发请求，并经过熔断/超时/重试控制
+     *
+     * @param task       任务类型，决定使用的模型和参数
+     * @param idempotent 解析类调用可以安全重试
+     * @throws AIBusyException 被舱壁拒绝，合并等待同一请求的调用方都会收到
      */
-    private String callAliYunQwenModel(String prompt) {
+    private String callAliYunQwenModel(AITask task, String prompt, boolean idempotent) {
+        CompletableFuture<String> future = inFlightCalls.execute(hashPrompt(prompt),
+                () -> aiGateway.execute(idempotent, attempt -> doCallAliYunQwenModel(task, prompt, attempt)), aiCallExecutor);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            // 取消当前调用方；没有其他调用方等待时，共享的上游调用随之中止
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof AIBusyException) {
+                throw (AIBusyException) e.getCause();
+            }
+            logger.error("调用阿里云AI服务时发生异常", e.getCause());
+            return null;
+        }
+    }
+
+    private String hashPrompt(String prompt) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(prompt.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String doCallAliYunQwenModel(AITask task, String prompt, AIGateway.Attempt attempt) {
+        ModelRouter.Route route = modelRouter.route(task);
+        long start = System.currentTimeMillis();
+        String result = null;
         try {
             // 构建请求
-            AliyunAIRequest request = new AliyunAIRequest(prompt);
-            String requestBody = objectMapper.writeValueAsString(request);
+            AliyunAIRequest request = route.buildRequest(prompt);
 
             // 创建HTTP请求
             HttpPost httpPost = new HttpPost(aliYunEndpoint);
             httpPost.setHeader("Content-Type", "application/json");
             httpPost.setHeader("Authorization", "Bearer " + aliYunApiKey);
-            httpPost.setEntity(new StringEntity(requestBody, "UTF-8"));
+            httpPost.setEntity(new ByteArrayEntity(aiRequestWriter.writeValueAsBytes(request)));
+            attempt.bind(httpPost);
 
-            logger.info("调用阿里云AI服务，提示词长度: {}", prompt.length());
+            logger.info("调用阿里云AI服务，任务: {}, 模型: {}, 提示词长度: {}", task, route.getModel(), prompt.length());
 
             // 执行请求
-            return httpClient.execute(httpPost, response -> {
+            result = httpClient.execute(httpPost, response -> {
                 int statusCode = response.getStatusLine().getStatusCode();
-                String responseBody = EntityUtils.toString(response.getEntity());
-
-                if (statusCode == 200) {
-                    AliyunAIResponse aiResponse = objectMapper.readValue(responseBody, AliyunAIResponse.class);
-                    if (aiResponse.getOutput() != null && aiResponse.getOutput().getText() != null) {
-                        String text = aiResponse.getOutput().getText();
-                        logger.info("AI响应成功，长度: {}", text.length());
-                        return text;
-                    }
+                HttpEntity entity = response.getEntity();
+
+                if (statusCode != 200) {
+                    logger.error("阿里云AI服务调用失败，状态码: {}, 响应: {}", statusCode, EntityUtils.toString(entity));
+                    return null;
+                }
+
+                // 直接从响应流反序列化，不先读成完整字符串
+                AliyunAIResponse aiResponse;
+                try (InputStream body = entity.getContent()) {
+                    aiResponse = aiResponseReader.readValue(body);
+                }
+                if (aiResponse.getOutput() != null && "length".equals(aiResponse.getOutput().getFinish_reason())) {
+                    // 达到 max_tokens 被截断的输出不完整，按失败处理
+                    logger.error("阿里云AI服务输出被截断（finish_reason=length），任务: {}, 模型: {}, request_id: {}",
+                            task, route.getModel(), aiResponse.getRequest_id());
+                    return null;
+                }
+                if (aiResponse.getOutput() != null && aiResponse.getOutput().getText() != null) {
+                    String text = aiResponse.getOutput().getText();
+                    logger.info("AI响应成功，长度: {}", text.length());
+                    return text;
                 }
 
-                logger.error("阿里云AI服务调用失败，状态码: {}, 响应: {}", statusCode, responseBody);
+                logger.error("阿里云AI服务响应缺少output.text，request_id: {}", aiResponse.getRequest_id());
                 return null;
             });
+            return result;
+
+        } catch (Exception e) {
+            if (attempt.isAborted()) {
+                logger.warn("AI请求已被中止: {}", e.toString());
+            } else {
+                logger.error("调用阿里云AI服务时发生异常", e);
+            }
+            return null;
+        } finally {
+            // 对冲落败或调用方取消的请求不反映模型健康状况
+            if (!attempt.isAbandoned()) {
+                modelRouter.record(route, System.currentTimeMillis() - start, result != null);
+            }
+        }
+    }
+
+    /**
+     * 以SSE方式调用阿里云通义千问模型（incremental_output），逐行读取响应流
+     * 只有收到 finish_reason 为 stop 的结束分片才算成功；流中断或因长度截断时返回 null，已推送的分片由调用方处理
+     */
+    private String callAliYunQwenModelStream(AITask task, String prompt, Consumer<String> onChunk) {
+        ModelRouter.Route route = modelRouter.route(task);
+        long start = System.currentTimeMillis();
+        StringBuilder fullText = new StringBuilder();
+        String result = null;
+        try {
+            AliyunAIRequest request = route.buildRequest(prompt);
+            request.getParameters().setIncremental_output(true);
+
+            HttpPost httpPost = new HttpPost(aliYunEndpoint);
+            httpPost.setHeader("Content-Type", "application/json");
+            httpPost.setHeader("Authorization", "Bearer " + aliYunApiKey);
+            httpPost.setHeader("X-DashScope-SSE", "enable");
+            httpPost.setEntity(new ByteArrayEntity(aiRequestWriter.writeValueAsBytes(request)));
+
+            logger.info("流式调用阿里云AI服务，任务: {}, 模型: {}, 提示词长度: {}", task, route.getModel(), prompt.length());
+
+            result = httpClient.execute(httpPost, response -> {
+                int statusCode = response.getStatusLine().getStatusCode();
+                if (statusCode != 200) {
+                    logger.error("阿里云AI流式调用失败，状态码: {}, 响应: {}", statusCode, EntityUtils.toString(response.getEntity()));
+                    return null;
+                }
+
+                String finishReason = null;
+                try (BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(response.getEntity().getContent(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (!line.startsWith("data:")) {
+                            continue;
+                        }
+                        Reader data = new StringReader(line);
+                        data.skip(5);
+                        AliyunAIResponse chunk = aiResponseReader.readValue(data);
+                        if (chunk.getOutput() == null) {
+                            continue;
+                        }
+                        if (chunk.getOutput().getText() != null && !chunk.getOutput().getText().isEmpty()) {
+                            fullText.append(chunk.getOutput().getText());
+                            onChunk.accept(chunk.getOutput().getText());
+                        }
+                        if (isFinished(chunk.getOutput().getFinish_reason())) {
+                            finishReason = chunk.getOutput().getFinish_reason();
+                        }
+                    }
+                }
+
+                if (!"stop".equals(finishReason)) {
+                    logger.error("AI流式响应未正常结束，finish_reason: {}, 已接收长度: {}", finishReason, fullText.length());
+                    return null;
+                }
+                logger.info("AI流式响应完成，长度: {}", fullText.length());
+                return fullText.toString();
+            });
+            return result;
 
         } catch (Exception e) {
-            logger.error("调用阿里云AI服务时发生异常", e);
+            logger.error("流式调用阿里云AI服务时发生异常，已接收长度: {}", fullText.length(), e);
             return null;
+        } finally {
+            modelRouter.record(route, System.currentTimeMillis() - start, result != null);
         }
     }
 
+    /**
+     * DashScope 未结束的分片 finish_reason 为 null 或字符串 "null"
+     */
+    private static boolean isFinished(String finishReason) {
+        return finishReason != null && !finishReason.isEmpty() && !"null".equals(finishReason);
+    }
+
     /**
      * 构建详细的行程规划提示词
      */
@@ -199,16 +546,23 @@ public class AIService {
     /**
      * 解析语音文本获取结构化信息
      */
-    private Map<String, Object> parseTravelRequirements(String voiceText) {
+    private ParsedTravelRequest parseTravelRequirements(String voiceText) {
+        ParsedTravelRequest local = parseLocallyIfConfident(voiceText);
+        if (local != null) {
+            return local;
+        }
+
         try {
             String prompt = buildParsePrompt(voiceText);
-            String response = callAliYunQwenModel(prompt);
+            String response = callAliYunQwenModel(AITask.PARSE, prompt, true);
 
             if (response != null) {
                 // 尝试从响应中提取JSON
-                return extractJsonFromResponse(response);
+                return normalizeParsedInfo(extractJsonFromResponse(response), voiceText);
             }
 
+        } catch (AIBusyException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("解析语音文本时发生错误", e);
         }
@@ -217,6 +571,34 @@ public class AIService {
         return parseWithRuleBased(voiceText);
     }
 
+    /**
+     * 词典解析置信度足够时直接返回本地解析结果，否则返回 null
+     */
+    private ParsedTravelRequest parseLocallyIfConfident(String voiceText) {
+        if (!isLocallyConfident(voiceText)) {
+            return null;
+        }
+        localParses.incrementAndGet();
+        return parseWithRuleBased(voiceText);
+    }
+
+    /**
+     * 增量语音输入的本地预解析，只用词典和规则，不调用大模型也不计入统计
+     *
+     * @return 置信度不足（最终提交时会走合并调用）时返回 null
+     */
+    public ParsedTravelRequest previewLocalParse(String voiceText) {
+        return isLocallyConfident(voiceText) ? parseWithRuleBased(voiceText) : null;
+    }
+
+    private boolean isLocallyConfident(String voiceText) {
+        TravelGazetteer.Analysis analysis = travelGazetteer.analyze(voiceText);
+        TravelSlotExtractor.Slots slots = TravelSlotExtractor.extract(voiceText, java.time.LocalDate.now());
+        // 预算、日期、人数都已理解（或根本没提）时加分
+        double confidence = analysis.getConfidence() + (slots.hasUnresolvedCues() ? 0 : 0.15);
+        return confidence >= skipLlmConfidence;
+    }
+
     /**
      * 构建解析提示词
      */
@@ -240,115 +622,183 @@ public class AIService {
         );
     }
 
+    /**
+     * 构建语音规划合并提示词：一次返回解析结果和完整行程
+     */
+    private String buildVoicePlanPrompt(String voiceText) {
+        return String.format(
+                "你是一个专业的旅行规划专家。请先从用户的语音输入中解析旅行需求，再据此制定详细的旅行计划。\n\n" +
+                        "用户语音输入：%s\n\n" +
+                        "请严格按照以下JSON格式返回，不要有任何其他文字说明：\n" +
+                        "{\n" +
+                        "  \"destination\": \"目的地，如'日本东京'，如果没有明确目的地则返回'未知'\",\n" +
+                        "  \"startDate\": \"开始日期，格式YYYY-MM-DD，如果没有明确日期则返回今天(%s)之后第7天的日期\",\n" +
+                        "  \"endDate\": \"结束日期，格式YYYY-MM-DD，如果没有明确日期则返回开始日期后5天的日期\",\n" +
+                        "  \"budget\": 总预算数字，如果没有明确预算则根据目的地估算,\n" +
+                        "  \"travelerCount\": 旅行人数数字，默认2,\n" +
+                        "  \"preferences\": [\"旅行偏好数组，如'美食'、'文化'、'购物'等\"],\n" +
+                        "  \"travelType\": \"旅行类型，如'家庭游'、'情侣游'、'朋友游'等\",\n" +
+                        "  \"specialRequirements\": \"特殊需求\",\n" +
+                        "  \"itinerary\": \"完整的旅行计划文本\"\n" +
+                        "}\n\n" +
+                        "itinerary 字段要求：\n" +
+                        "• 包含旅行概览、每日详细行程（住宿、交通、景点、餐饮）、详细预算分配、实用贴士和个性化建议\n" +
+                        "• 行程安排合理，预算分配符合实际，提供具体的地点和时间建议\n" +
+                        "• 用中文回复，使用emoji让内容更生动，总字数在1500字左右\n" +
+                        "• 作为JSON字符串返回，换行使用\\n转义",
+                voiceText, java.time.LocalDate.now()
+        );
+    }
+
     /**
      * 从响应中提取JSON
      */
-    private Map<String, Object> extractJsonFromResponse(String response) {
-        try {
-            // 尝试找到JSON开始和结束位置
-            int start = response.indexOf("{");
-            int end = response.lastIndexOf("}") + 1;
+    private ParsedTravelRequest extractJsonFromResponse(String response) {
+        ParsedTravelRequest parsed = extractParsedRequest(response);
+        if (parsed != null) {
+            return parsed;
+        }
+        logger.warn("无法从响应中解析JSON，使用规则解析");
+        return parseWithRuleBased(response);
+    }
 
-            if (start >= 0 && end > start) {
-                String jsonStr = response.substring(start, end);
-                return objectMapper.readValue(jsonStr, Map.class);
-            }
-        } catch (Exception e) {
-            logger.warn("无法从响应中解析JSON，使用规则解析");
+    /**
+     * 在大模型回复中查找需求JSON并直接流式读取，找不到时返回null
+     */
+    private ParsedTravelRequest extractParsedRequest(String response) {
+        return JsonObjectScanner.readFirstObject(llmJsonFactory, response, ParsedTravelRequestReader::read);
+    }
+
+    /**
+     * 缺失或格式不对的字段用规则解析补齐
+     */
+    private ParsedTravelRequest normalizeParsedInfo(ParsedTravelRequest info, String voiceText) {
+        TravelGazetteer.Analysis analysis = travelGazetteer.analyze(voiceText);
+        TravelSlotExtractor.Slots slots = TravelSlotExtractor.extract(voiceText, java.time.LocalDate.now());
+
+        if (info.getDestination() == null) {
+            info.setDestination(extractDestination(analysis));
         }
 
-        return parseWithRuleBased(response);
+        String startDate = toDateString(info.getStartDate(), getDefaultStartDate(slots));
+        info.setStartDate(startDate);
+        info.setEndDate(toDateString(info.getEndDate(), getDefaultEndDate(slots, startDate)));
+
+        if (info.getTravelerCount() == null || info.getTravelerCount() <= 0) {
+            info.setTravelerCount(extractTravelerCount(slots, analysis));
+        }
+        if (info.getBudget() == null || info.getBudget() <= 0) {
+            info.setBudget(extractBudget(slots, info.getTravelerCount()));
+        }
+        if (info.getPreferences() == null || info.getPreferences().isEmpty()) {
+            info.setPreferences(extractPreferences(analysis));
+        }
+        if (info.getTravelType() == null) {
+            info.setTravelType(extractTravelType(analysis));
+        }
+        if (info.getSpecialRequirements() == null) {
+            info.setSpecialRequirements(extractSpecialRequirements(analysis));
+        }
+        return info;
+    }
+
+    private String toDateString(String value, String defaultValue) {
+        if (value != null) {
+            try {
+                return java.time.LocalDate.parse(value).toString();
+            } catch (Exception ignored) {
+                // 使用默认日期
+            }
+        }
+        return defaultValue;
     }
 
     /**
      * 基于规则的解析（备用方案）
      */
-    private Map<String, Object> parseWithRuleBased(String text) {
-        Map<String, Object> result = new HashMap<>();
+    private ParsedTravelRequest parseWithRuleBased(String text) {
+        ParsedTravelRequest result = new ParsedTravelRequest();
+        TravelGazetteer.Analysis analysis = travelGazetteer.analyze(text);
 
         // 设置默认值
-        result.put("destination", extractDestination(text));
-        result.put("startDate", getDefaultStartDate());
-        result.put("endDate", getDefaultEndDate());
-        result.put("budget", extractBudget(text));
-        result.put("travelerCount", extractTravelerCount(text));
-        result.put("preferences", extractPreferences(text));
-        result.put("travelType", extractTravelType(text));
-        result.put("specialRequirements", extractSpecialRequirements(text));
+        TravelSlotExtractor.Slots slots = TravelSlotExtractor.extract(text, java.time.LocalDate.now());
+        String startDate = getDefaultStartDate(slots);
+        int travelers = extractTravelerCount(slots, analysis);
+        result.setDestination(extractDestination(analysis));
+        result.setStartDate(startDate);
+        result.setEndDate(getDefaultEndDate(slots, startDate));
+        result.setBudget(extractBudget(slots, travelers));
+        result.setTravelerCount(travelers);
+        result.setPreferences(extractPreferences(analysis));
+        result.setTravelType(extractTravelType(analysis));
+        result.setSpecialRequirements(extractSpecialRequirements(analysis));
 
         return result;
     }
 
     // 基于规则的解析辅助方法
-    private String extractDestination(String text) {
-        if (text.contains("日本") || text.contains("东京")) return "日本东京";
-        if (text.contains("三亚")) return "海南三亚";
-        if (text.contains("成都")) return "四川成都";
-        if (text.contains("上海")) return "上海";
-        if (text.contains("北京")) return "北京";
-        return "未知目的地";
+    private String extractDestination(TravelGazetteer.Analysis analysis) {
+        return analysis.getDestination() != null ? analysis.getDestination() : "未知目的地";
     }
 
-    private String getDefaultStartDate() {
+    private String getDefaultStartDate(TravelSlotExtractor.Slots slots) {
+        if (slots.getStartDate() != null) {
+            return slots.getStartDate().toString();
+        }
         return java.time.LocalDate.now().plusDays(7).toString();
     }
 
-    private String getDefaultEndDate() {
-        return java.time.LocalDate.now().plusDays(12).toString();
+    private String getDefaultEndDate(TravelSlotExtractor.Slots slots, String startDate) {
+        if (slots.getEndDate() != null && slots.getStartDate() != null && slots.getStartDate().toString().equals(startDate)) {
+            return slots.getEndDate().toString();
+        }
+        // 只说了天数时按天数推算，否则默认开始日期后5天
+        int days = slots.getDays() != null ? slots.getDays() - 1 : 5;
+        return java.time.LocalDate.parse(startDate).plusDays(days).toString();
     }
 
-    private Double extractBudget(String text) {
-        if (text.matches(".*[1-9]万.*")) {
-            return 10000.0;
-        }
-        if (text.matches(".*[2-5]千.*")) {
-            return 3000.0;
+    private Double extractBudget(TravelSlotExtractor.Slots slots, int travelers) {
+        if (slots.getBudget() != null) {
+            // 只说了人均而没说人数时，按最终确定的人数折算总预算
+            return slots.isBudgetPerPerson() ? slots.getBudget() * travelers : slots.getBudget();
         }
         return 5000.0; // 默认预算
     }
 
-    private Integer extractTravelerCount(String text) {
-        if (text.contains("一家") || text.contains("带孩子")) return 3;
-        if (text.contains("两个") || text.contains("两人")) return 2;
-        if (text.contains("一个") || text.contains("独自")) return 1;
+    private Integer extractTravelerCount(TravelSlotExtractor.Slots slots, TravelGazetteer.Analysis analysis) {
+        if (slots.getTravelerCount() != null) return slots.getTravelerCount();
+        if ("家庭游".equals(analysis.getTravelType())) return 3;
+        if ("个人游".equals(analysis.getTravelType())) return 1;
         return 2; // 默认2人
     }
 
-    private List<String> extractPreferences(String text) {
-        List<String> preferences = new ArrayList<>();
-        if (text.contains("美食") || text.contains("吃")) preferences.add("美食");
-        if (text.contains("动漫")) preferences.add("动漫");
-        if (text.contains("购物")) preferences.add("购物");
-        if (text.contains("文化")) preferences.add("文化");
-        if (text.contains("海滩") || text.contains("海边")) preferences.add("海滩");
+    private List<String> extractPreferences(TravelGazetteer.Analysis analysis) {
+        List<String> preferences = new ArrayList<>(analysis.getPreferences());
         if (preferences.isEmpty()) preferences.add("观光");
         return preferences;
     }
 
-    private String extractTravelType(String text) {
-        if (text.contains("家庭") || text.contains("带孩子")) return "家庭游";
-        if (text.contains("情侣")) return "情侣游";
-        if (text.contains("朋友")) return "朋友游";
-        if (text.contains("独自")) return "个人游";
-        return "休闲游";
+    private String extractTravelType(TravelGazetteer.Analysis analysis) {
+        return analysis.getTravelType() != null ? analysis.getTravelType() : "休闲游";
     }
 
-    private String extractSpecialRequirements(String text) {
-        if (text.contains("带孩子")) return "需要儿童友好设施";
-        if (text.contains("老人")) return "需要无障碍设施";
-        return "无特殊需求";
+    private String extractSpecialRequirements(TravelGazetteer.Analysis analysis) {
+        return analysis.getSpecialRequirements().isEmpty()
+                ? "无特殊需求" : String.join("；", analysis.getSpecialRequirements());
     }
 
     /**
      * 生成预算摘要
      */
-    private Map<String, Object> generateBudgetSummary(Map<String, Object> parsedInfo) {
-        double budget = ((Number) parsedInfo.get("budget")).doubleValue();
-        int travelers = ((Number) parsedInfo.get("travelerCount")).intValue();
+    private Map<String, Object> generateBudgetSummary(ParsedTravelRequest parsedInfo) {
+        double budget = parsedInfo.getBudget();
+        int travelers = parsedInfo.getTravelerCount();
 
         Map<String, Object> summary = new HashMap<>();
         summary.put("totalBudget", budget);
-        summary.put("dailyBudget", budget / 5); // 默认5天
+        int days = ItineraryCacheKey.tripDays(parsedInfo.getStartDate(), parsedInfo.getEndDate());
+        summary.put("tripDays", days);
+        summary.put("dailyBudget", budget / Math.max(days, 1));
         summary.put("perPersonBudget", budget / travelers);
         summary.put("recommendedAllocation", getRecommendedAllocation(budget));
 
@@ -366,9 +816,9 @@ public class AIService {
     }
 
     /**
-     * 生成模拟行程（当AI服务不可用时使用）
+     * 生成模拟行程（AI服务不可用或超过截止时间时使用）
      */
-    private String generateMockItinerary(String destination, String startDate, String endDate,
+    public String generateMockItinerary(String destination, String startDate, String endDate,
                                          Double budget, Integer travelerCount, String preferences) {
         return String.format(
                 "🌍 %s 智能旅行规划\n\n" +
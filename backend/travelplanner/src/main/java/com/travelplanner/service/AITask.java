@@ -0,0 +1,20 @@
+package com.travelplanner.service;
+
+/**
+ * 大模型调用的任务类型，每种任务可以单独配置模型、参数和耗时目标（app.ai.routing.tasks）
+ */
+public enum AITask {
+    PARSE("parse"),
+    ITINERARY("itinerary"),
+    VOICE_PLAN("voice-plan");
+
+    private final String configKey;
+
+    AITask(String configKey) {
+        this.configKey = configKey;
+    }
+
+    public String getConfigKey() {
+        return configKey;
+    }
+}
@@ -0,0 +1,323 @@
+package com.travelplanner.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.travelplanner.dto.ExpenseView;
+import com.travelplanner.utils.CsvReader;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 费用批量导入
+ *
+ * 请求体为 CSV（首行为表头）或 NDJSON（每行一个 JSON 对象），边读边校验，攒满 batch-size 条后
+ * 交给 {@link ExpenseService#insertAll} 用 JDBC 批量写入，不缓冲整个请求体。
+ * 每个计划的归属只查一次；出错的行不写入，连同行号返回，其余行照常导入。
+ */
+@Service
+public class ExpenseImportService {
+
+    /**
+     * 字段名，CSV 表头和 NDJSON 的键都用这些名字（不区分大小写）
+     */
+    private static final String CATEGORY = "category";
+    private static final String DESCRIPTION = "description";
+    private static final String AMOUNT = "amount";
+    private static final String EXPENSE_DATE = "expensedate";
+    private static final String PLAN_ID = "planid";
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    public enum Format {
+        CSV, NDJSON;
+
+        /**
+         * 按请求的 Content-Type 判断格式，不支持时返回 null
+         */
+        public static Format of(String contentType) {
+            if (contentType == null) {
+                return null;
+            }
+            String type = contentType.toLowerCase(Locale.ROOT);
+            if (type.startsWith("text/csv")) {
+                return CSV;
+            }
+            if (type.startsWith("application/x-ndjson") || type.startsWith("application/ndjson")) {
+                return NDJSON;
+            }
+            return null;
+        }
+    }
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private TravelPlanService travelPlanService;
+
+    @Value("${app.expense-import.batch-size:1000}")
+    private int batchSize;
+
+    // 单次导入最多读取的行数，超出部分不导入（返回 truncated 为 true）
+    @Value("${app.expense-import.max-rows:100000}")
+    private int maxRows;
+
+    // 返回的出错行最多条数，出错总数照常统计
+    @Value("${app.expense-import.max-errors:100}")
+    private int maxErrors;
+
+    private final AtomicLong imports = new AtomicLong();
+    private final AtomicLong importedRows = new AtomicLong();
+    private final AtomicLong failedRows = new AtomicLong();
+    private volatile Map<String, Object> lastImport;
+
+    /**
+     * @param planId 默认计划，行中没有 planId 时使用；调用方需已校验归属
+     * @return {imported: 导入条数, failed: 出错条数, errors: [{line, message}], truncated: 是否超出行数上限, elapsedMs}
+     * @throws IllegalArgumentException CSV 表头缺少必需的列
+     */
+    public Map<String, Object> importExpenses(Long userId, Long planId, Format format, Reader reader)
+            throws IOException {
+        Import run = new Import(userId, planId);
+        if (format == Format.CSV) {
+            readCsv(new CsvReader(reader), run);
+        } else {
+            readNdjson(new BufferedReader(reader), run);
+        }
+        run.flush();
+
+        long elapsedMs = System.currentTimeMillis() - run.start;
+        imports.incrementAndGet();
+        importedRows.addAndGet(run.imported);
+        failedRows.addAndGet(run.failed);
+
+        Map<String, Object> last = new HashMap<>();
+        last.put("imported", run.imported);
+        last.put("failed", run.failed);
+        last.put("elapsedMs", elapsedMs);
+        last.put("rowsPerSecond", elapsedMs == 0 ? run.imported : run.imported * 1000L / elapsedMs);
+        lastImport = last;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("imported", run.imported);
+        result.put("failed", run.failed);
+        result.put("errors", run.errors);
+        result.put("truncated", run.truncated);
+        result.put("elapsedMs", elapsedMs);
+        return result;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("imports", imports.get());
+        stats.put("importedRows", importedRows.get());
+        stats.put("failedRows", failedRows.get());
+        stats.put("batchSize", batchSize);
+        stats.put("lastImport", lastImport);
+        return stats;
+    }
+
+    private void readCsv(CsvReader csv, Import run) throws IOException {
+        List<String> header = csv.next();
+        if (header == null) {
+            return;
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(normalize(header.get(i)), i);
+        }
+        if (!columns.containsKey(CATEGORY) || !columns.containsKey(AMOUNT)) {
+            throw new IllegalArgumentException("CSV 表头缺少 category 或 amount 列");
+        }
+        List<String> record;
+        while (run.hasRoom() && (record = csv.next()) != null) {
+            run.add(csv.getRecordLine(),
+                    field(record, columns.get(CATEGORY)),
+                    field(record, columns.get(DESCRIPTION)),
+                    field(record, columns.get(AMOUNT)),
+                    field(record, columns.get(EXPENSE_DATE)),
+                    field(record, columns.get(PLAN_ID)));
+        }
+        run.truncated = csv.next() != null;
+    }
+
+    private void readNdjson(BufferedReader lines, Import run) throws IOException {
+        int lineNumber = 0;
+        String line;
+        while (run.hasRoom() && (line = lines.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(line);
+            } catch (IOException e) {
+                run.fail(lineNumber, "不是有效的 JSON");
+                continue;
+            }
+            if (!node.isObject()) {
+                run.fail(lineNumber, "每行应为一个 JSON 对象");
+                continue;
+            }
+            Map<String, String> fields = new HashMap<>();
+            node.fields().forEachRemaining(entry -> fields.put(normalize(entry.getKey()),
+                    entry.getValue().isNull() ? null : entry.getValue().asText()));
+            run.add(lineNumber, fields.get(CATEGORY), fields.get(DESCRIPTION), fields.get(AMOUNT),
+                    fields.get(EXPENSE_DATE), fields.get(PLAN_ID));
+        }
+        String next;
+        do {
+            next = lines.readLine();
+        } while (next != null && next.trim().isEmpty());
+        run.truncated = next != null;
+    }
+
+    /**
+     * 字段名去掉下划线并转小写，expense_date 与 expenseDate 等价
+     */
+    private static String normalize(String name) {
+        return name.trim().replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static String field(List<String> record, Integer column) {
+        return column == null || column >= record.size() ? null : record.get(column);
+    }
+
+    /**
+     * 一次导入的状态：当前批、各计划的归属、出错行
+     */
+    private class Import {
+        final long start = System.currentTimeMillis();
+        final Long userId;
+        final Long defaultPlanId;
+        final Map<Long, Boolean> owned = new HashMap<>();
+        final List<ExpenseView> batch = new ArrayList<>();
+        // 当前批中各条所在的行号，整批写入失败时逐行报错
+        final List<Integer> batchLines = new ArrayList<>();
+        final List<Map<String, Object>> errors = new ArrayList<>();
+        int rows;
+        int imported;
+        int failed;
+        boolean truncated;
+
+        Import(Long userId, Long defaultPlanId) {
+            this.userId = userId;
+            this.defaultPlanId = defaultPlanId;
+            if (defaultPlanId != null) {
+                owned.put(defaultPlanId, true);
+            }
+        }
+
+        boolean hasRoom() {
+            return rows < maxRows;
+        }
+
+        void add(int line, String category, String description, String amount, String expenseDate, String planId) {
+            rows++;
+            try {
+                batch.add(toExpense(category, description, amount, expenseDate, planId));
+            } catch (IllegalArgumentException e) {
+                fail(line, e.getMessage());
+                return;
+            }
+            batchLines.add(line);
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        ExpenseView toExpense(String category, String description, String amount, String expenseDate, String planId) {
+            if (category == null || category.trim().isEmpty()) {
+                throw new IllegalArgumentException("缺少分类");
+            }
+            if (amount == null || amount.trim().isEmpty()) {
+                throw new IllegalArgumentException("缺少金额");
+            }
+            double value;
+            try {
+                value = Double.parseDouble(amount.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("金额格式不正确: " + amount);
+            }
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                throw new IllegalArgumentException("金额格式不正确: " + amount);
+            }
+
+            Long plan = defaultPlanId;
+            if (planId != null && !planId.trim().isEmpty()) {
+                try {
+                    plan = Long.valueOf(planId.trim());
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("计划ID格式不正确: " + planId);
+                }
+            }
+            if (plan == null) {
+                throw new IllegalArgumentException("缺少计划ID");
+            }
+            Long checked = plan;
+            if (!owned.computeIfAbsent(plan, id -> travelPlanService.isOwnedBy(id, userId))) {
+                throw new IllegalArgumentException("计划不存在或不属于当前用户: " + checked);
+            }
+
+            return new ExpenseView(null, category.trim(), description == null ? "" : description.trim(), value,
+                    parseDate(expenseDate), plan);
+        }
+
+        /**
+         * 支持 2024-05-01T12:30:00 和 2024-05-01（当天零点），为空时取当前时间
+         */
+        LocalDateTime parseDate(String text) {
+            if (text == null || text.trim().isEmpty()) {
+                return LocalDateTime.now();
+            }
+            String value = text.trim();
+            try {
+                return value.length() <= 10 ? LocalDate.parse(value).atStartOfDay() : LocalDateTime.parse(value);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("日期格式不正确: " + text);
+            }
+        }
+
+        void fail(int line, String message) {
+            failed++;
+            if (errors.size() < maxErrors) {
+                Map<String, Object> error = new LinkedHashMap<>();
+                error.put("line", line);
+                error.put("message", message);
+                errors.add(error);
+            }
+        }
+
+        void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                expenseService.insertAll(batch);
+                imported += batch.size();
+            } catch (RuntimeException e) {
+                for (Integer line : batchLines) {
+                    fail(line, "写入失败: " + e.getMessage());
+                }
+            }
+            batch.clear();
+            batchLines.clear();
+        }
+    }
+}
@@ -0,0 +1,408 @@
+package com.travelplanner.service;
+
+import com.travelplanner.dto.ExpenseView;
+import com.travelplanner.entity.Expense;
+import com.travelplanner.repository.ExpenseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 费用写入与汇总
+ *
+ * 费用的增删改都经过这里，在写入队列的同一个事务中更新 expense_rollups（见 V3 迁移）：
+ * 每个计划一行总计，另按分类和费用日期各一行。汇总接口只读该计划的汇总行，不随费用条数变慢。
+ * 总额和条数增量加减；删掉或改掉的金额恰好是某个分组的最小或最大值时，该分组的极值从费用表重新取（走索引）。
+ * 浮点累加的误差和意外的不一致由定时全量重算修正。
+ */
+@Service
+public class ExpenseService {
+    private static final Logger logger = LoggerFactory.getLogger(ExpenseService.class);
+
+    public static final String TOTAL = "TOTAL";
+    public static final String CATEGORY = "CATEGORY";
+    public static final String DAY = "DAY";
+
+    private static final int REPAIR_BATCH = 200;
+
+    private static final String ROLLUP_KEY = " where plan_id = ? and kind = ? and bucket = ?";
+
+    private static final String ROLLUP_ADD = "insert into expense_rollups "
+            + "(plan_id, kind, bucket, total_amount, expense_count, min_amount, max_amount) values (?, ?, ?, ?, ?, ?, ?) "
+            + "on conflict(plan_id, kind, bucket) do update set total_amount = total_amount + excluded.total_amount, "
+            + "expense_count = expense_count + excluded.expense_count, min_amount = min(min_amount, excluded.min_amount), "
+            + "max_amount = max(max_amount, excluded.max_amount)";
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private WriteQueue writeQueue;
+
+    @Value("${app.expense-rollup.repair-enabled:true}")
+    private boolean repairEnabled;
+
+    private final AtomicLong extremeRecomputes = new AtomicLong();
+    private final AtomicLong repairs = new AtomicLong();
+    private final AtomicLong repairedPlans = new AtomicLong();
+    private volatile Map<String, Object> lastRepair;
+
+    public Expense create(Expense expense) {
+        return writeQueue.execute(() -> {
+            // 总是新建：请求体中带的ID会让 save 覆盖已有记录（可能属于其他计划），汇总也不会减去旧记录；
+            // 写入队列成组提交失败重试时，上一次执行分配的ID也随回滚作废
+            expense.setId(null);
+            Expense saved = expenseRepository.save(expense);
+            add(planId(saved), saved.getCategory(), saved.getExpenseDate(), saved.getAmount());
+            return saved;
+        });
+    }
+
+    public Expense update(Long id, String category, String description, Double amount) {
+        return writeQueue.execute(() -> {
+            Expense expense = expenseRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("费用记录不存在"));
+            String previousCategory = expense.getCategory();
+            Double previousAmount = expense.getAmount();
+            expense.setCategory(category);
+            expense.setDescription(description);
+            expense.setAmount(amount);
+            // 先写入费用表，重新取极值时才能看到新的金额
+            expenseRepository.flush();
+            subtract(planId(expense), previousCategory, expense.getExpenseDate(), previousAmount);
+            add(planId(expense), category, expense.getExpenseDate(), amount);
+            return expense;
+        });
+    }
+
+    /**
+     * 批量写入（导入）：绕过 Hibernate 用 JDBC 批量插入，ID 由 SQLite 分配（rowid），
+     * 汇总按计划和分组先在内存中合并，每个分组只更新一次。整批在一个事务中提交
+     */
+    public void insertAll(List<ExpenseView> expenses) {
+        List<Object[]> rows = new ArrayList<>(expenses.size());
+        Map<Long, Map<String, Rollup>> rollups = new HashMap<>();
+        for (ExpenseView expense : expenses) {
+            rows.add(new Object[]{expense.getCategory(), expense.getDescription(), expense.getAmount(),
+                    Timestamp.valueOf(expense.getExpenseDate()), expense.getPlanId()});
+            Map<String, Rollup> planRollups = rollups.computeIfAbsent(expense.getPlanId(), k -> new HashMap<>());
+            accumulate(planRollups, TOTAL, "", expense.getAmount());
+            accumulate(planRollups, CATEGORY, expense.getCategory(), expense.getAmount());
+            accumulate(planRollups, DAY, expense.getExpenseDate().toLocalDate().toString(), expense.getAmount());
+        }
+        List<Object[]> rollupRows = new ArrayList<>();
+        rollups.forEach((planId, planRollups) -> planRollups.values().forEach(r ->
+                rollupRows.add(new Object[]{planId, r.kind, r.bucket, r.total, r.count, r.min, r.max})));
+
+        writeQueue.execute(() -> {
+            jdbcTemplate.batchUpdate("insert into expenses (category, description, amount, expense_date, plan_id) "
+                    + "values (?, ?, ?, ?, ?)", rows);
+            jdbcTemplate.batchUpdate(ROLLUP_ADD, rollupRows);
+        });
+    }
+
+    public void delete(Long id) {
+        writeQueue.execute(() -> expenseRepository.findById(id).ifPresent(expense -> {
+            expenseRepository.delete(expense);
+            expenseRepository.flush();
+            subtract(planId(expense), expense.getCategory(), expense.getExpenseDate(), expense.getAmount());
+        }));
+    }
+
+    /**
+     * 删除计划的汇总行，需在删除计划的事务中调用
+     */
+    public void removeRollups(Long planId) {
+        jdbcTemplate.update("delete from expense_rollups where plan_id = ?", planId);
+    }
+
+    /**
+     * 从费用表重新计算一个计划的汇总
+     */
+    public void recompute(Long planId) {
+        writeQueue.execute(() -> replace(planId, compute(planId)));
+    }
+
+    /**
+     * 计划的费用汇总：总额、条数、极值，按分类（金额从大到小）和按日期的明细
+     */
+    public Map<String, Object> summarize(Long planId) {
+        Map<String, Rollup> rollups = stored(planId);
+        Rollup total = rollups.get(key(TOTAL, ""));
+
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("totalExpenses", total == null ? 0.0 : total.total);
+        summary.put("expenseCount", total == null ? 0L : total.count);
+        summary.put("minExpense", total == null ? null : total.min);
+        summary.put("maxExpense", total == null ? null : total.max);
+        summary.put("categories", rollups.values().stream()
+                .filter(rollup -> CATEGORY.equals(rollup.kind))
+                .sorted(Comparator.comparingDouble((Rollup rollup) -> rollup.total).reversed())
+                .map(rollup -> rollup.toMap("category"))
+                .collect(Collectors.toList()));
+        summary.put("daily", rollups.values().stream()
+                .filter(rollup -> DAY.equals(rollup.kind))
+                .map(rollup -> rollup.toMap("date"))
+                .collect(Collectors.toList()));
+        return summary;
+    }
+
+    /**
+     * 汇总表为空而已有费用时（刚执行 V3 迁移）全量计算一次
+     */
+    @Order(3)
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIfEmpty() {
+        boolean empty = jdbcTemplate.queryForObject(
+                "select not exists (select 1 from expense_rollups)", Boolean.class);
+        boolean hasExpenses = jdbcTemplate.queryForObject(
+                "select exists (select 1 from expenses where plan_id is not null)", Boolean.class);
+        if (empty && hasExpenses) {
+            repair();
+        }
+    }
+
+    @Scheduled(cron = "${app.expense-rollup.repair-cron:0 30 4 * * *}")
+    public void scheduledRepair() {
+        if (repairEnabled) {
+            repair();
+        }
+    }
+
+    /**
+     * 全量重算：逐个计划比对汇总表与费用表，不一致的以费用表为准重写，并清理已删除计划的汇总行
+     */
+    public synchronized Map<String, Object> repair() {
+        long start = System.currentTimeMillis();
+        int orphans = writeQueue.execute(() -> jdbcTemplate.update(
+                "delete from expense_rollups where plan_id not in (select id from travel_plans)"));
+        int checked = 0;
+        int repaired = 0;
+        long lastId = 0;
+        List<Long> ids;
+        do {
+            ids = jdbcTemplate.queryForList("select id from travel_plans where id > ? order by id limit ?",
+                    Long.class, lastId, REPAIR_BATCH);
+            for (Long planId : ids) {
+                checked++;
+                // 先在写线程外比对；两次读取之间可能有新的写入，不一致时在写线程中重新计算，结果以那时的费用表为准
+                if (!same(compute(planId), stored(planId))) {
+                    recompute(planId);
+                    repaired++;
+                }
+            }
+            if (!ids.isEmpty()) {
+                lastId = ids.get(ids.size() - 1);
+            }
+        } while (ids.size() == REPAIR_BATCH);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("checkedPlans", checked);
+        result.put("repairedPlans", repaired);
+        result.put("orphanRows", orphans);
+        result.put("elapsedMs", System.currentTimeMillis() - start);
+        result.put("finishedAt", LocalDateTime.now());
+        lastRepair = result;
+        repairs.incrementAndGet();
+        repairedPlans.addAndGet(repaired);
+        if (repaired > 0 || orphans > 0) {
+            logger.info("费用汇总重算: 检查 {} 个计划，修正 {} 个，清理 {} 行", checked, repaired, orphans);
+        }
+        return result;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("rows", jdbcTemplate.queryForObject("select count(*) from expense_rollups", Long.class));
+        stats.put("extremeRecomputes", extremeRecomputes.get());
+        stats.put("repairEnabled", repairEnabled);
+        stats.put("repairs", repairs.get());
+        stats.put("repairedPlans", repairedPlans.get());
+        stats.put("lastRepair", lastRepair);
+        return stats;
+    }
+
+    private void add(Long planId, String category, LocalDateTime expenseDate, double amount) {
+        if (planId == null) {
+            return;
+        }
+        for (Bucket bucket : buckets(planId, category, expenseDate)) {
+            jdbcTemplate.update(ROLLUP_ADD, planId, bucket.kind, bucket.key, amount, 1, amount, amount);
+        }
+    }
+
+    private void subtract(Long planId, String category, LocalDateTime expenseDate, double amount) {
+        if (planId == null) {
+            return;
+        }
+        for (Bucket bucket : buckets(planId, category, expenseDate)) {
+            jdbcTemplate.update("update expense_rollups set total_amount = total_amount - ?, "
+                    + "expense_count = expense_count - 1" + ROLLUP_KEY, amount, planId, bucket.kind, bucket.key);
+            if (jdbcTemplate.update("delete from expense_rollups" + ROLLUP_KEY + " and expense_count <= 0",
+                    planId, bucket.kind, bucket.key) > 0) {
+                continue;
+            }
+            // 去掉的是该分组的最小或最大值
+            List<Object> args = new ArrayList<>(Arrays.asList(bucket.args));
+            args.addAll(Arrays.asList(planId, bucket.kind, bucket.key, amount, amount));
+            if (jdbcTemplate.update("update expense_rollups set (min_amount, max_amount) = "
+                    + "(select min(amount), max(amount) from expenses where " + bucket.filter + ")"
+                    + ROLLUP_KEY + " and (min_amount >= ? or max_amount <= ?)", args.toArray()) > 0) {
+                extremeRecomputes.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 一条费用计入的分组，filter 和 args 是在费用表中选出该分组的条件
+     */
+    private static List<Bucket> buckets(Long planId, String category, LocalDateTime expenseDate) {
+        List<Bucket> buckets = new ArrayList<>();
+        buckets.add(new Bucket(TOTAL, "", "plan_id = ?", planId));
+        buckets.add(new Bucket(CATEGORY, category, "plan_id = ? and category = ?", planId, category));
+        if (expenseDate != null) {
+            LocalDate day = expenseDate.toLocalDate();
+            buckets.add(new Bucket(DAY, day.toString(), "plan_id = ? and expense_date >= ? and expense_date < ?",
+                    planId, Timestamp.valueOf(day.atStartOfDay()), Timestamp.valueOf(day.plusDays(1).atStartOfDay())));
+        }
+        return buckets;
+    }
+
+    private Map<String, Rollup> compute(Long planId) {
+        Map<String, Rollup> rollups = new HashMap<>();
+        jdbcTemplate.query("select category, amount, expense_date from expenses where plan_id = ?",
+                (RowCallbackHandler) rs -> {
+                    double amount = rs.getDouble(2);
+                    Timestamp expenseDate = rs.getTimestamp(3);
+                    accumulate(rollups, TOTAL, "", amount);
+                    accumulate(rollups, CATEGORY, rs.getString(1), amount);
+                    if (expenseDate != null) {
+                        accumulate(rollups, DAY, expenseDate.toLocalDateTime().toLocalDate().toString(), amount);
+                    }
+                }, planId);
+        return rollups;
+    }
+
+    private Map<String, Rollup> stored(Long planId) {
+        Map<String, Rollup> rollups = new LinkedHashMap<>();
+        jdbcTemplate.query("select kind, bucket, total_amount, expense_count, min_amount, max_amount "
+                        + "from expense_rollups where plan_id = ? order by kind, bucket",
+                (RowCallbackHandler) rs -> {
+                    Rollup rollup = new Rollup(rs.getString(1), rs.getString(2));
+                    rollup.total = rs.getDouble(3);
+                    rollup.count = rs.getLong(4);
+                    rollup.min = rs.getDouble(5);
+                    rollup.max = rs.getDouble(6);
+                    rollups.put(key(rollup.kind, rollup.bucket), rollup);
+                }, planId);
+        return rollups;
+    }
+
+    private void replace(Long planId, Map<String, Rollup> rollups) {
+        removeRollups(planId);
+        jdbcTemplate.batchUpdate("insert into expense_rollups "
+                        + "(plan_id, kind, bucket, total_amount, expense_count, min_amount, max_amount) "
+                        + "values (?, ?, ?, ?, ?, ?, ?)",
+                rollups.values().stream()
+                        .map(r -> new Object[]{planId, r.kind, r.bucket, r.total, r.count, r.min, r.max})
+                        .collect(Collectors.toList()));
+    }
+
+    private static void accumulate(Map<String, Rollup> rollups, String kind, String bucket, double amount) {
+        Rollup rollup = rollups.computeIfAbsent(key(kind, bucket), k -> new Rollup(kind, bucket));
+        rollup.min = rollup.count == 0 ? amount : Math.min(rollup.min, amount);
+        rollup.max = rollup.count == 0 ? amount : Math.max(rollup.max, amount);
+        rollup.total += amount;
+        rollup.count++;
+    }
+
+    private static boolean same(Map<String, Rollup> computed, Map<String, Rollup> stored) {
+        if (!computed.keySet().equals(stored.keySet())) {
+            return false;
+        }
+        for (Map.Entry<String, Rollup> entry : computed.entrySet()) {
+            Rollup a = entry.getValue();
+            Rollup b = stored.get(entry.getKey());
+            if (a.count != b.count || !close(a.total, b.total) || !close(a.min, b.min) || !close(a.max, b.max)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 增量加减的总额与重新求和的结果允许有浮点误差
+    private static boolean close(double a, double b) {
+        return Math.abs(a - b) <= 1e-6 * Math.max(1.0, Math.max(Math.abs(a), Math.abs(b)));
+    }
+
+    private static String key(String kind, String bucket) {
+        return kind + ":" + bucket;
+    }
+
+    private static Long planId(Expense expense) {
+        // 取计划ID不会加载计划
+        return expense.getTravelPlan() == null ? null : expense.getTravelPlan().getId();
+    }
+
+    private static class Bucket {
+        final String kind;
+        final String key;
+        final String filter;
+        final Object[] args;
+
+        Bucket(String kind, String key, String filter, Object... args) {
+            this.kind = kind;
+            this.key = key;
+            this.filter = filter;
+            this.args = args;
+        }
+    }
+
+    private static class Rollup {
+        final String kind;
+        final String bucket;
+        double total;
+        long count;
+        double min;
+        double max;
+
+        Rollup(String kind, String bucket) {
+            this.kind = kind;
+            this.bucket = bucket;
+        }
+
+        Map<String, Object> toMap(String bucketName) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put(bucketName, bucket);
+            map.put("total", total);
+            map.put("count", count);
+            map.put("min", min);
+            map.put("max", max);
+            return map;
+        }
+    }
+}
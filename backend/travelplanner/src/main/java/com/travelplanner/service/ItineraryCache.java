@@ -0,0 +1,224 @@
+package com.travelplanner.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.travelplanner.entity.ItineraryCacheEntry;
+import com.travelplanner.repository.ItineraryCacheRepository;
+import com.travelplanner.utils.LatencyTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 行程缓存：内存层使用 Caffeine（W-TinyLFU 淘汰 + TTL），可选 SQLite 磁盘层
+ */
+@Component
+public class ItineraryCache {
+    private static final Logger logger = LoggerFactory.getLogger(ItineraryCache.class);
+
+    @Autowired
+    private ItineraryCacheRepository cacheRepository;
+
+    @Autowired
+    private WriteQueue writeQueue;
+
+    @Value("${app.itinerary-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.itinerary-cache.max-size:1000}")
+    private long maxSize;
+
+    @Value("${app.itinerary-cache.ttl-minutes:1440}")
+    private long ttlMinutes;
+
+    @Value("${app.itinerary-cache.budget-bucket:2000}")
+    private double budgetBucket;
+
+    @Value("${app.itinerary-cache.disk.enabled:true}")
+    private boolean diskEnabled;
+
+    private Cache<ItineraryCacheKey, CachedItinerary> memoryCache;
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong prewarmedHits = new AtomicLong();
+    // 命中预热条目时该条目已生成的分钟数
+    private final LatencyTracker prewarmedHitAge = new LatencyTracker(500);
+
+    @PostConstruct
+    public void init() {
+        memoryCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+    }
+
+    public ItineraryCacheKey keyOf(String destination, String startDate, String endDate,
+                                   Double budget, Integer travelerCount, String preferences) {
+        return ItineraryCacheKey.of(destination, startDate, endDate, budget, travelerCount, preferences, budgetBucket);
+    }
+
+    public Optional<String> get(ItineraryCacheKey key) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+
+        CachedItinerary cached = memoryCache.getIfPresent(key);
+        if (cached != null && !cached.isExpired()) {
+            recordHit(cached);
+            return Optional.of(cached.itinerary);
+        }
+
+        if (diskEnabled) {
+            try {
+                Optional<ItineraryCacheEntry> entry = cacheRepository.findById(key.toString());
+                if (entry.isPresent() && entry.get().getExpiresAt().isAfter(LocalDateTime.now())) {
+                    diskHits.incrementAndGet();
+                    CachedItinerary loaded = new CachedItinerary(entry.get().getItinerary(), entry.get().getCreatedAt(),
+                            entry.get().getExpiresAt(), Boolean.TRUE.equals(entry.get().getPrewarmed()));
+                    memoryCache.put(key, loaded);
+                    recordHit(loaded);
+                    return Optional.of(loaded.itinerary);
+                }
+            } catch (Exception e) {
+                logger.warn("读取行程磁盘缓存失败: {}", e.getMessage());
+            }
+        }
+
+        misses.incrementAndGet();
+        return Optional.empty();
+    }
+
+    public void put(ItineraryCacheKey key, String itinerary) {
+        put(key, itinerary, false);
+    }
+
+    /**
+     * @param prewarmed 由预热任务生成，命中时单独统计
+     */
+    public void put(ItineraryCacheKey key, String itinerary, boolean prewarmed) {
+        if (!enabled || itinerary == null || itinerary.trim().isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plusMinutes(ttlMinutes);
+        memoryCache.put(key, new CachedItinerary(itinerary, now, expiresAt, prewarmed));
+
+        if (diskEnabled) {
+            try {
+                ItineraryCacheEntry entry = new ItineraryCacheEntry(key.toString(), itinerary, now, expiresAt, prewarmed);
+                writeQueue.execute(() -> cacheRepository.save(entry));
+            } catch (Exception e) {
+                logger.warn("写入行程磁盘缓存失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 未过期条目已生成的时长，不计入命中统计；不存在或已过期时返回 empty
+     */
+    public Optional<Duration> ageOf(ItineraryCacheKey key) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        LocalDateTime createdAt = null;
+        // asMap().get 不记录命中统计
+        CachedItinerary cached = memoryCache.asMap().get(key);
+        if (cached != null && !cached.isExpired()) {
+            createdAt = cached.createdAt;
+        } else if (diskEnabled) {
+            try {
+                Optional<ItineraryCacheEntry> entry = cacheRepository.findById(key.toString());
+                if (entry.isPresent() && entry.get().getExpiresAt().isAfter(LocalDateTime.now())) {
+                    createdAt = entry.get().getCreatedAt();
+                }
+            } catch (Exception e) {
+                logger.warn("读取行程磁盘缓存失败: {}", e.getMessage());
+            }
+        }
+        return createdAt == null ? Optional.empty() : Optional.of(Duration.between(createdAt, LocalDateTime.now()));
+    }
+
+    /**
+     * 预热条目的命中情况：命中次数、占全部查询的比例、命中时条目的新鲜度（分钟）
+     */
+    public Map<String, Object> getPrewarmHitStats() {
+        Map<String, Object> result = new HashMap<>();
+        long lookups = memoryCache.stats().hitCount() + diskHits.get() + misses.get();
+        result.put("hits", prewarmedHits.get());
+        result.put("hitRate", lookups == 0 ? 0.0 : (double) prewarmedHits.get() / lookups);
+        result.put("hitAgeMinutes", prewarmedHitAge.snapshot());
+        return result;
+    }
+
+    public Map<String, Object> getStats() {
+        CacheStats stats = memoryCache.stats();
+        Map<String, Object> result = new HashMap<>();
+        result.put("enabled", enabled);
+        result.put("size", memoryCache.estimatedSize());
+        result.put("maxSize", maxSize);
+        result.put("ttlMinutes", ttlMinutes);
+        result.put("memoryHits", stats.hitCount());
+        result.put("diskHits", diskHits.get());
+        result.put("misses", misses.get());
+        result.put("evictions", stats.evictionCount());
+        long lookups = stats.hitCount() + diskHits.get() + misses.get();
+        result.put("hitRate", lookups == 0 ? 0.0 : (double) (stats.hitCount() + diskHits.get()) / lookups);
+        result.put("diskEnabled", diskEnabled);
+        result.put("prewarmedHits", prewarmedHits.get());
+        return result;
+    }
+
+    /**
+     * 定期清理磁盘层中过期的缓存
+     */
+    @Scheduled(fixedDelayString = "${app.itinerary-cache.disk.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        if (diskEnabled) {
+            int removed = writeQueue.execute(() -> cacheRepository.deleteExpired(LocalDateTime.now()));
+            if (removed > 0) {
+                logger.info("清理过期行程缓存 {} 条", removed);
+            }
+        }
+    }
+
+    private void recordHit(CachedItinerary cached) {
+        if (cached.prewarmed) {
+            prewarmedHits.incrementAndGet();
+            if (cached.createdAt != null) {
+                prewarmedHitAge.record(Duration.between(cached.createdAt, LocalDateTime.now()).toMinutes());
+            }
+        }
+    }
+
+    private static class CachedItinerary {
+        private final String itinerary;
+        private final LocalDateTime createdAt;
+        private final LocalDateTime expiresAt;
+        private final boolean prewarmed;
+
+        CachedItinerary(String itinerary, LocalDateTime createdAt, LocalDateTime expiresAt, boolean prewarmed) {
+            this.itinerary = itinerary;
+            this.createdAt = createdAt;
+            this.expiresAt = expiresAt;
+            this.prewarmed = prewarmed;
+        }
+
+        boolean isExpired() {
+            return expiresAt.isBefore(LocalDateTime.now());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.travelplanner.service;
+
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * 行程缓存的归一化键
+ *
+ * 只保留影响行程内容的要素：规范化后的目的地、行程天数（而不是具体日期）、
+ * 预算分档、人数以及排序去重后的偏好集合。
+ */
+public final class ItineraryCacheKey {
+
+    private final String destination;
+    private final int tripDays;
+    private final long budgetBucket;
+    private final int travelerCount;
+    private final String preferences;
+    private final String value;
+
+    private ItineraryCacheKey(String destination, int tripDays, long budgetBucket,
+                              int travelerCount, String preferences) {
+        this.destination = destination;
+        this.tripDays = tripDays;
+        this.budgetBucket = budgetBucket;
+        this.travelerCount = travelerCount;
+        this.preferences = preferences;
+        this.value = destination + "|" + tripDays + "d|b" + budgetBucket + "|" + travelerCount + "p|" + preferences;
+    }
+
+    public static ItineraryCacheKey of(String destination, String startDate, String endDate,
+                                       Double budget, Integer travelerCount, String preferences,
+                                       double budgetBucketSize) {
+        return new ItineraryCacheKey(
+                canonicalDestination(destination),
+                tripDays(startDate, endDate),
+                budget == null ? -1 : (long) Math.floor(budget / budgetBucketSize),
+                travelerCount == null ? 0 : travelerCount,
+                canonicalPreferences(preferences));
+    }
+
+    static String canonicalDestination(String destination) {
+        if (destination == null) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(destination, Normalizer.Form.NFKC)
+                .replaceAll("\\s+", "")
+                .toLowerCase(Locale.ROOT);
+        if (normalized.length() > 2 && normalized.endsWith("市")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        return normalized;
+    }
+
+    static int tripDays(String startDate, String endDate) {
+        try {
+            return (int) ChronoUnit.DAYS.between(LocalDate.parse(startDate), LocalDate.parse(endDate)) + 1;
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    static String canonicalPreferences(String preferences) {
+        TreeSet<String> sorted = new TreeSet<>();
+        if (preferences != null) {
+            String normalized = Normalizer.normalize(preferences, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+            for (String preference : normalized.split("[,，、;；/\\s]+")) {
+                if (!preference.isEmpty()) {
+                    sorted.add(preference);
+                }
+            }
+        }
+        return String.join(",", sorted);
+    }
+
+    public String getDestination() { return destination; }
+    public int getTripDays() { return tripDays; }
+    public long getBudgetBucket() { return budgetBucket; }
+    public int getTravelerCount() { return travelerCount; }
+    public String getPreferences() { return preferences; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ItineraryCacheKey)) return false;
+        return value.equals(((ItineraryCacheKey) o).value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(value);
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+}
@@ -0,0 +1,277 @@
+package com.travelplanner.service;
+
+import com.travelplanner.repository.TravelPlanRepository;
+import com.travelplanner.utils.TokenBucket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 热门行程预热
+ *
+ * 在低峰时段统计近期旅行计划中出现最多的行程组合（按行程缓存键归一化：目的地、天数、偏好、
+ * 预算分档和人数），按限速调用大模型生成并写入行程缓存，高峰期的相同请求直接命中缓存。
+ */
+@Service
+public class ItineraryPrewarmer {
+    private static final Logger logger = LoggerFactory.getLogger(ItineraryPrewarmer.class);
+
+    @Autowired
+    private TravelPlanRepository travelPlanRepository;
+
+    @Autowired
+    private ItineraryCache itineraryCache;
+
+    @Autowired
+    private AIService aiService;
+
+    @Value("${app.prewarm.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.prewarm.window-start:01:00}")
+    private String windowStart;
+
+    @Value("${app.prewarm.window-end:06:00}")
+    private String windowEnd;
+
+    @Value("${app.prewarm.lookback-days:30}")
+    private int lookbackDays;
+
+    @Value("${app.prewarm.top-n:50}")
+    private int topN;
+
+    @Value("${app.prewarm.min-occurrences:2}")
+    private int minOccurrences;
+
+    @Value("${app.prewarm.max-calls-per-hour:60}")
+    private int maxCallsPerHour;
+
+    @Value("${app.prewarm.refresh-after-minutes:720}")
+    private long refreshAfterMinutes;
+
+    @Value("${app.prewarm.lead-days:14}")
+    private int leadDays;
+
+    private LocalTime start;
+    private LocalTime end;
+    private TokenBucket callBudget;
+    private ExecutorService executor;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong skippedFresh = new AtomicLong();
+    private final AtomicLong generatedChars = new AtomicLong();
+    private final Map<String, LocalDateTime> warmedAt = new ConcurrentHashMap<>();
+    private volatile LocalDateTime lastRunAt;
+    private volatile int lastCandidates;
+
+    @PostConstruct
+    public void init() {
+        start = LocalTime.parse(windowStart);
+        end = LocalTime.parse(windowEnd);
+        // 容量为1：调用均匀分布在窗口内，不会突发
+        callBudget = new TokenBucket(1, maxCallsPerHour / 60.0);
+        executor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("prewarm-"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 定时检查是否处于低峰窗口，是则在后台线程执行一轮预热（同时只有一轮）
+     */
+    @Scheduled(fixedDelayString = "${app.prewarm.check-interval-ms:60000}")
+    public void tick() {
+        if (!enabled || !inWindow(LocalTime.now()) || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    runOnce();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    logger.error("行程预热失败", e);
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            running.set(false);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("window", windowStart + "-" + windowEnd);
+        stats.put("maxCallsPerHour", maxCallsPerHour);
+        stats.put("running", running.get());
+        stats.put("runs", runs.get());
+        stats.put("lastRunAt", lastRunAt);
+        stats.put("lastCandidates", lastCandidates);
+        stats.put("skippedFresh", skippedFresh.get());
+
+        // 花费：上游调用次数和生成的字数
+        Map<String, Object> spend = new HashMap<>();
+        spend.put("calls", calls.get());
+        spend.put("failures", failures.get());
+        spend.put("generatedChars", generatedChars.get());
+        stats.put("spend", spend);
+
+        // 新鲜度：已预热条目距生成的时长
+        LocalDateTime now = LocalDateTime.now();
+        long oldest = 0;
+        long total = 0;
+        for (LocalDateTime at : warmedAt.values()) {
+            long minutes = Duration.between(at, now).toMinutes();
+            oldest = Math.max(oldest, minutes);
+            total += minutes;
+        }
+        Map<String, Object> staleness = new HashMap<>();
+        staleness.put("warmedEntries", warmedAt.size());
+        staleness.put("oldestMinutes", oldest);
+        staleness.put("averageMinutes", warmedAt.isEmpty() ? 0 : total / warmedAt.size());
+        stats.put("staleness", staleness);
+
+        stats.put("cacheHits", itineraryCache.getPrewarmHitStats());
+        return stats;
+    }
+
+    private void runOnce() throws InterruptedException {
+        runs.incrementAndGet();
+        lastRunAt = LocalDateTime.now();
+        List<Candidate> candidates = findCandidates();
+        lastCandidates = candidates.size();
+        logger.info("开始行程预热，候选组合 {} 个", candidates.size());
+
+        int warmed = 0;
+        for (Candidate candidate : candidates) {
+            Optional<Duration> age = itineraryCache.ageOf(candidate.key);
+            if (age.isPresent() && age.get().toMinutes() < refreshAfterMinutes) {
+                skippedFresh.incrementAndGet();
+                continue;
+            }
+
+            long waitMs;
+            while ((waitMs = callBudget.tryConsume()) > 0) {
+                if (!enabled || !inWindow(LocalTime.now())) {
+                    logger.info("低峰窗口结束，本轮预热 {} 个", warmed);
+                    return;
+                }
+                Thread.sleep(Math.min(waitMs, 60000));
+            }
+
+            // 日期只影响提示词，缓存键只看天数
+            LocalDate startDate = LocalDate.now().plusDays(leadDays);
+            LocalDate endDate = startDate.plusDays(candidate.key.getTripDays() - 1);
+            calls.incrementAndGet();
+            String itinerary;
+            try {
+                itinerary = aiService.prewarmItinerary(candidate.destination, startDate.toString(), endDate.toString(),
+                        candidate.budget, candidate.travelerCount, candidate.preferences);
+            } catch (AIBusyException e) {
+                // 预热优先级最低，舱壁已满时让出给用户请求
+                failures.incrementAndGet();
+                logger.info("AI请求舱壁已满，本轮预热提前结束，已预热 {} 个", warmed);
+                return;
+            }
+            if (itinerary == null) {
+                failures.incrementAndGet();
+                continue;
+            }
+            generatedChars.addAndGet(itinerary.length());
+            warmedAt.put(candidate.key.toString(), LocalDateTime.now());
+            warmed++;
+        }
+        logger.info("行程预热完成，本轮预热 {} 个", warmed);
+    }
+
+    /**
+     * 统计近期计划中出现次数最多的行程组合
+     */
+    private List<Candidate> findCandidates() {
+        Map<ItineraryCacheKey, Candidate> groups = new LinkedHashMap<>();
+        for (TravelPlanRepository.PlanShape plan : travelPlanRepository.findByCreatedAtAfterOrderByCreatedAtAsc(
+                LocalDateTime.now().minusDays(lookbackDays))) {
+            if (plan.getDestination() == null || plan.getStartDate() == null || plan.getEndDate() == null) {
+                continue;
+            }
+            ItineraryCacheKey key = itineraryCache.keyOf(plan.getDestination(), plan.getStartDate().toString(),
+                    plan.getEndDate().toString(), plan.getBudget(), plan.getTravelerCount(), plan.getPreferences());
+            if (key.getTripDays() <= 0) {
+                continue;
+            }
+            // 同一组合以最近一次的原始写法作为生成参数
+            groups.computeIfAbsent(key, Candidate::new).update(plan);
+        }
+
+        List<Candidate> candidates = new ArrayList<>();
+        for (Candidate candidate : groups.values()) {
+            if (candidate.count >= minOccurrences) {
+                candidates.add(candidate);
+            }
+        }
+        candidates.sort((a, b) -> Integer.compare(b.count, a.count));
+        return candidates.size() > topN ? candidates.subList(0, topN) : candidates;
+    }
+
+    /**
+     * 是否处于低峰窗口，支持跨零点（例如 23:00-05:00）
+     */
+    private boolean inWindow(LocalTime now) {
+        if (start.isBefore(end)) {
+            return !now.isBefore(start) && now.isBefore(end);
+        }
+        return !now.isBefore(start) || now.isBefore(end);
+    }
+
+    private static class Candidate {
+        final ItineraryCacheKey key;
+        int count;
+        String destination;
+        Double budget;
+        Integer travelerCount;
+        String preferences;
+
+        Candidate(ItineraryCacheKey key) {
+            this.key = key;
+        }
+
+        void update(TravelPlanRepository.PlanShape plan) {
+            count++;
+            destination = plan.getDestination();
+            budget = plan.getBudget();
+            travelerCount = plan.getTravelerCount();
+            preferences = plan.getPreferences();
+        }
+    }
+}
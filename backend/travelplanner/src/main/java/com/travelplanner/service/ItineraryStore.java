@@ -0,0 +1,224 @@
+package com.travelplanner.service;
+
+import com.travelplanner.entity.TravelPlan;
+import com.travelplanner.repository.ItineraryBlobRepository;
+import com.travelplanner.repository.TravelPlanRepository;
+import com.travelplanner.utils.ItineraryCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 旅行计划的行程存储
+ *
+ * 行程正文按 SHA-256 去重、Deflate 压缩后写入 itinerary_blobs，travel_plans 只保存哈希。
+ * 所有会修改行程的保存都经过这里，在同一个事务中维护引用计数，计数降为0的正文随即删除，
+ * 并同步更新全文索引（{@link PlanSearchIndex}）。写入都在 {@link WriteQueue} 的写线程中执行。
+ */
+@Service
+public class ItineraryStore {
+    private static final Logger logger = LoggerFactory.getLogger(ItineraryStore.class);
+
+    // 旧版本直接存放在 travel_plans.itinerary 列中的行程，每批迁移的行数
+    private static final int MIGRATION_BATCH = 200;
+
+    @Autowired
+    private ItineraryBlobRepository blobRepository;
+
+    @Autowired
+    private TravelPlanRepository travelPlanRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private WriteQueue writeQueue;
+
+    @Autowired
+    private PlanSearchIndex planSearchIndex;
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    /**
+     * 保存计划，行程有改动时先写入正文并调整引用计数
+     */
+    public TravelPlan save(TravelPlan plan) {
+        return writeQueue.execute(retryable(plan, () -> doSave(plan)));
+    }
+
+    /**
+     * 在一个事务中保存多个计划
+     */
+    public List<TravelPlan> saveAll(List<TravelPlan> plans) {
+        List<Supplier<TravelPlan>> saves = new ArrayList<>();
+        for (TravelPlan plan : plans) {
+            saves.add(retryable(plan, () -> doSave(plan)));
+        }
+        return writeQueue.execute(() -> saves.stream().map(Supplier::get).collect(Collectors.toList()));
+    }
+
+    public void delete(Long planId) {
+        writeQueue.execute(() -> travelPlanRepository.findById(planId).ifPresent(plan -> {
+            String hash = plan.getItineraryHash();
+            travelPlanRepository.delete(plan);
+            release(hash);
+            planSearchIndex.remove(planId);
+            expenseService.removeRollups(planId);
+        }));
+    }
+
+    /**
+     * 用正式行程替换临时行程，版本号不匹配（已被替换过）时不更新
+     *
+     * @return 是否替换成功
+     */
+    public boolean replaceProvisionalItinerary(Long planId, Integer version, String itinerary) {
+        return writeQueue.execute(() -> {
+            String hash = acquire(itinerary);
+            String previous = travelPlanRepository.findItineraryHashById(planId);
+            if (travelPlanRepository.replaceProvisionalItinerary(planId, version, hash) == 0) {
+                release(hash);
+                return false;
+            }
+            release(previous);
+            Long userId = travelPlanRepository.findUserIdById(planId);
+            if (userId != null) {
+                planSearchIndex.updateItinerary(planId, userId, itinerary);
+            }
+            return true;
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        Object[] row = blobRepository.summarize().get(0);
+        long blobs = ((Number) row[0]).longValue();
+        long references = ((Number) row[1]).longValue();
+        long originalBytes = ((Number) row[2]).longValue();
+        long storedBytes = ((Number) row[3]).longValue();
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("blobs", blobs);
+        stats.put("references", references);
+        stats.put("originalBytes", originalBytes);
+        stats.put("storedBytes", storedBytes);
+        stats.put("compressionRatio", storedBytes == 0 ? 0 : (double) originalBytes / storedBytes);
+        return stats;
+    }
+
+    /**
+     * 启动时把旧版本内联在 travel_plans.itinerary 中的行程迁移到 itinerary_blobs，并清空原列
+     */
+    @Order(1)
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateInlineItineraries() {
+        boolean hasInlineColumn = jdbcTemplate.queryForList("pragma table_info(travel_plans)").stream()
+                .anyMatch(column -> "itinerary".equalsIgnoreCase(String.valueOf(column.get("name"))));
+        if (!hasInlineColumn) {
+            return;
+        }
+
+        int migrated = 0;
+        List<Map<String, Object>> rows;
+        do {
+            // 先在写线程外读取，写线程只做写入
+            rows = jdbcTemplate.queryForList(
+                    "select id, itinerary from travel_plans where itinerary is not null limit ?", MIGRATION_BATCH);
+            List<Map<String, Object>> batch = rows;
+            writeQueue.execute(() -> {
+                for (Map<String, Object> row : batch) {
+                    String hash = acquire((String) row.get("itinerary"));
+                    jdbcTemplate.update("update travel_plans set itinerary_hash = ?, itinerary = null where id = ?",
+                            hash, row.get("id"));
+                }
+            });
+            migrated += rows.size();
+        } while (rows.size() == MIGRATION_BATCH);
+
+        if (migrated > 0) {
+            logger.info("已将 {} 个内联行程迁移到 itinerary_blobs", migrated);
+        }
+    }
+
+    private TravelPlan doSave(TravelPlan plan) {
+        // 新计划或行程有改动时才需要重建索引，只改状态的保存不用
+        boolean reindex = plan.getId() == null || plan.hasUnsavedItinerary();
+        storeItinerary(plan);
+        TravelPlan saved = travelPlanRepository.save(plan);
+        if (saved != plan) {
+            // merge 返回的新实例不带临时字段
+            saved.markItineraryStored(plan.getItineraryHash(), plan.getItinerary());
+        }
+        if (reindex) {
+            planSearchIndex.index(saved);
+        }
+        return saved;
+    }
+
+    /**
+     * 写入队列成组提交失败时会重新执行：先把 ID 和行程状态恢复为提交前的值
+     */
+    private static Supplier<TravelPlan> retryable(TravelPlan plan, Supplier<TravelPlan> save) {
+        Long id = plan.getId();
+        String hash = plan.getItineraryHash();
+        boolean unsaved = plan.hasUnsavedItinerary();
+        String itinerary = unsaved ? plan.getItinerary() : null;
+        return () -> {
+            plan.setId(id);
+            if (unsaved) {
+                plan.markItineraryStored(hash, null);
+                plan.setItinerary(itinerary);
+            }
+            return save.get();
+        };
+    }
+
+    private void storeItinerary(TravelPlan plan) {
+        if (!plan.hasUnsavedItinerary()) {
+            return;
+        }
+        String previous = plan.getItineraryHash();
+        String itinerary = plan.getItinerary();
+        String hash = acquire(itinerary);
+        plan.markItineraryStored(hash, itinerary);
+        release(previous);
+    }
+
+    /**
+     * 引用一份行程正文（不存在时写入），返回其哈希；正文为 null 时返回 null
+     */
+    private String acquire(String itinerary) {
+        if (itinerary == null) {
+            return null;
+        }
+        String hash = ItineraryCodec.hash(itinerary);
+        // 已存在时只加引用计数，不必再压缩
+        if (blobRepository.incrementRefCount(hash) == 0) {
+            blobRepository.insertOrIncrement(hash, ItineraryCodec.compress(itinerary),
+                    itinerary.getBytes(StandardCharsets.UTF_8).length, LocalDateTime.now());
+        }
+        return hash;
+    }
+
+    private void release(String hash) {
+        if (hash == null) {
+            return;
+        }
+        blobRepository.decrementRefCount(hash);
+        blobRepository.deleteIfUnreferenced(hash);
+    }
+}
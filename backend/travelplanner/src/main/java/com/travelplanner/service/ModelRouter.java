@@ -0,0 +1,159 @@
+package com.travelplanner.service;
+
+import com.travelplanner.config.ModelRoutingProperties;
+import com.travelplanner.dto.AliyunAIRequest;
+import com.travelplanner.utils.LatencyTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 大模型路由：按任务类型选择模型和参数
+ *
+ * 按（任务, 模型）单独记录耗时：同一模型在不同任务上的输出长度差别很大，只拿本任务的样本和本任务的 SLO 比较；
+ * 主模型在本任务上的分位数耗时超过 SLO 时改用备用模型，
+ * 降级期间仍按 probe-ratio 把少量请求发给主模型，主模型恢复后自动切回。
+ * 耗时样本超过 max-sample-age-ms 即过期，探测流量太少时窗口内有效样本不足，也会切回主模型重新观测。
+ */
+@Component
+public class ModelRouter {
+    private static final Logger logger = LoggerFactory.getLogger(ModelRouter.class);
+
+    private static final long[] HISTOGRAM_BOUNDS_MS = {500, 1000, 2000, 5000, 10000, 20000, 30000, 60000};
+
+    @Autowired
+    private ModelRoutingProperties properties;
+
+    private final Map<String, LatencyTracker> latency = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> failures = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> decisions = new ConcurrentHashMap<>();
+    private final Map<AITask, Boolean> degraded = new ConcurrentHashMap<>();
+
+    public Route route(AITask task) {
+        ModelRoutingProperties.TaskRoute config = properties.getTask(task.getConfigKey());
+        String primary = config.getModel();
+        String fallback = config.getFallbackModel();
+
+        String model = primary;
+        String reason = "primary";
+        if (fallback != null && !fallback.equals(primary) && breachesSlo(task, primary, config.getSloMs())) {
+            if (ThreadLocalRandom.current().nextDouble() < properties.getProbeRatio()) {
+                reason = "probe";
+            } else {
+                model = fallback;
+                reason = "slo-fallback";
+            }
+        }
+
+        boolean nowDegraded = !"primary".equals(reason);
+        Boolean wasDegraded = degraded.put(task, nowDegraded);
+        if (wasDegraded != null && wasDegraded != nowDegraded) {
+            logger.warn("任务 {} 的模型路由切换: {} -> {}", task, nowDegraded ? primary : fallback,
+                    nowDegraded ? fallback : primary);
+        }
+
+        decisions.computeIfAbsent(task.getConfigKey() + "|" + model + "|" + reason, k -> new AtomicLong())
+                .incrementAndGet();
+        return new Route(task, model, reason, config);
+    }
+
+    /**
+     * 记录一次调用的实际耗时；失败的调用同样计入，慢失败也说明模型变慢了
+     */
+    public void record(Route route, long latencyMs, boolean success) {
+        String key = key(route.getTask(), route.getModel());
+        latency.computeIfAbsent(key, k -> new LatencyTracker(properties.getWindowSize(), properties.getMaxSampleAgeMs()))
+                .record(latencyMs);
+        if (!success) {
+            failures.computeIfAbsent(key, k -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+
+        Map<String, Object> tasks = new TreeMap<>();
+        for (AITask task : AITask.values()) {
+            ModelRoutingProperties.TaskRoute config = properties.getTask(task.getConfigKey());
+            Map<String, Object> taskStats = new HashMap<>();
+            taskStats.put("model", config.getModel());
+            taskStats.put("fallbackModel", config.getFallbackModel());
+            taskStats.put("sloMs", config.getSloMs());
+            taskStats.put("maxTokens", config.getMaxTokens());
+            taskStats.put("degraded", degraded.getOrDefault(task, false));
+            Map<String, Long> taskDecisions = new TreeMap<>();
+            String prefix = task.getConfigKey() + "|";
+            decisions.forEach((key, count) -> {
+                if (key.startsWith(prefix)) {
+                    taskDecisions.put(key.substring(prefix.length()), count.get());
+                }
+            });
+            taskStats.put("decisions", taskDecisions);
+            Map<String, Object> models = new TreeMap<>();
+            latency.forEach((key, tracker) -> {
+                if (key.startsWith(prefix)) {
+                    Map<String, Object> modelStats = tracker.snapshot();
+                    modelStats.put("histogram", tracker.histogram(HISTOGRAM_BOUNDS_MS));
+                    modelStats.put("failures", failures.getOrDefault(key, new AtomicLong()).get());
+                    models.put(key.substring(prefix.length()), modelStats);
+                }
+            });
+            taskStats.put("models", models);
+            tasks.put(task.getConfigKey(), taskStats);
+        }
+        stats.put("tasks", tasks);
+        stats.put("sloPercentile", properties.getSloPercentile());
+        stats.put("probeRatio", properties.getProbeRatio());
+        stats.put("maxSampleAgeMs", properties.getMaxSampleAgeMs());
+        return stats;
+    }
+
+    private boolean breachesSlo(AITask task, String model, long sloMs) {
+        LatencyTracker tracker = latency.get(key(task, model));
+        if (tracker == null || tracker.getSampleCount() < properties.getMinSamples()) {
+            return false;
+        }
+        return tracker.percentile(properties.getSloPercentile()) > sloMs;
+    }
+
+    private static String key(AITask task, String model) {
+        return task.getConfigKey() + "|" + model;
+    }
+
+    /**
+     * 一次路由决定
+     */
+    public static class Route {
+        private final AITask task;
+        private final String model;
+        private final String reason;
+        private final ModelRoutingProperties.TaskRoute config;
+
+        Route(AITask task, String model, String reason, ModelRoutingProperties.TaskRoute config) {
+            this.task = task;
+            this.model = model;
+            this.reason = reason;
+            this.config = config;
+        }
+
+        public AliyunAIRequest buildRequest(String prompt) {
+            AliyunAIRequest request = new AliyunAIRequest(prompt, model);
+            request.getParameters().setTemperature(config.getTemperature());
+            request.getParameters().setTop_p(config.getTopP());
+            request.getParameters().setMax_tokens(config.getMaxTokens());
+            return request;
+        }
+
+        public AITask getTask() { return task; }
+        public String getModel() { return model; }
+        public String getReason() { return reason; }
+    }
+}
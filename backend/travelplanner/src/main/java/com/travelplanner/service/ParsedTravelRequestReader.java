@@ -0,0 +1,130 @@
+package com.travelplanner.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.travelplanner.dto.ParsedTravelRequest;
+import com.travelplanner.utils.ChineseNumerals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 用 Jackson 流式 API 把大模型返回的需求 JSON 读成 {@link ParsedTravelRequest}
+ *
+ * 模型输出的字段类型并不稳定（"budget": "约1万元"、"preferences": "美食,购物"），
+ * 这里逐个字段宽松转换，不先构造 Map 再强转。
+ */
+final class ParsedTravelRequestReader {
+
+    private ParsedTravelRequestReader() {
+    }
+
+    /**
+     * @param parser 位于 START_OBJECT
+     * @return 没有任何已知字段时返回 null
+     */
+    static ParsedTravelRequest read(JsonParser parser) throws IOException {
+        ParsedTravelRequest request = new ParsedTravelRequest();
+        boolean recognized = false;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "destination":
+                    request.setDestination(readText(parser));
+                    break;
+                case "startDate":
+                    request.setStartDate(readText(parser));
+                    break;
+                case "endDate":
+                    request.setEndDate(readText(parser));
+                    break;
+                case "budget":
+                    request.setBudget(readNumber(parser));
+                    break;
+                case "travelerCount":
+                    Double travelers = readNumber(parser);
+                    request.setTravelerCount(travelers != null ? travelers.intValue() : null);
+                    break;
+                case "preferences":
+                    request.setPreferences(readList(parser));
+                    break;
+                case "travelType":
+                    request.setTravelType(readText(parser));
+                    break;
+                case "specialRequirements":
+                    request.setSpecialRequirements(readText(parser));
+                    break;
+                case "itinerary":
+                    request.setItinerary(readText(parser));
+                    break;
+                default:
+                    parser.skipChildren();
+                    continue;
+            }
+            recognized = true;
+        }
+        return recognized ? request : null;
+    }
+
+    /**
+     * 字符串原样返回，数组用"；"连接，空值返回 null
+     */
+    private static String readText(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_ARRAY) {
+            List<String> items = readList(parser);
+            return items.isEmpty() ? null : String.join("；", items);
+        }
+        if (token == null || !token.isScalarValue() || token == JsonToken.VALUE_NULL) {
+            parser.skipChildren();
+            return null;
+        }
+        String text = parser.getText().trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    private static Double readNumber(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token != null && token.isNumeric()) {
+            return parser.getDoubleValue();
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            // 取第一个数字，支持"约1万元"、"五千"这类写法
+            String text = parser.getText();
+            for (int i = 0; i < text.length(); i++) {
+                if (ChineseNumerals.isNumeralStart(text.charAt(i))) {
+                    double value = ChineseNumerals.parse(text, i, ChineseNumerals.scanEnd(text, i));
+                    return Double.isNaN(value) ? null : value;
+                }
+            }
+            return null;
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    private static List<String> readList(JsonParser parser) throws IOException {
+        List<String> items = new ArrayList<>();
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_ARRAY) {
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                String item = readText(parser);
+                if (item != null) {
+                    items.add(item);
+                }
+            }
+        } else if (token == JsonToken.VALUE_STRING) {
+            for (String item : parser.getText().split("[,，、]")) {
+                if (!item.trim().isEmpty()) {
+                    items.add(item.trim());
+                }
+            }
+        } else {
+            parser.skipChildren();
+        }
+        return items;
+    }
+}
@@ -0,0 +1,245 @@
+package com.travelplanner.service;
+
+import com.travelplanner.entity.TravelPlan;
+import com.travelplanner.entity.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 批量生成旅行计划
+ *
+ * 完全相同的请求只生成一次，但每个请求各保存一个计划；每批最多 parallelism 个工作线程从共享队列取任务，
+ * 单个慢请求不会阻塞其他请求的结果返回。每生成完一个行程就把它和重复请求的计划在一个事务中保存，
+ * 回调的结果行带有已保存的计划ID。
+ */
+@Service
+public class PlanBatchService {
+    private static final Logger logger = LoggerFactory.getLogger(PlanBatchService.class);
+
+    @Autowired
+    private AIService aiService;
+
+    @Autowired
+    private ItineraryStore itineraryStore;
+
+    @Autowired
+    private ThreadPoolTaskExecutor planBatchExecutor;
+
+    @Value("${app.plan-batch.max-items:50}")
+    private int maxItems;
+
+    @Value("${app.plan-batch.parallelism:4}")
+    private int parallelism;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong items = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+    private final AtomicLong failedItems = new AtomicLong();
+
+    /**
+     * 校验整批请求，返回错误信息（为空表示全部合法）
+     */
+    public List<String> validate(List<TravelPlan> requests) {
+        List<String> errors = new ArrayList<>();
+        if (requests == null || requests.isEmpty()) {
+            errors.add("请求列表不能为空");
+            return errors;
+        }
+        if (requests.size() > maxItems) {
+            errors.add("单次最多创建" + maxItems + "个旅行计划");
+            return errors;
+        }
+        for (int i = 0; i < requests.size(); i++) {
+            TravelPlan plan = requests.get(i);
+            if (plan == null) {
+                errors.add("第" + i + "项: 不能为空");
+                continue;
+            }
+            if (plan.getDestination() == null || plan.getDestination().trim().isEmpty()) {
+                errors.add("第" + i + "项: 目的地不能为空");
+            }
+            if (plan.getStartDate() == null || plan.getEndDate() == null) {
+                errors.add("第" + i + "项: 开始和结束日期不能为空");
+            } else if (plan.getEndDate().isBefore(plan.getStartDate())) {
+                errors.add("第" + i + "项: 结束日期早于开始日期");
+            }
+            if (plan.getBudget() == null || plan.getBudget() <= 0) {
+                errors.add("第" + i + "项: 预算必须大于0");
+            }
+            if (plan.getTravelerCount() == null || plan.getTravelerCount() <= 0) {
+                errors.add("第" + i + "项: 旅行人数必须大于0");
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * 去重后并行生成行程，每个请求保存后回调 onItem（重复请求各回调一次）
+     *
+     * @param requests 已通过 {@link #validate} 校验的请求
+     * @return 与请求一一对应的已保存计划（生成或保存失败的为 null）
+     * @throws RejectedExecutionException 线程池已满，一个任务都无法提交
+     */
+    public CompletableFuture<List<TravelPlan>> generate(List<TravelPlan> requests, User user,
+                                                        Consumer<Map<String, Object>> onItem) {
+        long start = System.currentTimeMillis();
+        batches.incrementAndGet();
+        items.addAndGet(requests.size());
+
+        // 完全相同的请求合并，只保留第一次出现的位置
+        Map<List<Object>, Integer> firstIndex = new LinkedHashMap<>();
+        Map<Integer, List<Integer>> duplicates = new HashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            Integer first = firstIndex.putIfAbsent(identity(requests.get(i)), i);
+            if (first != null) {
+                duplicates.computeIfAbsent(first, k -> new ArrayList<>()).add(i);
+                deduplicated.incrementAndGet();
+            }
+        }
+
+        TravelPlan[] saved = new TravelPlan[requests.size()];
+        ConcurrentLinkedQueue<Integer> pending = new ConcurrentLinkedQueue<>(firstIndex.values());
+        Runnable worker = () -> {
+            Integer index;
+            while ((index = pending.poll()) != null) {
+                generateOne(index, requests, user, duplicates.getOrDefault(index, new ArrayList<>()), saved, onItem);
+            }
+        };
+
+        int workers = Math.min(parallelism, firstIndex.size());
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            try {
+                futures.add(CompletableFuture.runAsync(worker, planBatchExecutor));
+            } catch (TaskRejectedException e) {
+                if (futures.isEmpty()) {
+                    throw new RejectedExecutionException("批量生成线程池已满，请稍后重试");
+                }
+                // 已启动的工作线程会处理完整个队列
+                break;
+            }
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            List<TravelPlan> results = Arrays.asList(saved);
+            logger.info("批量生成 {} 个计划（去重后 {} 个），保存 {} 个，耗时 {}ms",
+                    requests.size(), firstIndex.size(), results.stream().filter(Objects::nonNull).count(),
+                    System.currentTimeMillis() - start);
+            return results;
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("maxItems", maxItems);
+        stats.put("parallelism", parallelism);
+        stats.put("batches", batches.get());
+        stats.put("items", items.get());
+        stats.put("deduplicated", deduplicated.get());
+        stats.put("failedItems", failedItems.get());
+        stats.put("activeWorkers", planBatchExecutor.getActiveCount());
+        stats.put("queued", planBatchExecutor.getThreadPoolExecutor().getQueue().size());
+        return stats;
+    }
+
+    /**
+     * 生成一个行程，连同重复请求的计划在一个事务中保存，再逐个回调结果行
+     */
+    private void generateOne(int index, List<TravelPlan> requests, User user, List<Integer> duplicateIndexes,
+                             TravelPlan[] saved, Consumer<Map<String, Object>> onItem) {
+        long start = System.currentTimeMillis();
+        TravelPlan request = requests.get(index);
+        List<Integer> indexes = new ArrayList<>();
+        indexes.add(index);
+        indexes.addAll(duplicateIndexes);
+
+        String itinerary = null;
+        String error = null;
+        Long retryAfterSeconds = null;
+        try {
+            itinerary = aiService.generateItinerary(
+                    request.getDestination(),
+                    request.getStartDate().toString(),
+                    request.getEndDate().toString(),
+                    request.getBudget(),
+                    request.getTravelerCount(),
+                    request.getPreferences()
+            );
+            List<TravelPlan> plans = new ArrayList<>();
+            for (Integer i : indexes) {
+                TravelPlan plan = requests.get(i);
+                // 请求项是反序列化的实体：忽略客户端给出的ID和状态，总是为当前用户新建计划
+                plan.setId(null);
+                plan.setStatus(TravelPlan.Status.COMPLETED);
+                plan.setUser(user);
+                plan.setItinerary(itinerary);
+                plans.add(plan);
+            }
+            List<TravelPlan> results = itineraryStore.saveAll(plans);
+            for (int i = 0; i < indexes.size(); i++) {
+                saved[indexes.get(i)] = results.get(i);
+            }
+        } catch (AIBusyException e) {
+            // 被舱壁拒绝不使用模拟行程，这一组请求不保存
+            logger.warn("批量生成第{}项被舱壁拒绝", index);
+            failedItems.addAndGet(indexes.size());
+            error = "生成失败: " + e.getMessage();
+            retryAfterSeconds = e.getRetryAfterSeconds();
+        } catch (Exception e) {
+            logger.error("批量生成第{}项失败", index, e);
+            failedItems.addAndGet(indexes.size());
+            error = (itinerary == null ? "生成失败: " : "保存失败: ") + e.getMessage();
+        }
+
+        long elapsedMs = System.currentTimeMillis() - start;
+        for (Integer i : indexes) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("index", i);
+            if (i == index) {
+                result.put("duplicates", duplicateIndexes);
+            } else {
+                result.put("duplicateOf", index);
+            }
+            if (error != null) {
+                result.put("status", "failed");
+                result.put("message", error);
+                if (retryAfterSeconds != null) {
+                    result.put("retryAfterSeconds", retryAfterSeconds);
+                }
+            } else {
+                result.put("status", "saved");
+                result.put("planId", saved[i].getId());
+                result.put("destination", request.getDestination());
+                if (i == index) {
+                    // 重复请求的行程与首次出现的相同，不再重复返回
+                    result.put("itinerary", itinerary);
+                }
+            }
+            result.put("elapsedMs", elapsedMs);
+            onItem.accept(result);
+        }
+    }
+
+    private static List<Object> identity(TravelPlan plan) {
+        return Arrays.asList(plan.getDestination().trim(), plan.getStartDate(), plan.getEndDate(),
+                plan.getBudget(), plan.getTravelerCount(), Objects.toString(plan.getPreferences(), "").trim());
+    }
+}
@@ -0,0 +1,71 @@
+package com.travelplanner.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 旅行计划事件推送（SSE），按计划ID维护订阅者
+ */
+@Component
+public class PlanEventPublisher {
+
+    @Value("${app.plan-events.timeout-ms:300000}")
+    private long timeoutMs;
+
+    private final Map<Long, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+
+    public SseEmitter subscribe(Long planId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        List<SseEmitter> emitters = subscribers.computeIfAbsent(planId, id -> new CopyOnWriteArrayList<>());
+        emitters.add(emitter);
+
+        Runnable remove = () -> {
+            emitters.remove(emitter);
+            subscribers.computeIfPresent(planId, (id, list) -> list.isEmpty() ? null : list);
+        };
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+        return emitter;
+    }
+
+    /**
+     * 推送事件，发送失败的订阅者直接移除
+     */
+    public void publish(Long planId, String eventName, Object data) {
+        List<SseEmitter> emitters = subscribers.get(planId);
+        if (emitters == null) {
+            return;
+        }
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(SseEmitter.event().name(eventName).data(data, MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                emitters.remove(emitter);
+            }
+        }
+    }
+
+    /**
+     * 推送最后一个事件并关闭该计划的所有订阅
+     */
+    public void publishAndComplete(Long planId, String eventName, Object data) {
+        publish(planId, eventName, data);
+        List<SseEmitter> emitters = subscribers.remove(planId);
+        if (emitters != null) {
+            emitters.forEach(SseEmitter::complete);
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.values().stream().mapToInt(List::size).sum();
+    }
+}
@@ -0,0 +1,408 @@
+package com.travelplanner.service;
+
+import com.travelplanner.entity.PlanGenerationJob;
+import com.travelplanner.entity.TravelPlan;
+import com.travelplanner.entity.User;
+import com.travelplanner.repository.PlanGenerationJobRepository;
+import com.travelplanner.repository.TravelPlanRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 行程异步生成任务服务
+ *
+ * 任务先写入 plan_generation_jobs 表，再投递到有界优先级线程池执行；
+ * 大模型调用失败时按指数退避重新排队，最后一次仍失败才使用模拟行程；
+ * 服务重启后未完成的任务会从数据库恢复并重新排队。
+ */
+@Service
+public class PlanJobService {
+    private static final Logger logger = LoggerFactory.getLogger(PlanJobService.class);
+
+    /**
+     * 队列已满时的处理策略
+     * REJECT: 拒绝提交；CALLER_RUNS: 在请求线程中同步执行；DEFER: 仅持久化，等待定时任务补投
+     */
+    public enum RejectionPolicy { REJECT, CALLER_RUNS, DEFER }
+
+    @Autowired
+    private PlanGenerationJobRepository jobRepository;
+
+    @Autowired
+    private TravelPlanRepository travelPlanRepository;
+
+    @Autowired
+    private AIService aiService;
+
+    @Autowired
+    private ItineraryStore itineraryStore;
+
+    @Autowired
+    private PlanEventPublisher planEventPublisher;
+
+    @Autowired
+    private WriteQueue writeQueue;
+
+    @Value("${app.plan-jobs.workers:4}")
+    private int workers;
+
+    @Value("${app.plan-jobs.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${app.plan-jobs.rejection-policy:DEFER}")
+    private RejectionPolicy rejectionPolicy;
+
+    @Value("${app.plan-jobs.max-attempts:3}")
+    private int maxAttempts;
+
+    // 失败后重新排队的等待时间：base * 2^(已尝试次数-1)，加随机抖动，不超过 max
+    @Value("${app.plan-jobs.retry-backoff-ms:2000}")
+    private long retryBackoffMs;
+
+    @Value("${app.plan-jobs.retry-max-backoff-ms:30000}")
+    private long retryMaxBackoffMs;
+
+    // 客户端可指定的优先级范围为 [0, max-priority]，超出的按边界处理
+    @Value("${app.plan-jobs.max-priority:2}")
+    private int maxPriority;
+
+    private ThreadPoolExecutor executor;
+    private ScheduledExecutorService retryScheduler;
+    private final Set<Long> dispatchedJobIds = ConcurrentHashMap.newKeySet();
+    // 退避等待中的任务，定时补投时跳过
+    private final Set<Long> backoffJobIds = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong retriedCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), new CustomizableThreadFactory("plan-job-"));
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("plan-job-retry-"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // 被中断的任务保持 RUNNING 状态，退避中的任务保持 QUEUED 状态，下次启动时恢复
+        retryScheduler.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    /**
+     * 提交异步生成任务：计划以 PENDING 状态保存，行程由后台线程填充
+     *
+     * @param priority 客户端指定的优先级，限制在 [0, max-priority]
+     */
+    public PlanGenerationJob submit(TravelPlan travelPlan, User user, int priority) {
+        if (rejectionPolicy == RejectionPolicy.REJECT && !hasCapacity()) {
+            rejectedCount.incrementAndGet();
+            throw new RejectedExecutionException("行程生成任务队列已满，请稍后重试");
+        }
+
+        travelPlan.setUser(user);
+        travelPlan.setStatus(TravelPlan.Status.PENDING);
+        travelPlan.setItinerary(null);
+        TravelPlan savedPlan = itineraryStore.save(travelPlan);
+
+        PlanGenerationJob job = new PlanGenerationJob();
+        job.setPlanId(savedPlan.getId());
+        job.setUserId(user.getId());
+        job.setPriority(Math.max(0, Math.min(priority, maxPriority)));
+        job = saveJob(job);
+
+        if (!dispatch(job)) {
+            rejectedCount.incrementAndGet();
+            if (rejectionPolicy == RejectionPolicy.CALLER_RUNS && dispatchedJobIds.add(job.getId())) {
+                try {
+                    runJob(job.getId());
+                } finally {
+                    dispatchedJobIds.remove(job.getId());
+                }
+                return jobRepository.findById(job.getId()).orElse(job);
+            }
+            logger.info("任务队列已满，任务 {} 已持久化等待补投", job.getId());
+        }
+        return job;
+    }
+
+    public PlanGenerationJob getJob(Long jobId) {
+        return jobRepository.findById(jobId)
+                .orElseThrow(() -> new RuntimeException("任务不存在"));
+    }
+
+    public Map<String, Object> toStatusView(PlanGenerationJob job) {
+        Map<String, Object> view = new HashMap<>();
+        view.put("jobId", job.getId());
+        view.put("planId", job.getPlanId());
+        view.put("status", job.getStatus());
+        view.put("priority", job.getPriority());
+        view.put("attempts", job.getAttempts());
+        view.put("errorMessage", job.getErrorMessage());
+        view.put("createdAt", job.getCreatedAt());
+        view.put("startedAt", job.getStartedAt());
+        view.put("finishedAt", job.getFinishedAt());
+        return view;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("workers", workers);
+        stats.put("activeWorkers", executor.getActiveCount());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("rejectionPolicy", rejectionPolicy);
+        stats.put("rejected", rejectedCount.get());
+        stats.put("retried", retriedCount.get());
+        stats.put("backingOff", backoffJobIds.size());
+        stats.put("maxAttempts", maxAttempts);
+        stats.put("completed", executor.getCompletedTaskCount());
+        stats.put("persistedQueued", jobRepository.countByFinishedAtIsNullAndStatus(PlanGenerationJob.Status.QUEUED));
+        return stats;
+    }
+
+    /**
+     * 启动时恢复上次未完成的任务
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverJobs() {
+        List<PlanGenerationJob> jobs = jobRepository.findByFinishedAtIsNullAndStatusInOrderByPriorityDescCreatedAtAsc(
+                Arrays.asList(PlanGenerationJob.Status.QUEUED, PlanGenerationJob.Status.RUNNING));
+        for (PlanGenerationJob job : jobs) {
+            if (job.getStatus() == PlanGenerationJob.Status.RUNNING) {
+                if (job.getAttempts() >= maxAttempts) {
+                    markFailed(job, "超过最大重试次数");
+                    continue;
+                }
+                job.setStatus(PlanGenerationJob.Status.QUEUED);
+                saveJob(job);
+            }
+        }
+        if (!jobs.isEmpty()) {
+            logger.info("恢复 {} 个未完成的行程生成任务", jobs.size());
+        }
+        dispatchQueuedJobs();
+    }
+
+    /**
+     * 定时补投因队列已满而延后的任务
+     */
+    @Scheduled(fixedDelayString = "${app.plan-jobs.sweep-interval-ms:5000}")
+    public void dispatchQueuedJobs() {
+        if (!hasCapacity()) {
+            return;
+        }
+        List<PlanGenerationJob> jobs = jobRepository.findByFinishedAtIsNullAndStatusInOrderByPriorityDescCreatedAtAsc(
+                Arrays.asList(PlanGenerationJob.Status.QUEUED));
+        for (PlanGenerationJob job : jobs) {
+            if (dispatchedJobIds.contains(job.getId()) || backoffJobIds.contains(job.getId())) {
+                continue;
+            }
+            if (!dispatch(job)) {
+                break;
+            }
+        }
+    }
+
+    private boolean hasCapacity() {
+        return executor.getQueue().size() < queueCapacity;
+    }
+
+    private boolean dispatch(PlanGenerationJob job) {
+        if (!hasCapacity()) {
+            return false;
+        }
+        if (dispatchedJobIds.add(job.getId())) {
+            executor.execute(new JobTask(job.getId(), job.getPriority(), sequence.incrementAndGet()));
+        }
+        return true;
+    }
+
+    private void runJob(Long jobId) {
+        PlanGenerationJob job = jobRepository.findById(jobId).orElse(null);
+        if (job == null || job.isFinished()) {
+            return;
+        }
+
+        TravelPlan plan = travelPlanRepository.findById(job.getPlanId()).orElse(null);
+        if (plan == null) {
+            markFailed(job, "旅行计划不存在");
+            return;
+        }
+
+        job.setStatus(PlanGenerationJob.Status.RUNNING);
+        job.setAttempts(job.getAttempts() + 1);
+        job.setStartedAt(LocalDateTime.now());
+        saveJob(job);
+
+        plan.setStatus(TravelPlan.Status.GENERATING);
+        plan = itineraryStore.save(plan);
+        planEventPublisher.publish(plan.getId(), "status", toStatusView(job));
+
+        try {
+            String itinerary = aiService.tryGenerateItinerary(
+                    plan.getDestination(),
+                    plan.getStartDate().toString(),
+                    plan.getEndDate().toString(),
+                    plan.getBudget(),
+                    plan.getTravelerCount(),
+                    plan.getPreferences()
+            );
+            if (itinerary == null) {
+                if (job.getAttempts() < maxAttempts) {
+                    scheduleRetry(job, plan, "AI服务调用失败");
+                    return;
+                }
+                logger.warn("行程生成任务 {} 已达最大尝试次数，使用模拟行程", jobId);
+                itinerary = aiService.generateMockItinerary(
+                        plan.getDestination(),
+                        plan.getStartDate().toString(),
+                        plan.getEndDate().toString(),
+                        plan.getBudget(),
+                        plan.getTravelerCount(),
+                        plan.getPreferences()
+                );
+            } else {
+                // 重试后成功，清除上一次的失败原因
+                job.setErrorMessage(null);
+            }
+
+            plan.setItinerary(itinerary);
+            plan.setStatus(TravelPlan.Status.COMPLETED);
+            itineraryStore.save(plan);
+
+            job.setStatus(PlanGenerationJob.Status.SUCCEEDED);
+            job.setFinishedAt(LocalDateTime.now());
+            saveJob(job);
+            planEventPublisher.publishAndComplete(plan.getId(), "status", toStatusView(job));
+
+        } catch (Exception e) {
+            logger.error("行程生成任务 {} 第 {} 次执行失败", jobId, job.getAttempts(), e);
+            if (job.getAttempts() < maxAttempts) {
+                scheduleRetry(job, plan, e.getMessage());
+                return;
+            }
+            markFailed(job, e.getMessage());
+        }
+    }
+
+    /**
+     * 失败后重新排队：任务回到 QUEUED、计划回到 PENDING，退避结束后再投递
+     * 退避期间服务重启时，任务按 QUEUED 状态恢复，立即重新执行
+     */
+    private void scheduleRetry(PlanGenerationJob job, TravelPlan plan, String reason) {
+        long cap = Math.min(retryMaxBackoffMs, retryBackoffMs << Math.min(job.getAttempts() - 1, 20));
+        long delayMs = cap / 2 + ThreadLocalRandom.current().nextLong(cap / 2 + 1);
+
+        job.setStatus(PlanGenerationJob.Status.QUEUED);
+        job.setErrorMessage(reason);
+        saveJob(job);
+        plan.setStatus(TravelPlan.Status.PENDING);
+        itineraryStore.save(plan);
+        planEventPublisher.publish(plan.getId(), "status", toStatusView(job));
+
+        retriedCount.incrementAndGet();
+        backoffJobIds.add(job.getId());
+        logger.info("行程生成任务 {} 第 {} 次失败，{}ms 后重试", job.getId(), job.getAttempts(), delayMs);
+        Long jobId = job.getId();
+        Integer priority = job.getPriority();
+        retryScheduler.schedule(() -> {
+            backoffJobIds.remove(jobId);
+            // 队列已满时留给定时补投
+            if (dispatchedJobIds.add(jobId)) {
+                try {
+                    if (hasCapacity()) {
+                        executor.execute(new JobTask(jobId, priority, sequence.incrementAndGet()));
+                        return;
+                    }
+                } catch (RejectedExecutionException e) {
+                    logger.warn("重试任务 {} 投递失败，等待定时补投", jobId);
+                }
+                dispatchedJobIds.remove(jobId);
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 任务表的写入也经过写入队列；成组提交失败重试时先恢复新任务的ID
+     */
+    private PlanGenerationJob saveJob(PlanGenerationJob job) {
+        Long id = job.getId();
+        return writeQueue.execute(() -> {
+            job.setId(id);
+            return jobRepository.save(job);
+        });
+    }
+
+    /**
+     * 任务失败结束，计划（如果还在）同时标记为 FAILED，不再停留在 PENDING / GENERATING
+     */
+    private void markFailed(PlanGenerationJob job, String message) {
+        travelPlanRepository.findById(job.getPlanId()).ifPresent(plan -> {
+            plan.setStatus(TravelPlan.Status.FAILED);
+            itineraryStore.save(plan);
+        });
+        job.setStatus(PlanGenerationJob.Status.FAILED);
+        job.setErrorMessage(message);
+        job.setFinishedAt(LocalDateTime.now());
+        saveJob(job);
+        planEventPublisher.publishAndComplete(job.getPlanId(), "status", toStatusView(job));
+    }
+
+    /**
+     * 优先级高的先执行，同优先级按提交顺序执行
+     */
+    private class JobTask implements Runnable, Comparable<JobTask> {
+        private final Long jobId;
+        private final int priority;
+        private final long seq;
+
+        JobTask(Long jobId, Integer priority, long seq) {
+            this.jobId = jobId;
+            this.priority = priority == null ? 0 : priority;
+            this.seq = seq;
+        }
+
+        @Override
+        public void run() {
+            try {
+                runJob(jobId);
+            } finally {
+                dispatchedJobIds.remove(jobId);
+            }
+        }
+
+        @Override
+        public int compareTo(JobTask other) {
+            if (priority != other.priority) {
+                return Integer.compare(other.priority, priority);
+            }
+            return Long.compare(seq, other.seq);
+        }
+    }
+}
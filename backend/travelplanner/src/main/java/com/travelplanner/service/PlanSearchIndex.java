@@ -0,0 +1,221 @@
+package com.travelplanner.service;
+
+import com.travelplanner.dto.PlanSearchHit;
+import com.travelplanner.dto.TravelPlanSummary;
+import com.travelplanner.entity.TravelPlan;
+import com.travelplanner.repository.TravelPlanRepository;
+import com.travelplanner.utils.ItineraryCodec;
+import com.travelplanner.utils.LatencyTracker;
+import com.travelplanner.utils.SearchTokenizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 旅行计划全文检索（SQLite FTS5）
+ *
+ * plan_search 虚拟表以计划ID为 rowid，保存目的地、偏好和行程正文经 {@link SearchTokenizer} 切分后的词。
+ * 词带有用户前缀，查询只命中当前用户的计划；结果按 bm25 排序，摘要在 Java 侧从原文截取。
+ * 计划的写入都经过 ItineraryStore，在同一个事务中同步更新索引。
+ */
+@Service
+public class PlanSearchIndex {
+    private static final Logger logger = LoggerFactory.getLogger(PlanSearchIndex.class);
+
+    private static final int REBUILD_BATCH = 500;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private WriteQueue writeQueue;
+
+    @Autowired
+    private TravelPlanRepository travelPlanRepository;
+
+    // bm25 的列权重：目的地 > 偏好 > 行程正文
+    @Value("${app.plan-search.weights.destination:10.0}")
+    private double destinationWeight;
+
+    @Value("${app.plan-search.weights.preferences:5.0}")
+    private double preferencesWeight;
+
+    @Value("${app.plan-search.weights.itinerary:1.0}")
+    private double itineraryWeight;
+
+    // 摘要中命中词前后各保留的字数
+    @Value("${app.plan-search.snippet-context:30}")
+    private int snippetContext;
+
+    private final AtomicLong searches = new AtomicLong();
+    private final AtomicLong indexed = new AtomicLong();
+    private final LatencyTracker matchLatency = new LatencyTracker(500);
+
+    /**
+     * 写入或覆盖一个计划的索引，需在保存计划的事务中调用
+     */
+    public void index(TravelPlan plan) {
+        if (plan.getId() == null || plan.getUser() == null) {
+            return;
+        }
+        long userId = plan.getUser().getId();
+        jdbcTemplate.update("delete from plan_search where rowid = ?", plan.getId());
+        jdbcTemplate.update("insert into plan_search(rowid, destination, preferences, itinerary) values (?, ?, ?, ?)",
+                plan.getId(),
+                SearchTokenizer.indexText(userId, plan.getDestination()),
+                SearchTokenizer.indexText(userId, plan.getPreferences()),
+                SearchTokenizer.indexText(userId, plan.getItinerary()));
+        indexed.incrementAndGet();
+    }
+
+    /**
+     * 只替换行程正文（目的地和偏好不变）
+     */
+    public void updateItinerary(Long planId, Long userId, String itinerary) {
+        jdbcTemplate.update("update plan_search set itinerary = ? where rowid = ?",
+                SearchTokenizer.indexText(userId, itinerary), planId);
+        indexed.incrementAndGet();
+    }
+
+    public void remove(Long planId) {
+        jdbcTemplate.update("delete from plan_search where rowid = ?", planId);
+    }
+
+    /**
+     * 在用户自己的计划中检索，按相关度返回前 limit 个
+     */
+    public List<PlanSearchHit> search(Long userId, String query, int limit) {
+        String match = SearchTokenizer.matchQuery(userId, query);
+        if (match == null) {
+            return new ArrayList<>();
+        }
+        searches.incrementAndGet();
+
+        long start = System.nanoTime();
+        List<Object[]> ranked = jdbcTemplate.query(
+                "select rowid, bm25(plan_search, ?, ?, ?) as score from plan_search "
+                        + "where plan_search match ? order by score, rowid desc limit ?",
+                (rs, i) -> new Object[]{rs.getLong(1), rs.getDouble(2)},
+                destinationWeight, preferencesWeight, itineraryWeight, match, limit);
+        matchLatency.record((System.nanoTime() - start) / 1_000_000);
+        if (ranked.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Long> ids = ranked.stream().map(row -> (Long) row[0]).collect(Collectors.toList());
+        Map<Long, TravelPlan> plans = travelPlanRepository.findWithItineraryBlobByIdIn(ids).stream()
+                .collect(Collectors.toMap(TravelPlan::getId, Function.identity()));
+        List<String> terms = SearchTokenizer.terms(query);
+
+        List<PlanSearchHit> hits = new ArrayList<>();
+        for (Object[] row : ranked) {
+            TravelPlan plan = plans.get((Long) row[0]);
+            // 词带有用户前缀，这里再核对一次归属
+            if (plan == null || plan.getUser() == null || !userId.equals(plan.getUser().getId())) {
+                continue;
+            }
+            // bm25 越小越相关，取相反数便于阅读
+            hits.add(new PlanSearchHit(TravelPlanSummary.of(plan), -(Double) row[1], snippet(plan, terms)));
+        }
+        return hits;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("searches", searches.get());
+        stats.put("indexed", indexed.get());
+        stats.put("matchLatency", matchLatency.snapshot());
+        return stats;
+    }
+
+    /**
+     * 索引为空时（索引表刚由 V4 迁移创建）为已有计划建索引；在行程迁移（ItineraryStore）之后执行
+     */
+    @Order(2)
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        boolean empty = jdbcTemplate.queryForObject("select not exists (select 1 from plan_search)", Boolean.class);
+        if (!empty) {
+            return;
+        }
+        long lastId = 0;
+        int total = 0;
+        List<Map<String, Object>> rows;
+        do {
+            // 先在写线程外读取，写线程只做写入
+            rows = jdbcTemplate.queryForList("select p.id, p.user_id, p.destination, p.preferences, "
+                    + "b.body, b.original_length from travel_plans p "
+                    + "left join itinerary_blobs b on b.hash = p.itinerary_hash "
+                    + "where p.id > ? and p.user_id is not null order by p.id limit ?", lastId, REBUILD_BATCH);
+            List<Map<String, Object>> batch = rows;
+            writeQueue.execute(() -> {
+                for (Map<String, Object> row : batch) {
+                    long userId = ((Number) row.get("user_id")).longValue();
+                    byte[] body = (byte[]) row.get("body");
+                    String itinerary = body == null ? null
+                            : ItineraryCodec.decompress(body, ((Number) row.get("original_length")).intValue());
+                    jdbcTemplate.update("insert into plan_search(rowid, destination, preferences, itinerary) "
+                                    + "values (?, ?, ?, ?)",
+                            row.get("id"),
+                            SearchTokenizer.indexText(userId, (String) row.get("destination")),
+                            SearchTokenizer.indexText(userId, (String) row.get("preferences")),
+                            SearchTokenizer.indexText(userId, itinerary));
+                }
+            });
+            if (!rows.isEmpty()) {
+                lastId = ((Number) rows.get(rows.size() - 1).get("id")).longValue();
+            }
+            total += rows.size();
+        } while (rows.size() == REBUILD_BATCH);
+        if (total > 0) {
+            logger.info("已为 {} 个旅行计划建立全文索引", total);
+        }
+    }
+
+    /**
+     * 按目的地、偏好、行程的顺序找第一个包含查询词的字段，截取命中处前后的文字，命中词用【】标出
+     */
+    private String snippet(TravelPlan plan, List<String> terms) {
+        for (String field : new String[]{plan.getDestination(), plan.getPreferences(), plan.getItinerary()}) {
+            if (field == null) {
+                continue;
+            }
+            String lower = field.toLowerCase(Locale.ROOT);
+            int at = -1;
+            String term = null;
+            for (String candidate : terms) {
+                int index = lower.indexOf(candidate);
+                if (index >= 0 && (at < 0 || index < at)) {
+                    at = index;
+                    term = candidate;
+                }
+            }
+            if (at < 0) {
+                continue;
+            }
+            int from = Math.max(0, at - snippetContext);
+            int to = Math.min(field.length(), at + term.length() + snippetContext);
+            String snippet = (from > 0 ? "…" : "") + field.substring(from, at)
+                    + "【" + field.substring(at, at + term.length()) + "】"
+                    + field.substring(at + term.length(), to) + (to < field.length() ? "…" : "");
+            // 行程正文多行，摘要压成一行
+            return snippet.replaceAll("\\s+", " ");
+        }
+        return null;
+    }
+}
@@ -0,0 +1,105 @@
+package com.travelplanner.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 常用查询的执行计划检查
+ *
+ * 对各仓库查询生成的 SQL 执行 EXPLAIN QUERY PLAN，启动时对没有用上索引（整表 SCAN）的查询打警告，
+ * 结果也可在 /api/monitor/query-plans 查看。索引定义见 db/migration。
+ */
+@Service
+public class QueryPlanChecker {
+    private static final Logger logger = LoggerFactory.getLogger(QueryPlanChecker.class);
+
+    // 与仓库中 JPQL 生成的 SQL 条件和排序一致，只取 id 以免受选择列影响
+    static final Map<String, String> QUERIES = new LinkedHashMap<>();
+
+    static {
+        QUERIES.put("travel-plans.page", "select id from travel_plans where user_id = ? "
+                + "and created_at <= ? and (created_at < ? or id < ?) order by created_at desc, id desc limit ?");
+        QUERIES.put("travel-plans.recent", "select id from travel_plans where created_at > ? order by created_at");
+        QUERIES.put("expenses.page", "select id from expenses where plan_id = ? "
+                + "and expense_date <= ? and (expense_date < ? or id < ?) order by expense_date desc, id desc limit ?");
+        QUERIES.put("expenses.by-category", "select id from expenses where plan_id = ? and category = ?");
+        // 费用汇总：读取汇总行，以及删改费用后重新取分组极值（见 ExpenseService）
+        QUERIES.put("expense-rollups.plan", "select kind from expense_rollups where plan_id = ? order by kind, bucket");
+        QUERIES.put("expense-rollups.bucket", "select expense_count from expense_rollups "
+                + "where plan_id = ? and kind = ? and bucket = ?");
+        QUERIES.put("expenses.plan-extremes", "select min(amount), max(amount) from expenses where plan_id = ?");
+        QUERIES.put("expenses.category-extremes", "select min(amount), max(amount) from expenses "
+                + "where plan_id = ? and category = ?");
+        QUERIES.put("expenses.day-extremes", "select min(amount), max(amount) from expenses "
+                + "where plan_id = ? and expense_date >= ? and expense_date < ?");
+        QUERIES.put("users.by-username", "select id from users where username = ?");
+        QUERIES.put("users.by-email", "select id from users where email = ?");
+        QUERIES.put("plan-jobs.unfinished", "select id from plan_generation_jobs where finished_at is null "
+                + "and status in (?, ?) order by priority desc, created_at asc");
+        QUERIES.put("plan-jobs.count-by-status", "select count(*) from plan_generation_jobs "
+                + "where finished_at is null and status = ?");
+        QUERIES.put("plan-search.match", "select rowid, bm25(plan_search, ?, ?, ?) as score from plan_search "
+                + "where plan_search match ? order by score, rowid desc limit ?");
+        QUERIES.put("itinerary-cache.expired", "delete from itinerary_cache where expires_at < ?");
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void checkOnStartup() {
+        try {
+            check().forEach((name, result) -> {
+                if (Boolean.TRUE.equals(result.get("scan"))) {
+                    logger.warn("查询 {} 未使用索引: {}", name, result.get("plan"));
+                }
+            });
+        } catch (Exception e) {
+            logger.warn("检查查询执行计划失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return 查询名 -> {plan: 执行计划各行, scan: 是否整表扫描}
+     */
+    public Map<String, Map<String, Object>> check() {
+        Map<String, Map<String, Object>> results = new LinkedHashMap<>();
+        QUERIES.forEach((name, sql) -> {
+            List<String> plan = explain(jdbcTemplate, sql);
+            Map<String, Object> result = new HashMap<>();
+            result.put("plan", plan);
+            result.put("scan", isScan(plan));
+            results.put(name, result);
+        });
+        return results;
+    }
+
+    /**
+     * @return EXPLAIN QUERY PLAN 各行的 detail
+     */
+    static List<String> explain(JdbcTemplate jdbcTemplate, String sql) {
+        // 参数取值不影响执行计划，全部传 0（驱动不支持在 EXPLAIN 语句上绑定 null）
+        Object[] args = new Object[sql.length() - sql.replace("?", "").length()];
+        Arrays.fill(args, 0);
+        return jdbcTemplate.query("explain query plan " + sql, (rs, i) -> rs.getString("detail"), args);
+    }
+
+    /**
+     * 整表扫描：SCAN 行没有用上索引。全文检索表的 MATCH 走 FTS 自己的索引（VIRTUAL TABLE INDEX n:M...），不算扫描
+     */
+    static boolean isScan(List<String> plan) {
+        return plan.stream().anyMatch(detail -> detail.startsWith("SCAN ")
+                && !(detail.contains("VIRTUAL TABLE INDEX") && detail.contains(":M")));
+    }
+}
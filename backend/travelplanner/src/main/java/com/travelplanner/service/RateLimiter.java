@@ -0,0 +1,145 @@
+package com.travelplanner.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.travelplanner.config.RateLimitProperties;
+import com.travelplanner.utils.TokenBucket;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * AI接口限流：每个用户每个接口一个令牌桶，另可按接口限制同时处理中的请求数（超出直接拒绝，不排队）
+ * 同时进行的大模型请求数由 AIGateway 的舱壁限制，覆盖流式、批量、异步任务和预生成等所有调用路径
+ */
+@Component
+public class RateLimiter {
+
+    @Autowired
+    private RateLimitProperties properties;
+
+    @Autowired
+    private AIGateway aiGateway;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    private Cache<String, TokenBucket> buckets;
+    private final Map<String, EndpointStats> endpointStats = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        // 长时间不活跃用户的令牌桶必然已满，直接丢弃即可
+        buckets = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMinutes(30))
+                .maximumSize(100000)
+                .build();
+        for (RateLimitProperties.Endpoint endpoint : properties.getEndpoints()) {
+            endpointStats.put(endpoint.getName(), new EndpointStats(endpoint.getMaxConcurrent()));
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * 查找与请求匹配的限流规则，没有则返回 null
+     */
+    public RateLimitProperties.Endpoint match(String method, String path) {
+        for (RateLimitProperties.Endpoint endpoint : properties.getEndpoints()) {
+            if (endpoint.getMethod().equalsIgnoreCase(method) && pathMatcher.match(endpoint.getPath(), path)) {
+                return endpoint;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 扣减用户令牌
+     *
+     * @return 0 表示放行；否则为建议的重试等待毫秒数
+     */
+    public long tryConsume(RateLimitProperties.Endpoint endpoint, String userKey) {
+        TokenBucket bucket = buckets.get(endpoint.getName() + ":" + userKey,
+                k -> new TokenBucket(endpoint.getCapacity(), endpoint.getRefillPerMinute()));
+        long waitMs = bucket.tryConsume();
+        EndpointStats stats = endpointStats.get(endpoint.getName());
+        if (waitMs > 0) {
+            stats.throttled.incrementAndGet();
+        } else {
+            stats.admitted.incrementAndGet();
+        }
+        return waitMs;
+    }
+
+    /**
+     * 占用接口的并发名额，不等待
+     *
+     * @return 是否拿到名额（未配置 max-concurrent 时总是 true）；拿到后必须调用 {@link #release}
+     */
+    public boolean tryAcquire(RateLimitProperties.Endpoint endpoint) {
+        EndpointStats stats = endpointStats.get(endpoint.getName());
+        if (stats.concurrency == null || stats.concurrency.tryAcquire()) {
+            return true;
+        }
+        stats.concurrencyRejected.incrementAndGet();
+        return false;
+    }
+
+    public void release(RateLimitProperties.Endpoint endpoint) {
+        Semaphore concurrency = endpointStats.get(endpoint.getName()).concurrency;
+        if (concurrency != null) {
+            concurrency.release();
+        }
+    }
+
+    /**
+     * 并发名额用尽时建议的重试秒数：与大模型舱壁拒绝时相同
+     */
+    public long busyRetryAfterSeconds() {
+        return aiGateway.retryAfterSeconds();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", properties.isEnabled());
+        stats.put("trackedBuckets", buckets.estimatedSize());
+
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        endpointStats.forEach((name, s) -> {
+            Map<String, Object> m = new HashMap<>();
+            m.put("admitted", s.admitted.get());
+            m.put("throttled", s.throttled.get());
+            if (s.concurrency != null) {
+                m.put("maxConcurrent", s.maxConcurrent);
+                m.put("inFlight", s.maxConcurrent - s.concurrency.availablePermits());
+                m.put("concurrencyRejected", s.concurrencyRejected.get());
+            }
+            endpoints.put(name, m);
+        });
+        stats.put("endpoints", endpoints);
+        return stats;
+    }
+
+    private static class EndpointStats {
+        final int maxConcurrent;
+        final Semaphore concurrency;
+        final AtomicLong admitted = new AtomicLong();
+        final AtomicLong throttled = new AtomicLong();
+        final AtomicLong concurrencyRejected = new AtomicLong();
+
+        EndpointStats(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+            this.concurrency = maxConcurrent > 0 ? new Semaphore(maxConcurrent) : null;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.travelplanner.service;
+
+import com.travelplanner.utils.AhoCorasick;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 旅行词典：启动时把目的地、别名和偏好关键词编译成 Aho-Corasick 自动机，
+ * 一次扫描语音文本即可得到目的地、偏好、出行类型和特殊需求，并给出置信度
+ */
+@Component
+public class TravelGazetteer {
+    private static final Logger logger = LoggerFactory.getLogger(TravelGazetteer.class);
+
+    private static final String ARRIVAL_MARKERS = "去到飞玩游逛";
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    @Value("${app.gazetteer.location:classpath:gazetteer/travel-gazetteer.txt}")
+    private String location;
+
+    private volatile AhoCorasick<List<Entry>> matcher;
+    private volatile int entryCount;
+
+    @PostConstruct
+    public void init() throws IOException {
+        long start = System.currentTimeMillis();
+        Resource resource = resourceLoader.getResource(location);
+        Map<String, List<Entry>> patterns = new HashMap<>();
+        int entries = 0;
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("\\|", -1);
+                if (parts.length < 2) {
+                    logger.warn("词典第{}行格式错误，已忽略: {}", lineNumber, line);
+                    continue;
+                }
+                Category category;
+                try {
+                    category = Category.valueOf(parts[0].trim());
+                } catch (IllegalArgumentException e) {
+                    logger.warn("词典第{}行类型未知，已忽略: {}", lineNumber, parts[0]);
+                    continue;
+                }
+
+                String canonical = parts[1].trim();
+                boolean region = parts.length > 3 && "region".equalsIgnoreCase(parts[3].trim());
+                Entry entry = new Entry(category, canonical, region, lineNumber);
+                entries++;
+
+                Set<String> aliases = new LinkedHashSet<>();
+                aliases.add(canonical);
+                if (parts.length > 2 && !parts[2].trim().isEmpty()) {
+                    for (String alias : parts[2].split(",")) {
+                        aliases.add(alias.trim());
+                    }
+                }
+                for (String alias : aliases) {
+                    if (!alias.isEmpty()) {
+                        patterns.computeIfAbsent(normalize(alias), k -> new ArrayList<>()).add(entry);
+                    }
+                }
+            }
+        }
+
+        AhoCorasick.Builder<List<Entry>> builder = AhoCorasick.builder();
+        patterns.forEach((pattern, list) -> builder.add(pattern, Collections.unmodifiableList(list)));
+        matcher = builder.build();
+        entryCount = entries;
+        logger.info("旅行词典加载完成: {} 条词条, {} 个模式串, 自动机 {} 个节点, 耗时 {}ms",
+                entries, patterns.size(), matcher.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 分析一段语音文本
+     */
+    public Analysis analyze(String text) {
+        Analysis analysis = new Analysis();
+        if (text == null || text.trim().isEmpty()) {
+            return analysis;
+        }
+
+        String normalized = normalize(text);
+        List<AhoCorasick.Match<List<Entry>>> matches = matcher.findLongestNonOverlapping(normalized);
+
+        List<Candidate> cities = new ArrayList<>();
+        List<Candidate> regions = new ArrayList<>();
+        Entry travelType = null;
+        Set<Entry> preferences = new LinkedHashSet<>();
+        Set<Entry> specials = new LinkedHashSet<>();
+
+        for (AhoCorasick.Match<List<Entry>> match : matches) {
+            for (Entry entry : match.getValue()) {
+                switch (entry.category) {
+                    case DEST:
+                        (entry.region ? regions : cities).add(new Candidate(entry, match.getStart(), normalized));
+                        break;
+                    case PREF:
+                        preferences.add(entry);
+                        break;
+                    case TYPE:
+                        if (travelType == null || entry.order < travelType.order) {
+                            travelType = entry;
+                        }
+                        break;
+                    case SPECIAL:
+                        specials.add(entry);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        double confidence = 0;
+        Candidate destination = pickDestination(cities);
+        if (destination != null) {
+            analysis.destination = destination.entry.canonical;
+            confidence += destination.unambiguous ? 0.6 : destination.resolvedByMarker ? 0.5 : 0.35;
+        } else {
+            Candidate region = pickDestination(regions);
+            if (region != null) {
+                analysis.destination = region.entry.canonical;
+                confidence += 0.3;
+            }
+        }
+
+        for (Entry preference : sortByOrder(preferences)) {
+            analysis.preferences.add(preference.canonical);
+        }
+        if (!analysis.preferences.isEmpty()) {
+            confidence += 0.15;
+        }
+        if (travelType != null) {
+            analysis.travelType = travelType.canonical;
+            confidence += 0.1;
+        }
+        for (Entry special : sortByOrder(specials)) {
+            analysis.specialRequirements.add(special.canonical);
+        }
+        analysis.confidence = confidence;
+        return analysis;
+    }
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * 多个不同目的地时，优先取紧跟"去/到/飞"等字之后的那个（"从上海出发去成都" 取成都）
+     */
+    private Candidate pickDestination(List<Candidate> candidates) {
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        Set<String> distinct = new LinkedHashSet<>();
+        for (Candidate candidate : candidates) {
+            distinct.add(candidate.entry.canonical);
+        }
+        if (distinct.size() == 1) {
+            candidates.get(0).unambiguous = true;
+            return candidates.get(0);
+        }
+        for (Candidate candidate : candidates) {
+            if (candidate.afterArrivalMarker) {
+                candidate.resolvedByMarker = true;
+                return candidate;
+            }
+        }
+        return candidates.get(0);
+    }
+
+    private List<Entry> sortByOrder(Set<Entry> entries) {
+        List<Entry> sorted = new ArrayList<>(entries);
+        sorted.sort((a, b) -> Integer.compare(a.order, b.order));
+        return sorted;
+    }
+
+    private static String normalize(String text) {
+        return Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+    }
+
+    enum Category {
+        DEST, PREF, TYPE, SPECIAL
+    }
+
+    private static class Entry {
+        final Category category;
+        final String canonical;
+        final boolean region;
+        final int order;
+
+        Entry(Category category, String canonical, boolean region, int order) {
+            this.category = category;
+            this.canonical = canonical;
+            this.region = region;
+            this.order = order;
+        }
+    }
+
+    private static class Candidate {
+        final Entry entry;
+        final boolean afterArrivalMarker;
+        boolean unambiguous;
+        boolean resolvedByMarker;
+
+        Candidate(Entry entry, int start, String text) {
+            this.entry = entry;
+            boolean marker = false;
+            for (int i = Math.max(0, start - 2); i < start; i++) {
+                marker |= ARRIVAL_MARKERS.indexOf(text.charAt(i)) >= 0;
+            }
+            this.afterArrivalMarker = marker;
+        }
+    }
+
+    /**
+     * 词典分析结果；confidence 在 0~0.85 之间，目的地唯一且识别出偏好和出行类型时最高。
+     * 预算、日期、人数由 {@link com.travelplanner.utils.TravelSlotExtractor} 负责，两者合起来决定能否跳过大模型
+     */
+    public static class Analysis {
+        private String destination;
+        private final List<String> preferences = new ArrayList<>();
+        private String travelType;
+        private final List<String> specialRequirements = new ArrayList<>();
+        private double confidence;
+
+        public String getDestination() { return destination; }
+        public List<String> getPreferences() { return preferences; }
+        public String getTravelType() { return travelType; }
+        public List<String> getSpecialRequirements() { return specialRequirements; }
+        public double getConfidence() { return confidence; }
+    }
+}
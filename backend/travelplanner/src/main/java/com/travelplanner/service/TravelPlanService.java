@@ -1,15 +1,34 @@
 package com.travelplanner.service;
 
+import com.travelplanner.dto.CursorPage;
+import com.travelplanner.dto.TravelPlanSummary;
 import com.travelplanner.entity.TravelPlan;
 import com.travelplanner.entity.User;
 import com.travelplanner.repository.TravelPlanRepository;
+import com.travelplanner.utils.PageCursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 @Service
 public class TravelPlanService {
+    private static final Logger logger = LoggerFactory.getLogger(TravelPlanService.class);
 
     @Autowired
     private TravelPlanRepository travelPlanRepository;
@@ -17,15 +36,125 @@ public class TravelPlanService {
     @Autowired
     private AIService aiService;
 
-    public List<TravelPlan> getUserTravelPlans(Long userId) {
-        return travelPlanRepository.findByUserId(userId);
+    @Autowired
+    private ItineraryStore itineraryStore;
+
+    @Autowired
+    private PlanEventPublisher planEventPublisher;
+
+    @Autowired
+    private ThreadPoolTaskExecutor planGenerationExecutor;
+
+    // 创建计划时等待大模型的最长时间，超过后先返回模板行程
+    @Value("${app.plan-deadline.enabled:true}")
+    private boolean deadlineEnabled;
+
+    @Value("${app.plan-deadline.deadline-ms:3000}")
+    private long deadlineMs;
+
+    private final AtomicLong onTimeCount = new AtomicLong();
+    private final AtomicLong provisionalCount = new AtomicLong();
+    private final AtomicLong backfilledCount = new AtomicLong();
+    private final AtomicLong failedBackfillCount = new AtomicLong();
+
+    /**
+     * 按创建时间分页查询用户的计划摘要
+     *
+     * @param destination 目的地关键字，为空时不过滤
+     * @param cursor      上一页返回的继续标记，第一页为 null
+     */
+    public CursorPage<TravelPlanSummary> getUserTravelPlans(Long userId, String destination, PageCursor cursor,
+                                                            boolean ascending, int pageSize) {
+        String keyword = destination != null && !destination.trim().isEmpty() ? destination.trim() : null;
+        // 多查一行判断是否还有下一页
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        List<TravelPlanSummary> rows;
+        if (ascending) {
+            rows = cursor == null
+                    ? travelPlanRepository.findSummaryPageAsc(userId, keyword, limit)
+                    : travelPlanRepository.findSummaryPageAscAfter(userId, keyword, cursor.getTime(), cursor.getId(), limit);
+        } else {
+            rows = cursor == null
+                    ? travelPlanRepository.findSummaryPageDesc(userId, keyword, limit)
+                    : travelPlanRepository.findSummaryPageDescAfter(userId, keyword, cursor.getTime(), cursor.getId(), limit);
+        }
+        return CursorPage.of(rows, pageSize,
+                last -> new PageCursor(ascending, last.getCreatedAt(), last.getId()).encode());
     }
 
+    /**
+     * 创建旅行计划：截止时间内拿到行程则直接保存；否则先保存模板行程（provisional=true），
+     * 后台继续生成，完成后替换行程并通过 /api/travel-plans/{id}/events 推送 itinerary 事件
+     *
+     * @throws AIBusyException 截止时间内被舱壁拒绝，此时不保存计划
+     */
     public TravelPlan createTravelPlan(TravelPlan travelPlan, User user) {
         travelPlan.setUser(user);
+        if (!deadlineEnabled) {
+            travelPlan.setItinerary(generateItineraryOrMock(travelPlan));
+            return itineraryStore.save(travelPlan);
+        }
+
+        CompletableFuture<String> generation;
+        try {
+            generation = CompletableFuture.supplyAsync(() -> generateItinerary(travelPlan), planGenerationExecutor);
+        } catch (TaskRejectedException e) {
+            logger.warn("行程生成线程池已满，改为同步生成");
+            travelPlan.setItinerary(generateItineraryOrMock(travelPlan));
+            return itineraryStore.save(travelPlan);
+        }
+
+        try {
+            String itinerary = generation.get(deadlineMs, TimeUnit.MILLISECONDS);
+            travelPlan.setItinerary(itinerary != null ? itinerary : generateMockItinerary(travelPlan));
+            onTimeCount.incrementAndGet();
+            return itineraryStore.save(travelPlan);
+        } catch (TimeoutException e) {
+            // 超时：先返回模板行程，真实生成在后台继续
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof AIBusyException) {
+                throw (AIBusyException) e.getCause();
+            }
+            // 生成本身失败，不会再有回填，模板行程即为最终结果
+            logger.error("生成行程失败", e.getCause());
+            travelPlan.setItinerary(generateMockItinerary(travelPlan));
+            return itineraryStore.save(travelPlan);
+        }
+
+        travelPlan.setItinerary(generateMockItinerary(travelPlan));
+        travelPlan.setProvisional(true);
+        travelPlan.setItineraryVersion(1);
+        TravelPlan savedPlan = itineraryStore.save(travelPlan);
+        provisionalCount.incrementAndGet();
+        logger.info("行程生成超过{}ms，计划 {} 先返回临时行程", deadlineMs, savedPlan.getId());
+
+        generation.whenComplete((itinerary, error) -> backfillItinerary(savedPlan.getId(), 1, itinerary, error));
+        return savedPlan;
+    }
+
+    /**
+     * 调用AI服务生成行程，失败时返回 null（由调用方决定是否使用模板行程），被舱壁拒绝时抛出 AIBusyException
+     */
+    private String generateItinerary(TravelPlan travelPlan) {
+        return aiService.tryGenerateItinerary(
+                travelPlan.getDestination(),
+                travelPlan.getStartDate().toString(),
+                travelPlan.getEndDate().toString(),
+                travelPlan.getBudget(),
+                travelPlan.getTravelerCount(),
+                travelPlan.getPreferences()
+        );
+    }
 
-        // 调用AI服务生成行程
-        String itinerary = aiService.generateItinerary(
+    private String generateItineraryOrMock(TravelPlan travelPlan) {
+        String itinerary = generateItinerary(travelPlan);
+        return itinerary != null ? itinerary : generateMockItinerary(travelPlan);
+    }
+
+    private String generateMockItinerary(TravelPlan travelPlan) {
+        return aiService.generateMockItinerary(
                 travelPlan.getDestination(),
                 travelPlan.getStartDate().toString(),
                 travelPlan.getEndDate().toString(),
@@ -33,9 +162,87 @@ public class TravelPlanService {
                 travelPlan.getTravelerCount(),
                 travelPlan.getPreferences()
         );
+    }
+
+    /**
+     * 后台生成完成后原子替换临时行程，并通知订阅者
+     * 只回填大模型的真实输出；生成失败时保留临时行程，版本号不变
+     */
+    private void backfillItinerary(Long planId, int version, String itinerary, Throwable error) {
+        if (error != null || itinerary == null) {
+            failedBackfillCount.incrementAndGet();
+            logger.error("计划 {} 后台生成行程失败，保留临时行程", planId, error);
+            Map<String, Object> failure = new HashMap<>();
+            failure.put("planId", planId);
+            failure.put("itineraryVersion", version);
+            failure.put("message", "AI行程生成失败，保留当前行程");
+            planEventPublisher.publishAndComplete(planId, "failed", failure);
+            return;
+        }
+        if (!itineraryStore.replaceProvisionalItinerary(planId, version, itinerary)) {
+            logger.info("计划 {} 已删除或行程已被替换，跳过回填", planId);
+            return;
+        }
+        backfilledCount.incrementAndGet();
+        travelPlanRepository.findWithItineraryBlobById(planId).ifPresent(plan ->
+                planEventPublisher.publishAndComplete(planId, "itinerary", toItineraryView(plan)));
+    }
+
+    public Map<String, Object> toItineraryView(TravelPlan plan) {
+        Map<String, Object> view = new HashMap<>();
+        view.put("planId", plan.getId());
+        view.put("itineraryVersion", plan.getItineraryVersion());
+        view.put("provisional", Boolean.TRUE.equals(plan.getProvisional()));
+        view.put("itinerary", plan.getItinerary());
+        return view;
+    }
+
+    public Map<String, Object> getDeadlineStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", deadlineEnabled);
+        stats.put("deadlineMs", deadlineMs);
+        stats.put("onTime", onTimeCount.get());
+        stats.put("provisional", provisionalCount.get());
+        stats.put("backfilled", backfilledCount.get());
+        stats.put("backfillFailed", failedBackfillCount.get());
+        stats.put("activeGenerations", planGenerationExecutor.getActiveCount());
+        stats.put("queued", planGenerationExecutor.getThreadPoolExecutor().getQueue().size());
+        return stats;
+    }
+
+    /**
+     * 保存已经生成好行程的旅行计划，不再重复调用AI
+     */
+    public TravelPlan createTravelPlanWithItinerary(TravelPlan travelPlan, User user) {
+        if (travelPlan.getItinerary() == null || travelPlan.getItinerary().trim().isEmpty()) {
+            return createTravelPlan(travelPlan, user);
+        }
+        travelPlan.setUser(user);
+        return itineraryStore.save(travelPlan);
+    }
+
+    /**
+     * 流式创建旅行计划：行程分片实时回调，生成完成后保存完整行程
+     *
+     * @param onReset 上游流中途失败、已推送的分片作废时回调，之后推送的是降级行程
+     */
+    public TravelPlan createTravelPlanStreaming(TravelPlan travelPlan, User user, Consumer<String> onChunk,
+                                                Runnable onReset) {
+        travelPlan.setUser(user);
+
+        String itinerary = aiService.streamItinerary(
+                travelPlan.getDestination(),
+                travelPlan.getStartDate().toString(),
+                travelPlan.getEndDate().toString(),
+                travelPlan.getBudget(),
+                travelPlan.getTravelerCount(),
+                travelPlan.getPreferences(),
+                onChunk,
+                onReset
+        );
 
         travelPlan.setItinerary(itinerary);
-        return travelPlanRepository.save(travelPlan);
+        return itineraryStore.save(travelPlan);
     }
 
     public TravelPlan getTravelPlan(Long planId) {
@@ -43,14 +250,14 @@ public class TravelPlanService {
                 .orElseThrow(() -> new RuntimeException("旅行计划不存在"));
     }
 
-    public void deleteTravelPlan(Long planId) {
-        travelPlanRepository.deleteById(planId);
+    /**
+     * 计划是否存在且属于该用户，只查 travel_plans 一张表
+     */
+    public boolean isOwnedBy(Long planId, Long userId) {
+        return travelPlanRepository.existsByIdAndUserId(planId, userId);
     }
 
-    public List<TravelPlan> searchTravelPlans(Long userId, String destination) {
-        if (destination != null && !destination.trim().isEmpty()) {
-            return travelPlanRepository.findByDestinationContainingIgnoreCase(destination);
-        }
-        return getUserTravelPlans(userId);
+    public void deleteTravelPlan(Long planId) {
+        itineraryStore.delete(planId);
     }
 }
\ No newline at end of file
@@ -17,6 +17,9 @@ public class UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private WriteQueue writeQueue;
+
     public User registerUser(User user) {
         if (userRepository.existsByUsername(user.getUsername())) {
             throw new RuntimeException("用户名已存在");
@@ -26,8 +29,20 @@ public class UserService {
             throw new RuntimeException("邮箱已被注册");
         }
 
+        // 密码哈希较慢，在写入队列外完成；成组提交失败重试时先恢复ID
         user.setPassword(passwordEncoder.encode(user.getPassword()));
-        return userRepository.save(user);
+        Long id = user.getId();
+        return writeQueue.execute(() -> {
+            // 写入是串行的，在写线程中再检查一次，并发注册同一用户名时只有一个成功
+            if (userRepository.existsByUsername(user.getUsername())) {
+                throw new RuntimeException("用户名已存在");
+            }
+            if (userRepository.existsByEmail(user.getEmail())) {
+                throw new RuntimeException("邮箱已被注册");
+            }
+            user.setId(id);
+            return userRepository.save(user);
+        });
     }
 
     public Optional<User> findByUsername(String username) {
@@ -0,0 +1,78 @@
+package com.travelplanner.service;
+
+import com.travelplanner.dto.ParsedTravelRequest;
+import com.travelplanner.entity.TravelPlan;
+import com.travelplanner.entity.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 语音规划流水线
+ *
+ * analyze: 一次大模型调用完成需求解析和行程生成
+ * build:   将解析结果转换为旅行计划
+ * persist: 直接保存已生成的行程，不再重新生成
+ */
+@Service
+public class VoicePlanPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(VoicePlanPipeline.class);
+
+    @Autowired
+    private AIService aiService;
+
+    @Autowired
+    private TravelPlanService travelPlanService;
+
+    public Map<String, Object> run(String voiceText, User user) {
+        Map<String, Long> timings = new LinkedHashMap<>();
+        long pipelineStart = System.nanoTime();
+
+        Map<String, Object> aiResult = timed(timings, "analyze", () -> aiService.parseVoiceAndGeneratePlan(voiceText));
+        if (aiResult.containsKey("error")) {
+            throw new RuntimeException((String) aiResult.get("error"));
+        }
+
+        TravelPlan travelPlan = timed(timings, "build", () -> toTravelPlan(aiResult));
+        TravelPlan savedPlan = timed(timings, "persist", () -> travelPlanService.createTravelPlanWithItinerary(travelPlan, user));
+
+        timings.put("total", (System.nanoTime() - pipelineStart) / 1_000_000);
+        logger.info("语音规划完成，各阶段耗时(ms): {}", timings);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("plan", savedPlan);
+        response.put("aiAnalysis", aiResult);
+        response.put("timings", timings);
+        return response;
+    }
+
+    private <T> T timed(Map<String, Long> timings, String stage, Supplier<T> action) {
+        long start = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            timings.put(stage, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private TravelPlan toTravelPlan(Map<String, Object> aiResult) {
+        ParsedTravelRequest parsedInfo = (ParsedTravelRequest) aiResult.get("parsedInfo");
+
+        TravelPlan plan = new TravelPlan();
+        plan.setDestination(parsedInfo.getDestination());
+        plan.setStartDate(LocalDate.parse(parsedInfo.getStartDate()));
+        plan.setEndDate(LocalDate.parse(parsedInfo.getEndDate()));
+        plan.setBudget(parsedInfo.getBudget());
+        plan.setTravelerCount(parsedInfo.getTravelerCount());
+        plan.setPreferences(String.join(",", parsedInfo.getPreferences()));
+        plan.setItinerary((String) aiResult.get("itinerary"));
+        return plan;
+    }
+}
@@ -0,0 +1,311 @@
+package com.travelplanner.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.travelplanner.dto.ParsedTravelRequest;
+import com.travelplanner.entity.User;
+import com.travelplanner.utils.LatencyTracker;
+import com.travelplanner.utils.TravelSlotExtractor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 增量语音输入会话
+ *
+ * 前端边说边上传识别中的文本，每次更新都做一次本地规则解析；目的地和天数连续几次不变后，
+ * 按当前解析结果在后台提前生成行程（写入行程缓存），用户说完提交时直接命中缓存或等待已在进行的生成。
+ * 解析结果变化导致缓存键不同时取消旧的预生成。
+ */
+@Service
+public class VoiceSessionService {
+    private static final Logger logger = LoggerFactory.getLogger(VoiceSessionService.class);
+
+    @Autowired
+    private AIService aiService;
+
+    @Autowired
+    private ItineraryCache itineraryCache;
+
+    @Autowired
+    private VoicePlanPipeline voicePlanPipeline;
+
+    @Autowired
+    private ThreadPoolTaskExecutor voiceSpeculationExecutor;
+
+    @Value("${app.voice-session.idle-seconds:120}")
+    private long idleSeconds;
+
+    @Value("${app.voice-session.max-sessions:1000}")
+    private long maxSessions;
+
+    @Value("${app.voice-session.stable-updates:2}")
+    private int stableUpdates;
+
+    @Value("${app.voice-session.max-speculations:3}")
+    private int maxSpeculations;
+
+    @Value("${app.voice-session.finish-wait-ms:30000}")
+    private long finishWaitMs;
+
+    // key 为 用户ID:会话ID，不同用户的会话互不可见
+    private Cache<String, Session> sessions;
+
+    private final AtomicLong updates = new AtomicLong();
+    private final AtomicLong staleUpdates = new AtomicLong();
+    private final AtomicLong speculationsStarted = new AtomicLong();
+    private final AtomicLong speculationsCompleted = new AtomicLong();
+    private final AtomicLong speculationsCancelled = new AtomicLong();
+    private final AtomicLong speculationsFailed = new AtomicLong();
+    private final AtomicLong speculationsRejected = new AtomicLong();
+    private final AtomicLong finishes = new AtomicLong();
+    private final AtomicLong speculationHits = new AtomicLong();
+    // 提交到返回的耗时，按是否命中预生成分开统计
+    private final LatencyTracker finishWithSpeculation = new LatencyTracker(500);
+    private final LatencyTracker finishWithoutSpeculation = new LatencyTracker(500);
+
+    @PostConstruct
+    public void init() {
+        sessions = Caffeine.newBuilder()
+                .maximumSize(maxSessions)
+                .expireAfterAccess(Duration.ofSeconds(idleSeconds))
+                .<String, Session>removalListener((key, session, cause) -> {
+                    // 会话被放弃（超时或被挤出）时停止它的预生成
+                    if (session != null && cause.wasEvicted()) {
+                        synchronized (session) {
+                            cancelSpeculation(session);
+                        }
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * 接收一段识别中的文本（整句，不是增量片段）
+     *
+     * @param seq 前端递增的序号，乱序到达的旧文本直接忽略
+     * @return 当前解析结果和预生成状态
+     */
+    public Map<String, Object> update(String sessionId, User user, String text, int seq) {
+        Session session = sessions.get(user.getId() + ":" + sessionId, k -> new Session());
+        synchronized (session) {
+            if (seq <= session.lastSeq) {
+                staleUpdates.incrementAndGet();
+                return view(session);
+            }
+            session.lastSeq = seq;
+            String trimmed = text == null ? "" : text.trim();
+            if (trimmed.equals(session.text)) {
+                return view(session);
+            }
+            session.text = trimmed;
+            updates.incrementAndGet();
+
+            ParsedTravelRequest parsed = aiService.previewLocalParse(trimmed);
+            session.parsed = parsed;
+            String signature = parsed != null ? signatureOf(parsed, trimmed) : null;
+            if (signature != null && signature.equals(session.signature)) {
+                session.stableCount++;
+            } else {
+                session.signature = signature;
+                session.stableCount = signature != null ? 1 : 0;
+            }
+
+            ItineraryCacheKey key = parsed != null ? keyOf(parsed) : null;
+            if (session.speculationKey != null && !session.speculationKey.equals(key)) {
+                cancelSpeculation(session);
+            }
+            if (key != null && session.stableCount >= stableUpdates && session.speculation == null
+                    && session.speculationCount < maxSpeculations) {
+                startSpeculation(session, parsed, key);
+            }
+            return view(session);
+        }
+    }
+
+    /**
+     * 用户说完后提交最终文本，走正常的语音规划流水线
+     *
+     * 最终文本的缓存键与预生成一致时先等待预生成完成，流水线随后直接命中行程缓存；不一致则取消预生成。
+     */
+    public Map<String, Object> finish(String sessionId, User user, String voiceText) {
+        long start = System.currentTimeMillis();
+        finishes.incrementAndGet();
+        Session session = sessions.asMap().remove(user.getId() + ":" + sessionId);
+
+        boolean hit = false;
+        if (session != null) {
+            Future<?> pending = null;
+            synchronized (session) {
+                ParsedTravelRequest parsed = aiService.previewLocalParse(voiceText);
+                if (session.speculationKey != null && parsed != null && session.speculationKey.equals(keyOf(parsed))) {
+                    hit = true;
+                    pending = session.speculation;
+                } else {
+                    cancelSpeculation(session);
+                }
+            }
+            if (pending != null) {
+                awaitSpeculation(pending);
+            }
+        }
+
+        Map<String, Object> response = voicePlanPipeline.run(voiceText, user);
+        response.put("speculation", hit ? "hit" : "miss");
+        long elapsed = System.currentTimeMillis() - start;
+        if (hit) {
+            speculationHits.incrementAndGet();
+            finishWithSpeculation.record(elapsed);
+        } else {
+            finishWithoutSpeculation.record(elapsed);
+        }
+        return response;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("activeSessions", sessions.estimatedSize());
+        stats.put("updates", updates.get());
+        stats.put("staleUpdates", staleUpdates.get());
+        stats.put("stableUpdates", stableUpdates);
+
+        Map<String, Object> speculation = new HashMap<>();
+        speculation.put("started", speculationsStarted.get());
+        speculation.put("completed", speculationsCompleted.get());
+        speculation.put("cancelled", speculationsCancelled.get());
+        speculation.put("failed", speculationsFailed.get());
+        speculation.put("rejected", speculationsRejected.get());
+        speculation.put("active", voiceSpeculationExecutor.getActiveCount());
+        stats.put("speculation", speculation);
+
+        stats.put("finishes", finishes.get());
+        stats.put("speculationHits", speculationHits.get());
+        stats.put("finishLatencyWithSpeculation", finishWithSpeculation.snapshot());
+        stats.put("finishLatencyWithoutSpeculation", finishWithoutSpeculation.snapshot());
+        return stats;
+    }
+
+    private void startSpeculation(Session session, ParsedTravelRequest parsed, ItineraryCacheKey key) {
+        String preferences = String.join(",", parsed.getPreferences());
+        // 任务开始运行和取消只有一方能认领，每次预生成只计入 completed / failed / cancelled 之一
+        AtomicBoolean claimed = new AtomicBoolean(false);
+        try {
+            // 成功时写入行程缓存；被取消时中断等待并中止上游请求，不写缓存，也不生成模拟数据
+            session.speculation = voiceSpeculationExecutor.submit(() -> {
+                if (!claimed.compareAndSet(false, true)) {
+                    return;
+                }
+                String itinerary;
+                try {
+                    itinerary = aiService.tryGenerateItinerary(parsed.getDestination(), parsed.getStartDate(),
+                            parsed.getEndDate(), parsed.getBudget(), parsed.getTravelerCount(), preferences);
+                } catch (AIBusyException e) {
+                    // 舱壁已满时放弃预生成，提交时按正常流程处理
+                    speculationsRejected.incrementAndGet();
+                    return;
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    speculationsCancelled.incrementAndGet();
+                } else if (itinerary != null) {
+                    speculationsCompleted.incrementAndGet();
+                } else {
+                    speculationsFailed.incrementAndGet();
+                }
+            });
+            session.speculationClaimed = claimed;
+            session.speculationKey = key;
+            session.speculationCount++;
+            speculationsStarted.incrementAndGet();
+            logger.debug("开始预生成行程: {}", key);
+        } catch (TaskRejectedException e) {
+            // 线程池已满时不预生成，提交时按正常流程处理
+            speculationsRejected.incrementAndGet();
+        }
+    }
+
+    private void cancelSpeculation(Session session) {
+        if (session.speculation != null) {
+            // 正在运行的任务被中断后自行计入 cancelled，这里只统计还没开始运行的
+            session.speculation.cancel(true);
+            if (session.speculationClaimed.compareAndSet(false, true)) {
+                speculationsCancelled.incrementAndGet();
+            }
+            logger.debug("取消过期的预生成: {}", session.speculationKey);
+        }
+        session.speculation = null;
+        session.speculationClaimed = null;
+        session.speculationKey = null;
+    }
+
+    private void awaitSpeculation(Future<?> pending) {
+        try {
+            pending.get(finishWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException | CancellationException e) {
+            // 流水线会重新生成
+            logger.warn("等待预生成行程失败: {}", e.toString());
+        }
+    }
+
+    /**
+     * 目的地和天数都已明确说出时返回 "目的地|天数"，否则返回 null
+     */
+    private String signatureOf(ParsedTravelRequest parsed, String text) {
+        TravelSlotExtractor.Slots slots = TravelSlotExtractor.extract(text, LocalDate.now());
+        if (slots.getDays() == null && slots.getEndDate() == null) {
+            // 没说天数时结束日期只是默认值，还不稳定
+            return null;
+        }
+        int days = ItineraryCacheKey.tripDays(parsed.getStartDate(), parsed.getEndDate());
+        return parsed.getDestination() + "|" + days;
+    }
+
+    private ItineraryCacheKey keyOf(ParsedTravelRequest parsed) {
+        return itineraryCache.keyOf(parsed.getDestination(), parsed.getStartDate(), parsed.getEndDate(),
+                parsed.getBudget(), parsed.getTravelerCount(), String.join(",", parsed.getPreferences()));
+    }
+
+    private Map<String, Object> view(Session session) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("seq", session.lastSeq);
+        result.put("parsedInfo", session.parsed);
+        result.put("stable", session.stableCount >= stableUpdates);
+        String speculation = "none";
+        if (session.speculation != null) {
+            speculation = session.speculation.isDone() ? "ready" : "running";
+        }
+        result.put("speculation", speculation);
+        return result;
+    }
+
+    private static class Session {
+        int lastSeq = -1;
+        String text = "";
+        ParsedTravelRequest parsed;
+        String signature;
+        int stableCount;
+        Future<?> speculation;
+        AtomicBoolean speculationClaimed;
+        ItineraryCacheKey speculationKey;
+        int speculationCount;
+    }
+}
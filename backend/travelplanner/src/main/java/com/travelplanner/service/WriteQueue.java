@@ -0,0 +1,272 @@
+package com.travelplanner.service;
+
+import com.travelplanner.config.SqliteRoutingDataSource;
+import com.travelplanner.utils.LatencyTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * SQLite 写入队列
+ *
+ * SQLite 同一时刻只允许一个写事务。所有写入都交给这里的单个写线程执行，写线程使用唯一的写连接，
+ * 每次取出队列中积压的全部任务（最多 max-batch 个），在一个事务中依次执行后一起提交（成组提交）。
+ * 并发越高，每次提交摊到的任务越多，写锁的交接和磁盘同步次数不随请求数增长。
+ *
+ * 成组提交失败时整组回滚，组内任务再逐个单独执行一次，只有自身出错的任务把异常返回给调用方。
+ * 因此任务可能被执行两次，需可重复执行：例如先把实体ID恢复为提交前的值（见 ItineraryStore.save）。
+ */
+@Service
+public class WriteQueue {
+    private static final Logger logger = LoggerFactory.getLogger(WriteQueue.class);
+
+    private static final List<String> CHECKPOINT_MODES = Arrays.asList("PASSIVE", "FULL", "RESTART", "TRUNCATE");
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.sqlite.write-queue.capacity:1000}")
+    private int capacity;
+
+    @Value("${app.sqlite.write-queue.max-batch:64}")
+    private int maxBatch;
+
+    // 队列已满时调用方最多等待的时间
+    @Value("${app.sqlite.write-queue.offer-timeout-ms:5000}")
+    private long offerTimeoutMs;
+
+    @Value("${app.sqlite.checkpoint.enabled:true}")
+    private boolean checkpointEnabled;
+
+    @Value("${app.sqlite.checkpoint.mode:PASSIVE}")
+    private String checkpointMode;
+
+    private BlockingQueue<Task<?>> queue;
+    private Thread writer;
+    private volatile boolean running = true;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong committedTasks = new AtomicLong();
+    private final AtomicLong groupFailures = new AtomicLong();
+    private final AtomicLong failedTasks = new AtomicLong();
+    private final AtomicLong maxGroupSize = new AtomicLong();
+    private final AtomicLong checkpoints = new AtomicLong();
+    private volatile Map<String, Object> lastCheckpoint;
+    // 组提交耗时（开始事务到提交完成，微秒），以及调用方从入队到拿到结果的耗时（毫秒）
+    private final LatencyTracker commitLatency = new LatencyTracker(500);
+    private final LatencyTracker waitLatency = new LatencyTracker(500);
+    private final LatencyTracker groupSize = new LatencyTracker(500);
+
+    @PostConstruct
+    public void init() {
+        checkpointMode = checkpointMode.trim().toUpperCase();
+        if (!CHECKPOINT_MODES.contains(checkpointMode)) {
+            throw new IllegalStateException("不支持的检查点模式: " + checkpointMode);
+        }
+        queue = new ArrayBlockingQueue<>(capacity);
+        writer = new Thread(this::run, "sqlite-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // 已入队的任务执行完再退出
+        running = false;
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    /**
+     * 在写线程中执行一次写入并等待提交完成
+     *
+     * @return 任务的返回值
+     * @throws RejectedExecutionException 队列已满
+     */
+    public <T> T execute(Supplier<T> work) {
+        if (Thread.currentThread() == writer) {
+            // 写线程内的嵌套调用直接加入当前组
+            return work.get();
+        }
+        long start = System.currentTimeMillis();
+        Task<T> task = new Task<>(work);
+        submitted.incrementAndGet();
+        try {
+            if (!queue.offer(task, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                rejected.incrementAndGet();
+                throw new RejectedExecutionException("数据库写入队列已满，请稍后重试");
+            }
+            return task.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待数据库写入时被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            waitLatency.record(System.currentTimeMillis() - start);
+        }
+    }
+
+    public void execute(Runnable work) {
+        execute(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * 定时检查点：把 WAL 中的页写回数据库文件，避免 WAL 在持续读取时无限增长
+     *
+     * 在调度线程上以自动提交方式执行，不占用写线程；PASSIVE 不等待读写，其余模式会等待写锁。
+     */
+    @Scheduled(fixedDelayString = "${app.sqlite.checkpoint.interval-ms:60000}",
+            initialDelayString = "${app.sqlite.checkpoint.interval-ms:60000}")
+    public void checkpoint() {
+        if (!checkpointEnabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Map<String, Object> row = jdbcTemplate.queryForMap("pragma wal_checkpoint(" + checkpointMode + ")");
+        Map<String, Object> result = new HashMap<>();
+        // busy 为 1 表示未能完成（有读写在进行），log 为 WAL 中的页数，checkpointed 为已写回的页数
+        result.put("busy", row.get("busy"));
+        result.put("log", row.get("log"));
+        result.put("checkpointed", row.get("checkpointed"));
+        result.put("elapsedMs", System.currentTimeMillis() - start);
+        lastCheckpoint = result;
+        checkpoints.incrementAndGet();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("queued", queue.size());
+        stats.put("capacity", capacity);
+        stats.put("maxBatch", maxBatch);
+        stats.put("submitted", submitted.get());
+        stats.put("rejected", rejected.get());
+        stats.put("commits", commits.get());
+        stats.put("committedTasks", committedTasks.get());
+        stats.put("avgGroupSize", commits.get() == 0 ? 0.0 : (double) committedTasks.get() / commits.get());
+        stats.put("maxGroupSize", maxGroupSize.get());
+        stats.put("groupSize", groupSize.snapshot());
+        stats.put("groupFailures", groupFailures.get());
+        stats.put("failedTasks", failedTasks.get());
+        stats.put("commitLatencyMicros", commitLatency.snapshot());
+        stats.put("waitLatency", waitLatency.snapshot());
+
+        Map<String, Object> checkpoint = new HashMap<>();
+        checkpoint.put("enabled", checkpointEnabled);
+        checkpoint.put("mode", checkpointMode);
+        checkpoint.put("count", checkpoints.get());
+        checkpoint.put("last", lastCheckpoint);
+        stats.put("checkpoint", checkpoint);
+        return stats;
+    }
+
+    private void run() {
+        SqliteRoutingDataSource.useWriterConnection();
+        List<Task<?>> group = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Task<?> first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                queue.drainTo(group, maxBatch - 1);
+                commitGroup(group);
+            } catch (InterruptedException e) {
+                // shutdown 时唤醒，处理完剩余任务后退出
+            } catch (Throwable t) {
+                logger.error("写线程执行失败", t);
+                group.forEach(task -> task.result.completeExceptionally(t));
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void commitGroup(List<Task<?>> group) {
+        long start = System.nanoTime();
+        try {
+            transactionTemplate.execute(status -> {
+                group.forEach(Task::run);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            if (group.size() == 1) {
+                failedTasks.incrementAndGet();
+                group.get(0).result.completeExceptionally(e);
+                return;
+            }
+            // 分不清是哪个任务导致的，逐个单独提交
+            groupFailures.incrementAndGet();
+            logger.warn("成组提交 {} 个写入失败，改为逐个提交: {}", group.size(), e.toString());
+            for (Task<?> task : group) {
+                commitGroup(Collections.singletonList(task));
+            }
+            return;
+        }
+        commitLatency.record((System.nanoTime() - start) / 1000);
+        commits.incrementAndGet();
+        committedTasks.addAndGet(group.size());
+        groupSize.record(group.size());
+        maxGroupSize.accumulateAndGet(group.size(), Math::max);
+        group.forEach(Task::complete);
+    }
+
+    private static class Task<T> {
+        final Supplier<T> work;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        T value;
+
+        Task(Supplier<T> work) {
+            this.work = work;
+        }
+
+        void run() {
+            value = work.get();
+        }
+
+        /**
+         * 提交成功后才把结果交给调用方
+         */
+        void complete() {
+            result.complete(value);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.travelplanner.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/**
+ * Aho-Corasick 多模式匹配：一次扫描文本即可找出所有词典词的出现位置，耗时与词典大小无关
+ *
+ * 构建完成后只读，可被多线程共享。每个节点的转移表压缩为有序 char 数组 + 二分查找，
+ * 适合中文这种字符集很大但每个节点分支很少的场景。
+ */
+public class AhoCorasick<V> {
+
+    private final char[][] keys;
+    private final int[][] targets;
+    private final int[] fail;
+    private final int[] outputLink;
+    private final int[] lengths;
+    private final List<V> values;
+
+    private AhoCorasick(char[][] keys, int[][] targets, int[] fail, int[] outputLink, int[] lengths, List<V> values) {
+        this.keys = keys;
+        this.targets = targets;
+        this.fail = fail;
+        this.outputLink = outputLink;
+        this.lengths = lengths;
+        this.values = values;
+    }
+
+    public static <V> Builder<V> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * 找出文本中所有匹配（可能重叠），按结束位置排序
+     */
+    public List<Match<V>> findAll(CharSequence text) {
+        List<Match<V>> matches = new ArrayList<>();
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int next;
+            while ((next = transition(state, c)) < 0 && state != 0) {
+                state = fail[state];
+            }
+            state = Math.max(next, 0);
+
+            int node = values.get(state) != null ? state : outputLink[state];
+            while (node > 0) {
+                matches.add(new Match<>(i + 1 - lengths[node], i + 1, values.get(node)));
+                node = outputLink[node];
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * 从左到右选取互不重叠的匹配，起点相同时取最长的（"四川成都" 优先于 "四川"、"成都"）
+     */
+    public List<Match<V>> findLongestNonOverlapping(CharSequence text) {
+        List<Match<V>> all = findAll(text);
+        all.sort(Comparator.<Match<V>>comparingInt(m -> m.start).thenComparing(m -> -m.end));
+
+        List<Match<V>> selected = new ArrayList<>();
+        int coveredUntil = 0;
+        for (Match<V> match : all) {
+            if (match.start >= coveredUntil) {
+                selected.add(match);
+                coveredUntil = match.end;
+            }
+        }
+        return selected;
+    }
+
+    public int size() {
+        return fail.length;
+    }
+
+    private int transition(int state, char c) {
+        int index = Arrays.binarySearch(keys[state], c);
+        return index >= 0 ? targets[state][index] : -1;
+    }
+
+    public static class Match<V> {
+        private final int start;
+        private final int end;
+        private final V value;
+
+        Match(int start, int end, V value) {
+            this.start = start;
+            this.end = end;
+            this.value = value;
+        }
+
+        public int getStart() { return start; }
+        public int getEnd() { return end; }
+        public V getValue() { return value; }
+
+        @Override
+        public String toString() {
+            return "[" + start + "," + end + ")=" + value;
+        }
+    }
+
+    public static class Builder<V> {
+        private final List<TreeMap<Character, Integer>> children = new ArrayList<>();
+        private final List<V> values = new ArrayList<>();
+        private final List<Integer> lengths = new ArrayList<>();
+
+        Builder() {
+            newNode(0);
+        }
+
+        /**
+         * 添加模式串，重复添加同一模式串时后者覆盖前者
+         */
+        public Builder<V> add(String pattern, V value) {
+            if (pattern == null || pattern.isEmpty()) {
+                return this;
+            }
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                Integer next = children.get(state).get(pattern.charAt(i));
+                if (next == null) {
+                    next = newNode(i + 1);
+                    children.get(state).put(pattern.charAt(i), next);
+                }
+                state = next;
+            }
+            values.set(state, value);
+            return this;
+        }
+
+        public AhoCorasick<V> build() {
+            int size = children.size();
+            char[][] keys = new char[size][];
+            int[][] targets = new int[size][];
+            int[] fail = new int[size];
+            int[] outputLink = new int[size];
+            int[] lengthArray = new int[size];
+
+            for (int node = 0; node < size; node++) {
+                TreeMap<Character, Integer> edges = children.get(node);
+                keys[node] = new char[edges.size()];
+                targets[node] = new int[edges.size()];
+                int i = 0;
+                for (Map.Entry<Character, Integer> edge : edges.entrySet()) {
+                    keys[node][i] = edge.getKey();
+                    targets[node][i] = edge.getValue();
+                    i++;
+                }
+                lengthArray[node] = lengths.get(node);
+            }
+
+            // 广度优先计算失败指针和输出链接（沿失败链最近的一个完整模式串节点）
+            Queue<Integer> queue = new ArrayDeque<>();
+            for (int child : targets[0]) {
+                queue.add(child);
+            }
+            while (!queue.isEmpty()) {
+                int node = queue.poll();
+                for (int i = 0; i < keys[node].length; i++) {
+                    char c = keys[node][i];
+                    int child = targets[node][i];
+                    int f = fail[node];
+                    int next;
+                    while ((next = find(keys, targets, f, c)) < 0 && f != 0) {
+                        f = fail[f];
+                    }
+                    fail[child] = next >= 0 && next != child ? next : 0;
+                    outputLink[child] = values.get(fail[child]) != null ? fail[child] : outputLink[fail[child]];
+                    queue.add(child);
+                }
+            }
+
+            return new AhoCorasick<>(keys, targets, fail, outputLink, lengthArray, new ArrayList<>(values));
+        }
+
+        private static int find(char[][] keys, int[][] targets, int state, char c) {
+            int index = Arrays.binarySearch(keys[state], c);
+            return index >= 0 ? targets[state][index] : -1;
+        }
+
+        private int newNode(int length) {
+            children.add(new TreeMap<>());
+            values.add(null);
+            lengths.add(length);
+            return children.size() - 1;
+        }
+    }
+}
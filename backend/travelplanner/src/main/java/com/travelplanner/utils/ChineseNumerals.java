@@ -0,0 +1,143 @@
+package com.travelplanner.utils;
+
+/**
+ * 中文/阿拉伯混合数字解析：三千五、一万二、1.5万、两百、一千零五十、5千 等
+ *
+ * 直接在原字符串的区间上解析，不创建子串。
+ */
+public final class ChineseNumerals {
+
+    private ChineseNumerals() {
+    }
+
+    /**
+     * 可以作为数字开头的字符（单独的"百千万"不算）
+     */
+    public static boolean isNumeralStart(char c) {
+        return (c >= '0' && c <= '9') || digitOf(c) >= 0 || c == '十';
+    }
+
+    /**
+     * 数字中可以出现的字符
+     */
+    public static boolean isNumeralChar(char c) {
+        return isNumeralStart(c) || c == '.' || c == '百' || c == '千' || c == '万';
+    }
+
+    /**
+     * 从 start 开始找到数字串的结束位置（不含）
+     */
+    public static int scanEnd(CharSequence text, int start) {
+        int end = start;
+        while (end < text.length() && isNumeralChar(text.charAt(end))) {
+            // 小数点后必须跟阿拉伯数字
+            if (text.charAt(end) == '.' && (end + 1 >= text.length() || !Character.isDigit(text.charAt(end + 1)))) {
+                break;
+            }
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * 解析 [start, end) 区间内的数字，无法解析时返回 NaN
+     */
+    public static double parse(CharSequence text, int start, int end) {
+        double total = 0;
+        double section = 0;
+        double number = 0;
+        boolean pendingDigit = false;
+        boolean zeroSeen = false;
+        int lastUnit = 1;
+
+        int i = start;
+        while (i < end) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                int j = i;
+                double value = 0;
+                double scale = 0;
+                while (j < end && ((text.charAt(j) >= '0' && text.charAt(j) <= '9') || text.charAt(j) == '.')) {
+                    char d = text.charAt(j);
+                    if (d == '.') {
+                        if (scale > 0) {
+                            return Double.NaN;
+                        }
+                        scale = 1;
+                    } else if (scale > 0) {
+                        scale /= 10;
+                        value += (d - '0') * scale;
+                    } else {
+                        value = value * 10 + (d - '0');
+                    }
+                    j++;
+                }
+                number = value;
+                pendingDigit = true;
+                i = j;
+                continue;
+            }
+
+            int digit = digitOf(c);
+            if (digit == 0) {
+                zeroSeen = true;
+                number = 0;
+                pendingDigit = false;
+            } else if (digit > 0) {
+                number = digit;
+                pendingDigit = true;
+            } else {
+                int unit = unitOf(c);
+                if (unit < 0) {
+                    return Double.NaN;
+                }
+                double multiplicand = pendingDigit ? number : (unit == 10 ? 1 : 0);
+                if (unit == 10000) {
+                    total += (section + multiplicand) * 10000;
+                    section = 0;
+                } else {
+                    section += multiplicand * unit;
+                }
+                if (!pendingDigit && unit != 10 && section == 0 && total == 0) {
+                    return Double.NaN;
+                }
+                number = 0;
+                pendingDigit = false;
+                lastUnit = unit;
+            }
+            i++;
+        }
+
+        // 口语省略：三千五 = 3500，一万二 = 12000，两百五 = 250，2万5 = 25000
+        if (pendingDigit && !zeroSeen && lastUnit >= 100 && number < 10 && number == Math.floor(number)) {
+            number *= lastUnit / 10;
+        }
+        return total + section + number;
+    }
+
+    private static int digitOf(char c) {
+        switch (c) {
+            case '零': case '〇': return 0;
+            case '一': return 1;
+            case '二': case '两': return 2;
+            case '三': return 3;
+            case '四': return 4;
+            case '五': return 5;
+            case '六': return 6;
+            case '七': return 7;
+            case '八': return 8;
+            case '九': return 9;
+            default: return -1;
+        }
+    }
+
+    private static int unitOf(char c) {
+        switch (c) {
+            case '十': return 10;
+            case '百': return 100;
+            case '千': return 1000;
+            case '万': return 10000;
+            default: return -1;
+        }
+    }
+}
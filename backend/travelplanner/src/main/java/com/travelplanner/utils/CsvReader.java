@@ -0,0 +1,106 @@
+package com.travelplanner.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 逐条读取 CSV 记录（RFC 4180），不缓冲整个输入
+ *
+ * 字段以逗号分隔；双引号包裹的字段可以包含逗号和换行，字段内的双引号写作两个双引号。
+ * 行尾可以是 \n 或 \r\n，空行跳过，开头的 BOM（Excel 导出的文件常带）忽略。
+ */
+public class CsvReader {
+    private static final int NONE = -2;
+
+    private final Reader reader;
+    private int pushedBack = NONE;
+    private boolean started;
+    private int line = 1;
+    private int recordLine;
+
+    public CsvReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader ? reader : new BufferedReader(reader);
+    }
+
+    /**
+     * @return 下一条记录的各字段，读完时返回 null
+     */
+    public List<String> next() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        // 本条记录是否已读到内容（用于跳过空行），当前字段是否以引号开头
+        boolean content = false;
+        boolean quoted = false;
+        recordLine = line;
+        int c;
+        while ((c = read()) != -1) {
+            if (quoted && c == '"') {
+                int following = read();
+                if (following == '"') {
+                    field.append('"');
+                    continue;
+                }
+                // 引号结束，之后到分隔符前的字符照原样保留
+                quoted = false;
+                pushedBack = following;
+                continue;
+            }
+            if (quoted) {
+                if (c == '\n') {
+                    line++;
+                }
+                field.append((char) c);
+                continue;
+            }
+            if (c == '"' && field.length() == 0) {
+                quoted = true;
+                content = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                content = true;
+            } else if (c == '\n') {
+                line++;
+                if (content || field.length() > 0) {
+                    fields.add(field.toString());
+                    return fields;
+                }
+                recordLine = line;
+            } else if (c != '\r') {
+                field.append((char) c);
+                content = true;
+            }
+        }
+        if (!content && field.length() == 0) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * @return 最近一条记录起始的行号（从 1 开始）
+     */
+    public int getRecordLine() {
+        return recordLine;
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != NONE) {
+            int c = pushedBack;
+            pushedBack = NONE;
+            return c;
+        }
+        int c = reader.read();
+        if (!started) {
+            started = true;
+            if (c == '\uFEFF') {
+                c = reader.read();
+            }
+        }
+        return c;
+    }
+}
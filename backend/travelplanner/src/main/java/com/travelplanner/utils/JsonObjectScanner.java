@@ -0,0 +1,87 @@
+package com.travelplanner.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * 在大模型回复（可能夹杂说明文字、Markdown 代码块）中查找 JSON 对象
+ *
+ * 只在原字符串上移动下标，解析器直接从对象起点读取，不截取子串。
+ */
+public final class JsonObjectScanner {
+
+    private JsonObjectScanner() {
+    }
+
+    /**
+     * 从 start（必须是 '{'）开始找到配对的 '}'，忽略字符串中的括号
+     *
+     * @return 对象结束位置（不含），对象不完整时返回 -1
+     */
+    public static int objectEnd(CharSequence text, int start) {
+        int depth = 0;
+        boolean inString = false;
+        for (int i = start; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (inString) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 依次尝试文本中每个完整的 JSON 对象，返回第一个被 reader 接受（非 null）的结果，都不符合时返回 null
+     */
+    public static <T> T readFirstObject(JsonFactory factory, String text, ValueReader<T> reader) {
+        if (text == null) {
+            return null;
+        }
+        int start = text.indexOf('{');
+        while (start >= 0) {
+            int end = objectEnd(text, start);
+            if (end < 0) {
+                // 不完整（例如输出被截断），里面可能还有完整的对象
+                start = text.indexOf('{', start + 1);
+                continue;
+            }
+            try (StringReader in = new StringReader(text)) {
+                in.skip(start);
+                try (JsonParser parser = factory.createParser(in)) {
+                    if (parser.nextToken() == JsonToken.START_OBJECT) {
+                        T value = reader.read(parser);
+                        if (value != null) {
+                            return value;
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                // 不是合法JSON，继续找下一个
+            }
+            start = text.indexOf('{', end);
+        }
+        return null;
+    }
+
+    /**
+     * 从位于 START_OBJECT 的解析器读取对象，不是期望的对象时返回 null
+     */
+    @FunctionalInterface
+    public interface ValueReader<T> {
+        T read(JsonParser parser) throws IOException;
+    }
+}
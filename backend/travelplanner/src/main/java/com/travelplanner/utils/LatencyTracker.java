@@ -0,0 +1,119 @@
+package com.travelplanner.utils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 记录最近N次调用耗时，用于计算分位数
+ * 设置了 maxAgeMs 时，早于该时长的样本不再参与统计，调用量下降后旧的慢样本不会一直留在窗口里
+ */
+public class LatencyTracker {
+
+    private final long[] samples;
+    private final long[] recordedAt;
+    private final long maxAgeMs;
+    private int index;
+    private int count;
+    private long totalCount;
+
+    public LatencyTracker(int capacity) {
+        this(capacity, 0);
+    }
+
+    /**
+     * @param maxAgeMs 样本有效时长，0 表示不过期
+     */
+    public LatencyTracker(int capacity, long maxAgeMs) {
+        this.samples = new long[capacity];
+        this.recordedAt = new long[capacity];
+        this.maxAgeMs = maxAgeMs;
+    }
+
+    public synchronized void record(long latencyMs) {
+        samples[index] = latencyMs;
+        recordedAt[index] = System.currentTimeMillis();
+        index = (index + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+        totalCount++;
+    }
+
+    /**
+     * @return 窗口内未过期的样本数
+     */
+    public synchronized int getSampleCount() {
+        return maxAgeMs > 0 ? freshSamples().length : count;
+    }
+
+    /**
+     * @param quantile 0~1，例如 0.95
+     * @return 分位数耗时，没有样本时返回 -1
+     */
+    public long percentile(double quantile) {
+        long[] sorted = sortedSamples();
+        if (sorted.length == 0) {
+            return -1;
+        }
+        return sorted[rank(quantile, sorted.length)];
+    }
+
+    public Map<String, Object> snapshot() {
+        long[] sorted = sortedSamples();
+        Map<String, Object> snapshot = new HashMap<>();
+        snapshot.put("samples", sorted.length);
+        synchronized (this) {
+            snapshot.put("total", totalCount);
+        }
+        if (sorted.length > 0) {
+            snapshot.put("p50", sorted[rank(0.50, sorted.length)]);
+            snapshot.put("p95", sorted[rank(0.95, sorted.length)]);
+            snapshot.put("p99", sorted[rank(0.99, sorted.length)]);
+            snapshot.put("max", sorted[sorted.length - 1]);
+        }
+        return snapshot;
+    }
+
+    /**
+     * 按给定上界（升序，毫秒）统计窗口内样本的分布，最后一档为超过最大上界的样本
+     */
+    public Map<String, Integer> histogram(long[] boundsMs) {
+        long[] sorted = sortedSamples();
+        Map<String, Integer> histogram = new LinkedHashMap<>();
+        int i = 0;
+        for (long bound : boundsMs) {
+            int n = 0;
+            while (i < sorted.length && sorted[i] <= bound) {
+                n++;
+                i++;
+            }
+            histogram.put("<=" + bound, n);
+        }
+        histogram.put(">" + boundsMs[boundsMs.length - 1], sorted.length - i);
+        return histogram;
+    }
+
+    private static int rank(double quantile, int size) {
+        return Math.max(0, Math.min((int) Math.ceil(quantile * size) - 1, size - 1));
+    }
+
+    private synchronized long[] sortedSamples() {
+        long[] copy = maxAgeMs > 0 ? freshSamples() : Arrays.copyOf(samples, count);
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    private long[] freshSamples() {
+        long cutoff = System.currentTimeMillis() - maxAgeMs;
+        long[] fresh = new long[count];
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            if (recordedAt[i] >= cutoff) {
+                fresh[n++] = samples[i];
+            }
+        }
+        return Arrays.copyOf(fresh, n);
+    }
+}
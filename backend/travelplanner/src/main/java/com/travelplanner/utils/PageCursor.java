@@ -0,0 +1,76 @@
+package com.travelplanner.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * 键集分页的继续标记：上一页最后一行的 (时间, ID) 和排序方向
+ *
+ * 对客户端是不透明的 Base64 字符串，下一页查询从该位置之后开始，不用 offset 跳过前面的行。
+ */
+public final class PageCursor {
+    private final boolean ascending;
+    private final LocalDateTime time;
+    private final long id;
+
+    public PageCursor(boolean ascending, LocalDateTime time, long id) {
+        this.ascending = ascending;
+        this.time = time;
+        this.id = id;
+    }
+
+    public String encode() {
+        String raw = (ascending ? "a" : "d") + "|" + time + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException 不是本类生成的标记
+     */
+    public static PageCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 3 || !("a".equals(parts[0]) || "d".equals(parts[0]))) {
+                throw new IllegalArgumentException("无效的分页游标");
+            }
+            return new PageCursor("a".equals(parts[0]), LocalDateTime.parse(parts[1]), Long.parseLong(parts[2]));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+    }
+
+    /**
+     * 解析请求中的排序方向和继续标记，没有标记（第一页）时返回 null
+     *
+     * @param order asc 或 desc
+     * @throws IllegalArgumentException 排序方向无效、标记无效或与排序方向不一致
+     */
+    public static PageCursor resolve(String cursor, String order) {
+        boolean ascending = isAscending(order);
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        PageCursor decoded = decode(cursor);
+        if (decoded.ascending != ascending) {
+            throw new IllegalArgumentException("分页游标与排序方向不一致");
+        }
+        return decoded;
+    }
+
+    public static boolean isAscending(String order) {
+        if ("asc".equalsIgnoreCase(order)) {
+            return true;
+        }
+        if ("desc".equalsIgnoreCase(order)) {
+            return false;
+        }
+        throw new IllegalArgumentException("排序方向只能是 asc 或 desc");
+    }
+
+    public boolean isAscending() { return ascending; }
+    public LocalDateTime getTime() { return time; }
+    public long getId() { return id; }
+}
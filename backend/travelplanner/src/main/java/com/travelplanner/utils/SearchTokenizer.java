@@ -0,0 +1,140 @@
+package com.travelplanner.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 全文检索分词：在 Java 侧把文本切成以空格分隔的词，交给 FTS5 的 unicode61 分词器原样建索引
+ *
+ * 中日韩文字连续的一段切成重叠的二元组，并补上末字（"上海迪士尼" -> 上海 海迪 迪士 士尼 尼），
+ * 这样任意一个字都是某个词的开头，单字查询用前缀匹配即可；字母数字按整词处理。
+ * 每个词前加上 "u{用户ID}x"，不同用户的词互不相同，查询只会落在当前用户自己的倒排表上。
+ */
+public final class SearchTokenizer {
+    // 字符类别
+    private static final int SEPARATOR = 0;
+    private static final int CJK = 1;
+    private static final int WORD = 2;
+
+    private SearchTokenizer() {
+    }
+
+    /**
+     * 建索引用：文本切分后加上用户前缀，以空格连接
+     */
+    public static String indexText(long userId, String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String prefix = userPrefix(userId);
+        StringBuilder out = new StringBuilder();
+        for (Run run : runs(text)) {
+            if (run.cjk) {
+                for (int i = 0; i + 1 < run.text.length(); i++) {
+                    append(out, prefix, run.text.substring(i, i + 2));
+                }
+                append(out, prefix, run.text.substring(run.text.length() - 1));
+            } else {
+                append(out, prefix, run.text);
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * 查询用：生成 FTS5 MATCH 表达式，各段之间为 AND；没有可检索的字符时返回 null
+     *
+     * 中文段（两个字及以上）按二元组组成短语，单字和字母数字段用前缀匹配。
+     */
+    public static String matchQuery(long userId, String query) {
+        if (query == null) {
+            return null;
+        }
+        String prefix = userPrefix(userId);
+        List<String> clauses = new ArrayList<>();
+        for (Run run : runs(query)) {
+            if (run.cjk && run.text.length() > 1) {
+                StringBuilder phrase = new StringBuilder();
+                for (int i = 0; i + 1 < run.text.length(); i++) {
+                    append(phrase, prefix, run.text.substring(i, i + 2));
+                }
+                clauses.add("\"" + phrase + "\"");
+            } else {
+                clauses.add("\"" + prefix + run.text + "\"*");
+            }
+        }
+        return clauses.isEmpty() ? null : String.join(" AND ", clauses);
+    }
+
+    /**
+     * 查询中参与匹配的各段（小写），用于生成摘要时定位
+     */
+    public static List<String> terms(String query) {
+        List<String> terms = new ArrayList<>();
+        if (query != null) {
+            for (Run run : runs(query)) {
+                terms.add(run.text);
+            }
+        }
+        return terms;
+    }
+
+    private static String userPrefix(long userId) {
+        // 用户ID只含数字，以 x 结尾后与词本身不会混淆
+        return "u" + userId + "x";
+    }
+
+    private static void append(StringBuilder out, String prefix, String token) {
+        if (out.length() > 0) {
+            out.append(' ');
+        }
+        out.append(prefix).append(token);
+    }
+
+    /**
+     * 按字符类别切成连续的段：中日韩文字一类，字母数字一类，其余字符作为分隔
+     */
+    private static List<Run> runs(String text) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        List<Run> runs = new ArrayList<>();
+        int start = -1;
+        boolean startCjk = false;
+        for (int i = 0; i <= lower.length(); i++) {
+            int type = i < lower.length() ? typeOf(lower.charAt(i)) : SEPARATOR;
+            boolean cjk = type == CJK;
+            if (start >= 0 && (type == SEPARATOR || cjk != startCjk)) {
+                runs.add(new Run(lower.substring(start, i), startCjk));
+                start = -1;
+            }
+            if (start < 0 && type != SEPARATOR) {
+                start = i;
+                startCjk = cjk;
+            }
+        }
+        return runs;
+    }
+
+    private static int typeOf(char c) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(c);
+        if (script == Character.UnicodeScript.HAN || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA || script == Character.UnicodeScript.HANGUL) {
+            return CJK;
+        }
+        // 只取 ASCII 字母数字，避免 unicode61 再次切分或去掉变音符号后与查询不一致
+        if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+            return WORD;
+        }
+        return SEPARATOR;
+    }
+
+    private static final class Run {
+        final String text;
+        final boolean cjk;
+
+        Run(String text, boolean cjk) {
+            this.text = text;
+            this.cjk = cjk;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.travelplanner.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 相同 key 的并发调用合并为一次执行
+ *
+ * 每个调用方拿到的是共享结果的派生 Future，取消自己的 Future 不会影响其他调用方；
+ * 所有调用方都取消后中断执行线程，共享调用随之放弃，key 立即移除。
+ * 调用结束后立即移除 key，之后的新调用会重新执行。
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, Flight> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong abandoned = new AtomicLong();
+
+    public CompletableFuture<V> execute(K key, Supplier<V> supplier, Executor executor) {
+        Flight flight = new Flight();
+        Flight existing;
+        while ((existing = inFlight.putIfAbsent(key, flight)) != null) {
+            CompletableFuture<V> joined = existing.join(key);
+            if (joined != null) {
+                coalesced.incrementAndGet();
+                return joined;
+            }
+            // 已被放弃的执行，换成新的执行
+            inFlight.remove(key, existing);
+        }
+
+        executions.incrementAndGet();
+        CompletableFuture<V> result = flight.join(key);
+        try {
+            executor.execute(() -> {
+                if (!flight.start()) {
+                    return;
+                }
+                try {
+                    V value = supplier.get();
+                    inFlight.remove(key, flight);
+                    flight.promise.complete(value);
+                } catch (Throwable t) {
+                    inFlight.remove(key, flight);
+                    flight.promise.completeExceptionally(t);
+                } finally {
+                    flight.finish();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key, flight);
+            flight.promise.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    public long getExecutionCount() {
+        return executions.get();
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /**
+     * 所有调用方都已取消、被中断放弃的执行次数
+     */
+    public long getAbandonedCount() {
+        return abandoned.get();
+    }
+
+    /**
+     * 一次共享执行：记录仍在等待的调用方数量和执行线程
+     */
+    private class Flight {
+        final CompletableFuture<V> promise = new CompletableFuture<>();
+        private int waiters;
+        private boolean cancelled;
+        private Thread runner;
+
+        /**
+         * @return 调用方的派生 Future；执行已被放弃时返回 null
+         */
+        synchronized CompletableFuture<V> join(K key) {
+            if (cancelled) {
+                return null;
+            }
+            waiters++;
+            CompletableFuture<V> derived = promise.thenApply(Function.identity());
+            derived.whenComplete((value, error) -> {
+                if (derived.isCancelled()) {
+                    leave(key);
+                }
+            });
+            return derived;
+        }
+
+        private void leave(K key) {
+            synchronized (this) {
+                if (--waiters > 0 || promise.isDone() || cancelled) {
+                    return;
+                }
+                cancelled = true;
+                if (runner != null) {
+                    runner.interrupt();
+                }
+            }
+            // 新的调用方不再加入即将放弃的执行
+            inFlight.remove(key, this);
+            abandoned.incrementAndGet();
+            promise.cancel(false);
+        }
+
+        /**
+         * @return 尚未被放弃时登记执行线程并返回 true
+         */
+        synchronized boolean start() {
+            if (cancelled) {
+                return false;
+            }
+            runner = Thread.currentThread();
+            return true;
+        }
+
+        /**
+         * 注销执行线程并清除可能残留的中断标记，避免影响线程池中的下一个任务
+         */
+        synchronized void finish() {
+            runner = null;
+            Thread.interrupted();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.travelplanner.utils;
+
+/**
+ * 令牌桶：容量为 capacity，每分钟补充 refillPerMinute 个令牌
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double refillPerMs;
+    private double tokens;
+    private long lastRefillAt;
+
+    public TokenBucket(int capacity, double refillPerMinute) {
+        this.capacity = capacity;
+        this.refillPerMs = refillPerMinute / 60000.0;
+        this.tokens = capacity;
+        this.lastRefillAt = System.currentTimeMillis();
+    }
+
+    /**
+     * 尝试取一个令牌
+     *
+     * @return 0 表示成功；否则为距离下一个令牌可用还需等待的毫秒数
+     */
+    public synchronized long tryConsume() {
+        refill();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / refillPerMs);
+    }
+
+    public synchronized double getAvailableTokens() {
+        refill();
+        return tokens;
+    }
+
+    private void refill() {
+        long now = System.currentTimeMillis();
+        tokens = Math.min(capacity, tokens + (now - lastRefillAt) * refillPerMs);
+        lastRefillAt = now;
+    }
+}
@@ -0,0 +1,462 @@
+package com.travelplanner.utils;
+
+import java.text.Normalizer;
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.BitSet;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 从中文口语中提取预算、日期、行程天数和出行人数
+ *
+ * 一次线性扫描找出所有数字串（见 {@link ChineseNumerals}），按紧邻的量词归类；
+ * 节日和相对日期用固定关键词匹配。所有正则都是预编译的，只用于最后检查有没有没理解的内容。
+ */
+public final class TravelSlotExtractor {
+
+    // 可能包含预算、日期、人数信息的片段，提取后仍有未覆盖的片段说明需要大模型理解
+    private static final Pattern CUES = Pattern.compile(
+            "[0-9零〇一二两三四五六七八九十百千万]+\\s*(万|千|块|元|天|晚|日|号|月|周|个人|口|位)"
+                    + "|下周|下个月|周末|国庆|春节|五一|元旦|中秋|端午|明天|后天|暑假|寒假");
+
+    private static final String[] BUDGET_MARKERS = {"预算", "经费", "花费", "花", "控制在", "不超过", "左右"};
+    private static final String[] PER_PERSON_MARKERS = {"人均", "每人", "每个人", "一个人"};
+    private static final String[] PARTY_SUFFIXES = {"个人", "口人", "口", "位", "人"};
+    private static final String[] MEMBER_SUFFIXES = {"个大人", "个小孩", "个孩子", "个朋友", "个同学", "大", "小"};
+    private static final String[] WEEKDAY_PREFIXES = {"下周", "下星期", "下礼拜", "这周", "本周", "这星期", "周", "星期", "礼拜"};
+
+    private TravelSlotExtractor() {
+    }
+
+    public static Slots extract(String text, LocalDate today) {
+        Slots slots = new Slots();
+        if (text == null || text.isEmpty()) {
+            return slots;
+        }
+        String s = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        BitSet consumed = new BitSet(s.length());
+
+        extractKeywordDates(s, today, slots, consumed);
+        extractNumbers(s, today, slots, consumed);
+
+        // 汇总日期：起止都有时以起止为准，否则用天数推算结束日期
+        if (slots.startDate != null && slots.endDate != null) {
+            if (slots.endDate.isBefore(slots.startDate)) {
+                slots.endDate = slots.endDate.plusYears(1);
+            }
+            slots.days = (int) ChronoUnit.DAYS.between(slots.startDate, slots.endDate) + 1;
+        } else if (slots.days == null && slots.nights != null) {
+            slots.days = slots.nights + 1;
+        }
+        if (slots.startDate != null && slots.endDate == null && slots.days != null) {
+            slots.endDate = slots.startDate.plusDays(slots.days - 1);
+        }
+        if (slots.travelerCount == null && slots.memberCount > 0) {
+            slots.travelerCount = slots.memberCount;
+        }
+        if (slots.budget != null && slots.budgetPerPerson && slots.travelerCount != null) {
+            slots.budget = slots.budget * slots.travelerCount;
+            slots.budgetPerPerson = false;
+        }
+
+        Matcher cue = CUES.matcher(s);
+        while (cue.find()) {
+            int uncovered = consumed.nextClearBit(cue.start());
+            if (uncovered < cue.end()) {
+                slots.unresolvedCues = true;
+                break;
+            }
+        }
+        return slots;
+    }
+
+    /**
+     * 节日、今天/明天、周末、下周X、下个月
+     */
+    private static void extractKeywordDates(String s, LocalDate today, Slots slots, BitSet consumed) {
+        int index;
+        if ((index = find(s, consumed, "国庆")) >= 0 || (index = findNationalDay(s, consumed)) >= 0) {
+            setHoliday(slots, nextOccurrence(today, 10, 1), 7);
+            consume(consumed, index, 2);
+        }
+        if ((index = find(s, consumed, "五一")) >= 0 || (index = find(s, consumed, "劳动节")) >= 0) {
+            setHoliday(slots, nextOccurrence(today, 5, 1), 5);
+            consume(consumed, index, s.startsWith("五一", index) ? 2 : 3);
+        }
+        if ((index = find(s, consumed, "元旦")) >= 0) {
+            setHoliday(slots, nextOccurrence(today, 1, 1), 3);
+            consume(consumed, index, 2);
+        }
+        if ((index = find(s, consumed, "圣诞")) >= 0) {
+            setHoliday(slots, nextOccurrence(today, 12, 25), null);
+            consume(consumed, index, 2);
+        }
+
+        String[][] relativeDays = {{"大后天", "3"}, {"后天", "2"}, {"明天", "1"}, {"今天", "0"}};
+        for (String[] relative : relativeDays) {
+            if ((index = find(s, consumed, relative[0])) >= 0) {
+                setStart(slots, today.plusDays(Integer.parseInt(relative[1])));
+                consume(consumed, index, relative[0].length());
+            }
+        }
+
+        if ((index = find(s, consumed, "下周末")) >= 0 || (index = find(s, consumed, "下个周末")) >= 0) {
+            setHoliday(slots, today.with(TemporalAdjusters.next(DayOfWeek.MONDAY)).plusDays(5), 2);
+            consume(consumed, index, s.startsWith("下周末", index) ? 3 : 4);
+        } else if ((index = find(s, consumed, "周末")) >= 0) {
+            setHoliday(slots, today.with(TemporalAdjusters.nextOrSame(DayOfWeek.SATURDAY)), 2);
+            int from = index >= 1 && (s.charAt(index - 1) == '这' || s.charAt(index - 1) == '本') ? index - 1 : index;
+            consume(consumed, from, index + 2 - from);
+        }
+
+        for (String prefix : WEEKDAY_PREFIXES) {
+            int from = 0;
+            while ((index = s.indexOf(prefix, from)) >= 0) {
+                from = index + prefix.length();
+                if (consumed.get(index) || from >= s.length()) {
+                    continue;
+                }
+                int weekday = weekdayOf(s.charAt(from));
+                if (weekday < 0) {
+                    continue;
+                }
+                LocalDate monday = today.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                LocalDate date;
+                if (prefix.startsWith("下")) {
+                    date = monday.plusWeeks(1).plusDays(weekday - 1);
+                } else {
+                    date = monday.plusDays(weekday - 1);
+                    if (date.isBefore(today)) {
+                        date = date.plusWeeks(1);
+                    }
+                }
+                setStart(slots, date);
+                consume(consumed, index, prefix.length() + 1);
+            }
+        }
+
+        if ((index = find(s, consumed, "下个月")) >= 0 || (index = find(s, consumed, "下月")) >= 0) {
+            int length = s.startsWith("下个月", index) ? 3 : 2;
+            LocalDate first = today.plusMonths(1).withDayOfMonth(1);
+            if (s.startsWith("中", index + length)) {
+                first = first.withDayOfMonth(15);
+                length++;
+            } else if (s.startsWith("底", index + length)) {
+                first = first.withDayOfMonth(first.lengthOfMonth() - 4);
+                length++;
+            } else if (s.startsWith("初", index + length)) {
+                length++;
+            }
+            setStart(slots, first);
+            consume(consumed, index, length);
+        }
+
+        String[][] durations = {{"一个星期", "7"}, {"一个礼拜", "7"}, {"一星期", "7"}, {"一周", "7"}, {"半个月", "15"}, {"两周", "14"}};
+        for (String[] duration : durations) {
+            if ((index = find(s, consumed, duration[0])) >= 0) {
+                if (slots.days == null) {
+                    slots.days = Integer.parseInt(duration[1]);
+                }
+                consume(consumed, index, duration[0].length());
+            }
+        }
+    }
+
+    /**
+     * 数字 + 量词：月/号、天/晚、人/口/位、万/千/元/块
+     */
+    private static void extractNumbers(String s, LocalDate today, Slots slots, BitSet consumed) {
+        Integer lastMonth = null;
+        int i = 0;
+        while (i < s.length()) {
+            char c = s.charAt(i);
+            if (!ChineseNumerals.isNumeralStart(c) || consumed.get(i)) {
+                i++;
+                continue;
+            }
+            int start = i;
+            int end = ChineseNumerals.scanEnd(s, i);
+            double value = ChineseNumerals.parse(s, start, end);
+            i = end;
+            if (Double.isNaN(value)) {
+                continue;
+            }
+            int suffixEnd = skipSpaces(s, end);
+
+            // 日期：10月3号、10月3日、到8号
+            if (startsWith(s, suffixEnd, "月") && value >= 1 && value <= 12) {
+                int month = (int) value;
+                int dayStart = suffixEnd + 1;
+                int dayEnd = ChineseNumerals.scanEnd(s, dayStart);
+                if (dayEnd > dayStart && (startsWith(s, dayEnd, "号") || startsWith(s, dayEnd, "日"))
+                        && !startsWith(s, dayEnd, "日游")) {
+                    LocalDate date = dateOf(today, month, ChineseNumerals.parse(s, dayStart, dayEnd));
+                    if (date != null) {
+                        setDate(slots, date);
+                        lastMonth = month;
+                        consume(consumed, start, dayEnd + 1 - start);
+                        i = dayEnd + 1;
+                    }
+                } else {
+                    // 只有月份：5月、10月初、8月中、12月底
+                    int day = startsWith(s, suffixEnd, "月中") ? 15 : startsWith(s, suffixEnd, "月底") ? 25 : 1;
+                    LocalDate date = dateOf(today, month, day);
+                    if (date != null) {
+                        setDate(slots, date);
+                        lastMonth = month;
+                        int length = startsWith(s, suffixEnd, "月份") || startsWith(s, suffixEnd, "月初")
+                                || startsWith(s, suffixEnd, "月底") || startsWith(s, suffixEnd, "月中") ? 2 : 1;
+                        consume(consumed, start, suffixEnd + length - start);
+                    }
+                }
+                continue;
+            }
+            if ((startsWith(s, suffixEnd, "号") || (startsWith(s, suffixEnd, "日") && !startsWith(s, suffixEnd, "日游")))
+                    && value >= 1 && value <= 31) {
+                int month = lastMonth != null ? lastMonth
+                        : slots.startDate != null ? slots.startDate.getMonthValue() : today.getMonthValue();
+                LocalDate date = dateOf(today, month, value);
+                if (date != null) {
+                    setDate(slots, date);
+                    consume(consumed, start, suffixEnd + 1 - start);
+                }
+                continue;
+            }
+
+            // 天数：玩五天、三日游、五天四晚
+            if (startsWith(s, suffixEnd, "天") || startsWith(s, suffixEnd, "日游")) {
+                if (value >= 1 && value <= 60 && !startsWith(s, suffixEnd + 1, "后")
+                        && !startsWith(s, suffixEnd + 1, "以后")) {
+                    slots.days = (int) value;
+                    consume(consumed, start, suffixEnd + (startsWith(s, suffixEnd, "天") ? 1 : 2) - start);
+                } else if (startsWith(s, suffixEnd + 1, "后") || startsWith(s, suffixEnd + 1, "以后")) {
+                    setStart(slots, today.plusDays((long) value));
+                    consume(consumed, start, suffixEnd + (startsWith(s, suffixEnd + 1, "后") ? 2 : 3) - start);
+                }
+                continue;
+            }
+            if (startsWith(s, suffixEnd, "晚") || startsWith(s, suffixEnd, "夜")) {
+                if (value >= 1 && value <= 60) {
+                    slots.nights = (int) value;
+                    consume(consumed, start, suffixEnd + 1 - start);
+                }
+                continue;
+            }
+
+            // 人数：我们四个人、一家三口、5位、两个大人一个小孩
+            String memberSuffix = matchAny(s, suffixEnd, MEMBER_SUFFIXES);
+            if (memberSuffix != null && value >= 1 && value <= 20
+                    && !(memberSuffix.length() == 1 && !isFamilyShorthand(s, suffixEnd))) {
+                slots.memberCount += (int) value;
+                consume(consumed, start, suffixEnd + memberSuffix.length() - start);
+                continue;
+            }
+            String partySuffix = matchAny(s, suffixEnd, PARTY_SUFFIXES);
+            if (partySuffix != null && value >= 1 && value <= 100 && !isAfterAny(s, start, PER_PERSON_MARKERS)) {
+                // "一个人" 作为预算修饰语（一个人三千）时不算人数
+                if (!(value == 1 && isFollowedByMoney(s, suffixEnd + partySuffix.length()))) {
+                    slots.travelerCount = slots.travelerCount == null ? (int) value : Math.max(slots.travelerCount, (int) value);
+                    consume(consumed, start, suffixEnd + partySuffix.length() - start);
+                    continue;
+                }
+            }
+
+            // 金额：两万块、三千五、1.5万、预算8000、5k
+            double multiplier = 1;
+            int moneyEnd = end;
+            if (startsWith(s, suffixEnd, "k")) {
+                multiplier = 1000;
+                moneyEnd = suffixEnd + 1;
+            } else if (startsWith(s, suffixEnd, "w")) {
+                multiplier = 10000;
+                moneyEnd = suffixEnd + 1;
+            }
+            int currencyEnd = skipSpaces(s, moneyEnd);
+            String currency = matchAny(s, currencyEnd, new String[]{"块钱", "块", "元", "rmb", "人民币"});
+            boolean hasUnit = hasLargeUnit(s, start, end) || multiplier > 1;
+            boolean marked = isAfterAny(s, start, BUDGET_MARKERS) || isAfterAny(s, start, PER_PERSON_MARKERS);
+            double amount = value * multiplier;
+            if ((currency != null || marked || hasUnit) && amount >= 100 && amount <= 10_000_000) {
+                if (slots.budget == null || marked) {
+                    slots.budget = amount;
+                    slots.budgetPerPerson = isAfterAny(s, start, PER_PERSON_MARKERS);
+                }
+                consume(consumed, start, (currency != null ? currencyEnd + currency.length() : moneyEnd) - start);
+            }
+        }
+    }
+
+    private static boolean isFamilyShorthand(String s, int suffixIndex) {
+        // "两大一小"
+        return suffixIndex + 1 < s.length() && ChineseNumerals.isNumeralStart(s.charAt(suffixIndex + 1))
+                || suffixIndex >= 2 && (s.charAt(suffixIndex) == '小') && s.charAt(suffixIndex - 2) == '大';
+    }
+
+    private static boolean isFollowedByMoney(String s, int index) {
+        int i = skipSpaces(s, index);
+        return i < s.length() && (ChineseNumerals.isNumeralStart(s.charAt(i)) || startsWith(s, i, "预算"));
+    }
+
+    private static boolean hasLargeUnit(String s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (s.charAt(i) == '千' || s.charAt(i) == '万') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 国庆的口语说法 "十一"：后面不跟量词，避免把 "十一个人"、"十一月" 当成节日
+     */
+    private static int findNationalDay(String s, BitSet consumed) {
+        int index = find(s, consumed, "十一");
+        if (index < 0) {
+            return -1;
+        }
+        if (index > 0 && ChineseNumerals.isNumeralChar(s.charAt(index - 1))) {
+            return -1;
+        }
+        int next = index + 2;
+        if (next >= s.length()) {
+            return index;
+        }
+        char c = s.charAt(next);
+        return ChineseNumerals.isNumeralChar(c) || "月号日天个人位口点元块晚".indexOf(c) >= 0 ? -1 : index;
+    }
+
+    private static void setHoliday(Slots slots, LocalDate start, Integer days) {
+        setStart(slots, start);
+        if (days != null && slots.days == null) {
+            slots.days = days;
+        }
+    }
+
+    private static void setStart(Slots slots, LocalDate date) {
+        if (slots.startDate == null) {
+            slots.startDate = date;
+        }
+    }
+
+    /**
+     * 第一个具体日期作为开始日期，第二个作为结束日期
+     */
+    private static void setDate(Slots slots, LocalDate date) {
+        if (slots.startDate == null) {
+            slots.startDate = date;
+        } else if (slots.endDate == null && !date.equals(slots.startDate)) {
+            slots.endDate = date;
+        }
+    }
+
+    private static LocalDate nextOccurrence(LocalDate today, int month, int day) {
+        LocalDate date = LocalDate.of(today.getYear(), month, day);
+        return date.isBefore(today) ? date.plusYears(1) : date;
+    }
+
+    /**
+     * 只说月日时取今天之后最近的一个
+     */
+    private static LocalDate dateOf(LocalDate today, int month, double day) {
+        if (Double.isNaN(day) || day < 1 || day > 31 || day != Math.floor(day)) {
+            return null;
+        }
+        try {
+            LocalDate date = LocalDate.of(today.getYear(), month, (int) day);
+            return date.isBefore(today) ? date.plusYears(1) : date;
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    private static int weekdayOf(char c) {
+        switch (c) {
+            case '一': return 1;
+            case '二': return 2;
+            case '三': return 3;
+            case '四': return 4;
+            case '五': return 5;
+            case '六': return 6;
+            case '日': case '天': return 7;
+            default: return -1;
+        }
+    }
+
+    private static int find(String s, BitSet consumed, String keyword) {
+        int from = 0;
+        int index;
+        while ((index = s.indexOf(keyword, from)) >= 0) {
+            if (!consumed.get(index)) {
+                return index;
+            }
+            from = index + 1;
+        }
+        return -1;
+    }
+
+    private static void consume(BitSet consumed, int start, int length) {
+        consumed.set(start, start + length);
+    }
+
+    private static int skipSpaces(String s, int index) {
+        while (index < s.length() && s.charAt(index) == ' ') {
+            index++;
+        }
+        return index;
+    }
+
+    private static boolean startsWith(String s, int index, String prefix) {
+        return index >= 0 && index < s.length() && s.startsWith(prefix, index);
+    }
+
+    private static String matchAny(String s, int index, String[] candidates) {
+        for (String candidate : candidates) {
+            if (startsWith(s, index, candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 数字前面 6 个字以内是否出现过某个修饰词（"预算大概一万"、"人均三千"）
+     */
+    private static boolean isAfterAny(String s, int index, String[] markers) {
+        int from = Math.max(0, index - 6);
+        for (String marker : markers) {
+            int found = s.indexOf(marker, from);
+            if (found >= 0 && found + marker.length() <= index) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 提取结果，未识别的字段为 null
+     */
+    public static class Slots {
+        private Double budget;
+        private boolean budgetPerPerson;
+        private LocalDate startDate;
+        private LocalDate endDate;
+        private Integer days;
+        private Integer nights;
+        private Integer travelerCount;
+        private int memberCount;
+        private boolean unresolvedCues;
+
+        public Double getBudget() { return budget; }
+        public boolean isBudgetPerPerson() { return budgetPerPerson; }
+        public LocalDate getStartDate() { return startDate; }
+        public LocalDate getEndDate() { return endDate; }
+        public Integer getDays() { return days; }
+        public Integer getTravelerCount() { return travelerCount; }
+        public boolean hasUnresolvedCues() { return unresolvedCues; }
+    }
+}
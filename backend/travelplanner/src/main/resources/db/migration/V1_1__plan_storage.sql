@@ -0,0 +1,42 @@
+-- 计划状态、临时行程和行程去重存储，以及生成任务和行程缓存表
+-- travel_plans.itinerary 保留：旧数据中的内联行程在启动时由 ItineraryStore 迁移到 itinerary_blobs 并置空
+
+alter table travel_plans add column status varchar(20);
+alter table travel_plans add column itinerary_version integer;
+alter table travel_plans add column provisional boolean;
+alter table travel_plans add column itinerary_hash varchar(64);
+
+-- 此前的计划都是同步生成完成的
+update travel_plans set status = 'COMPLETED', itinerary_version = 1, provisional = 0;
+
+create table itinerary_blobs (
+    hash varchar(64) not null,
+    body blob not null,
+    created_at datetime,
+    original_length integer not null,
+    ref_count integer not null,
+    primary key (hash)
+);
+
+create table plan_generation_jobs (
+    id integer,
+    attempts integer,
+    created_at datetime,
+    error_message varchar(1000),
+    finished_at datetime,
+    plan_id bigint not null,
+    priority integer,
+    started_at datetime,
+    status varchar(20) not null,
+    user_id bigint not null,
+    primary key (id)
+);
+
+create table itinerary_cache (
+    cache_key varchar(500) not null,
+    created_at datetime,
+    expires_at datetime,
+    itinerary varchar(20000) not null,
+    prewarmed boolean,
+    primary key (cache_key)
+);
@@ -0,0 +1,36 @@
+-- 初始表结构，与此前 ddl-auto: update 生成的结构一致
+-- 已有数据库按 baseline-on-migrate 记为版本 0，仍会执行本脚本：表已存在时跳过，之后的脚本在其上升级
+
+create table if not exists users (
+    id integer,
+    created_at datetime,
+    email varchar(255),
+    password varchar(255) not null,
+    phone varchar(255),
+    username varchar(255) not null,
+    primary key (id)
+);
+
+create table if not exists travel_plans (
+    id integer,
+    budget double precision,
+    created_at datetime,
+    destination varchar(255) not null,
+    end_date date,
+    itinerary varchar(5000),
+    preferences varchar(1000),
+    start_date date,
+    traveler_count integer,
+    user_id bigint,
+    primary key (id)
+);
+
+create table if not exists expenses (
+    id integer,
+    amount double precision not null,
+    category varchar(255) not null,
+    description varchar(255) not null,
+    expense_date datetime,
+    plan_id bigint,
+    primary key (id)
+);
@@ -0,0 +1,25 @@
+-- 查询用到的索引，各查询的执行计划见 /api/monitor/query-plans
+
+-- 计划列表：按用户、创建时间键集分页
+create index if not exists idx_travel_plans_user_created on travel_plans (user_id, created_at, id);
+
+-- 预热：统计最近一段时间创建的计划
+create index if not exists idx_travel_plans_created on travel_plans (created_at);
+
+-- 费用列表：按计划、费用日期键集分页
+create index if not exists idx_expenses_plan_date on expenses (plan_id, expense_date, id);
+
+-- 按分类查询和汇总费用，带上 amount 后求和只读索引
+create index if not exists idx_expenses_plan_category on expenses (plan_id, category, amount);
+
+-- 登录和注册查重；旧数据中可能有并发注册留下的重复用户名，不建唯一索引
+create index if not exists idx_users_username on users (username);
+create index if not exists idx_users_email on users (email) where email is not null;
+
+-- 未完成的生成任务（finished_at 为空）：任务表只增不减，待执行和执行中的只占很少一部分
+-- 部分索引只在查询条件里也写明 finished_at is null 时才会被使用
+create index if not exists idx_plan_jobs_unfinished on plan_generation_jobs (status, priority desc, created_at)
+    where finished_at is null;
+
+-- 定期清理过期的行程缓存
+create index if not exists idx_itinerary_cache_expires on itinerary_cache (expires_at);
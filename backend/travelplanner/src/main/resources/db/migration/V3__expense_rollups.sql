@@ -0,0 +1,12 @@
+-- 费用汇总表：每个计划一行总计（TOTAL），另按分类（CATEGORY）和费用日期（DAY，yyyy-MM-dd）各一行
+-- 随费用增删改在同一事务中更新，见 ExpenseService；已有数据在启动时由 ExpenseService 全量重算填入
+create table if not exists expense_rollups (
+    plan_id bigint not null,
+    kind varchar(16) not null,
+    bucket varchar(255) not null,        -- TOTAL 为空串
+    total_amount double precision not null,
+    expense_count integer not null,
+    min_amount double precision,
+    max_amount double precision,
+    primary key (plan_id, kind, bucket)
+) without rowid;
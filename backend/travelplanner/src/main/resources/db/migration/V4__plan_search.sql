@@ -0,0 +1,3 @@
+-- 计划全文检索（FTS5），rowid 为计划ID，各列保存 SearchTokenizer 切分后带用户前缀的词，见 PlanSearchIndex
+-- 已有计划的索引在启动时由 PlanSearchIndex 发现索引为空后重建
+create virtual table if not exists plan_search using fts5(destination, preferences, itinerary, tokenize = 'unicode61');
@@ -0,0 +1,35 @@
+package com.travelplanner.benchmark;
+
+import com.travelplanner.utils.ChineseNumerals;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 中文数字解析的微基准，运行方式见 {@link TravelSlotExtractorBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChineseNumeralsBenchmark {
+
+    @Param({"三千五", "一千零五十", "2万5", "1.5万", "8000"})
+    public String text;
+
+    @Benchmark
+    public double parse() {
+        return ChineseNumerals.parse(text, 0, text.length());
+    }
+}
@@ -0,0 +1,47 @@
+package com.travelplanner.benchmark;
+
+import com.travelplanner.utils.TravelSlotExtractor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 语音槽位提取的微基准：每句话一次提取的耗时（纳秒）
+ *
+ * 运行：mvn -B test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ * 然后 java -cp target/test-classes:target/classes:$(cat target/cp.txt) org.openjdk.jmh.Main 'Benchmark'
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TravelSlotExtractorBenchmark {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 9, 15);
+
+    @Param({
+            "预算三千五去杭州",
+            "10月3号到8号去杭州，两大一小，五天四晚",
+            "国庆和老婆两个人去成都玩五天，预算一万二，想吃火锅",
+            "下周五出发去厦门，我们四个人人均2万5左右，住海边",
+            "去杭州看看"
+    })
+    public String text;
+
+    @Benchmark
+    public TravelSlotExtractor.Slots extract() {
+        return TravelSlotExtractor.extract(text, TODAY);
+    }
+}
@@ -0,0 +1,103 @@
+package com.travelplanner.repository;
+
+import com.travelplanner.entity.TravelPlan;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 此前由 ddl-auto: update 建表的数据库：Flyway 记为版本 0 后逐个执行迁移脚本，ddl-auto: validate 通过（上下文能启动）
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class SchemaUpgradeTest {
+
+    @TempDir
+    static Path dir;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws SQLException {
+        String url = "jdbc:sqlite:" + dir.resolve("old.db");
+        createOldDatabase(url);
+        registry.add("spring.datasource.url", () -> url);
+        registry.add("spring.jpa.show-sql", () -> "false");
+    }
+
+    /**
+     * 升级前 Hibernate 按当时的实体生成的表结构和数据
+     */
+    private static void createOldDatabase(String url) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement()) {
+            statement.execute("create table users (id integer, created_at timestamp, email varchar(255) unique, "
+                    + "password varchar(255) not null, phone varchar(255), username varchar(255) not null unique, "
+                    + "primary key (id))");
+            statement.execute("create table travel_plans (id integer, budget double, created_at timestamp, "
+                    + "destination varchar(255) not null, end_date date, itinerary varchar(5000), "
+                    + "preferences varchar(1000), start_date date, traveler_count integer, user_id bigint, "
+                    + "primary key (id))");
+            statement.execute("create table expenses (id integer, amount double not null, "
+                    + "category varchar(255) not null, description varchar(255) not null, expense_date timestamp, "
+                    + "plan_id bigint, primary key (id))");
+            statement.execute("insert into users (id, email, password, username) "
+                    + "values (1, 'old@example.com', 'x', 'old@example.com')");
+            statement.execute("insert into travel_plans (id, budget, destination, itinerary, traveler_count, user_id) "
+                    + "values (1, 3000, '杭州', '第1天：西湖', 2, 1)");
+            statement.execute("insert into expenses (id, amount, category, description, plan_id) "
+                    + "values (1, 35.5, '餐饮', '午饭', 1)");
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TravelPlanRepository travelPlanRepository;
+
+    @Test
+    void oldDatabaseIsBaselinedAndMigrated() {
+        List<String> versions = jdbcTemplate.queryForList(
+                "select version from flyway_schema_history where success = 1 order by installed_rank", String.class);
+
+        assertThat(versions).startsWith("0", "1", "1.1");
+        assertThat(columns("travel_plans"))
+                .contains("status", "itinerary_version", "provisional", "itinerary_hash", "itinerary");
+        assertThat(jdbcTemplate.queryForList("select name from sqlite_master where type = 'table'", String.class))
+                .contains("itinerary_blobs", "plan_generation_jobs", "itinerary_cache", "expense_rollups", "plan_search");
+    }
+
+    @Test
+    void oldPlansAreCompletedAndKeepInlineItinerary() {
+        TravelPlan plan = travelPlanRepository.findById(1L).orElseThrow(IllegalStateException::new);
+
+        assertThat(plan.getDestination()).isEqualTo("杭州");
+        assertThat(plan.getUser().getUsername()).isEqualTo("old@example.com");
+        assertThat(plan.getStatus()).isEqualTo(TravelPlan.Status.COMPLETED);
+        assertThat(plan.getItineraryVersion()).isEqualTo(1);
+        assertThat(plan.getProvisional()).isFalse();
+        // 内联行程留给 ItineraryStore 在启动时迁移到 itinerary_blobs
+        assertThat(plan.getItineraryHash()).isNull();
+        assertThat(jdbcTemplate.queryForObject("select itinerary from travel_plans where id = 1", String.class))
+                .isEqualTo("第1天：西湖");
+    }
+
+    private List<String> columns(String table) {
+        return jdbcTemplate.queryForList("pragma table_info(" + table + ")").stream()
+                .map(column -> (String) column.get("name")).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,128 @@
+package com.travelplanner.repository;
+
+import com.travelplanner.dto.TravelPlanSummary;
+import com.travelplanner.entity.TravelPlan;
+import com.travelplanner.entity.User;
+import com.travelplanner.utils.PageCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 计划列表的键集分页：创建时间相同的多行按 ID 继续翻页，不重复也不遗漏
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class TravelPlanRepositoryTest {
+
+    private static final LocalDateTime T1 = LocalDateTime.of(2026, 10, 1, 8, 0);
+    private static final LocalDateTime T2 = LocalDateTime.of(2026, 10, 2, 8, 0);
+
+    @TempDir
+    static Path dir;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + dir.resolve("test.db"));
+        registry.add("spring.jpa.show-sql", () -> "false");
+    }
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private TravelPlanRepository travelPlanRepository;
+
+    private User user;
+    private final List<Long> ids = new ArrayList<>();
+
+    @BeforeEach
+    void createPlans() {
+        user = new User();
+        user.setUsername("pager");
+        user.setPassword("x");
+        entityManager.persist(user);
+
+        User other = new User();
+        other.setUsername("other");
+        other.setPassword("x");
+        entityManager.persist(other);
+
+        // 7 个计划，其中 5 个创建时间完全相同；另一个用户的计划不应出现
+        LocalDateTime[] times = {T1, T2, T2, T2, T2, T2, LocalDateTime.of(2026, 10, 3, 8, 0)};
+        for (LocalDateTime time : times) {
+            ids.add(persistPlan(user, time, "杭州"));
+        }
+        persistPlan(other, T2, "杭州");
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void descendingPagesBreakTiesById() {
+        List<Long> seen = new ArrayList<>();
+        List<TravelPlanSummary> page = travelPlanRepository.findSummaryPageDesc(user.getId(), null, PageRequest.of(0, 2));
+        while (!page.isEmpty()) {
+            page.forEach(plan -> seen.add(plan.getId()));
+            TravelPlanSummary last = page.get(page.size() - 1);
+            PageCursor cursor = PageCursor.decode(new PageCursor(false, last.getCreatedAt(), last.getId()).encode());
+            page = travelPlanRepository.findSummaryPageDescAfter(user.getId(), null, cursor.getTime(), cursor.getId(),
+                    PageRequest.of(0, 2));
+        }
+
+        assertThat(seen).containsExactly(ids.get(6), ids.get(5), ids.get(4), ids.get(3), ids.get(2), ids.get(1),
+                ids.get(0));
+    }
+
+    @Test
+    void ascendingPagesBreakTiesById() {
+        List<Long> seen = new ArrayList<>();
+        List<TravelPlanSummary> page = travelPlanRepository.findSummaryPageAsc(user.getId(), null, PageRequest.of(0, 3));
+        while (!page.isEmpty()) {
+            page.forEach(plan -> seen.add(plan.getId()));
+            TravelPlanSummary last = page.get(page.size() - 1);
+            page = travelPlanRepository.findSummaryPageAscAfter(user.getId(), null, last.getCreatedAt(), last.getId(),
+                    PageRequest.of(0, 3));
+        }
+
+        assertThat(seen).containsExactlyElementsOf(ids);
+    }
+
+    @Test
+    void pageBoundaryInsideTiedRowsContinuesWithLowerIds() {
+        // 上一页停在创建时间相同的一组中间
+        Long boundary = ids.get(3);
+        List<Long> next = travelPlanRepository.findSummaryPageDescAfter(user.getId(), null, T2, boundary,
+                PageRequest.of(0, 10)).stream().map(TravelPlanSummary::getId).collect(Collectors.toList());
+
+        assertThat(next).containsExactly(ids.get(2), ids.get(1), ids.get(0));
+    }
+
+    private Long persistPlan(User owner, LocalDateTime createdAt, String destination) {
+        TravelPlan plan = new TravelPlan();
+        plan.setUser(owner);
+        plan.setDestination(destination);
+        plan.setStartDate(LocalDate.of(2026, 11, 1));
+        plan.setEndDate(LocalDate.of(2026, 11, 3));
+        plan.setBudget(3000.0);
+        plan.setTravelerCount(2);
+        plan.setCreatedAt(createdAt);
+        return entityManager.persistAndGetId(plan, Long.class);
+    }
+}
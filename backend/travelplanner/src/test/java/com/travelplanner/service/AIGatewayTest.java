@@ -0,0 +1,125 @@
+package com.travelplanner.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 舱壁：许可用尽后在队列中等待，队列已满或等待超时抛出 AIBusyException 而不是返回 null（降级）
+ */
+class AIGatewayTest {
+
+    private final ThreadPoolTaskExecutor attemptExecutor = new ThreadPoolTaskExecutor();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void stop() {
+        release.countDown();
+        attemptExecutor.shutdown();
+    }
+
+    private AIGateway newGateway(int maxQueue, long maxWaitMs) {
+        attemptExecutor.setCorePoolSize(4);
+        attemptExecutor.initialize();
+
+        AIGateway gateway = new AIGateway();
+        ReflectionTestUtils.setField(gateway, "aiAttemptExecutor", attemptExecutor);
+        ReflectionTestUtils.setField(gateway, "bulkheadMaxConcurrent", 1);
+        ReflectionTestUtils.setField(gateway, "bulkheadMaxQueue", maxQueue);
+        ReflectionTestUtils.setField(gateway, "bulkheadMaxWaitMs", maxWaitMs);
+        ReflectionTestUtils.setField(gateway, "windowSize", 20);
+        ReflectionTestUtils.setField(gateway, "minimumCalls", 10);
+        ReflectionTestUtils.setField(gateway, "failureRateThreshold", 0.5);
+        ReflectionTestUtils.setField(gateway, "openDurationMs", 30000L);
+        ReflectionTestUtils.setField(gateway, "halfOpenCalls", 3);
+        ReflectionTestUtils.setField(gateway, "minDeadlineMs", 5000L);
+        ReflectionTestUtils.setField(gateway, "maxDeadlineMs", 10000L);
+        ReflectionTestUtils.setField(gateway, "deadlineMultiplier", 1.5);
+        ReflectionTestUtils.setField(gateway, "minSamples", 20);
+        ReflectionTestUtils.setField(gateway, "hedgeEnabled", false);
+        ReflectionTestUtils.setField(gateway, "maxRetries", 0);
+        gateway.init();
+        return gateway;
+    }
+
+    /**
+     * 占住唯一的许可，直到测试结束
+     */
+    private CompletableFuture<String> occupy(AIGateway gateway) throws InterruptedException {
+        CountDownLatch entered = new CountDownLatch(1);
+        CompletableFuture<String> call = CompletableFuture.supplyAsync(() -> gateway.execute(false, attempt -> {
+            entered.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "first";
+        }));
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+        return call;
+    }
+
+    @Test
+    void fullQueueIsRejectedWithRetryAfter() throws Exception {
+        AIGateway gateway = newGateway(0, 1500);
+        CompletableFuture<String> first = occupy(gateway);
+
+        assertThat(gateway.isSaturated()).isTrue();
+        assertThatThrownBy(() -> gateway.execute(false, attempt -> "second"))
+                .isInstanceOf(AIBusyException.class)
+                .satisfies(e -> assertThat(((AIBusyException) e).getRetryAfterSeconds()).isEqualTo(2));
+
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("first");
+        assertThat(bulkheadStats(gateway).get("queueFull")).isEqualTo(1L);
+    }
+
+    @Test
+    void waitTimeoutIsRejected() throws Exception {
+        AIGateway gateway = newGateway(1, 50);
+        occupy(gateway);
+
+        assertThat(gateway.isSaturated()).isFalse();
+        assertThatThrownBy(() -> gateway.execute(false, attempt -> "second")).isInstanceOf(AIBusyException.class);
+        assertThat(bulkheadStats(gateway).get("waitTimeouts")).isEqualTo(1L);
+    }
+
+    @Test
+    void queuedCallRunsOncePermitIsReturned() throws Exception {
+        AIGateway gateway = newGateway(1, 5000);
+        occupy(gateway);
+
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> gateway.execute(false, attempt -> "second"));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!Integer.valueOf(1).equals(bulkheadStats(gateway).get("waiting"))) {
+            assertThat(System.currentTimeMillis()).as("waiting calls").isLessThan(deadline);
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("second");
+    }
+
+    @Test
+    void streamingPermissionIsRejectedWhenQueueIsFull() throws Exception {
+        AIGateway gateway = newGateway(0, 1000);
+        occupy(gateway);
+
+        assertThatThrownBy(gateway::tryAcquirePermission).isInstanceOf(AIBusyException.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> bulkheadStats(AIGateway gateway) {
+        return (Map<String, Object>) gateway.getStatus().get("bulkhead");
+    }
+}
@@ -0,0 +1,81 @@
+package com.travelplanner.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ItineraryCacheKeyTest {
+
+    private static ItineraryCacheKey key(String destination, String startDate, String endDate,
+                                         Double budget, String preferences) {
+        return ItineraryCacheKey.of(destination, startDate, endDate, budget, 2, preferences, 1000);
+    }
+
+    @Test
+    void destinationIgnoresWhitespaceWidthCaseAndCitySuffix() {
+        assertThat(ItineraryCacheKey.canonicalDestination(" 杭州市 ")).isEqualTo("杭州");
+        assertThat(ItineraryCacheKey.canonicalDestination("杭 州")).isEqualTo("杭州");
+        assertThat(ItineraryCacheKey.canonicalDestination("ＴＯＫＹＯ")).isEqualTo("tokyo");
+        assertThat(ItineraryCacheKey.canonicalDestination("New York")).isEqualTo("newyork");
+        assertThat(ItineraryCacheKey.canonicalDestination(null)).isEmpty();
+    }
+
+    @Test
+    void shortNamesEndingInCityKeepTheSuffix() {
+        // “沙市”去掉“市”就只剩一个字，不再是同一个地方
+        assertThat(ItineraryCacheKey.canonicalDestination("沙市")).isEqualTo("沙市");
+    }
+
+    @Test
+    void preferencesAreSplitDeduplicatedAndSorted() {
+        assertThat(ItineraryCacheKey.canonicalPreferences("Food, museum、food；NIGHT market"))
+                .isEqualTo("food,market,museum,night");
+        assertThat(ItineraryCacheKey.canonicalPreferences("美食，购物"))
+                .isEqualTo(ItineraryCacheKey.canonicalPreferences("购物 / 美食 / 美食"));
+        assertThat(ItineraryCacheKey.canonicalPreferences(" ,， ")).isEmpty();
+        assertThat(ItineraryCacheKey.canonicalPreferences(null)).isEmpty();
+    }
+
+    @Test
+    void tripDaysCountBothEnds() {
+        assertThat(ItineraryCacheKey.tripDays("2026-05-01", "2026-05-03")).isEqualTo(3);
+        assertThat(ItineraryCacheKey.tripDays("2026-05-01", "2026-05-01")).isEqualTo(1);
+        assertThat(ItineraryCacheKey.tripDays("2026-02-27", "2026-03-02")).isEqualTo(4);
+    }
+
+    @Test
+    void missingOrInvalidDatesGiveZeroDays() {
+        assertThat(ItineraryCacheKey.tripDays(null, "2026-05-03")).isZero();
+        assertThat(ItineraryCacheKey.tripDays("2026-05-01", "")).isZero();
+        assertThat(ItineraryCacheKey.tripDays("5月1日", "5月3日")).isZero();
+    }
+
+    @Test
+    void budgetIsBucketed() {
+        assertThat(key("杭州", "2026-05-01", "2026-05-03", 2000.0, "").getBudgetBucket()).isEqualTo(2);
+        assertThat(key("杭州", "2026-05-01", "2026-05-03", 2999.99, "").getBudgetBucket()).isEqualTo(2);
+        assertThat(key("杭州", "2026-05-01", "2026-05-03", 3000.0, "").getBudgetBucket()).isEqualTo(3);
+        assertThat(key("杭州", "2026-05-01", "2026-05-03", null, "").getBudgetBucket()).isEqualTo(-1);
+    }
+
+    @Test
+    void equivalentRequestsShareAKey() {
+        ItineraryCacheKey first = key("杭州市", "2026-05-01", "2026-05-03", 3200.0, "美食,购物");
+        ItineraryCacheKey second = key(" 杭州", "2026-10-01", "2026-10-03", 3900.0, "购物、美食、美食");
+
+        assertThat(second).isEqualTo(first).hasSameHashCodeAs(first);
+        assertThat(second.toString()).isEqualTo(first.toString());
+    }
+
+    @Test
+    void differentTripsGetDifferentKeys() {
+        ItineraryCacheKey base = key("杭州", "2026-05-01", "2026-05-03", 3200.0, "美食");
+
+        assertThat(key("苏州", "2026-05-01", "2026-05-03", 3200.0, "美食")).isNotEqualTo(base);
+        assertThat(key("杭州", "2026-05-01", "2026-05-04", 3200.0, "美食")).isNotEqualTo(base);
+        assertThat(key("杭州", "2026-05-01", "2026-05-03", 4200.0, "美食")).isNotEqualTo(base);
+        assertThat(key("杭州", "2026-05-01", "2026-05-03", 3200.0, "购物")).isNotEqualTo(base);
+        assertThat(ItineraryCacheKey.of("杭州", "2026-05-01", "2026-05-03", 3200.0, 3, "美食", 1000))
+                .isNotEqualTo(base);
+    }
+}
@@ -0,0 +1,63 @@
+package com.travelplanner.service;
+
+import com.travelplanner.config.ModelRoutingProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 同一个模型在不同任务上的耗时分开统计，每个任务只按自己的样本判断 SLO
+ */
+class ModelRouterTest {
+
+    private ModelRouter newRouter() {
+        ModelRoutingProperties properties = new ModelRoutingProperties();
+        properties.setMinSamples(5);
+        properties.setProbeRatio(0);
+        route(properties, "parse", 3000);
+        route(properties, "itinerary", 20000);
+
+        ModelRouter router = new ModelRouter();
+        ReflectionTestUtils.setField(router, "properties", properties);
+        return router;
+    }
+
+    private static void route(ModelRoutingProperties properties, String task, long sloMs) {
+        ModelRoutingProperties.TaskRoute route = properties.getTask(task);
+        route.setModel("qwen-plus");
+        route.setFallbackModel("qwen-turbo");
+        route.setSloMs(sloMs);
+    }
+
+    private static void recordCalls(ModelRouter router, AITask task, long latencyMs) {
+        for (int i = 0; i < 10; i++) {
+            router.record(router.route(task), latencyMs, true);
+        }
+    }
+
+    @Test
+    void slowItinerariesDoNotDegradeParsing() {
+        ModelRouter router = newRouter();
+
+        // 15 秒对行程生成来说在 SLO 之内，却远超解析任务的 3 秒
+        recordCalls(router, AITask.ITINERARY, 15000);
+        recordCalls(router, AITask.PARSE, 500);
+
+        assertThat(router.route(AITask.PARSE).getModel()).isEqualTo("qwen-plus");
+        assertThat(router.route(AITask.ITINERARY).getModel()).isEqualTo("qwen-plus");
+    }
+
+    @Test
+    void taskFallsBackOnItsOwnSamples() {
+        ModelRouter router = newRouter();
+
+        recordCalls(router, AITask.ITINERARY, 500);
+        recordCalls(router, AITask.PARSE, 4000);
+
+        ModelRouter.Route parse = router.route(AITask.PARSE);
+        assertThat(parse.getModel()).isEqualTo("qwen-turbo");
+        assertThat(parse.getReason()).isEqualTo("slo-fallback");
+        assertThat(router.route(AITask.ITINERARY).getModel()).isEqualTo("qwen-plus");
+    }
+}
@@ -0,0 +1,97 @@
+package com.travelplanner.service;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.sqlite.SQLiteDataSource;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 在临时 SQLite 文件上执行 db/migration 中的全部脚本，检查常用查询都用上了索引
+ */
+class QueryPlanCheckerTest {
+
+    @TempDir
+    Path dir;
+
+    private JdbcTemplate jdbcTemplate;
+    private QueryPlanChecker checker;
+
+    @BeforeEach
+    void migrate() {
+        SQLiteDataSource dataSource = new SQLiteDataSource();
+        dataSource.setUrl("jdbc:sqlite:" + dir.resolve("test.db"));
+        Flyway.configure().dataSource(dataSource).load().migrate();
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        checker = new QueryPlanChecker();
+        ReflectionTestUtils.setField(checker, "jdbcTemplate", jdbcTemplate);
+    }
+
+    @Test
+    void everyCheckedQueryUsesAnIndex() {
+        Map<String, Map<String, Object>> results = checker.check();
+
+        assertThat(results).containsOnlyKeys(QueryPlanChecker.QUERIES.keySet());
+        results.forEach((name, result) ->
+                assertThat(result.get("scan")).as("%s: %s", name, result.get("plan")).isEqualTo(false));
+    }
+
+    @Test
+    void keysetPagesSeekWithoutSorting() {
+        assertSearchWithoutSort("travel-plans.page", "idx_travel_plans_user_created");
+        assertSearchWithoutSort("expenses.page", "idx_expenses_plan_date");
+    }
+
+    @Test
+    void fullTextSearchUsesFtsIndex() {
+        List<String> plan = explain("plan-search.match");
+
+        assertThat(plan).anyMatch(detail -> detail.contains("VIRTUAL TABLE INDEX") && detail.contains(":M"));
+        assertThat(QueryPlanChecker.isScan(plan)).isFalse();
+    }
+
+    @Test
+    void rollupsUsePrimaryKey() {
+        assertThat(explain("expense-rollups.plan")).anyMatch(detail -> detail.startsWith("SEARCH expense_rollups")
+                && detail.contains("PRIMARY KEY"));
+        assertThat(explain("expense-rollups.plan")).noneMatch(detail -> detail.contains("TEMP B-TREE"));
+        assertThat(explain("expense-rollups.bucket")).anyMatch(detail -> detail.startsWith("SEARCH expense_rollups")
+                && detail.contains("PRIMARY KEY"));
+        assertThat(explain("expenses.category-extremes"))
+                .anyMatch(detail -> detail.contains("COVERING INDEX idx_expenses_plan_category"));
+    }
+
+    @Test
+    void jobSweepsUsePartialIndex() {
+        assertThat(explain("plan-jobs.unfinished")).anyMatch(detail -> detail.contains("idx_plan_jobs_unfinished"));
+        assertThat(explain("plan-jobs.count-by-status"))
+                .anyMatch(detail -> detail.contains("idx_plan_jobs_unfinished"));
+        assertThat(explain("itinerary-cache.expired")).anyMatch(detail -> detail.contains("idx_itinerary_cache_expires"));
+    }
+
+    @Test
+    void fullScanIsReported() {
+        List<String> plan = QueryPlanChecker.explain(jdbcTemplate, "select id from expenses where description = ?");
+
+        assertThat(QueryPlanChecker.isScan(plan)).isTrue();
+    }
+
+    private void assertSearchWithoutSort(String name, String index) {
+        List<String> plan = explain(name);
+        assertThat(plan).as(name).anyMatch(detail -> detail.startsWith("SEARCH ") && detail.contains(index));
+        assertThat(plan).as(name).noneMatch(detail -> detail.contains("TEMP B-TREE"));
+    }
+
+    private List<String> explain(String name) {
+        return QueryPlanChecker.explain(jdbcTemplate, QueryPlanChecker.QUERIES.get(name));
+    }
+}
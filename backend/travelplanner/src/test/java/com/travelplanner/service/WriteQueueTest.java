@@ -0,0 +1,199 @@
+package com.travelplanner.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 写入队列的成组提交：整组失败后逐个重新执行，只有出错的任务把异常返回给调用方
+ */
+class WriteQueueTest {
+
+    @TempDir
+    Path dir;
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private WriteQueue writeQueue;
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+
+    @BeforeEach
+    void start() {
+        dataSource = new SingleConnectionDataSource("jdbc:sqlite:" + dir.resolve("test.db"), true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table items (id integer primary key, name text not null)");
+        writeQueue = newWriteQueue(100);
+    }
+
+    private WriteQueue newWriteQueue(int capacity) {
+        WriteQueue queue = new WriteQueue();
+        ReflectionTestUtils.setField(queue, "transactionTemplate",
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+        ReflectionTestUtils.setField(queue, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(queue, "capacity", capacity);
+        ReflectionTestUtils.setField(queue, "maxBatch", 64);
+        ReflectionTestUtils.setField(queue, "offerTimeoutMs", 100L);
+        ReflectionTestUtils.setField(queue, "checkpointEnabled", false);
+        ReflectionTestUtils.setField(queue, "checkpointMode", "passive");
+        queue.init();
+        return queue;
+    }
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        callers.shutdownNow();
+        writeQueue.shutdown();
+        dataSource.destroy();
+    }
+
+    @Test
+    void queuedWritesCommitTogether() throws Exception {
+        CountDownLatch release = blockWriter();
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            int id = i;
+            results.add(submit(() -> jdbcTemplate.update("insert into items values (?, ?)", id, "item" + id)));
+        }
+        awaitQueued(5);
+        release.countDown();
+
+        for (CompletableFuture<Integer> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        }
+        assertThat(count()).isEqualTo(5);
+        Map<String, Object> stats = writeQueue.getStats();
+        assertThat(stats.get("maxGroupSize")).isEqualTo(5L);
+        assertThat(stats.get("groupFailures")).isEqualTo(0L);
+    }
+
+    @Test
+    void failedGroupIsRolledBackAndRerunTaskByTask() throws Exception {
+        jdbcTemplate.update("insert into items values (3, 'existing')");
+        AtomicInteger runs = new AtomicInteger();
+
+        CountDownLatch release = blockWriter();
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            int id = i;
+            results.add(submit(() -> {
+                runs.incrementAndGet();
+                // id 3 与已有的行主键冲突，整组提交失败
+                return jdbcTemplate.update("insert into items values (?, ?)", id, "item" + id);
+            }));
+            // 逐个入队，保证组内顺序
+            awaitQueued(i);
+        }
+        release.countDown();
+
+        assertThat(results.get(0).get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        assertThat(results.get(1).get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        assertThat(results.get(3).get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        assertThatThrownBy(() -> results.get(2).get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class);
+
+        // 成组执行一次（在 id 3 处失败），之后 4 个任务各单独执行一次
+        assertThat(runs.get()).isEqualTo(3 + 4);
+        // 第一次成组执行的写入已回滚，重新执行没有产生重复行
+        assertThat(count()).isEqualTo(4);
+        assertThat(jdbcTemplate.queryForObject("select name from items where id = 3", String.class))
+                .isEqualTo("existing");
+        Map<String, Object> stats = writeQueue.getStats();
+        assertThat(stats.get("groupFailures")).isEqualTo(1L);
+        assertThat(stats.get("failedTasks")).isEqualTo(1L);
+        assertThat(stats.get("committedTasks")).isEqualTo(4L);
+    }
+
+    @Test
+    void singleFailingTaskIsNotRerun() {
+        AtomicInteger runs = new AtomicInteger();
+
+        assertThatThrownBy(() -> writeQueue.execute(() -> {
+            runs.incrementAndGet();
+            throw new IllegalArgumentException("bad");
+        })).isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(runs.get()).isEqualTo(1);
+        assertThat(writeQueue.getStats().get("groupFailures")).isEqualTo(0L);
+    }
+
+    @Test
+    void nestedCallOnWriterRunsInline() {
+        int inserted = writeQueue.execute(() -> jdbcTemplate.update("insert into items values (1, 'outer')")
+                + writeQueue.execute(() -> jdbcTemplate.update("insert into items values (2, 'inner')")));
+
+        assertThat(inserted).isEqualTo(2);
+        assertThat(writeQueue.getStats().get("commits")).isEqualTo(1L);
+    }
+
+    @Test
+    void fullQueueRejects() throws Exception {
+        writeQueue.shutdown();
+        writeQueue = newWriteQueue(1);
+        CountDownLatch release = blockWriter();
+        CompletableFuture<Integer> queued = submit(() -> 1);
+        awaitQueued(1);
+
+        assertThatThrownBy(() -> writeQueue.execute(() -> 2)).isInstanceOf(RejectedExecutionException.class);
+        release.countDown();
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        assertThat(writeQueue.getStats().get("rejected")).isEqualTo(1L);
+    }
+
+    /**
+     * 让写线程停在一个任务里，之后提交的任务在队列中积压，放行后成为同一组
+     */
+    private CountDownLatch blockWriter() throws InterruptedException {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        submit(() -> {
+            entered.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        });
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+        return release;
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> work) {
+        return CompletableFuture.supplyAsync(() -> writeQueue.execute(work), callers);
+    }
+
+    private void awaitQueued(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!Integer.valueOf(expected).equals(writeQueue.getStats().get("queued"))) {
+            assertThat(System.currentTimeMillis()).as("queued tasks").isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private int count() {
+        return jdbcTemplate.queryForObject("select count(*) from items", Integer.class);
+    }
+}
@@ -0,0 +1,110 @@
+package com.travelplanner.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AhoCorasickTest {
+
+    private static List<String> describe(List<AhoCorasick.Match<String>> matches) {
+        return matches.stream().map(AhoCorasick.Match::toString).collect(Collectors.toList());
+    }
+
+    @Test
+    void findsOverlappingMatchesOrderedByEndThenStart() {
+        AhoCorasick<String> matcher = AhoCorasick.<String>builder()
+                .add("he", "he").add("she", "she").add("his", "his").add("hers", "hers")
+                .build();
+
+        assertThat(describe(matcher.findAll("ushers")))
+                .containsExactly("[1,4)=she", "[2,4)=he", "[2,6)=hers");
+    }
+
+    @Test
+    void followsOutputLinksForNestedPatterns() {
+        AhoCorasick<String> matcher = AhoCorasick.<String>builder()
+                .add("成都", "成都").add("四川成都", "四川成都").add("都", "都")
+                .build();
+
+        assertThat(describe(matcher.findAll("去四川成都")))
+                .containsExactly("[1,5)=四川成都", "[3,5)=成都", "[4,5)=都");
+    }
+
+    @Test
+    void longestNonOverlappingPrefersLongerMatchAtSameStart() {
+        AhoCorasick<String> matcher = AhoCorasick.<String>builder()
+                .add("四川", "四川").add("成都", "成都").add("四川成都", "四川成都").add("杭州", "杭州")
+                .build();
+
+        assertThat(describe(matcher.findLongestNonOverlapping("四川成都和杭州")))
+                .containsExactly("[0,4)=四川成都", "[5,7)=杭州");
+    }
+
+    @Test
+    void longestNonOverlappingKeepsLeftmostWhenMatchesOverlap() {
+        AhoCorasick<String> matcher = AhoCorasick.<String>builder()
+                .add("西湖", "西湖").add("湖南", "湖南")
+                .build();
+
+        assertThat(describe(matcher.findLongestNonOverlapping("西湖南")))
+                .containsExactly("[0,2)=西湖");
+    }
+
+    @Test
+    void laterValueOverridesAndEmptyPatternIsIgnored() {
+        AhoCorasick<Integer> matcher = AhoCorasick.<Integer>builder()
+                .add("北京", 1).add("北京", 2).add("", 3).add(null, 4)
+                .build();
+
+        List<AhoCorasick.Match<Integer>> matches = matcher.findAll("北京");
+        assertThat(matches).hasSize(1);
+        assertThat(matches.get(0).getValue()).isEqualTo(2);
+        assertThat(matcher.findAll("")).isEmpty();
+        assertThat(matcher.findAll("上海")).isEmpty();
+    }
+
+    @Test
+    void matchesBruteForceOnRandomInput() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            Set<String> patterns = new LinkedHashSet<>();
+            int count = 1 + random.nextInt(8);
+            while (patterns.size() < count) {
+                patterns.add(randomString(random, 1 + random.nextInt(4)));
+            }
+            AhoCorasick.Builder<String> builder = AhoCorasick.builder();
+            patterns.forEach(pattern -> builder.add(pattern, pattern));
+            AhoCorasick<String> matcher = builder.build();
+
+            String text = randomString(random, random.nextInt(40));
+            List<String> expected = new ArrayList<>();
+            List<int[]> positions = new ArrayList<>();
+            for (String pattern : patterns) {
+                for (int from = text.indexOf(pattern); from >= 0; from = text.indexOf(pattern, from + 1)) {
+                    positions.add(new int[]{from, from + pattern.length()});
+                }
+            }
+            positions.sort(Comparator.<int[]>comparingInt(p -> p[1]).thenComparingInt(p -> p[0]));
+            positions.forEach(p -> expected.add("[" + p[0] + "," + p[1] + ")=" + text.substring(p[0], p[1])));
+
+            assertThat(describe(matcher.findAll(text))).as("patterns %s, text %s", patterns, text)
+                    .containsExactlyElementsOf(expected);
+        }
+    }
+
+    private static String randomString(Random random, int length) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            builder.append("ab成都".charAt(random.nextInt(4)));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,55 @@
+package com.travelplanner.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChineseNumeralsTest {
+
+    @ParameterizedTest
+    @CsvSource({
+            "三千五, 3500",
+            "一万二, 12000",
+            "2万5, 25000",
+            "一千零五十, 1050",
+            "两百, 200",
+            "两百五, 250",
+            "1.5万, 15000",
+            "5千, 5000",
+            "十一, 11",
+            "二十, 20",
+            "三, 3",
+            "8000, 8000",
+            "一万零五百, 10500",
+            "十万, 100000"
+    })
+    void parsesColloquialNumbers(String text, double expected) {
+        assertThat(ChineseNumerals.parse(text, 0, text.length())).isEqualTo(expected);
+    }
+
+    @Test
+    void parsesWithinRangeWithoutSubstring() {
+        String text = "预算三千五左右";
+        int start = text.indexOf('三');
+        int end = ChineseNumerals.scanEnd(text, start);
+
+        assertThat(end).isEqualTo(text.indexOf('左'));
+        assertThat(ChineseNumerals.parse(text, start, end)).isEqualTo(3500);
+    }
+
+    @Test
+    void scanStopsAtDotWithoutDigit() {
+        String text = "1.5万。2.";
+        assertThat(ChineseNumerals.scanEnd(text, 0)).isEqualTo(4);
+        assertThat(ChineseNumerals.scanEnd(text, 5)).isEqualTo(6);
+    }
+
+    @Test
+    void leadingLargeUnitIsNotANumber() {
+        assertThat(ChineseNumerals.isNumeralStart('万')).isFalse();
+        assertThat(ChineseNumerals.parse("万", 0, 1)).isNaN();
+        assertThat(ChineseNumerals.parse("1.2.3", 0, 5)).isNaN();
+    }
+}
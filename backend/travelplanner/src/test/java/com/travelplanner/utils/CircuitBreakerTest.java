@@ -0,0 +1,115 @@
+package com.travelplanner.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    private static void fail(CircuitBreaker breaker, int times) {
+        for (int i = 0; i < times; i++) {
+            assertThat(breaker.tryAcquirePermission()).isTrue();
+            breaker.onFailure();
+        }
+    }
+
+    private static void succeed(CircuitBreaker breaker, int times) {
+        for (int i = 0; i < times; i++) {
+            assertThat(breaker.tryAcquirePermission()).isTrue();
+            breaker.onSuccess();
+        }
+    }
+
+    @Test
+    void staysClosedBelowMinimumCalls() {
+        CircuitBreaker breaker = new CircuitBreaker(10, 5, 0.5, 60_000, 2);
+
+        fail(breaker, 4);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.getFailureRate()).isEqualTo(1.0);
+    }
+
+    @Test
+    void opensAtFailureRateAndShortCircuits() {
+        CircuitBreaker breaker = new CircuitBreaker(10, 4, 0.5, 60_000, 2);
+
+        succeed(breaker, 2);
+        fail(breaker, 2);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+        assertThat(breaker.snapshot().get("shortCircuited")).isEqualTo(2L);
+    }
+
+    @Test
+    void slidingWindowForgetsOldFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(4, 4, 0.75, 60_000, 2);
+
+        fail(breaker, 2);
+        succeed(breaker, 4);
+
+        assertThat(breaker.getFailureRate()).isEqualTo(0.0);
+        fail(breaker, 2);
+        assertThat(breaker.getFailureRate()).isEqualTo(0.5);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void halfOpenAllowsLimitedProbesAndClosesOnSuccess() {
+        CircuitBreaker breaker = new CircuitBreaker(4, 2, 0.5, 0, 2);
+        fail(breaker, 2);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+
+        breaker.onSuccess();
+        breaker.onSuccess();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.getFailureRate()).isEqualTo(0.0);
+    }
+
+    @Test
+    void halfOpenFailureReopens() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(4, 2, 0.5, 50, 1);
+        fail(breaker, 2);
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+
+        Thread.sleep(60);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        breaker.onFailure();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+    }
+
+    @Test
+    void releasedPermissionReturnsHalfOpenProbe() {
+        CircuitBreaker breaker = new CircuitBreaker(4, 2, 0.5, 0, 1);
+        fail(breaker, 2);
+
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+
+        // 被放弃的探测既不算成功也不算失败，名额还回去
+        breaker.releasePermission();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+    }
+
+    @Test
+    void releasePermissionWhenClosedChangesNothing() {
+        CircuitBreaker breaker = new CircuitBreaker(4, 2, 0.5, 0, 1);
+        succeed(breaker, 1);
+
+        breaker.releasePermission();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.snapshot().get("windowCalls")).isEqualTo(1);
+    }
+}
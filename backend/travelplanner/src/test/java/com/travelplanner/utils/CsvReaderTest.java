@@ -0,0 +1,106 @@
+package com.travelplanner.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvReaderTest {
+
+    private static List<List<String>> readAll(String text) throws IOException {
+        CsvReader reader = new CsvReader(new StringReader(text));
+        List<List<String>> records = new ArrayList<>();
+        List<String> record;
+        while ((record = reader.next()) != null) {
+            records.add(record);
+        }
+        return records;
+    }
+
+    @Test
+    void readsSimpleRecords() throws IOException {
+        assertThat(readAll("category,amount\n餐饮,35.5\n交通,12\n")).containsExactly(
+                Arrays.asList("category", "amount"),
+                Arrays.asList("餐饮", "35.5"),
+                Arrays.asList("交通", "12"));
+    }
+
+    @Test
+    void lastRecordWithoutNewline() throws IOException {
+        assertThat(readAll("a,b\nc,d")).containsExactly(Arrays.asList("a", "b"), Arrays.asList("c", "d"));
+    }
+
+    @Test
+    void crlfLineEndings() throws IOException {
+        assertThat(readAll("a,b\r\nc,d\r\n")).containsExactly(Arrays.asList("a", "b"), Arrays.asList("c", "d"));
+    }
+
+    @Test
+    void quotedFieldsKeepCommasNewlinesAndQuotes() throws IOException {
+        assertThat(readAll("餐饮,\"午饭, 两人\"\n购物,\"第一行\n第二行\"\n其他,\"他说\"\"好\"\"\"\n")).containsExactly(
+                Arrays.asList("餐饮", "午饭, 两人"),
+                Arrays.asList("购物", "第一行\n第二行"),
+                Arrays.asList("其他", "他说\"好\""));
+    }
+
+    @Test
+    void emptyFieldsArePreserved() throws IOException {
+        assertThat(readAll("a,,c\n,\n\"\"\n")).containsExactly(
+                Arrays.asList("a", "", "c"),
+                Arrays.asList("", ""),
+                Arrays.asList(""));
+    }
+
+    @Test
+    void blankLinesAreSkipped() throws IOException {
+        assertThat(readAll("\n\na,b\n\r\n\nc,d\n\n")).containsExactly(Arrays.asList("a", "b"), Arrays.asList("c", "d"));
+        assertThat(readAll("")).isEmpty();
+        assertThat(readAll("\n\n")).isEmpty();
+    }
+
+    @Test
+    void leadingBomIsIgnored() throws IOException {
+        assertThat(readAll("\uFEFFcategory,amount\n")).containsExactly(Arrays.asList("category", "amount"));
+    }
+
+    @Test
+    void textAfterClosingQuoteIsKept() throws IOException {
+        assertThat(readAll("\"a\"b,c\n")).containsExactly(Arrays.asList("ab", "c"));
+    }
+
+    @Test
+    void quoteInsideUnquotedFieldIsLiteral() throws IOException {
+        assertThat(readAll("5\"寸,x\n")).containsExactly(Arrays.asList("5\"寸", "x"));
+    }
+
+    @Test
+    void recordLineCountsBlankAndEmbeddedLines() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("h1,h2\n\n\"多\n行\",1\nlast,2\n"));
+
+        reader.next();
+        assertThat(reader.getRecordLine()).isEqualTo(1);
+        reader.next();
+        assertThat(reader.getRecordLine()).isEqualTo(3);
+        reader.next();
+        assertThat(reader.getRecordLine()).isEqualTo(5);
+        assertThat(reader.next()).isNull();
+    }
+
+    @Test
+    void readsBeyondReaderBuffer() throws IOException {
+        StringBuilder text = new StringBuilder("category,amount\n");
+        for (int i = 0; i < 10_000; i++) {
+            text.append("餐饮,").append(i).append('\n');
+        }
+
+        List<List<String>> records = readAll(text.toString());
+
+        assertThat(records).hasSize(10_001);
+        assertThat(records.get(10_000)).containsExactly("餐饮", "9999");
+    }
+}
@@ -0,0 +1,76 @@
+package com.travelplanner.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ItineraryCodecTest {
+
+    private static int utf8Length(String text) {
+        return text.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    @Test
+    void hashIsLowercaseHexSha256OfUtf8() {
+        assertThat(ItineraryCodec.hash(""))
+                .isEqualTo("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855");
+        assertThat(ItineraryCodec.hash("abc"))
+                .isEqualTo("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+        assertThat(ItineraryCodec.hash("杭州三日游"))
+                .isEqualTo("7d8110048740ddce761f5530a15d6e3bc008696c7646535ecf9f00249d9c5cdf");
+    }
+
+    @Test
+    void roundTripsChineseText() {
+        String text = "第1天：杭州西湖，断桥残雪、苏堤春晓。\n第2天：灵隐寺，龙井村品茶。\n第3天：河坊街。";
+
+        byte[] compressed = ItineraryCodec.compress(text);
+
+        assertThat(ItineraryCodec.decompress(compressed, utf8Length(text))).isEqualTo(text);
+    }
+
+    @Test
+    void roundTripsEmptyText() {
+        assertThat(ItineraryCodec.decompress(ItineraryCodec.compress(""), 0)).isEmpty();
+    }
+
+    @Test
+    void roundTripsLargeIncompressibleText() {
+        // 压缩结果超过内部 4KB 缓冲，需多次 deflate
+        Random random = new Random(1);
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            builder.append((char) (0x4E00 + random.nextInt(0x5000)));
+        }
+        String text = builder.toString();
+
+        byte[] compressed = ItineraryCodec.compress(text);
+
+        assertThat(compressed.length).isGreaterThan(4096);
+        assertThat(ItineraryCodec.decompress(compressed, utf8Length(text))).isEqualTo(text);
+    }
+
+    @Test
+    void repetitiveItineraryShrinks() {
+        StringBuilder builder = new StringBuilder();
+        for (int day = 1; day <= 10; day++) {
+            builder.append("第").append(day).append("天：上午参观景点，中午品尝当地美食，下午自由活动，晚上返回酒店休息。\n");
+        }
+        String text = builder.toString();
+
+        assertThat(ItineraryCodec.compress(text).length).isLessThan(utf8Length(text) / 3);
+    }
+
+    @Test
+    void corruptDataIsReported() {
+        byte[] compressed = ItineraryCodec.compress("杭州西湖一日游");
+        compressed[0] ^= 0x7F;
+
+        assertThatThrownBy(() -> ItineraryCodec.decompress(compressed, 64))
+                .isInstanceOf(IllegalStateException.class).hasMessage("行程数据已损坏");
+    }
+}
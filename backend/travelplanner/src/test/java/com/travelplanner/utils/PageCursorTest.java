@@ -0,0 +1,79 @@
+package com.travelplanner.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PageCursorTest {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2026, 10, 1, 8, 30, 15, 123_000_000);
+
+    @Test
+    void roundTrips() {
+        PageCursor decoded = PageCursor.decode(new PageCursor(false, TIME, 42).encode());
+
+        assertThat(decoded.isAscending()).isFalse();
+        assertThat(decoded.getTime()).isEqualTo(TIME);
+        assertThat(decoded.getId()).isEqualTo(42);
+    }
+
+    @Test
+    void tokenIsUrlSafeWithoutPadding() {
+        String token = new PageCursor(true, TIME, Long.MAX_VALUE).encode();
+
+        assertThat(token).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void cursorsWithSameTimeDifferById() {
+        // 同一时间创建的多行靠 ID 区分，游标必须保留 ID 才能在时间相同时接着往下翻
+        String first = new PageCursor(false, TIME, 7).encode();
+        String second = new PageCursor(false, TIME, 8).encode();
+
+        assertThat(first).isNotEqualTo(second);
+        assertThat(PageCursor.decode(first).getId()).isEqualTo(7);
+        assertThat(PageCursor.decode(second).getId()).isEqualTo(8);
+    }
+
+    @Test
+    void resolveReturnsNullForFirstPage() {
+        assertThat(PageCursor.resolve(null, "desc")).isNull();
+        assertThat(PageCursor.resolve("", "asc")).isNull();
+    }
+
+    @Test
+    void resolveRejectsDirectionMismatch() {
+        String token = new PageCursor(true, TIME, 1).encode();
+
+        assertThat(PageCursor.resolve(token, "ASC").getId()).isEqualTo(1);
+        assertThatThrownBy(() -> PageCursor.resolve(token, "desc"))
+                .isInstanceOf(IllegalArgumentException.class).hasMessage("分页游标与排序方向不一致");
+    }
+
+    @Test
+    void invalidOrderIsRejectedEvenWithoutCursor() {
+        assertThatThrownBy(() -> PageCursor.resolve(null, "newest")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void malformedTokensAreRejected() {
+        assertThatThrownBy(() -> PageCursor.decode("!!!")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PageCursor.decode(encodeRaw("x|" + TIME + "|1")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PageCursor.decode(encodeRaw("d|yesterday|1")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PageCursor.decode(encodeRaw("d|" + TIME + "|abc")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PageCursor.decode(encodeRaw("d|" + TIME)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static String encodeRaw(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
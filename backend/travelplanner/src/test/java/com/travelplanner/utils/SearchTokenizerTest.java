@@ -0,0 +1,130 @@
+package com.travelplanner.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchTokenizerTest {
+
+    private Connection connection;
+
+    @BeforeEach
+    void open() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create virtual table docs using fts5(body, tokenize = 'unicode61')");
+        }
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void cjkRunsBecomeOverlappingBigramsPlusLastChar() {
+        assertThat(SearchTokenizer.indexText(7, "上海迪士尼"))
+                .isEqualTo("u7x上海 u7x海迪 u7x迪士 u7x士尼 u7x尼");
+        assertThat(SearchTokenizer.indexText(7, "京")).isEqualTo("u7x京");
+    }
+
+    @Test
+    void wordsAreLowercasedAndSplitFromCjk() {
+        assertThat(SearchTokenizer.indexText(1, "Disney乐园, 2026!"))
+                .isEqualTo("u1xdisney u1x乐园 u1x园 u1x2026");
+    }
+
+    @Test
+    void emptyTextIndexesNothing() {
+        assertThat(SearchTokenizer.indexText(1, null)).isEmpty();
+        assertThat(SearchTokenizer.indexText(1, "")).isEmpty();
+        assertThat(SearchTokenizer.indexText(1, "...")).isEmpty();
+    }
+
+    @Test
+    void matchQueryUsesPhrasesForCjkAndPrefixesOtherwise() {
+        assertThat(SearchTokenizer.matchQuery(3, "迪士尼 Disney 海"))
+                .isEqualTo("\"u3x迪士 u3x士尼\" AND \"u3xdisney\"* AND \"u3x海\"*");
+    }
+
+    @Test
+    void matchQueryWithoutSearchableCharsIsNull() {
+        assertThat(SearchTokenizer.matchQuery(3, null)).isNull();
+        assertThat(SearchTokenizer.matchQuery(3, " ,.;\"*")).isNull();
+    }
+
+    @Test
+    void termsAreLowercasedRuns() {
+        assertThat(SearchTokenizer.terms("西湖 Boat-Tour")).containsExactly("西湖", "boat", "tour");
+        assertThat(SearchTokenizer.terms(null)).isEmpty();
+    }
+
+    @Test
+    void ftsFindsSubstringsOfIndexedText() throws SQLException {
+        long plan = insert(1, "杭州西湖三日游，乘船游湖");
+
+        assertThat(search(1, "西湖")).containsExactly(plan);
+        assertThat(search(1, "湖")).containsExactly(plan);
+        assertThat(search(1, "三日游")).containsExactly(plan);
+        assertThat(search(1, "湖西")).isEmpty();
+        assertThat(search(1, "西湖 乘船")).containsExactly(plan);
+        assertThat(search(1, "西湖 缆车")).isEmpty();
+    }
+
+    @Test
+    void ftsPrefixMatchesWords() throws SQLException {
+        long plan = insert(1, "Visit Disneyland 2026");
+
+        assertThat(search(1, "disney")).containsExactly(plan);
+        assertThat(search(1, "DISNEYLAND")).containsExactly(plan);
+        assertThat(search(1, "land")).isEmpty();
+    }
+
+    @Test
+    void ftsKeepsUsersApart() throws SQLException {
+        long mine = insert(1, "成都火锅");
+        long theirs = insert(12, "成都火锅");
+
+        assertThat(search(1, "火锅")).containsExactly(mine);
+        assertThat(search(12, "火锅")).containsExactly(theirs);
+        // u1x 的前缀匹配不会落到 u12x 的词上
+        assertThat(search(1, "成")).containsExactly(mine);
+    }
+
+    private long insert(long userId, String text) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("insert into docs(body) values (?)")) {
+            statement.setString(1, SearchTokenizer.indexText(userId, text));
+            statement.executeUpdate();
+        }
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("select last_insert_rowid()")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private List<Long> search(long userId, String query) throws SQLException {
+        List<Long> rows = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "select rowid from docs where docs match ? order by rowid")) {
+            statement.setString(1, SearchTokenizer.matchQuery(userId, query));
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(rs.getLong(1));
+                }
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,183 @@
+package com.travelplanner.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallsShareOneExecution() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        CompletableFuture<String> first = singleFlight.execute("k", () -> {
+            calls.incrementAndGet();
+            await(release);
+            return "v";
+        }, executor);
+        CompletableFuture<String> second = singleFlight.execute("k", () -> "other", executor);
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("v");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("v");
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(singleFlight.getExecutionCount()).isEqualTo(1);
+        assertThat(singleFlight.getCoalescedCount()).isEqualTo(1);
+        assertThat(singleFlight.getInFlightCount()).isZero();
+    }
+
+    @Test
+    void finishedKeyRunsAgain() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+
+        singleFlight.execute("k", () -> "v" + calls.incrementAndGet(), executor).get(5, TimeUnit.SECONDS);
+        String second = singleFlight.execute("k", () -> "v" + calls.incrementAndGet(), executor).get(5, TimeUnit.SECONDS);
+
+        assertThat(second).isEqualTo("v2");
+        assertThat(singleFlight.getExecutionCount()).isEqualTo(2);
+    }
+
+    @Test
+    void failureReachesEveryCaller() {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = singleFlight.execute("k", () -> {
+            await(release);
+            throw new IllegalStateException("boom");
+        }, executor);
+        CompletableFuture<String> second = singleFlight.execute("k", () -> "other", executor);
+        release.countDown();
+
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(singleFlight.getInFlightCount()).isZero();
+    }
+
+    @Test
+    void cancellingOneCallerKeepsOthers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = singleFlight.execute("k", () -> {
+            await(release);
+            return "v";
+        }, executor);
+        CompletableFuture<String> second = singleFlight.execute("k", () -> "other", executor);
+
+        first.cancel(true);
+        release.countDown();
+
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("v");
+        assertThat(singleFlight.getAbandonedCount()).isZero();
+    }
+
+    @Test
+    void cancellingAllCallersInterruptsRunnerAndFreesKey() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        CompletableFuture<String> first = singleFlight.execute("k", () -> {
+            started.countDown();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return "late";
+        }, executor);
+        CompletableFuture<String> second = singleFlight.execute("k", () -> "other", executor);
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        first.cancel(true);
+        second.cancel(true);
+
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(singleFlight.getAbandonedCount()).isEqualTo(1);
+        assertThat(singleFlight.getInFlightCount()).isZero();
+        // 放弃之后的新调用重新执行，不会拿到被取消的结果
+        assertThat(singleFlight.execute("k", () -> "fresh", executor).get(5, TimeUnit.SECONDS)).isEqualTo("fresh");
+    }
+
+    @Test
+    void runnerThreadIsNotLeftInterrupted() throws Exception {
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            CountDownLatch started = new CountDownLatch(1);
+            CompletableFuture<String> call = singleFlight.execute("k", () -> {
+                started.countDown();
+                await(new CountDownLatch(1));
+                return "late";
+            }, single);
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            call.cancel(true);
+
+            CompletableFuture<Boolean> next = CompletableFuture.supplyAsync(
+                    () -> Thread.currentThread().isInterrupted(), single);
+            assertThat(next.get(5, TimeUnit.SECONDS)).isFalse();
+        } finally {
+            single.shutdownNow();
+        }
+    }
+
+    @Test
+    void cancelledBeforeStartNeverRuns() throws Exception {
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            CountDownLatch blocker = new CountDownLatch(1);
+            single.execute(() -> await(blocker));
+            AtomicInteger calls = new AtomicInteger();
+
+            CompletableFuture<String> call = singleFlight.execute("k", () -> {
+                calls.incrementAndGet();
+                return "v";
+            }, single);
+            call.cancel(true);
+            blocker.countDown();
+
+            single.submit(() -> { }).get(5, TimeUnit.SECONDS);
+            assertThat(calls.get()).isZero();
+            assertThat(singleFlight.getInFlightCount()).isZero();
+        } finally {
+            single.shutdownNow();
+        }
+    }
+
+    @Test
+    void rejectedExecutionFailsTheCall() {
+        CompletableFuture<String> call = singleFlight.execute("k", () -> "v", command -> {
+            throw new RejectedExecutionException("full");
+        });
+
+        assertThatThrownBy(() -> call.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(RejectedExecutionException.class);
+        assertThat(singleFlight.getInFlightCount()).isZero();
+    }
+
+    /**
+     * 等待闩锁，被中断时直接返回（中断标记保留）
+     */
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.travelplanner.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+
+    @Test
+    void allowsBurstUpToCapacity() {
+        TokenBucket bucket = new TokenBucket(3, 1);
+
+        assertThat(bucket.tryConsume()).isZero();
+        assertThat(bucket.tryConsume()).isZero();
+        assertThat(bucket.tryConsume()).isZero();
+        assertThat(bucket.tryConsume()).isPositive();
+    }
+
+    @Test
+    void reportsWaitUntilNextToken() {
+        // 每分钟 6 个，即每 10 秒 1 个
+        TokenBucket bucket = new TokenBucket(1, 6);
+        bucket.tryConsume();
+
+        assertThat(bucket.tryConsume()).isBetween(9_000L, 10_000L);
+    }
+
+    @Test
+    void refillsOverTime() throws InterruptedException {
+        // 每 10 毫秒 1 个
+        TokenBucket bucket = new TokenBucket(5, 6_000);
+        for (int i = 0; i < 5; i++) {
+            bucket.tryConsume();
+        }
+        assertThat(bucket.getAvailableTokens()).isLessThan(5);
+
+        Thread.sleep(100);
+
+        assertThat(bucket.getAvailableTokens()).isEqualTo(5.0);
+        assertThat(bucket.tryConsume()).isZero();
+    }
+
+    @Test
+    void neverExceedsCapacity() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(2, 60_000);
+
+        Thread.sleep(10);
+
+        assertThat(bucket.getAvailableTokens()).isEqualTo(2.0);
+        assertThat(bucket.tryConsume()).isZero();
+        assertThat(bucket.tryConsume()).isZero();
+    }
+
+    @Test
+    void rejectedAttemptDoesNotConsume() {
+        TokenBucket bucket = new TokenBucket(1, 6);
+        bucket.tryConsume();
+        double before = bucket.getAvailableTokens();
+
+        bucket.tryConsume();
+
+        assertThat(bucket.getAvailableTokens()).isGreaterThanOrEqualTo(before);
+    }
+}
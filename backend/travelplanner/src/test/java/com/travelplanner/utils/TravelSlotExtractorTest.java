@@ -0,0 +1,140 @@
+package com.travelplanner.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TravelSlotExtractorTest {
+
+    // 2026-09-15 是周二
+    private static final LocalDate TODAY = LocalDate.of(2026, 9, 15);
+
+    private static TravelSlotExtractor.Slots extract(String text) {
+        return TravelSlotExtractor.extract(text, TODAY);
+    }
+
+    @Test
+    void budgetInColloquialNumerals() {
+        assertThat(extract("预算三千五去杭州").getBudget()).isEqualTo(3500);
+        assertThat(extract("一万二左右去成都").getBudget()).isEqualTo(12000);
+        assertThat(extract("预算2万5").getBudget()).isEqualTo(25000);
+        assertThat(extract("花一千零五十块").getBudget()).isEqualTo(1050);
+        assertThat(extract("预算5k").getBudget()).isEqualTo(5000);
+    }
+
+    @Test
+    void perPersonBudgetIsMultipliedByTravelers() {
+        TravelSlotExtractor.Slots slots = extract("我们三个人去厦门，人均两千");
+
+        assertThat(slots.getTravelerCount()).isEqualTo(3);
+        assertThat(slots.getBudget()).isEqualTo(6000);
+        assertThat(slots.isBudgetPerPerson()).isFalse();
+    }
+
+    @Test
+    void perPersonBudgetWithoutTravelersStaysPerPerson() {
+        TravelSlotExtractor.Slots slots = extract("人均三千去西安");
+
+        assertThat(slots.getBudget()).isEqualTo(3000);
+        assertThat(slots.isBudgetPerPerson()).isTrue();
+    }
+
+    @Test
+    void monthDayRangeSharesMonth() {
+        TravelSlotExtractor.Slots slots = extract("10月3号到8号去杭州");
+
+        assertThat(slots.getStartDate()).isEqualTo(LocalDate.of(2026, 10, 3));
+        assertThat(slots.getEndDate()).isEqualTo(LocalDate.of(2026, 10, 8));
+        assertThat(slots.getDays()).isEqualTo(6);
+        assertThat(slots.hasUnresolvedCues()).isFalse();
+    }
+
+    @Test
+    void pastMonthDayRollsToNextYear() {
+        assertThat(extract("3月1号出发").getStartDate()).isEqualTo(LocalDate.of(2027, 3, 1));
+    }
+
+    @Test
+    void daysAndNights() {
+        assertThat(extract("五天四晚").getDays()).isEqualTo(5);
+        assertThat(extract("住四晚").getDays()).isEqualTo(5);
+        assertThat(extract("三日游").getDays()).isEqualTo(3);
+    }
+
+    @Test
+    void startDatePlusDaysGivesEndDate() {
+        TravelSlotExtractor.Slots slots = extract("10月3号出发玩五天");
+
+        assertThat(slots.getStartDate()).isEqualTo(LocalDate.of(2026, 10, 3));
+        assertThat(slots.getEndDate()).isEqualTo(LocalDate.of(2026, 10, 7));
+    }
+
+    @Test
+    void familyShorthandCountsAllMembers() {
+        assertThat(extract("两大一小去三亚").getTravelerCount()).isEqualTo(3);
+        assertThat(extract("两个大人一个小孩").getTravelerCount()).isEqualTo(3);
+        assertThat(extract("一家三口").getTravelerCount()).isEqualTo(3);
+    }
+
+    @Test
+    void nationalDayHoliday() {
+        TravelSlotExtractor.Slots slots = extract("国庆去北京");
+
+        assertThat(slots.getStartDate()).isEqualTo(LocalDate.of(2026, 10, 1));
+        assertThat(slots.getDays()).isEqualTo(7);
+        assertThat(slots.getEndDate()).isEqualTo(LocalDate.of(2026, 10, 7));
+    }
+
+    @Test
+    void elevenAsNationalDayOnlyWithoutUnit() {
+        assertThat(extract("十一去北京").getStartDate()).isEqualTo(LocalDate.of(2026, 10, 1));
+
+        TravelSlotExtractor.Slots slots = extract("十一个人去北京");
+        assertThat(slots.getStartDate()).isNull();
+        assertThat(slots.getTravelerCount()).isEqualTo(11);
+    }
+
+    @Test
+    void nextWeekday() {
+        assertThat(extract("下周五出发").getStartDate()).isEqualTo(LocalDate.of(2026, 9, 25));
+        // 本周已过的星期顺延到下周
+        assertThat(extract("周一出发").getStartDate()).isEqualTo(LocalDate.of(2026, 9, 21));
+        assertThat(extract("周五出发").getStartDate()).isEqualTo(LocalDate.of(2026, 9, 18));
+    }
+
+    @Test
+    void relativeDays() {
+        assertThat(extract("明天去苏州").getStartDate()).isEqualTo(TODAY.plusDays(1));
+        assertThat(extract("下周末去苏州").getStartDate()).isEqualTo(LocalDate.of(2026, 9, 26));
+        assertThat(extract("下个月中去苏州").getStartDate()).isEqualTo(LocalDate.of(2026, 10, 15));
+    }
+
+    @Test
+    void fullSentence() {
+        TravelSlotExtractor.Slots slots = extract("国庆和老婆两个人去成都玩五天，预算一万二");
+
+        assertThat(slots.getStartDate()).isEqualTo(LocalDate.of(2026, 10, 1));
+        assertThat(slots.getDays()).isEqualTo(5);
+        assertThat(slots.getEndDate()).isEqualTo(LocalDate.of(2026, 10, 5));
+        assertThat(slots.getTravelerCount()).isEqualTo(2);
+        assertThat(slots.getBudget()).isEqualTo(12000);
+        assertThat(slots.hasUnresolvedCues()).isFalse();
+    }
+
+    @Test
+    void unparsedCueIsReported() {
+        assertThat(extract("春节去哈尔滨").hasUnresolvedCues()).isTrue();
+        assertThat(extract("去杭州看看").hasUnresolvedCues()).isFalse();
+    }
+
+    @Test
+    void emptyInput() {
+        TravelSlotExtractor.Slots slots = extract("");
+
+        assertThat(slots.getBudget()).isNull();
+        assertThat(slots.getStartDate()).isNull();
+        assertThat(slots.getTravelerCount()).isNull();
+    }
+}
@@ -8,9 +8,11 @@ interface TravelPlanCardProps {
   onEdit: (plan: TravelPlan) => void;
   onDelete: (id: number) => void;
   onView: (plan: TravelPlan) => void;
+  // 全文检索命中处的文字，命中词用【】标出
+  snippet?: string;
 }
 
-const TravelPlanCard: React.FC<TravelPlanCardProps> = ({ plan, onEdit, onDelete, onView }) => {
+const TravelPlanCard: React.FC<TravelPlanCardProps> = ({ plan, onEdit, onDelete, onView, snippet }) => {
   const formatDate = (dateString: string) => {
     return new Date(dateString).toLocaleDateString('zh-CN');
   };
@@ -61,7 +63,7 @@ const TravelPlanCard: React.FC<TravelPlanCardProps> = ({ plan, onEdit, onDelete,
             </div>
           )}
           
-          {plan.itinerary && (
+          {(snippet || plan.itinerary) && (
             <div style={{ 
               maxHeight: 100, 
               overflow: 'hidden', 
@@ -71,7 +73,7 @@ const TravelPlanCard: React.FC<TravelPlanCardProps> = ({ plan, onEdit, onDelete,
               fontSize: 12,
               color: '#666'
             }}>
-              {plan.itinerary.substring(0, 150)}...
+              {snippet || `${plan.itinerary!.substring(0, 150)}...`}
             </div>
           )}
         </div>
@@ -5,15 +5,17 @@ import { useSpeechRecognition } from '../utils/speechRecognition';
 
 interface VoiceInputProps {
   onResult: (text: string) => void;
+  // 识别过程中的整句文本（可用于增量上传）
+  onPartial?: (text: string) => void;
   disabled?: boolean;
 }
 
-const VoiceInput: React.FC<VoiceInputProps> = ({ onResult, disabled = false }) => {
+const VoiceInput: React.FC<VoiceInputProps> = ({ onResult, onPartial, disabled = false }) => {
   const { isListening, transcript, error, startListening, stopListening } = useSpeechRecognition();
 
   const handleStartListening = async () => {
     try {
-      const result = await startListening();
+      const result = await startListening(onPartial);
       onResult(result);
     } catch (err) {
       message.error('语音识别失败，请重试');
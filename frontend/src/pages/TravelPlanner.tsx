@@ -32,6 +32,10 @@ const TravelPlanner: React.FC = () => {
   const [detailModalVisible, setDetailModalVisible] = useState(false);
   const [selectedPlan, setSelectedPlan] = useState<TravelPlan | null>(null);
   const [searchText, setSearchText] = useState('');
+  // 下一页的继续标记，全文检索结果不分页
+  const [nextCursor, setNextCursor] = useState<string | null>(null);
+  // 全文检索结果的摘要，按计划ID
+  const [snippets, setSnippets] = useState<Record<number, string>>({});
   const [form] = Form.useForm();
 
   useEffect(() => {
@@ -41,8 +45,10 @@ const TravelPlanner: React.FC = () => {
   const loadPlans = async () => {
     setLoading(true);
     try {
-      const data = await travelPlanAPI.getAll();
-      setPlans(data);
+      const page = await travelPlanAPI.getAll();
+      setPlans(page.items);
+      setNextCursor(page.nextCursor);
+      setSnippets({});
     } catch (error) {
       message.error('加载旅行计划失败');
     } finally {
@@ -80,10 +86,21 @@ const TravelPlanner: React.FC = () => {
   };
 
   const handleSearch = async () => {
+    if (!searchText.trim()) {
+      loadPlans();
+      return;
+    }
     setLoading(true);
     try {
-      const data = await travelPlanAPI.search(searchText);
-      setPlans(data);
+      // 全文检索按相关度返回，不分页
+      const result = await travelPlanAPI.fullTextSearch(searchText.trim());
+      setPlans(result.items.map(hit => hit.plan));
+      const found: Record<number, string> = {};
+      result.items.forEach(hit => {
+        if (hit.snippet && hit.plan.id) found[hit.plan.id] = hit.snippet;
+      });
+      setSnippets(found);
+      setNextCursor(null);
     } catch (error) {
       message.error('搜索失败');
     } finally {
@@ -91,6 +108,20 @@ const TravelPlanner: React.FC = () => {
     }
   };
 
+  const loadMore = async () => {
+    if (!nextCursor) return;
+    setLoading(true);
+    try {
+      const page = await travelPlanAPI.getAll({ cursor: nextCursor });
+      setPlans(prev => [...prev, ...page.items]);
+      setNextCursor(page.nextCursor);
+    } catch (error) {
+      message.error('加载旅行计划失败');
+    } finally {
+      setLoading(false);
+    }
+  };
+
   const handleVoiceResult = (text: string) => {
     form.setFieldsValue({
       preferences: text
@@ -98,9 +129,17 @@ const TravelPlanner: React.FC = () => {
     message.info(`语音输入: ${text}`);
   };
 
-  const showPlanDetail = (plan: TravelPlan) => {
+  const showPlanDetail = async (plan: TravelPlan) => {
     setSelectedPlan(plan);
     setDetailModalVisible(true);
+    // 列表不含行程正文，打开详情时再加载
+    if (plan.id && !plan.itinerary) {
+      try {
+        setSelectedPlan(await travelPlanAPI.getById(plan.id));
+      } catch (error) {
+        message.error('加载行程详情失败');
+      }
+    }
   };
 
   return (
@@ -145,7 +184,7 @@ const TravelPlanner: React.FC = () => {
         <Row gutter={16} align="middle">
           <Col flex="auto">
             <Input
-              placeholder="搜索目的地..."
+              placeholder="搜索目的地、偏好或行程..."
               value={searchText}
               onChange={(e) => setSearchText(e.target.value)}
               onPressEnter={handleSearch}
@@ -174,8 +213,15 @@ const TravelPlanner: React.FC = () => {
             }}
             onDelete={handleDeletePlan}
             onView={showPlanDetail}
+            snippet={plan.id ? snippets[plan.id] : undefined}
           />
         ))}
+
+        {nextCursor && (
+          <div style={{ textAlign: 'center', marginTop: 16 }}>
+            <Button onClick={loadMore} loading={loading}>加载更多</Button>
+          </div>
+        )}
         
         {plans.length === 0 && !loading && (
           <Card style={{ textAlign: 'center', color: '#999' }}>
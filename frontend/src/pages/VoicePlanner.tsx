@@ -1,4 +1,4 @@
-import React, { useState } from 'react';
+import React, { useRef, useState } from 'react';
 import { 
     Card, 
     Button, 
@@ -35,11 +35,39 @@ const VoicePlanner: React.FC = () => {
         stopListening 
     } = useSpeechRecognition();
 
+    // 增量语音会话：识别过程中节流上传整句文本，后端提前解析并预生成行程
+    const sessionIdRef = useRef('');
+    const seqRef = useRef(0);
+    const partialTimerRef = useRef<ReturnType<typeof setTimeout> | null>(null);
+    const latestPartialRef = useRef('');
+
+    const flushPartial = () => {
+        partialTimerRef.current = null;
+        seqRef.current += 1;
+        voicePlanAPI.sendPartial(sessionIdRef.current, latestPartialRef.current, seqRef.current)
+            .catch(err => console.warn('上传识别中文本失败:', err));
+    };
+
+    const handlePartial = (text: string) => {
+        latestPartialRef.current = text;
+        if (!partialTimerRef.current) {
+            partialTimerRef.current = setTimeout(flushPartial, 300);
+        }
+    };
+
     const handleStartListening = async () => {
         try {
             setGeneratedPlan(null);
             setAiAnalysis(null);
-            await startListening();
+            sessionIdRef.current = `${Date.now().toString(36)}-${Math.random().toString(36).slice(2, 10)}`;
+            seqRef.current = 0;
+            const result = await startListening(handlePartial);
+            // 最终结果也上传一次，提交前让预生成尽量用上完整文本
+            latestPartialRef.current = result;
+            if (partialTimerRef.current) {
+                clearTimeout(partialTimerRef.current);
+            }
+            flushPartial();
         } catch (err) {
             message.error('语音识别失败，请重试');
         }
@@ -91,8 +119,11 @@ const handleGeneratePlan = async () => {
 
     setIsGenerating(true);
     try {
-        // 使用统一的 API 服务而不是直接 fetch
-        const response = await voicePlanAPI.generate(transcript);
+        // 有增量会话时提交到会话，可直接用上已预生成的行程
+        const response = sessionIdRef.current
+            ? await voicePlanAPI.finishSession(sessionIdRef.current, transcript)
+            : await voicePlanAPI.generate(transcript);
+        sessionIdRef.current = '';
         
         setGeneratedPlan(response.plan);
         setAiAnalysis(response.aiAnalysis);
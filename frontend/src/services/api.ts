@@ -1,5 +1,5 @@
 import axios from 'axios';
-import { TravelPlan, Expense, AuthResponse, LoginRequest, RegisterRequest } from '../types';
+import { TravelPlan, Expense, ExpenseSummary, ExpenseImportResult, AuthResponse, LoginRequest, RegisterRequest, CursorPage, PageQuery, PlanSearchHit } from '../types';
 import { message } from 'antd';
 
 const API_BASE_URL = 'http://localhost:8080/api';
@@ -60,8 +60,8 @@ export const authAPI = {
 };
 
 export const travelPlanAPI = {
-  getAll: (): Promise<TravelPlan[]> =>
-    api.get('/travel-plans').then(res => res.data),
+  getAll: (query?: PageQuery): Promise<CursorPage<TravelPlan>> =>
+    api.get('/travel-plans', { params: query }).then(res => res.data),
   
   getById: (id: number): Promise<TravelPlan> =>
     api.get(`/travel-plans/${id}`).then(res => res.data),
@@ -69,21 +69,77 @@ export const travelPlanAPI = {
   create: (data: Omit<TravelPlan, 'id'>): Promise<TravelPlan> =>
     api.post('/travel-plans', data).then(res => res.data),
   
+  // 流式创建：通过 SSE 逐段接收行程内容，完成后返回保存的计划
+  // 上游中途失败时收到 reset：已显示的内容作废，之后的分片是备用行程
+  createStream: async (data: Omit<TravelPlan, 'id'>, onChunk: (text: string) => void,
+                       onReset?: (message: string) => void): Promise<TravelPlan> => {
+    const response = await fetch(`${API_BASE_URL}/travel-plans/stream`, {
+      method: 'POST',
+      headers: {
+        'Content-Type': 'application/json',
+        Accept: 'text/event-stream',
+        Authorization: `Bearer ${localStorage.getItem('token') || ''}`,
+      },
+      credentials: 'include',
+      body: JSON.stringify(data),
+    });
+    if (response.status === 503) {
+      throw new Error('服务繁忙，请稍后再试');
+    }
+    if (!response.ok || !response.body) {
+      throw new Error(`流式创建失败: ${response.status}`);
+    }
+
+    const reader = response.body.getReader();
+    const decoder = new TextDecoder('utf-8');
+    let buffer = '';
+    while (true) {
+      const { done, value } = await reader.read();
+      if (done) break;
+      buffer += decoder.decode(value, { stream: true });
+
+      let boundary;
+      while ((boundary = buffer.indexOf('\n\n')) >= 0) {
+        const rawEvent = buffer.slice(0, boundary);
+        buffer = buffer.slice(boundary + 2);
+        const event = rawEvent.match(/^event:(.*)$/m)?.[1]?.trim();
+        const payload = rawEvent.match(/^data:(.*)$/m)?.[1];
+        if (!payload) continue;
+        if (event === 'chunk') onChunk(JSON.parse(payload).text);
+        if (event === 'reset') onReset?.(JSON.parse(payload).message);
+        if (event === 'done') return JSON.parse(payload);
+        if (event === 'error') throw new Error(JSON.parse(payload).message);
+      }
+    }
+    throw new Error('流式创建意外结束');
+  },
+
   delete: (id: number): Promise<void> =>
     api.delete(`/travel-plans/${id}`),
-  
-  search: (destination: string): Promise<TravelPlan[]> =>
-    api.get(`/travel-plans/search?destination=${destination}`).then(res => res.data),
+
+  search: (destination: string, query?: PageQuery): Promise<CursorPage<TravelPlan>> =>
+    api.get('/travel-plans/search', { params: { destination, ...query } }).then(res => res.data),
+
+  // 在目的地、偏好和行程正文中全文检索，按相关度返回前 limit 条
+  fullTextSearch: (q: string, limit?: number): Promise<{ items: PlanSearchHit[] }> =>
+    api.get('/travel-plans/search', { params: { q, limit } }).then(res => res.data),
 };
 
 export const voicePlanAPI = {
     generate: (voiceText: string): Promise<any> =>
         api.post('/voice-plan/generate', { voiceText }).then(res => res.data),
+
+    // 增量语音输入：上传识别中的整句文本，seq 递增，后端据此提前解析并预生成行程
+    sendPartial: (sessionId: string, text: string, seq: number): Promise<any> =>
+        api.post(`/voice-plan/sessions/${sessionId}/partial`, { text, seq }).then(res => res.data),
+
+    finishSession: (sessionId: string, voiceText: string): Promise<any> =>
+        api.post(`/voice-plan/sessions/${sessionId}/finish`, { voiceText }).then(res => res.data),
 };
 
 export const expenseAPI = {
-  getByPlan: (planId: number): Promise<Expense[]> =>
-    api.get(`/expenses/plan/${planId}`).then(res => res.data),
+  getByPlan: (planId: number, query?: PageQuery): Promise<CursorPage<Expense>> =>
+    api.get(`/expenses/plan/${planId}`, { params: query }).then(res => res.data),
   
   create: (data: Omit<Expense, 'id'>): Promise<Expense> =>
     api.post('/expenses', data).then(res => res.data),
@@ -93,6 +149,16 @@ export const expenseAPI = {
   
   delete: (id: number): Promise<void> =>
     api.delete(`/expenses/${id}`),
+
+  // 批量导入：CSV 首行为表头，NDJSON 每行一个对象；行中没有 planId 时计入 planId 参数指定的计划
+  importFile: (file: File, planId?: number): Promise<ExpenseImportResult> =>
+    api.post('/expenses/import', file, {
+      params: { planId },
+      headers: { 'Content-Type': file.name.toLowerCase().endsWith('.csv') ? 'text/csv' : 'application/x-ndjson' },
+    }).then(res => res.data),
+
+  getSummary: (planId: number): Promise<ExpenseSummary> =>
+    api.get(`/expenses/plan/${planId}/summary`).then(res => res.data),
 };
 
 export default api;
\ No newline at end of file
@@ -14,10 +14,12 @@ export interface TravelPlan {
   budget: number;
   travelerCount: number;
   preferences: string;
+  // 列表接口不返回行程正文，详情通过 travelPlanAPI.getById 获取
   itinerary?: string;
   createdAt?: string;
-  user?: User;
-  expenses?: Expense[];
+  status?: 'PENDING' | 'GENERATING' | 'COMPLETED' | 'FAILED';
+  provisional?: boolean;
+  itineraryVersion?: number;
 }
 
 export interface Expense {
@@ -26,7 +28,61 @@ export interface Expense {
   description: string;
   amount: number;
   expenseDate: string;
-  travelPlan?: TravelPlan;
+  // 返回时只有 planId；创建时以 travelPlan: { id } 指定所属计划
+  planId?: number;
+  travelPlan?: Pick<TravelPlan, 'id'>;
+}
+
+// 费用汇总中按分类（category）或按日期（date）的一组
+export interface ExpenseRollup {
+  category?: string;
+  date?: string;
+  total: number;
+  count: number;
+  min: number;
+  max: number;
+}
+
+export interface ExpenseSummary {
+  totalExpenses: number;
+  expenseCount: number;
+  minExpense: number | null;
+  maxExpense: number | null;
+  budgetRemaining: number;
+  budgetUsage: number;
+  // 按金额从大到小
+  categories: ExpenseRollup[];
+  // 按日期从早到晚
+  daily: ExpenseRollup[];
+}
+
+// 批量导入结果，errors 只列出前若干个出错行
+export interface ExpenseImportResult {
+  imported: number;
+  failed: number;
+  errors: { line: number; message: string }[];
+  truncated: boolean;
+  elapsedMs: number;
+}
+
+// 键集分页：下一页请求带上 nextCursor 和相同的 order
+export interface CursorPage<T> {
+  items: T[];
+  nextCursor: string | null;
+  hasMore: boolean;
+}
+
+// 全文检索结果，score 越大越相关
+export interface PlanSearchHit {
+  plan: TravelPlan;
+  score: number;
+  snippet: string | null;
+}
+
+export interface PageQuery {
+  cursor?: string;
+  limit?: number;
+  order?: 'asc' | 'desc';
 }
 
 export interface AuthResponse {
@@ -17,8 +17,8 @@ export class SpeechRecognitionUtil {
     this.recognition.lang = 'zh-CN';
   }
 
-  // 开始语音识别
-  start(): Promise<string> {
+  // 开始语音识别；传入 onPartial 时边说边回调识别中的整句文本
+  start(onPartial?: (text: string) => void): Promise<string> {
     return new Promise((resolve, reject) => {
       if (this.isListening) {
         reject(new Error('语音识别正在进行中'));
@@ -26,9 +26,15 @@ export class SpeechRecognitionUtil {
       }
 
       this.isListening = true;
+      this.recognition.interimResults = !!onPartial;
 
       this.recognition.onresult = (event: any) => {
-        const transcript = event.results[0][0].transcript;
+        const result = event.results[0];
+        const transcript = result[0].transcript;
+        if (!result.isFinal) {
+          onPartial?.(transcript);
+          return;
+        }
         this.isListening = false;
         resolve(transcript);
       };
@@ -68,7 +74,7 @@ export const useSpeechRecognition = () => {
   const [transcript, setTranscript] = useState('');
   const [error, setError] = useState<string | null>(null);
 
-  const startListening = useCallback(async () => {
+  const startListening = useCallback(async (onPartial?: (text: string) => void) => {
     try {
       if (!SpeechRecognitionUtil.isSupported()) {
         throw new Error('浏览器不支持语音识别');
@@ -78,7 +84,10 @@ export const useSpeechRecognition = () => {
       setError(null);
       
       const recognition = new SpeechRecognitionUtil();
-      const result = await recognition.start();
+      const result = await recognition.start(onPartial && ((text: string) => {
+        setTranscript(text);
+        onPartial(text);
+      }));
       
       setTranscript(result);
       setIsListening(false);